@@ -85,15 +85,37 @@ sub list_connectors()
             {'field' => 'agentState', 'title' => 'Agent State'},
             {'field' => 'resource',   'title' => 'Managed Resource'},
             {'field' => 'status',   'title' => 'Status'},
+            {'field' => 'execution', 'title' => 'Execution'},
+            {'field' => 'commands', 'title' => 'Commands'},
         ],
         'data' => []
     };
     foreach my $connector (@{$response}) {
+        my $execution = '';
+        my $executionStatistics = $connector->{'executionStatistics'};
+        if ( defined($executionStatistics) ) {
+            $execution = sprintf("waiting: %d, running: %d, completed: %d, avg wait: %d ms, avg exec: %d ms",
+                $executionStatistics->{'waitingCount'}, $executionStatistics->{'runningCount'},
+                $executionStatistics->{'completedCount'}, $executionStatistics->{'averageWaitingDuration'},
+                $executionStatistics->{'averageExecutionDuration'});
+        }
+        my $commands = '';
+        if ( defined($connector->{'status'}) ) {
+            $commands = sprintf("refused: %d", $connector->{'status'}->{'refusedCount'});
+            foreach my $commandStatistics (@{$connector->{'status'}->{'commandStatistics'} || []}) {
+                $commands .= sprintf("\n%s: %d, avg: %d ms, p95: <=%d ms, max: %d ms",
+                    $commandStatistics->{'command'}, $commandStatistics->{'count'},
+                    $commandStatistics->{'averageLatency'}, $commandStatistics->{'percentileLatency'},
+                    $commandStatistics->{'maxLatency'});
+            }
+        }
         push(@{$table->{'data'}}, {
             'agent' => $connector->{'name'},
             'agentState' => [$connector->{'agentState'}, $AgentState->{$connector->{'agentState'}}],
             'resource' => $connector->{'resourceId'},
-            'status' => [$connector->{'status'}->{'state'}, $ConnectorState->{$connector->{'status'}->{'state'}}]
+            'status' => [$connector->{'status'}->{'state'}, $ConnectorState->{$connector->{'status'}->{'state'}}],
+            'execution' => $execution,
+            'commands' => $commands
         });
     }
     console_print_table($table);
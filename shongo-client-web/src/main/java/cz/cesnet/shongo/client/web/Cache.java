@@ -1,7 +1,7 @@
 package cz.cesnet.shongo.client.web;
 
 import cz.cesnet.shongo.CommonReportSet;
-import cz.cesnet.shongo.ExpirationMap;
+import cz.cesnet.shongo.ConcurrentExpirationMap;
 import cz.cesnet.shongo.TodoImplementException;
 import cz.cesnet.shongo.api.UserInformation;
 import cz.cesnet.shongo.client.web.auth.UserPermission;
@@ -27,6 +27,10 @@ import java.util.*;
 
 /**
  * Cache of {@link UserInformation}s, {@link ObjectPermission}s, {@link ReservationRequestSummary}s.
+ * <p/>
+ * It is used by each page render and thus it doesn't use a single monitor but each cache is a
+ * {@link ConcurrentExpirationMap} which loads each missing item only once at a time and which doesn't block
+ * requests for other items (missing items requested together are loaded by single call of the controller).
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
@@ -54,55 +58,63 @@ public class Cache
     /**
      * {@link UserInformation}s by {@link SecurityToken}.
      */
-    private ExpirationMap<SecurityToken, Map<UserPermission, Boolean>> userPermissionsByToken =
-            new ExpirationMap<SecurityToken, Map<UserPermission, Boolean>>();
+    private final ConcurrentExpirationMap<SecurityToken, Map<UserPermission, Boolean>> userPermissionsByToken =
+            new ConcurrentExpirationMap<SecurityToken, Map<UserPermission, Boolean>>();
 
     /**
      * {@link UserInformation}s by user-ids.
      */
-    private ExpirationMap<String, UserInformation> userInformationByUserId =
-            new ExpirationMap<String, UserInformation>();
+    private final ConcurrentExpirationMap<String, UserInformation> userInformationByUserId =
+            new ConcurrentExpirationMap<String, UserInformation>();
 
     /**
      * {@link Group}s by group-ids.
      */
-    private ExpirationMap<String, Group> groupByGroupId =
-            new ExpirationMap<String, Group>();
+    private final ConcurrentExpirationMap<String, Group> groupByGroupId =
+            new ConcurrentExpirationMap<String, Group>();
 
     /**
      * {@link UserState}s by {@link SecurityToken}.
      */
-    private ExpirationMap<SecurityToken, UserState> userStateByToken = new ExpirationMap<SecurityToken, UserState>();
+    private final ConcurrentExpirationMap<SecurityToken, UserState> userStateByToken =
+            new ConcurrentExpirationMap<SecurityToken, UserState>();
 
     /**
      * {@link ResourceSummary} by identifier.
      */
-    private ExpirationMap<String, ResourceSummary> resourceById =
-            new ExpirationMap<String, ResourceSummary>();
+    private final ConcurrentExpirationMap<String, ResourceSummary> resourceById =
+            new ConcurrentExpirationMap<String, ResourceSummary>();
 
     /**
      * {@link ReservationRequestSummary} by identifier.
      */
-    private ExpirationMap<String, ReservationRequestSummary> reservationRequestById =
-            new ExpirationMap<String, ReservationRequestSummary>();
+    private final ConcurrentExpirationMap<String, ReservationRequestSummary> reservationRequestById =
+            new ConcurrentExpirationMap<String, ReservationRequestSummary>();
 
     /**
      * {@link Reservation} by identifier.
      */
-    private ExpirationMap<String, Reservation> reservationById =
-            new ExpirationMap<String, Reservation>();
+    private final ConcurrentExpirationMap<String, Reservation> reservationById =
+            new ConcurrentExpirationMap<String, Reservation>();
 
     /**
      * {@link Reservation} by identifier.
      */
-    private ExpirationMap<String, Executable> executableById =
-            new ExpirationMap<String, Executable>();
+    private final ConcurrentExpirationMap<String, Executable> executableById =
+            new ConcurrentExpirationMap<String, Executable>();
 
     /**
-     * @see ResourcesUtilization
+     * {@link ResourcesUtilization} shared by all users with {@link UserPermission#OPERATOR}
+     * (because they can see all resources and reservations).
      */
-    private final ExpirationMap<SecurityToken, ResourcesUtilization> resourcesUtilizationByToken =
-            new ExpirationMap<SecurityToken, ResourcesUtilization>();
+    private final ConcurrentExpirationMap<UserPermission, ResourcesUtilization> resourcesUtilizationByPermission =
+            new ConcurrentExpirationMap<UserPermission, ResourcesUtilization>();
+
+    /**
+     * {@link ResourcesUtilization} for users without {@link UserPermission#OPERATOR}.
+     */
+    private final ConcurrentExpirationMap<SecurityToken, ResourcesUtilization> resourcesUtilizationByToken =
+            new ConcurrentExpirationMap<SecurityToken, ResourcesUtilization>();
 
     /**
      * Cached information for single user.
@@ -112,8 +124,8 @@ public class Cache
         /**
          * Set of permissions which the user has for object.
          */
-        private ExpirationMap<String, Set<ObjectPermission>> objectPermissionsByObject =
-                new ExpirationMap<String, Set<ObjectPermission>>();
+        private final ConcurrentExpirationMap<String, Set<ObjectPermission>> objectPermissionsByObject =
+                new ConcurrentExpirationMap<String, Set<ObjectPermission>>();
 
         /**
          * Constructor.
@@ -138,6 +150,7 @@ public class Cache
         reservationRequestById.setExpiration(Duration.standardMinutes(5));
         reservationById.setExpiration(Duration.standardMinutes(5));
         executableById.setExpiration(Duration.standardSeconds(10));
+        resourcesUtilizationByPermission.setExpiration(Duration.standardMinutes(10));
         resourcesUtilizationByToken.setExpiration(Duration.standardMinutes(10));
     }
 
@@ -145,12 +158,13 @@ public class Cache
      * Method called each 5 minutes to clear expired items.
      */
     @Scheduled(fixedDelay = (USER_EXPIRATION_MINUTES * 60 * 1000))
-    public synchronized void clearExpired()
+    public void clearExpired()
     {
         logger.debug("Clearing expired user cache...");
         DateTime dateTimeNow = DateTime.now();
         userPermissionsByToken.clearExpired(dateTimeNow);
         userInformationByUserId.clearExpired(dateTimeNow);
+        groupByGroupId.clearExpired(dateTimeNow);
         userStateByToken.clearExpired(dateTimeNow);
         for (UserState userState : userStateByToken) {
             userState.objectPermissionsByObject.clearExpired(dateTimeNow);
@@ -159,13 +173,34 @@ public class Cache
         reservationRequestById.clearExpired(dateTimeNow);
         reservationById.clearExpired(dateTimeNow);
         executableById.clearExpired(dateTimeNow);
+        resourcesUtilizationByPermission.clearExpired(dateTimeNow);
         resourcesUtilizationByToken.clearExpired(dateTimeNow);
     }
 
+    /**
+     * @return {@link ConcurrentExpirationMap.Statistics} of all caches by names
+     */
+    public Map<String, ConcurrentExpirationMap.Statistics> getStatistics()
+    {
+        Map<String, ConcurrentExpirationMap.Statistics> statistics =
+                new LinkedHashMap<String, ConcurrentExpirationMap.Statistics>();
+        statistics.put("userPermissionsByToken", userPermissionsByToken.getStatistics());
+        statistics.put("userInformationByUserId", userInformationByUserId.getStatistics());
+        statistics.put("groupByGroupId", groupByGroupId.getStatistics());
+        statistics.put("userStateByToken", userStateByToken.getStatistics());
+        statistics.put("resourceById", resourceById.getStatistics());
+        statistics.put("reservationRequestById", reservationRequestById.getStatistics());
+        statistics.put("reservationById", reservationById.getStatistics());
+        statistics.put("executableById", executableById.getStatistics());
+        statistics.put("resourcesUtilizationByPermission", resourcesUtilizationByPermission.getStatistics());
+        statistics.put("resourcesUtilizationByToken", resourcesUtilizationByToken.getStatistics());
+        return statistics;
+    }
+
     /**
      * @param executableId to be removed from the {@link #executableById}
      */
-    public synchronized void clearExecutable(String executableId)
+    public void clearExecutable(String executableId)
     {
         executableById.remove(executableId);
     }
@@ -173,7 +208,7 @@ public class Cache
     /**
      * @param securityToken to be removed from the {@link #userPermissionsByToken}
      */
-    public synchronized void clearUserPermissions(SecurityToken securityToken)
+    public void clearUserPermissions(SecurityToken securityToken)
     {
         userPermissionsByToken.remove(securityToken);
     }
@@ -191,14 +226,15 @@ public class Cache
 
     public boolean hasUserPermission(SecurityToken securityToken, UserPermission userPermission)
     {
-        Map<UserPermission, Boolean> userPermissions;
-        synchronized (this) {
-            userPermissions = userPermissionsByToken.get(securityToken);
-            if (userPermissions == null) {
-                userPermissions = new HashMap<UserPermission, Boolean>();
-                userPermissionsByToken.put(securityToken, userPermissions);
-            }
-        }
+        Map<UserPermission, Boolean> userPermissions = userPermissionsByToken.get(securityToken,
+                new ConcurrentExpirationMap.Loader<SecurityToken, Map<UserPermission, Boolean>>()
+                {
+                    @Override
+                    public Map<UserPermission, Boolean> load(SecurityToken securityToken)
+                    {
+                        return new HashMap<UserPermission, Boolean>();
+                    }
+                });
         synchronized (userPermissions) {
             Boolean userPermissionResult = userPermissions.get(userPermission);
             if (userPermissionResult == null) {
@@ -239,69 +275,70 @@ public class Cache
      * @param userId        user-id of the requested user
      * @return {@link UserInformation} for given {@code userId}
      */
-    public synchronized UserInformation getUserInformation(SecurityToken securityToken, String userId)
+    public UserInformation getUserInformation(final SecurityToken securityToken, String userId)
     {
         if (userId == null) {
             return null;
         }
-        UserInformation userInformation = userInformationByUserId.get(userId);
-        if (userInformation == null) {
-            try {
-                ListResponse<UserInformation> response = authorizationService.listUsers(
-                        new UserListRequest(securityToken, userId));
-                if (response.getCount() == 0) {
-                    throw new ControllerReportSet.UserNotExistsException(userId);
+        return userInformationByUserId.get(userId, new ConcurrentExpirationMap.Loader<String, UserInformation>()
+        {
+            @Override
+            public UserInformation load(String userId)
+            {
+                try {
+                    ListResponse<UserInformation> response = authorizationService.listUsers(
+                            new UserListRequest(securityToken, userId));
+                    if (response.getCount() == 0) {
+                        throw new ControllerReportSet.UserNotExistsException(userId);
+                    }
+                    return response.getItem(0);
+                }
+                catch (ControllerReportSet.UserNotExistsException exception) {
+                    logger.warn("User with id '" + userId + "' doesn't exist.", exception);
+                    return createNotExistingUserInformation(userId);
                 }
-                userInformation = response.getItem(0);
-            }
-            catch (ControllerReportSet.UserNotExistsException exception) {
-                logger.warn("User with id '" + userId + "' doesn't exist.", exception);
-                userInformation = createNotExistingUserInformation(userId);
             }
-            userInformationByUserId.put(userId, userInformation);
-        }
-        return userInformation;
+        });
     }
 
     /**
      * @param securityToken to be used for fetching the {@link UserInformation}s
      * @param userIds       user-ids of the requested users
      */
-    public synchronized void fetchUserInformation(SecurityToken securityToken, Collection<String> userIds)
+    public void fetchUserInformation(final SecurityToken securityToken, Collection<String> userIds)
     {
-        Set<String> missingUserIds = null;
-        for (String userId : userIds) {
-            if (!userInformationByUserId.contains(userId)) {
-                if (missingUserIds == null) {
-                    missingUserIds = new HashSet<String>();
-                }
-                missingUserIds.add(userId);
-            }
-        }
-        if (missingUserIds != null) {
-            while (missingUserIds.size() > 0) {
-                try {
-                    ListResponse<UserInformation> response = authorizationService.listUsers(
-                            new UserListRequest(securityToken, missingUserIds));
-                    for (UserInformation userInformation : response.getItems()) {
-                        String userId = userInformation.getUserId();
+        userInformationByUserId.getAll(userIds, new ConcurrentExpirationMap.BulkLoader<String, UserInformation>()
+        {
+            @Override
+            public Map<String, UserInformation> load(Set<String> missingUserIds)
+            {
+                Map<String, UserInformation> userInformationByUserId = new HashMap<String, UserInformation>();
+                missingUserIds = new HashSet<String>(missingUserIds);
+                while (missingUserIds.size() > 0) {
+                    try {
+                        ListResponse<UserInformation> response = authorizationService.listUsers(
+                                new UserListRequest(securityToken, missingUserIds));
+                        for (UserInformation userInformation : response.getItems()) {
+                            String userId = userInformation.getUserId();
+                            userInformationByUserId.put(userId, userInformation);
+                            missingUserIds.remove(userId);
+                        }
+                        if (missingUserIds.size() > 0) {
+                            throw new ControllerReportSet.UserNotExistsException(missingUserIds.iterator().next());
+                        }
+                    }
+                    catch (ControllerReportSet.UserNotExistsException exception) {
+                        String userId = exception.getUser();
+                        logger.warn("User with id '" + userId + "' doesn't exist.", exception);
+                        UserInformation userInformation = createNotExistingUserInformation(userId);
                         userInformationByUserId.put(userId, userInformation);
                         missingUserIds.remove(userId);
+                        continue;
                     }
-                    if (missingUserIds.size() > 0) {
-                        throw new ControllerReportSet.UserNotExistsException(missingUserIds.iterator().next());
-                    }
-                }
-                catch (ControllerReportSet.UserNotExistsException exception) {
-                    String userId = exception.getUser();
-                    logger.warn("User with id '" + userId + "' doesn't exist.", exception);
-                    UserInformation userInformation = createNotExistingUserInformation(userId);
-                    userInformationByUserId.put(userId, userInformation);
-                    missingUserIds.remove(userId);
-                    continue;
                 }
+                return userInformationByUserId;
             }
-        }
+        });
     }
 
     /**
@@ -309,33 +346,37 @@ public class Cache
      * @param groupId       group-id of the requested group
      * @return {@link Group} for given {@code groupId}
      */
-    public synchronized Group getGroup(SecurityToken securityToken, String groupId)
+    public Group getGroup(final SecurityToken securityToken, String groupId)
     {
-        Group group = groupByGroupId.get(groupId);
-        if (group == null) {
-            ListResponse<Group> response = authorizationService.listGroups(
-                    new GroupListRequest(securityToken, groupId));
-            if (response.getCount() == 0) {
-                throw new RuntimeException("Group with id '" + groupId + "' doesn't exist.");
+        return groupByGroupId.get(groupId, new ConcurrentExpirationMap.Loader<String, Group>()
+        {
+            @Override
+            public Group load(String groupId)
+            {
+                ListResponse<Group> response = authorizationService.listGroups(
+                        new GroupListRequest(securityToken, groupId));
+                if (response.getCount() == 0) {
+                    throw new RuntimeException("Group with id '" + groupId + "' doesn't exist.");
+                }
+                return response.getItem(0);
             }
-            group = response.getItem(0);
-            groupByGroupId.put(groupId, group);
-        }
-        return group;
+        });
     }
 
     /**
      * @param securityToken
      * @return {@link UserState} for user with given {@code securityToken}
      */
-    private synchronized UserState getUserState(SecurityToken securityToken)
+    private UserState getUserState(SecurityToken securityToken)
     {
-        UserState userState = userStateByToken.get(securityToken);
-        if (userState == null) {
-            userState = new UserState();
-            userStateByToken.put(securityToken, userState);
-        }
-        return userState;
+        return userStateByToken.get(securityToken, new ConcurrentExpirationMap.Loader<SecurityToken, UserState>()
+        {
+            @Override
+            public UserState load(SecurityToken securityToken)
+            {
+                return new UserState();
+            }
+        });
     }
 
     /**
@@ -343,18 +384,23 @@ public class Cache
      * @param objectId      of the object
      * @return set of {@link ObjectPermission} for requesting user and given {@code objectId}
      */
-    public synchronized Set<ObjectPermission> getObjectPermissions(SecurityToken securityToken, String objectId)
+    public Set<ObjectPermission> getObjectPermissions(final SecurityToken securityToken, String objectId)
     {
         UserState userState = getUserState(securityToken);
-        Set<ObjectPermission> objectPermissions = userState.objectPermissionsByObject.get(objectId);
-        if (objectPermissions == null) {
-            Map<String, ObjectPermissionSet> permissionsByObject = authorizationService.listObjectPermissions(
-                    new ObjectPermissionListRequest(securityToken, objectId));
-            objectPermissions = new HashSet<ObjectPermission>();
-            objectPermissions.addAll(permissionsByObject.get(objectId).getObjectPermissions());
-            userState.objectPermissionsByObject.put(objectId, objectPermissions);
-        }
-        return objectPermissions;
+        return userState.objectPermissionsByObject.get(objectId,
+                new ConcurrentExpirationMap.Loader<String, Set<ObjectPermission>>()
+                {
+                    @Override
+                    public Set<ObjectPermission> load(String objectId)
+                    {
+                        Map<String, ObjectPermissionSet> permissionsByObject =
+                                authorizationService.listObjectPermissions(
+                                        new ObjectPermissionListRequest(securityToken, objectId));
+                        Set<ObjectPermission> objectPermissions = new HashSet<ObjectPermission>();
+                        objectPermissions.addAll(permissionsByObject.get(objectId).getObjectPermissions());
+                        return objectPermissions;
+                    }
+                });
     }
 
     /**
@@ -362,26 +408,23 @@ public class Cache
      * @param reservationRequests
      * @return map of {@link ObjectPermission}s by reservation request identifier
      */
-    public Map<String, Set<ObjectPermission>> getReservationRequestsPermissions(SecurityToken securityToken,
+    public Map<String, Set<ObjectPermission>> getReservationRequestsPermissions(final SecurityToken securityToken,
             Collection<ReservationRequestSummary> reservationRequests)
     {
-        Map<String, Set<ObjectPermission>> permissionsByReservationRequestId = new HashMap<String, Set<ObjectPermission>>();
-        Set<String> reservationRequestIds = new HashSet<String>();
+        Set<String> reservationRequestIds = new LinkedHashSet<String>();
         for (ReservationRequestSummary reservationRequest : reservationRequests) {
-            String reservationRequestId = reservationRequest.getId();
-            Set<ObjectPermission> objectPermissions =
-                    getObjectPermissionsWithoutFetching(securityToken, reservationRequestId);
-            if (objectPermissions != null) {
-                permissionsByReservationRequestId.put(reservationRequestId, objectPermissions);
-            }
-            else {
-                reservationRequestIds.add(reservationRequestId);
-            }
+            reservationRequestIds.add(reservationRequest.getId());
         }
-        if (reservationRequestIds.size() > 0) {
-            permissionsByReservationRequestId.putAll(fetchObjectPermissions(securityToken, reservationRequestIds));
-        }
-        return permissionsByReservationRequestId;
+        UserState userState = getUserState(securityToken);
+        return userState.objectPermissionsByObject.getAll(reservationRequestIds,
+                new ConcurrentExpirationMap.BulkLoader<String, Set<ObjectPermission>>()
+                {
+                    @Override
+                    public Map<String, Set<ObjectPermission>> load(Set<String> reservationRequestIds)
+                    {
+                        return listObjectPermissions(securityToken, reservationRequestIds);
+                    }
+                });
     }
 
     /**
@@ -390,8 +433,7 @@ public class Cache
      * @return set of {@link ObjectPermission} for requesting user and given {@code objectId}
      *         or null if the {@link ObjectPermission}s aren't cached
      */
-    public synchronized Set<ObjectPermission> getObjectPermissionsWithoutFetching(
-            SecurityToken securityToken, String objectId)
+    public Set<ObjectPermission> getObjectPermissionsWithoutFetching(SecurityToken securityToken, String objectId)
     {
         UserState userState = getUserState(securityToken);
         return userState.objectPermissionsByObject.get(objectId);
@@ -404,26 +446,35 @@ public class Cache
      * @param objectIds
      * @return fetched {@link ObjectPermission}s by {@code objectIds}
      */
-    public synchronized Map<String, Set<ObjectPermission>> fetchObjectPermissions(
-            SecurityToken securityToken, Set<String> objectIds)
+    public Map<String, Set<ObjectPermission>> fetchObjectPermissions(SecurityToken securityToken,
+            Set<String> objectIds)
     {
-        Map<String, Set<ObjectPermission>> result = new HashMap<String, Set<ObjectPermission>>();
         if (objectIds.isEmpty()) {
-            return result;
+            return new HashMap<String, Set<ObjectPermission>>();
         }
         UserState userState = getUserState(securityToken);
+        Map<String, Set<ObjectPermission>> result = listObjectPermissions(securityToken, objectIds);
+        for (Map.Entry<String, Set<ObjectPermission>> entry : result.entrySet()) {
+            userState.objectPermissionsByObject.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * @param securityToken
+     * @param objectIds
+     * @return {@link ObjectPermission}s by {@code objectIds} listed from {@link #authorizationService}
+     */
+    private Map<String, Set<ObjectPermission>> listObjectPermissions(SecurityToken securityToken,
+            Set<String> objectIds)
+    {
+        Map<String, Set<ObjectPermission>> result = new HashMap<String, Set<ObjectPermission>>();
         Map<String, ObjectPermissionSet> permissionsByObject =
                 authorizationService.listObjectPermissions(new ObjectPermissionListRequest(securityToken, objectIds));
         for (Map.Entry<String, ObjectPermissionSet> entry : permissionsByObject.entrySet()) {
-            String objectId = entry.getKey();
-            Set<ObjectPermission> objectPermissions = userState.objectPermissionsByObject.get(objectId);
-            if (objectPermissions == null) {
-                objectPermissions = new HashSet<ObjectPermission>();
-                userState.objectPermissionsByObject.put(objectId, objectPermissions);
-            }
-            objectPermissions.clear();
+            Set<ObjectPermission> objectPermissions = new HashSet<ObjectPermission>();
             objectPermissions.addAll(entry.getValue().getObjectPermissions());
-            result.put(objectId, objectPermissions);
+            result.put(entry.getKey(), objectPermissions);
         }
         return result;
     }
@@ -432,32 +483,30 @@ public class Cache
      * @param securityToken to be used for fetching the {@link ResourceSummary}s
      * @param resourceIds   resource-ids to be fetched
      */
-    public synchronized void fetchResourceSummaries(SecurityToken securityToken, Collection<String> resourceIds)
+    public void fetchResourceSummaries(final SecurityToken securityToken, Collection<String> resourceIds)
     {
-        Set<String> missingResourceIds = null;
+        Map<String, ResourceSummary> resources = resourceById.getAll(resourceIds,
+                new ConcurrentExpirationMap.BulkLoader<String, ResourceSummary>()
+                {
+                    @Override
+                    public Map<String, ResourceSummary> load(Set<String> missingResourceIds)
+                    {
+                        ResourceListRequest request = new ResourceListRequest();
+                        request.setSecurityToken(securityToken);
+                        for (String resourceId : missingResourceIds) {
+                            request.addResourceId(resourceId);
+                        }
+                        Map<String, ResourceSummary> resources = new HashMap<String, ResourceSummary>();
+                        for (ResourceSummary resource : resourceService.listResources(request).getItems()) {
+                            resources.put(resource.getId(), resource);
+                        }
+                        return resources;
+                    }
+                });
         for (String resourceId : resourceIds) {
-            if (!resourceById.contains(resourceId)) {
-                if (missingResourceIds == null) {
-                    missingResourceIds = new HashSet<String>();
-                }
-                missingResourceIds.add(resourceId);
-            }
-        }
-        if (missingResourceIds != null) {
-            ResourceListRequest request = new ResourceListRequest();
-            request.setSecurityToken(securityToken);
-            for (String resourceId : request.getResourceIds()) {
-                request.addResourceId(resourceId);
-            }
-            ListResponse<ResourceSummary> response = resourceService.listResources(request);
-            for (ResourceSummary resource : response.getItems()) {
-                String resourceId = resource.getId();
-                resourceById.put(resourceId, resource);
-                missingResourceIds.remove(resourceId);
-            }
-            if (missingResourceIds.size() > 0) {
+            if (!resources.containsKey(resourceId)) {
                 throw new CommonReportSet.ObjectNotExistsException(ResourceSummary.class.getSimpleName(),
-                        missingResourceIds.iterator().next());
+                        resourceId);
             }
         }
     }
@@ -467,20 +516,23 @@ public class Cache
      * @param resourceId
      * @return {@link ResourceSummary} for given {@code resourceId}
      */
-    public ResourceSummary getResourceSummary(SecurityToken securityToken, String resourceId)
+    public ResourceSummary getResourceSummary(final SecurityToken securityToken, String resourceId)
     {
-        ResourceSummary resourceSummary = resourceById.get(resourceId);
-        if (resourceSummary == null) {
-            ResourceListRequest request = new ResourceListRequest();
-            request.setSecurityToken(securityToken);
-            request.addResourceId(resourceId);
-            ListResponse<ResourceSummary> response = resourceService.listResources(request);
-            if (response.getItemCount() == 1) {
-                resourceSummary = response.getItem(0);
-                resourceById.put(resourceSummary.getId(), resourceSummary);
+        return resourceById.get(resourceId, new ConcurrentExpirationMap.Loader<String, ResourceSummary>()
+        {
+            @Override
+            public ResourceSummary load(String resourceId)
+            {
+                ResourceListRequest request = new ResourceListRequest();
+                request.setSecurityToken(securityToken);
+                request.addResourceId(resourceId);
+                ListResponse<ResourceSummary> response = resourceService.listResources(request);
+                if (response.getItemCount() == 1) {
+                    return response.getItem(0);
+                }
+                return null;
             }
-        }
-        return resourceSummary;
+        });
     }
 
     /**
@@ -489,26 +541,26 @@ public class Cache
      * @param securityToken
      * @param reservationRequestIds
      */
-    public synchronized void fetchReservationRequests(SecurityToken securityToken, Set<String> reservationRequestIds)
+    public void fetchReservationRequests(final SecurityToken securityToken, Set<String> reservationRequestIds)
     {
-        Set<String> missingReservationRequestIds = null;
-        for (String reservationRequestId : reservationRequestIds) {
-            if (!reservationRequestById.contains(reservationRequestId)) {
-                if (missingReservationRequestIds == null) {
-                    missingReservationRequestIds = new HashSet<String>();
-                }
-                missingReservationRequestIds.add(reservationRequestId);
-            }
-        }
-        if (missingReservationRequestIds != null) {
-            ReservationRequestListRequest request = new ReservationRequestListRequest();
-            request.setSecurityToken(securityToken);
-            request.setReservationRequestIds(missingReservationRequestIds);
-            ListResponse<ReservationRequestSummary> response = reservationService.listReservationRequests(request);
-            for (ReservationRequestSummary reservationRequest : response) {
-                reservationRequestById.put(reservationRequest.getId(), reservationRequest);
-            }
-        }
+        reservationRequestById.getAll(reservationRequestIds,
+                new ConcurrentExpirationMap.BulkLoader<String, ReservationRequestSummary>()
+                {
+                    @Override
+                    public Map<String, ReservationRequestSummary> load(Set<String> missingReservationRequestIds)
+                    {
+                        ReservationRequestListRequest request = new ReservationRequestListRequest();
+                        request.setSecurityToken(securityToken);
+                        request.setReservationRequestIds(missingReservationRequestIds);
+                        Map<String, ReservationRequestSummary> reservationRequests =
+                                new HashMap<String, ReservationRequestSummary>();
+                        for (ReservationRequestSummary reservationRequest :
+                                reservationService.listReservationRequests(request)) {
+                            reservationRequests.put(reservationRequest.getId(), reservationRequest);
+                        }
+                        return reservationRequests;
+                    }
+                });
     }
 
     /**
@@ -519,14 +571,18 @@ public class Cache
      * @param reservationRequestId
      * @return {@link ReservationRequestSummary} for given {@code reservationRequestId}
      */
-    public synchronized ReservationRequestSummary getReservationRequestSummary(SecurityToken securityToken,
+    public ReservationRequestSummary getReservationRequestSummary(final SecurityToken securityToken,
             String reservationRequestId)
     {
-        ReservationRequestSummary reservationRequest = reservationRequestById.get(reservationRequestId);
-        if (reservationRequest == null) {
-            reservationRequest = getReservationRequestSummaryNotCached(securityToken, reservationRequestId);
-        }
-        return reservationRequest;
+        return reservationRequestById.get(reservationRequestId,
+                new ConcurrentExpirationMap.Loader<String, ReservationRequestSummary>()
+                {
+                    @Override
+                    public ReservationRequestSummary load(String reservationRequestId)
+                    {
+                        return listReservationRequestSummary(securityToken, reservationRequestId);
+                    }
+                });
     }
 
     /**
@@ -537,7 +593,7 @@ public class Cache
      * @param reservationRequestId
      * @return {@link ReservationRequestSummary} for given {@code reservationRequestId}
      */
-    public synchronized ReservationRequestSummary getAllocatedReservationRequestSummary(SecurityToken securityToken,
+    public ReservationRequestSummary getAllocatedReservationRequestSummary(SecurityToken securityToken,
             String reservationRequestId)
     {
         ReservationRequestSummary reservationRequest = reservationRequestById.get(reservationRequestId);
@@ -552,7 +608,22 @@ public class Cache
      * @param reservationRequestId
      * @return {@link ReservationRequestSummary} for given {@code reservationRequestId}
      */
-    public synchronized ReservationRequestSummary getReservationRequestSummaryNotCached(SecurityToken securityToken,
+    public ReservationRequestSummary getReservationRequestSummaryNotCached(SecurityToken securityToken,
+            String reservationRequestId)
+    {
+        ReservationRequestSummary reservationRequest =
+                listReservationRequestSummary(securityToken, reservationRequestId);
+        reservationRequestById.put(reservationRequest.getId(), reservationRequest);
+        return reservationRequest;
+    }
+
+    /**
+     * @param securityToken
+     * @param reservationRequestId
+     * @return {@link ReservationRequestSummary} for given {@code reservationRequestId} listed from
+     *         {@link #reservationService}
+     */
+    private ReservationRequestSummary listReservationRequestSummary(SecurityToken securityToken,
             String reservationRequestId)
     {
         ReservationRequestListRequest request = new ReservationRequestListRequest();
@@ -560,9 +631,7 @@ public class Cache
         request.addReservationRequestId(reservationRequestId);
         ListResponse<ReservationRequestSummary> response = reservationService.listReservationRequests(request);
         if (response.getItemCount() > 0) {
-            ReservationRequestSummary reservationRequest = response.getItem(0);
-            reservationRequestById.put(reservationRequest.getId(), reservationRequest);
-            return reservationRequest;
+            return response.getItem(0);
         }
         throw new ObjectInaccessibleException(reservationRequestId);
     }
@@ -572,14 +641,16 @@ public class Cache
      * @param reservationId
      * @return {@link Reservation} for given {@code reservationId}
      */
-    public synchronized Reservation getReservation(SecurityToken securityToken, String reservationId)
+    public Reservation getReservation(final SecurityToken securityToken, String reservationId)
     {
-        Reservation reservation = reservationById.get(reservationId);
-        if (reservation == null) {
-            reservation = reservationService.getReservation(securityToken, reservationId);
-            reservationById.put(reservationId, reservation);
-        }
-        return reservation;
+        return reservationById.get(reservationId, new ConcurrentExpirationMap.Loader<String, Reservation>()
+        {
+            @Override
+            public Reservation load(String reservationId)
+            {
+                return reservationService.getReservation(securityToken, reservationId);
+            }
+        });
     }
 
     /**
@@ -587,7 +658,7 @@ public class Cache
      * @param executable
      * @return reservation request id for given {@code executable}
      */
-    public synchronized String getReservationRequestIdByExecutable(SecurityToken securityToken, Executable executable)
+    public String getReservationRequestIdByExecutable(SecurityToken securityToken, Executable executable)
     {
         Reservation reservation = getReservation(securityToken, executable.getReservationId());
         return reservation.getReservationRequestId();
@@ -598,7 +669,7 @@ public class Cache
      * @param objectId
      * @return reservation request id for given {@code objectId}
      */
-    public synchronized String getReservationRequestId(SecurityToken securityToken, String objectId)
+    public String getReservationRequestId(SecurityToken securityToken, String objectId)
     {
         if (objectId.contains(":req:")) {
             return objectId;
@@ -654,31 +725,45 @@ public class Cache
      * @param executableId
      * @return {@link Executable} for given {@code executableId}
      */
-    public synchronized Executable getExecutable(SecurityToken securityToken, String executableId)
+    public Executable getExecutable(final SecurityToken securityToken, String executableId)
     {
-        Executable executable = executableById.get(executableId);
-        if (executable == null) {
-            executable = executableService.getExecutable(securityToken, executableId);
-            executableById.put(executableId, executable);
-        }
-        return executable;
+        return executableById.get(executableId, new ConcurrentExpirationMap.Loader<String, Executable>()
+        {
+            @Override
+            public Executable load(String executableId)
+            {
+                return executableService.getExecutable(securityToken, executableId);
+            }
+        });
     }
 
     /**
      * @param securityToken for which the {@link ResourcesUtilization} shall be returned
-     * @param forceRefresh specifies whether a fresh version should be returned
-     * @return {@link ResourcesUtilization} for given {@code securityToken}
+     * @return {@link ResourcesUtilization} for given {@code securityToken} (shared by all users
+     *         with {@link UserPermission#OPERATOR})
      */
-    public ResourcesUtilization getResourcesUtilization(SecurityToken securityToken, boolean forceRefresh)
+    public ResourcesUtilization getResourcesUtilization(final SecurityToken securityToken)
     {
-        synchronized (resourcesUtilizationByToken) {
-            ResourcesUtilization resourcesUtilization = resourcesUtilizationByToken.get(securityToken);
-            if (resourcesUtilization == null || forceRefresh) {
-                resourcesUtilization = new ResourcesUtilization(securityToken, resourceService, reservationService);
-                resourcesUtilizationByToken.put(securityToken, resourcesUtilization);
-            }
-            return resourcesUtilization;
-        }
+        if (hasUserPermission(securityToken, UserPermission.OPERATOR)) {
+            return resourcesUtilizationByPermission.get(UserPermission.OPERATOR,
+                    new ConcurrentExpirationMap.Loader<UserPermission, ResourcesUtilization>()
+                    {
+                        @Override
+                        public ResourcesUtilization load(UserPermission userPermission)
+                        {
+                            return new ResourcesUtilization(securityToken, resourceService, reservationService);
+                        }
+                    });
+        }
+        return resourcesUtilizationByToken.get(securityToken,
+                new ConcurrentExpirationMap.Loader<SecurityToken, ResourcesUtilization>()
+                {
+                    @Override
+                    public ResourcesUtilization load(SecurityToken securityToken)
+                    {
+                        return new ResourcesUtilization(securityToken, resourceService, reservationService);
+                    }
+                });
     }
 
     /**
@@ -25,6 +25,9 @@ public class ClientWebUrl
     public static final String REPORT =
             "/report";
 
+    public static final String ADMIN_CACHE =
+            "/admin/cache";
+
     public static final String WIZARD =
             "/wizard";
     public static final String WIZARD_ROOM =
@@ -144,6 +147,8 @@ public class ClientWebUrl
             "/detail/{objectId:.+}/runtime-management/modify";
     public static final String DETAIL_RUNTIME_MANAGEMENT_PARTICIPANTS_DATA =
             "/detail/{objectId:.+}/runtime-management/participants/data";
+    public static final String DETAIL_RUNTIME_MANAGEMENT_PARTICIPANTS_CHANGES =
+            "/detail/{objectId:.+}/runtime-management/participants/changes";
     public static final String DETAIL_RUNTIME_MANAGEMENT_PARTICIPANT_VIDEO_SNAPSHOT =
             "/detail/{objectId:.+}/runtime-management/participant/{participantId}/video-snapshot";
     public static final String DETAIL_RUNTIME_MANAGEMENT_PARTICIPANT_MODIFY =
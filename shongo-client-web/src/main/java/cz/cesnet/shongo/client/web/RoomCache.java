@@ -1,6 +1,7 @@
 
 package cz.cesnet.shongo.client.web;
 
+import cz.cesnet.shongo.ConcurrentExpirationMap;
 import cz.cesnet.shongo.ExpirationMap;
 import cz.cesnet.shongo.api.MediaData;
 import cz.cesnet.shongo.api.Room;
@@ -17,6 +18,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Resource;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Cache of information for management of rooms.
@@ -27,6 +29,16 @@ public class RoomCache
 {
     private static Logger logger = LoggerFactory.getLogger(RoomCache.class);
 
+    /**
+     * Period in milliseconds in which the {@link RoomParticipantSubscription}s are refreshed.
+     */
+    public static final long ROOM_PARTICIPANT_SUBSCRIPTION_REFRESH = 5000;
+
+    /**
+     * Maximum total size in bytes of cached {@link RoomParticipantSnapshot}s.
+     */
+    public static final long ROOM_PARTICIPANT_SNAPSHOT_CACHE_SIZE = 64 * 1024 * 1024;
+
     @Resource
     private ResourceControlService resourceControlService;
 
@@ -61,10 +73,21 @@ public class RoomCache
             new ExpirationMap<String, RoomParticipant>();
 
     /**
-     * Participant snapshots in {@link MediaData} by "roomExecutableId:participantId".
+     * {@link RoomParticipantSnapshot}s by "roomExecutableId:participantId" (shared by all users).
      */
-    private final ExpirationMap<String, MediaData> roomParticipantSnapshotCache =
-            new ExpirationMap<String, MediaData>();
+    private final ConcurrentExpirationMap<String, RoomParticipantSnapshot> roomParticipantSnapshotCache =
+            new ConcurrentExpirationMap<String, RoomParticipantSnapshot>();
+
+    /**
+     * {@link RoomParticipantSubscription} by roomExecutableId.
+     */
+    private final ExpirationMap<String, RoomParticipantSubscription> roomParticipantSubscriptionCache =
+            new ExpirationMap<String, RoomParticipantSubscription>();
+
+    /**
+     * Generator of versions for {@link RoomParticipantSubscription}s.
+     */
+    private final AtomicLong roomParticipantVersionGenerator = new AtomicLong();
 
     /**
      * Constructor.
@@ -76,6 +99,16 @@ public class RoomCache
         roomParticipantsCache.setExpiration(Duration.standardSeconds(15));
         roomExecutableCache.setExpiration(Duration.standardSeconds(15));
         roomParticipantSnapshotCache.setExpiration(Duration.standardSeconds(15));
+        roomParticipantSnapshotCache.setMaxWeight(ROOM_PARTICIPANT_SNAPSHOT_CACHE_SIZE,
+                new ConcurrentExpirationMap.Weigher<RoomParticipantSnapshot>()
+                {
+                    @Override
+                    public long getWeight(RoomParticipantSnapshot roomParticipantSnapshot)
+                    {
+                        return roomParticipantSnapshot.getSize();
+                    }
+                });
+        roomParticipantSubscriptionCache.setExpiration(Duration.standardMinutes(1));
     }
 
     /**
@@ -127,23 +160,91 @@ public class RoomCache
         synchronized (roomParticipantsCache) {
             List<RoomParticipant> roomParticipants = roomParticipantsCache.get(roomExecutableId);
             if (roomParticipants == null) {
-                RoomExecutable roomExecutable = getRoomExecutable(securityToken, roomExecutableId);
-                String resourceId = roomExecutable.getResourceId();
-                String resourceRoomId = roomExecutable.getRoomId();
-                roomParticipants = new LinkedList<RoomParticipant>();
-                synchronized (roomParticipantCache) {
-                    for (RoomParticipant roomParticipant : resourceControlService.listRoomParticipants(
-                            securityToken, resourceId, resourceRoomId)) {
-                        roomParticipants.add(roomParticipant);
-                        roomParticipantCache.put(roomExecutableId + ":" + roomParticipant.getId(), roomParticipant);
-                    }
-                }
-                roomParticipantsCache.put(roomExecutableId, roomParticipants);
+                roomParticipants = listRoomParticipants(securityToken, roomExecutableId);
             }
             return roomParticipants;
         }
     }
 
+    /**
+     * Wait for changes of {@link RoomParticipant}s in given {@code roomExecutableId}.
+     * <p/>
+     * All users watching the same room share a single {@link RoomParticipantSubscription} and thus
+     * the {@link RoomParticipant}s are listed from the device at most once per
+     * {@link #ROOM_PARTICIPANT_SUBSCRIPTION_REFRESH} regardless of number of the users.
+     *
+     * @param securityToken
+     * @param roomExecutableId
+     * @param version          version of already known {@link RoomParticipant}s ({@code null} when none is known)
+     * @param timeout          maximum time in milliseconds to wait for changes
+     * @return current version of {@link RoomParticipant}s (which is same as given {@code version} when no change
+     *         has occurred in the {@code timeout} or {@code null} when the participants haven't been listed yet)
+     * @throws InterruptedException
+     */
+    public Long getRoomParticipantVersion(SecurityToken securityToken, String roomExecutableId, Long version,
+            long timeout) throws InterruptedException
+    {
+        RoomParticipantSubscription subscription;
+        synchronized (roomParticipantSubscriptionCache) {
+            subscription = roomParticipantSubscriptionCache.get(roomExecutableId);
+            if (subscription == null) {
+                subscription = new RoomParticipantSubscription(
+                        roomParticipantVersionGenerator, ROOM_PARTICIPANT_SUBSCRIPTION_REFRESH);
+            }
+            // Prolong the subscription
+            roomParticipantSubscriptionCache.put(roomExecutableId, subscription);
+        }
+        long endTime = System.currentTimeMillis() + timeout;
+        while (true) {
+            Long changedVersion = subscription.getChangedVersion(version);
+            if (changedVersion != null) {
+                return changedVersion;
+            }
+            long time = System.currentTimeMillis();
+            if (subscription.startRefresh(time)) {
+                List<RoomParticipant> roomParticipants = null;
+                try {
+                    roomParticipants = listRoomParticipants(securityToken, roomExecutableId);
+                }
+                finally {
+                    subscription.finishRefresh(System.currentTimeMillis(), roomParticipants);
+                }
+            }
+            else if (time < endTime) {
+                subscription.await(endTime - time);
+            }
+            else {
+                return subscription.getVersion();
+            }
+        }
+    }
+
+    /**
+     * List {@link RoomParticipant}s from the device and update {@link #roomParticipantsCache}
+     * and {@link #roomParticipantCache} by them.
+     *
+     * @param securityToken
+     * @param roomExecutableId
+     * @return collection of {@link RoomParticipant}s for given {@code roomExecutableId}
+     */
+    private List<RoomParticipant> listRoomParticipants(SecurityToken securityToken, String roomExecutableId)
+    {
+        RoomExecutable roomExecutable = getRoomExecutable(securityToken, roomExecutableId);
+        String resourceId = roomExecutable.getResourceId();
+        String resourceRoomId = roomExecutable.getRoomId();
+        List<RoomParticipant> roomParticipants = new LinkedList<RoomParticipant>();
+        roomParticipants.addAll(resourceControlService.listRoomParticipants(securityToken, resourceId, resourceRoomId));
+        synchronized (roomParticipantsCache) {
+            synchronized (roomParticipantCache) {
+                for (RoomParticipant roomParticipant : roomParticipants) {
+                    roomParticipantCache.put(roomExecutableId + ":" + roomParticipant.getId(), roomParticipant);
+                }
+            }
+            roomParticipantsCache.put(roomExecutableId, roomParticipants);
+        }
+        return roomParticipants;
+    }
+
     /**
      * @param securityToken
      * @param roomExecutableId
@@ -219,25 +320,30 @@ public class RoomCache
      * @param securityToken
      * @param roomExecutableId
      * @param roomParticipantId
-     * @return {@link cz.cesnet.shongo.api.MediaData} snapshot of room participant
+     * @return {@link RoomParticipantSnapshot} of room participant (it is loaded only once for all users
+     *         in the expiration)
      */
-    public MediaData getRoomParticipantSnapshot(SecurityToken securityToken, String roomExecutableId, String roomParticipantId)
+    public RoomParticipantSnapshot getRoomParticipantSnapshot(final SecurityToken securityToken,
+            final String roomExecutableId, final String roomParticipantId)
     {
         String cacheId = roomExecutableId + ":" + roomParticipantId;
-        synchronized (roomParticipantSnapshotCache) {
-            if (!roomParticipantSnapshotCache.contains(cacheId)) {
-                RoomExecutable roomExecutable = getRoomExecutable(securityToken, roomExecutableId);
-                String resourceId = roomExecutable.getResourceId();
-                String resourceRoomId = roomExecutable.getRoomId();
-                Set<String> roomParticipantIds = new HashSet<String>();
-                roomParticipantIds.add(roomParticipantId);
-                Map<String, MediaData> participantSnapshots = resourceControlService.getRoomParticipantSnapshots(
-                        securityToken, resourceId, resourceRoomId, roomParticipantIds);
-                MediaData roomParticipantSnapshot = participantSnapshots.get(roomParticipantId);
-                roomParticipantSnapshotCache.put(cacheId, roomParticipantSnapshot);
-            }
-            return roomParticipantSnapshotCache.get(cacheId);
-        }
+        return roomParticipantSnapshotCache.get(cacheId,
+                new ConcurrentExpirationMap.Loader<String, RoomParticipantSnapshot>()
+                {
+                    @Override
+                    public RoomParticipantSnapshot load(String cacheId)
+                    {
+                        RoomExecutable roomExecutable = getRoomExecutable(securityToken, roomExecutableId);
+                        String resourceId = roomExecutable.getResourceId();
+                        String resourceRoomId = roomExecutable.getRoomId();
+                        Set<String> roomParticipantIds = new HashSet<String>();
+                        roomParticipantIds.add(roomParticipantId);
+                        Map<String, MediaData> participantSnapshots =
+                                resourceControlService.getRoomParticipantSnapshots(
+                                        securityToken, resourceId, resourceRoomId, roomParticipantIds);
+                        return new RoomParticipantSnapshot(participantSnapshots.get(roomParticipantId));
+                    }
+                });
     }
 
     /**
@@ -0,0 +1,243 @@
+package cz.cesnet.shongo.client.web;
+
+import cz.cesnet.shongo.api.MediaData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Snapshot of room participant which is shared by all users watching the room.
+ * <p/>
+ * It contains the original {@link MediaData} and its downscaled thumbnail (which is created only once together with
+ * the snapshot so that the {@link #getSize()} of the snapshot is known when it is cached) and both of them have
+ * an entity tag computed from their content (to be able to answer conditional requests).
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class RoomParticipantSnapshot
+{
+    private static Logger logger = LoggerFactory.getLogger(RoomParticipantSnapshot.class);
+
+    /**
+     * Maximum height of {@link #thumbnail} in pixels.
+     */
+    public static final int THUMBNAIL_HEIGHT = 80;
+
+    /**
+     * Format of {@link #thumbnail}.
+     */
+    private static final String THUMBNAIL_FORMAT = "jpeg";
+
+    /**
+     * Original snapshot ({@code null} when the snapshot isn't available).
+     */
+    private final MediaData data;
+
+    /**
+     * Entity tag of {@link #data}.
+     */
+    private final String eTag;
+
+    /**
+     * Downscaled {@link #data}.
+     */
+    private final MediaData thumbnail;
+
+    /**
+     * Entity tag of {@link #thumbnail}.
+     */
+    private final String thumbnailETag;
+
+    /**
+     * Constructor.
+     *
+     * @param data sets the {@link #data}
+     */
+    public RoomParticipantSnapshot(MediaData data)
+    {
+        if (data != null && data.getData() != null) {
+            this.data = data;
+            this.eTag = getETag(data.getData());
+            this.thumbnail = createThumbnail(data);
+            this.thumbnailETag = (thumbnail != data ? getETag(thumbnail.getData()) : eTag);
+        }
+        else {
+            this.data = null;
+            this.eTag = null;
+            this.thumbnail = null;
+            this.thumbnailETag = null;
+        }
+    }
+
+    /**
+     * @return true whether the snapshot is available, false otherwise
+     */
+    public boolean isAvailable()
+    {
+        return data != null;
+    }
+
+    /**
+     * @return {@link #data}
+     */
+    public MediaData getData()
+    {
+        return data;
+    }
+
+    /**
+     * @return {@link #eTag}
+     */
+    public String getETag()
+    {
+        return eTag;
+    }
+
+    /**
+     * @return {@link #thumbnail}
+     */
+    public MediaData getThumbnail()
+    {
+        return thumbnail;
+    }
+
+    /**
+     * @return {@link #thumbnailETag}
+     */
+    public String getThumbnailETag()
+    {
+        return thumbnailETag;
+    }
+
+    /**
+     * @return size in bytes of the {@link #data} and {@link #thumbnail}
+     */
+    public long getSize()
+    {
+        long size = 0;
+        if (data != null) {
+            size += data.getData().length;
+        }
+        if (thumbnail != null && thumbnail != data) {
+            size += thumbnail.getData().length;
+        }
+        return size;
+    }
+
+    /**
+     * @param ifNoneMatch value of If-None-Match header (list of quoted entity tags or {@code *})
+     * @param eTag        to be checked
+     * @return true whether given {@code eTag} is matched by given {@code ifNoneMatch}, false otherwise
+     */
+    public static boolean isETagMatched(String ifNoneMatch, String eTag)
+    {
+        if (ifNoneMatch == null || eTag == null) {
+            return false;
+        }
+        for (String ifNoneMatchETag : ifNoneMatch.split(",")) {
+            ifNoneMatchETag = ifNoneMatchETag.trim();
+            if (ifNoneMatchETag.equals("*")) {
+                return true;
+            }
+            // Weak comparison is used for If-None-Match
+            if (ifNoneMatchETag.startsWith("W/")) {
+                ifNoneMatchETag = ifNoneMatchETag.substring(2);
+            }
+            if (ifNoneMatchETag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param data
+     * @return downscaled given {@code data} or the {@code data} itself when it is small enough or it isn't an image
+     */
+    private static MediaData createThumbnail(MediaData data)
+    {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(data.getData()));
+            if (image == null || image.getHeight() <= THUMBNAIL_HEIGHT) {
+                return data;
+            }
+            int width = Math.max(1, image.getWidth() * THUMBNAIL_HEIGHT / image.getHeight());
+            // Bilinear interpolation uses only neighbouring pixels and thus the image is downscaled by halves
+            // (otherwise most of the pixels would be skipped)
+            BufferedImage thumbnailImage = image;
+            int currentWidth = image.getWidth();
+            int currentHeight = image.getHeight();
+            do {
+                if (currentHeight / 2 >= THUMBNAIL_HEIGHT) {
+                    currentWidth = Math.max(width, currentWidth / 2);
+                    currentHeight = currentHeight / 2;
+                }
+                else {
+                    currentWidth = width;
+                    currentHeight = THUMBNAIL_HEIGHT;
+                }
+                thumbnailImage = scaleImage(thumbnailImage, currentWidth, currentHeight);
+            }
+            while (currentHeight > THUMBNAIL_HEIGHT);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            if (!ImageIO.write(thumbnailImage, THUMBNAIL_FORMAT, outputStream)) {
+                return data;
+            }
+            return new MediaData(org.apache.tika.mime.MediaType.image(THUMBNAIL_FORMAT), outputStream.toByteArray());
+        }
+        catch (IOException exception) {
+            logger.warn("Failed to create thumbnail of room participant snapshot.", exception);
+            return data;
+        }
+    }
+
+    /**
+     * @param image  to be scaled
+     * @param width  new width
+     * @param height new height
+     * @return given {@code image} scaled to given {@code width} and {@code height} by bilinear interpolation
+     */
+    private static BufferedImage scaleImage(BufferedImage image, int width, int height)
+    {
+        BufferedImage scaledImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaledImage.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        }
+        finally {
+            graphics.dispose();
+        }
+        return scaledImage;
+    }
+
+    /**
+     * @param data
+     * @return entity tag for given {@code data}
+     */
+    private static String getETag(byte[] data)
+    {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+            StringBuilder eTag = new StringBuilder();
+            eTag.append("\"");
+            for (byte digestByte : messageDigest.digest(data)) {
+                eTag.append(String.format("%02x", digestByte));
+            }
+            eTag.append("\"");
+            return eTag.toString();
+        }
+        catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
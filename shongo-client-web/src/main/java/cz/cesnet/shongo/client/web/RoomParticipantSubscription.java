@@ -0,0 +1,152 @@
+package cz.cesnet.shongo.client.web;
+
+import cz.cesnet.shongo.api.RoomParticipant;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Subscription to {@link RoomParticipant}s of a single room which is shared by all users watching the room.
+ * <p/>
+ * The subscription keeps the last listed {@link RoomParticipant}s and a version which is changed whenever some
+ * {@link RoomParticipant} is added, modified or removed, and thus each user can detect whether the participants
+ * have been changed since the version which he already knows (the participants themselves are loaded by the user
+ * in the requested page and order). The {@link RoomParticipant}s are listed from the device at most once per
+ * {@link #refreshPeriod} by a single thread (see {@link #startRefresh} and {@link #finishRefresh}), other threads
+ * just wait for the result.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class RoomParticipantSubscription
+{
+    /**
+     * Generator of versions (shared by all subscriptions to be able to detect versions from other subscriptions).
+     */
+    private final AtomicLong versionGenerator;
+
+    /**
+     * Period in milliseconds in which the {@link RoomParticipant}s should be refreshed.
+     */
+    private final long refreshPeriod;
+
+    /**
+     * Current {@link RoomParticipant}s by identifiers.
+     */
+    private final Map<String, RoomParticipant> participants = new HashMap<String, RoomParticipant>();
+
+    /**
+     * Current version ({@code null} when the {@link #participants} haven't been listed yet).
+     */
+    private Long version;
+
+    /**
+     * Time in milliseconds of the last refresh.
+     */
+    private long refreshTime;
+
+    /**
+     * Specifies whether a refresh is in progress.
+     */
+    private boolean refreshing;
+
+    /**
+     * Constructor.
+     *
+     * @param versionGenerator sets the {@link #versionGenerator}
+     * @param refreshPeriod    sets the {@link #refreshPeriod}
+     */
+    public RoomParticipantSubscription(AtomicLong versionGenerator, long refreshPeriod)
+    {
+        this.versionGenerator = versionGenerator;
+        this.refreshPeriod = refreshPeriod;
+    }
+
+    /**
+     * @return {@link #version}
+     */
+    public synchronized Long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @param knownVersion version of {@link RoomParticipant}s which are already known ({@code null} means none)
+     * @return current {@link #version} when it differs from given {@code knownVersion} or {@code null} when
+     *         there are no changes or when the {@link RoomParticipant}s haven't been listed yet
+     */
+    public synchronized Long getChangedVersion(Long knownVersion)
+    {
+        if (version == null || version.equals(knownVersion)) {
+            return null;
+        }
+        return version;
+    }
+
+    /**
+     * @param time current time in milliseconds
+     * @return true whether the calling thread should refresh the {@link RoomParticipant}s and call
+     *         {@link #finishRefresh} afterwards, false otherwise
+     */
+    public synchronized boolean startRefresh(long time)
+    {
+        if (refreshing || (refreshTime > 0 && time < refreshTime + refreshPeriod)) {
+            return false;
+        }
+        refreshing = true;
+        return true;
+    }
+
+    /**
+     * Finish the refresh started by {@link #startRefresh} and wake up all waiting threads.
+     *
+     * @param time         current time in milliseconds
+     * @param participants newly listed {@link RoomParticipant}s ({@code null} when the listing failed)
+     */
+    public synchronized void finishRefresh(long time, Collection<RoomParticipant> participants)
+    {
+        refreshing = false;
+        refreshTime = time;
+        if (participants != null && update(participants)) {
+            version = versionGenerator.incrementAndGet();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Wait for {@link #finishRefresh} or for the next refresh time.
+     *
+     * @param timeout maximum time in milliseconds to wait
+     * @throws InterruptedException
+     */
+    public synchronized void await(long timeout) throws InterruptedException
+    {
+        if (!refreshing) {
+            timeout = Math.min(timeout, refreshTime + refreshPeriod - System.currentTimeMillis());
+        }
+        if (timeout > 0) {
+            wait(timeout);
+        }
+    }
+
+    /**
+     * @param newParticipants to replace the {@link #participants}
+     * @return true whether the {@link #participants} have been changed, false otherwise
+     */
+    private boolean update(Collection<RoomParticipant> newParticipants)
+    {
+        boolean changed = (version == null);
+        Set<String> participantIds = new HashSet<String>();
+        for (RoomParticipant participant : newParticipants) {
+            String participantId = participant.getId();
+            participantIds.add(participantId);
+            RoomParticipant oldParticipant = participants.put(participantId, participant);
+            if (oldParticipant == null || !participant.isSame(oldParticipant)) {
+                changed = true;
+            }
+        }
+        if (participants.keySet().retainAll(participantIds)) {
+            changed = true;
+        }
+        return changed;
+    }
+}
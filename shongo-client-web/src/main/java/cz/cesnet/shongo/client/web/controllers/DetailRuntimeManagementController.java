@@ -6,6 +6,7 @@ import cz.cesnet.shongo.api.*;
 import cz.cesnet.shongo.client.web.CacheProvider;
 import cz.cesnet.shongo.client.web.ClientWebUrl;
 import cz.cesnet.shongo.client.web.RoomCache;
+import cz.cesnet.shongo.client.web.RoomParticipantSnapshot;
 import cz.cesnet.shongo.client.web.models.*;
 import cz.cesnet.shongo.client.web.support.MessageProvider;
 import cz.cesnet.shongo.client.web.support.MessageProviderImpl;
@@ -41,6 +42,11 @@ public class DetailRuntimeManagementController extends AbstractDetailController
 {
     private static Logger logger = LoggerFactory.getLogger(DetailRuntimeManagementController.class);
 
+    /**
+     * Maximum time in milliseconds for which the changes of room participants are awaited.
+     */
+    private static final long PARTICIPANT_CHANGES_TIMEOUT = 25000;
+
     @Resource
     private AuthorizationService authorizationService;
 
@@ -133,7 +139,6 @@ public class DetailRuntimeManagementController extends AbstractDetailController
             @RequestParam(value = "sort-desc", required = false, defaultValue = "true") boolean sortDescending)
     {
         String executableId = getExecutableId(securityToken, objectId);
-        CacheProvider cacheProvider = new CacheProvider(cache, securityToken);
         List<RoomParticipant> roomParticipants = Collections.emptyList();
         try {
             roomParticipants = roomCache.getRoomParticipants(securityToken, executableId);
@@ -142,8 +147,63 @@ public class DetailRuntimeManagementController extends AbstractDetailController
             logger.warn("Failed to load participants", exception);
         }
         ListResponse<RoomParticipant> response = ListResponse.fromRequest(start, count, roomParticipants);
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put("start", response.getStart());
+        data.put("count", response.getCount());
+        data.put("sort", sort);
+        data.put("sort-desc", sortDescending);
+        data.put("items", getRoomParticipantItems(locale, securityToken, response.getItems()));
+        return data;
+    }
+
+    /**
+     * Handle waiting for changes of room participants (long polling).
+     * <p/>
+     * The response contains only the current {@code version} of participants and whether the participants have
+     * been {@code changed} since given {@code version} (the changed participants are then loaded by the client
+     * in the displayed page and order). The request is answered when some change occurs or after
+     * {@link #PARTICIPANT_CHANGES_TIMEOUT}.
+     */
+    @RequestMapping(value = ClientWebUrl.DETAIL_RUNTIME_MANAGEMENT_PARTICIPANTS_CHANGES, method = RequestMethod.GET)
+    @ResponseBody
+    public Map handleRoomManagementParticipantChanges(
+            SecurityToken securityToken,
+            @PathVariable(value = "objectId") String objectId,
+            @RequestParam(value = "version", required = false) Long version) throws InterruptedException
+    {
+        String executableId = getExecutableId(securityToken, objectId);
+        Long currentVersion = roomCache.getRoomParticipantVersion(
+                securityToken, executableId, version, PARTICIPANT_CHANGES_TIMEOUT);
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put("version", currentVersion);
+        data.put("changed", version != null && currentVersion != null && !currentVersion.equals(version));
+        return data;
+    }
+
+    /**
+     * @param locale
+     * @param securityToken
+     * @param roomParticipants to be formatted
+     * @return list of given {@code roomParticipants} formatted for JSON
+     */
+    private List<Map> getRoomParticipantItems(Locale locale, SecurityToken securityToken,
+            Collection<RoomParticipant> roomParticipants)
+    {
+        // Fetch all users at once
+        Set<String> userIds = new HashSet<String>();
+        for (RoomParticipant roomParticipant : roomParticipants) {
+            String userId = roomParticipant.getUserId();
+            if (userId != null) {
+                userIds.add(userId);
+            }
+        }
+        if (!userIds.isEmpty()) {
+            cache.fetchUserInformation(securityToken, userIds);
+        }
+
+        CacheProvider cacheProvider = new CacheProvider(cache, securityToken);
         List<Map> items = new LinkedList<Map>();
-        for (RoomParticipant roomParticipant : response.getItems()) {
+        for (RoomParticipant roomParticipant : roomParticipants) {
             UserInformation user = null;
             String userId = roomParticipant.getUserId();
             if (userId != null) {
@@ -167,32 +227,47 @@ public class DetailRuntimeManagementController extends AbstractDetailController
             item.put("videoSnapshot", roomParticipant.isVideoSnapshot());
             items.add(item);
         }
-        Map<String, Object> data = new HashMap<String, Object>();
-        data.put("start", response.getStart());
-        data.put("count", response.getCount());
-        data.put("sort", sort);
-        data.put("sort-desc", sortDescending);
-        data.put("items", items);
-        return data;
+        return items;
     }
 
+    /**
+     * Handle snapshot of room participant video (or its thumbnail when {@code thumbnail} is true).
+     * <p/>
+     * The snapshot has an entity tag and thus the browser can revalidate it and get only
+     * {@link HttpStatus#NOT_MODIFIED} when the snapshot hasn't been changed.
+     */
     @RequestMapping(value = ClientWebUrl.DETAIL_RUNTIME_MANAGEMENT_PARTICIPANT_VIDEO_SNAPSHOT)
     @IgnoreDateTimeZone
     public ResponseEntity<byte[]> handleRoomParticipantVideoSnapshot(
             SecurityToken securityToken,
             @PathVariable(value = "objectId") String objectId,
-            @PathVariable(value = "participantId") String participantId)
+            @PathVariable(value = "participantId") String participantId,
+            @RequestParam(value = "thumbnail", required = false) boolean thumbnail,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch)
     {
         String executableId = getExecutableId(securityToken, objectId);
         try {
-            MediaData participantSnapshot = roomCache.getRoomParticipantSnapshot(
+            RoomParticipantSnapshot participantSnapshot = roomCache.getRoomParticipantSnapshot(
                     securityToken, executableId, participantId);
-            if (participantSnapshot != null) {
+            if (participantSnapshot.isAvailable()) {
+                MediaData snapshotData;
+                String snapshotETag;
+                if (thumbnail) {
+                    snapshotData = participantSnapshot.getThumbnail();
+                    snapshotETag = participantSnapshot.getThumbnailETag();
+                }
+                else {
+                    snapshotData = participantSnapshot.getData();
+                    snapshotETag = participantSnapshot.getETag();
+                }
                 HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.parseMediaType(participantSnapshot.getType().toString()));
-                headers.setCacheControl("no-cache, no-store, must-revalidate");
-                headers.setPragma("no-cache");
-                return new ResponseEntity<byte[]>(participantSnapshot.getData(), headers, HttpStatus.OK);
+                headers.setCacheControl("private, max-age=0, must-revalidate");
+                headers.setETag(snapshotETag);
+                if (RoomParticipantSnapshot.isETagMatched(ifNoneMatch, snapshotETag)) {
+                    return new ResponseEntity<byte[]>(headers, HttpStatus.NOT_MODIFIED);
+                }
+                headers.setContentType(MediaType.parseMediaType(snapshotData.getType().toString()));
+                return new ResponseEntity<byte[]>(snapshotData.getData(), headers, HttpStatus.OK);
             }
         }
         catch (Exception exception) {
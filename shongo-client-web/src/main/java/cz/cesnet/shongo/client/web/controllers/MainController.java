@@ -1,5 +1,6 @@
 package cz.cesnet.shongo.client.web.controllers;
 
+import cz.cesnet.shongo.client.web.Cache;
 import cz.cesnet.shongo.client.web.Changelog;
 import cz.cesnet.shongo.client.web.ClientWebUrl;
 import cz.cesnet.shongo.client.web.Design;
@@ -19,6 +20,9 @@ import javax.annotation.Resource;
 @Controller
 public class MainController
 {
+    @Resource
+    private Cache cache;
+
     /**
      * Handle shongo ICO image.
      */
@@ -49,4 +53,14 @@ public class MainController
         model.addAttribute("changelog", Changelog.getInstance());
         return "changelog";
     }
+
+    /**
+     * Handle view with statistics of {@link Cache} (for administrators only).
+     */
+    @RequestMapping(value = ClientWebUrl.ADMIN_CACHE, method = RequestMethod.GET)
+    public String handleCacheStatisticsView(Model model)
+    {
+        model.addAttribute("statistics", cache.getStatistics());
+        return "adminCache";
+    }
 }
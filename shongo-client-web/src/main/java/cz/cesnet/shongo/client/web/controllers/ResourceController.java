@@ -180,11 +180,13 @@ public class ResourceController
             @RequestParam(value = "style") ResourceCapacity.FormatStyle style,
             @RequestParam(value = "refresh", required = false) boolean refresh)
     {
-        ResourcesUtilization resourcesUtilization =
-                cache.getResourcesUtilization(securityToken, refresh);
-
+        ResourcesUtilization resourcesUtilization = cache.getResourcesUtilization(securityToken);
+        Interval interval = new Interval(start, end);
+        if (refresh) {
+            resourcesUtilization.refresh(securityToken, interval);
+        }
         Map<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>> utilization =
-                resourcesUtilization.getUtilization(new Interval(start, end), period);
+                resourcesUtilization.getUtilization(securityToken, interval, period);
         ModelAndView modelAndView = new ModelAndView("resourceCapacityUtilizationTable");
         modelAndView.addObject("resourceCapacitySet", resourcesUtilization.getResourceCapacities());
         modelAndView.addObject("resourceCapacityUtilization", utilization);
@@ -205,12 +207,11 @@ public class ResourceController
         @SuppressWarnings("unchecked")
         Class<? extends ResourceCapacity> resourceCapacityClass = (Class<? extends ResourceCapacity>)
                 Class.forName(ResourceCapacity.class.getCanonicalName() + "$" + resourceCapacityClassName);
-        ResourcesUtilization resourcesUtilization =
-                cache.getResourcesUtilization(securityToken, false);
+        ResourcesUtilization resourcesUtilization = cache.getResourcesUtilization(securityToken);
         ResourceCapacity resourceCapacity =
                 resourcesUtilization.getResourceCapacity(resourceId, resourceCapacityClass);
         ResourceCapacityUtilization resourceCapacityUtilization =
-                resourcesUtilization.getUtilization(resourceCapacity, interval);
+                resourcesUtilization.getUtilization(securityToken, resourceCapacity, interval);
         ModelAndView modelAndView = new ModelAndView("resourceCapacityUtilizationDescription");
 
         Map<String, UserInformation> users = new HashMap<String, UserInformation>();
@@ -5,6 +5,7 @@ import cz.cesnet.shongo.controller.api.RecordingCapability;
 import cz.cesnet.shongo.controller.api.ReservationSummary;
 import cz.cesnet.shongo.controller.api.ResourceSummary;
 import cz.cesnet.shongo.controller.api.RoomProviderCapability;
+import cz.cesnet.shongo.util.ObjectHelper;
 import org.apache.commons.lang.StringUtils;
 
 import java.util.HashSet;
@@ -66,6 +67,18 @@ public abstract class ResourceCapacity
      */
     public abstract ReservationSummary.Type getReservationType();
 
+    /**
+     * @param resourceCapacity
+     * @return true whether given {@code resourceCapacity} is same as this (in attributes which are used for
+     *         utilization), false otherwise
+     */
+    public boolean isSame(ResourceCapacity resourceCapacity)
+    {
+        return resourceCapacity != null && getClass().equals(resourceCapacity.getClass())
+                && ObjectHelper.isSame(getResourceId(), resourceCapacity.getResourceId())
+                && ObjectHelper.isSame(getResourceName(), resourceCapacity.getResourceName());
+    }
+
     /**
      * @param utilization
      * @return css classes which shall be rendered for given {@code utilization}
@@ -143,6 +156,13 @@ public abstract class ResourceCapacity
             return licenseCount;
         }
 
+        @Override
+        public boolean isSame(ResourceCapacity resourceCapacity)
+        {
+            return super.isSame(resourceCapacity)
+                    && ObjectHelper.isSame(licenseCount, ((LicenseCount) resourceCapacity).licenseCount);
+        }
+
         @Override
         public String getCssClass(ResourceCapacityUtilization utilization)
         {
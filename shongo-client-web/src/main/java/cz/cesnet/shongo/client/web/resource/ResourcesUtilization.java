@@ -6,6 +6,7 @@ import cz.cesnet.shongo.controller.api.request.ReservationListRequest;
 import cz.cesnet.shongo.controller.api.request.ResourceListRequest;
 import cz.cesnet.shongo.controller.api.rpc.ReservationService;
 import cz.cesnet.shongo.controller.api.rpc.ResourceService;
+import cz.cesnet.shongo.util.ObjectHelper;
 import cz.cesnet.shongo.util.RangeSet;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
@@ -14,9 +15,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Represents utilization of all types of capacities for all resources to which a single user has access.
+ * <p/>
+ * The same instance can be shared by all users which can see the same resources and reservations (e.g., operators),
+ * and thus the {@link SecurityToken} of the current user is used for fetching resources and reservations.
+ * All cached data are kept in an immutable {@link State}. Fetching is performed without any lock and the fetched
+ * data are swapped in as a new {@link State} (concurrent readers use the previous {@link State} in the meantime).
+ * <p/>
+ * {@link ResourceCapacityUtilization}s for periods (e.g., days or weeks) are aggregated for all
+ * {@link ResourceCapacity}s at once and they are kept in the {@link State}. Cached reservations can be refreshed
+ * for an {@link Interval} by {@link #refresh} which reloads {@link ResourceCapacity}s, re-lists only reservations
+ * in the interval and recomputes only aggregates of {@link ResourceCapacity}s whose reservations have been changed.
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
@@ -25,9 +38,9 @@ public class ResourcesUtilization
     private static Logger logger = LoggerFactory.getLogger(ResourcesUtilization.class);
 
     /**
-     * {@link SecurityToken} of user to which the {@link ResourcesUtilization} belongs.
+     * {@link ResourceService} for retrieving resources.
      */
-    private final SecurityToken securityToken;
+    private final ResourceService resourceService;
 
     /**
      * {@link ReservationService} for retrieving reservations.
@@ -35,74 +48,35 @@ public class ResourcesUtilization
     private final ReservationService reservationService;
 
     /**
-     * List of {@link ResourceCapacity} to which the user has access.
+     * Current {@link State} (it is never modified, it is only replaced by a new {@link State}).
      */
-    private final List<ResourceCapacity> resourceCapacities = new LinkedList<ResourceCapacity>();
+    private volatile State state;
 
     /**
-     * Map of {@link ResourceCapacity} by class and by resource-id.
+     * Lock which must be held for replacing the {@link #state}.
      */
-    private final Map<String, Map<Class<? extends ResourceCapacity>, ResourceCapacity>> resourceCapacityMap =
-            new HashMap<String, Map<Class<? extends ResourceCapacity>, ResourceCapacity>>();
-
-    /**
-     * Map of cached {@link ResourceCapacityUtilization} for {@link ResourceCapacity} and for {@link Interval}.
-     */
-    private Map<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>> resourceCapacityUtilizationMap =
-            new HashMap<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>>();
-
-    /**
-     * Map of cached {@link ReservationSummary}s for {@link ResourceCapacity}.
-     */
-    private Map<ResourceCapacity, RangeSet<ReservationSummary, DateTime>> reservationSetMap =
-            new HashMap<ResourceCapacity, RangeSet<ReservationSummary, DateTime>>();
-
-    /**
-     * {@link Interval} which is already cached in {@link #reservationSetMap}.
-     */
-    private Interval reservationInterval;
+    private final Object stateLock = new Object();
 
     /**
      * Constructor.
      *
-     * @param securityToken sets the {@link #securityToken}
-     * @param resources     to be used for fetching {@link #resourceCapacities}
+     * @param securityToken to be used for fetching {@link ResourceCapacity}s
+     * @param resources     sets the {@link #resourceService}
      * @param reservations  sets the {@link #reservationService}
      */
     public ResourcesUtilization(SecurityToken securityToken, ResourceService resources, ReservationService reservations)
     {
-        this.securityToken = securityToken;
+        this.resourceService = resources;
         this.reservationService = reservations;
-
-        // Fetch ResourceCapacities for all accessible resources
-        ResourceListRequest resourceListRequest = new ResourceListRequest(securityToken);
-        resourceListRequest.setSort(ResourceListRequest.Sort.NAME);
-        resourceListRequest.addCapabilityClass(RoomProviderCapability.class);
-        resourceListRequest.addCapabilityClass(RecordingCapability.class);
-        for (ResourceSummary resourceSummary : resources.listResources(resourceListRequest)) {
-            String resourceId = resourceSummary.getId();
-            Resource resource = resources.getResource(securityToken, resourceId);
-            for (Capability capability : resource.getCapabilities()) {
-                if (capability instanceof RoomProviderCapability) {
-                    RoomProviderCapability roomProviderCapability = (RoomProviderCapability) capability;
-                    addResourceCapacity(new ResourceCapacity.Room(resourceSummary, roomProviderCapability));
-                }
-                else if (capability instanceof RecordingCapability) {
-                    RecordingCapability recordingCapability = (RecordingCapability) capability;
-                    if (recordingCapability.getLicenseCount() != null) {
-                        addResourceCapacity(new ResourceCapacity.Recording(resourceSummary, recordingCapability));
-                    }
-                }
-            }
-        }
+        this.state = new State(fetchResourceCapacities(securityToken));
     }
 
     /**
-     * @return {@link #resourceCapacities}
+     * @return {@link ResourceCapacity}s to which the user has access
      */
     public Collection<ResourceCapacity> getResourceCapacities()
     {
-        return Collections.unmodifiableList(resourceCapacities);
+        return state.resourceCapacities;
     }
 
     /**
@@ -112,22 +86,20 @@ public class ResourcesUtilization
      */
     public ResourceCapacity getResourceCapacity(String resourceId, Class<? extends ResourceCapacity> capacityClass)
     {
-        Map<Class<? extends ResourceCapacity>, ResourceCapacity> resourceCapacitiesByClass =
-                resourceCapacityMap.get(resourceId);
-        if (resourceCapacitiesByClass == null) {
-            return null;
-        }
-        return resourceCapacitiesByClass.get(capacityClass);
+        return state.getResourceCapacity(resourceId, capacityClass);
     }
 
     /**
-     * @param interval interval to be returned
-     * @param period   by which the {@code interval} should be split and for each part should be {@link ResourceCapacityUtilization} computed
+     * @param securityToken to be used for fetching reservations
+     * @param interval      interval to be returned
+     * @param period        by which the {@code interval} should be split and for each part should be
+     *                      {@link ResourceCapacityUtilization} computed
      * @return map of {@link ResourceCapacityUtilization} by {@link ResourceCapacity}s and by {@link Interval}s
      */
-    public Map<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>> getUtilization(Interval interval,
-            Period period)
+    public Map<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>> getUtilization(
+            SecurityToken securityToken, Interval interval, Period period)
     {
+        State state = getState(securityToken, interval);
         Map<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>> utilizationsByInterval =
                 new LinkedHashMap<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>>();
         DateTime start = interval.getStart();
@@ -138,189 +110,219 @@ public class ResourcesUtilization
                 end = maxEnd;
             }
             Interval utilizationInterval = new Interval(start, end);
-            Map<ResourceCapacity, ResourceCapacityUtilization> utilizations =
-                    new HashMap<ResourceCapacity, ResourceCapacityUtilization>();
-            for (ResourceCapacity resourceCapacity : resourceCapacities) {
-                ResourceCapacityUtilization utilization =
-                        getUtilization(resourceCapacity, utilizationInterval, true, interval);
-                if (utilization != null) {
-                    utilizations.put(resourceCapacity, utilization);
-                }
-            }
-            utilizationsByInterval.put(utilizationInterval, utilizations);
+            utilizationsByInterval.put(utilizationInterval, state.getUtilizations(utilizationInterval));
             start = end;
         }
         return utilizationsByInterval;
     }
 
     /**
+     * @param securityToken    to be used for fetching reservations
      * @param resourceCapacity
      * @param interval
      * @return {@link ResourceCapacityUtilization} for given {@code resourceCapacity} and {@code interval}
      */
-    public ResourceCapacityUtilization getUtilization(ResourceCapacity resourceCapacity, Interval interval)
+    public ResourceCapacityUtilization getUtilization(SecurityToken securityToken,
+            ResourceCapacity resourceCapacity, Interval interval)
     {
-        return getUtilization(resourceCapacity, interval, false, interval);
+        // Return cached utilization
+        State state = this.state;
+        if (state.containsReservations(interval)) {
+            resourceCapacity = state.getResourceCapacity(resourceCapacity);
+            return state.getUtilizations(interval).get(resourceCapacity);
+        }
+
+        // Fetch reservations only for given resource capacity (they aren't cached)
+        RangeSet<ReservationSummary, DateTime> reservationSet = createReservationSet();
+        ReservationListRequest reservationListRequest = new ReservationListRequest(securityToken);
+        reservationListRequest.addResourceId(resourceCapacity.getResourceId());
+        reservationListRequest.addReservationType(resourceCapacity.getReservationType());
+        reservationListRequest.setInterval(interval);
+        for (ReservationSummary reservation : reservationService.listReservations(reservationListRequest)) {
+            Interval reservationSlot = reservation.getSlot();
+            reservationSet.add(reservation, reservationSlot.getStart(), reservationSlot.getEnd());
+        }
+        return createUtilization(reservationSet, interval);
     }
 
     /**
-     * @param resourceCapacity to be added to the {@link #resourceCapacities} and {@link #resourceCapacityMap}
+     * Refresh {@link ResourceCapacity}s and cached reservations in given {@code interval}.
+     * <p/>
+     * When the {@link ResourceCapacity}s have been changed (e.g., a resource has been created or its license count
+     * has been modified) all cached reservations are cleared. Otherwise only reservations in the {@code interval}
+     * are fetched and only aggregates of {@link ResourceCapacity}s whose reservations have been created, modified
+     * or deleted are recomputed.
+     *
+     * @param securityToken to be used for fetching resources and reservations
+     * @param interval      in which the reservations should be refreshed
      */
-    private void addResourceCapacity(ResourceCapacity resourceCapacity)
+    public void refresh(SecurityToken securityToken, Interval interval)
     {
-        if (resourceCapacities.add(resourceCapacity)) {
-            String resourceId = resourceCapacity.getResourceId();
-            Class<? extends ResourceCapacity> resourceCapacityClass = resourceCapacity.getClass();
+        while (true) {
+            State state = this.state;
 
-            Map<Class<? extends ResourceCapacity>, ResourceCapacity> resourceCapacitiesByClass =
-                    resourceCapacityMap.get(resourceId);
-            if (resourceCapacitiesByClass == null) {
-                resourceCapacitiesByClass = new HashMap<Class<? extends ResourceCapacity>, ResourceCapacity>();
-                resourceCapacityMap.put(resourceId, resourceCapacitiesByClass);
+            // Fetch resource capacities and reservations without lock
+            List<ResourceCapacity> resourceCapacities = fetchResourceCapacities(securityToken);
+            boolean resourceCapacitiesSame = state.isSame(resourceCapacities);
+            Interval refreshInterval = null;
+            List<ReservationSummary> reservations = null;
+            if (resourceCapacitiesSame && state.reservationInterval != null) {
+                refreshInterval = state.reservationInterval.overlap(interval);
+                if (refreshInterval != null) {
+                    logger.info("Refreshing reservations for {}...", refreshInterval);
+                    reservations = listReservations(securityToken, state.resourceCapacities, refreshInterval);
+                }
+            }
+
+            // Swap in the new state when the state wasn't replaced in the meantime
+            synchronized (stateLock) {
+                if (this.state == state) {
+                    if (!resourceCapacitiesSame) {
+                        logger.info("Resource capacities have been changed, clearing cached reservations...");
+                        this.state = new State(resourceCapacities);
+                    }
+                    else if (reservations != null) {
+                        this.state = state.update(state.reservationInterval, refreshInterval, reservations);
+                    }
+                    return;
+                }
             }
-            resourceCapacitiesByClass.put(resourceCapacityClass, resourceCapacity);
         }
     }
 
     /**
-     * Can be used for bulk fetching of {@link ReservationSummary}s by use {@code fetchAll} and {@code fetchInterval}.
-     *
-     * @param resourceCapacity
-     * @param interval
-     * @param fetchAll
-     * @param fetchInterval
-     * @return {@link ResourceCapacityUtilization} for given {@code resourceCapacity} and {@code interval}
+     * @param securityToken to be used for fetching reservations
+     * @param interval      which must be cached in the returned {@link State}
+     * @return current {@link State} which contains reservations for given {@code interval}
      */
-    private ResourceCapacityUtilization getUtilization(ResourceCapacity resourceCapacity, Interval interval,
-            boolean fetchAll, Interval fetchInterval)
+    private State getState(SecurityToken securityToken, Interval interval)
     {
-        // Try to return cached utilization
-        Map<ResourceCapacity, ResourceCapacityUtilization> utilizations = resourceCapacityUtilizationMap.get(interval);
-        if (utilizations == null) {
-            utilizations = new HashMap<ResourceCapacity, ResourceCapacityUtilization>();
-            resourceCapacityUtilizationMap.put(interval, utilizations);
-        }
-        if (utilizations.containsKey(resourceCapacity)) {
-            return utilizations.get(resourceCapacity);
-        }
+        while (true) {
+            State state = this.state;
+            if (state.containsReservations(interval)) {
+                return state;
+            }
+            Interval reservationInterval = state.reservationInterval;
+            DateTime start = interval.getStart();
+            DateTime end = interval.getEnd();
 
-        // Fetch reservations
-        RangeSet<ReservationSummary, DateTime> reservations;
-        if (fetchAll) {
-            reservations = getReservationsWithFetchAll(resourceCapacity, fetchInterval);
-        }
-        else {
-            reservations = getReservations(resourceCapacity, fetchInterval);
-        }
+            // Determine which reservations should be fetched
+            Interval fetchInterval;
+            if (reservationInterval != null &&
+                    reservationInterval.isAfter(start) && reservationInterval.contains(end)) {
+                // Expand reservation cache at start
+                fetchInterval = new Interval(start, reservationInterval.getStart());
+                reservationInterval = new Interval(start, reservationInterval.getEnd());
+            }
+            else if (reservationInterval != null &&
+                    reservationInterval.isBefore(end) && reservationInterval.contains(start)) {
+                // Expand reservation cache at end
+                fetchInterval = new Interval(reservationInterval.getEnd(), end);
+                reservationInterval = new Interval(reservationInterval.getStart(), end);
+            }
+            else {
+                // Load the whole reservation cache
+                fetchInterval = interval;
+                reservationInterval = null;
+            }
 
-        // Prepare new utilization
-        ResourceCapacityUtilization utilization = null;
-        if (reservations != null) {
-            Collection<ResourceCapacityBucket> buckets =
-                    reservations.getBuckets(interval.getStart(), interval.getEnd(), ResourceCapacityBucket.class);
-            if (buckets.size() > 0) {
-                utilization = new ResourceCapacityUtilization(buckets);
+            // Fetch reservations for all resource capacities without lock
+            logger.info("Loading reservations for {}...", fetchInterval);
+            List<ReservationSummary> reservations =
+                    listReservations(securityToken, state.resourceCapacities, fetchInterval);
+
+            // Swap in the new state when the state wasn't replaced in the meantime (otherwise try it again)
+            synchronized (stateLock) {
+                if (this.state == state) {
+                    if (reservationInterval == null) {
+                        logger.info("Clearing cached reservations...");
+                        state = new State(state.resourceCapacities).update(interval, interval, reservations);
+                    }
+                    else {
+                        state = state.update(reservationInterval, fetchInterval, reservations);
+                    }
+                    this.state = state;
+                    return state;
+                }
             }
         }
-
-        // Store the utilization to cache and return it
-        utilizations.put(resourceCapacity, utilization);
-        return utilization;
     }
 
     /**
-     * Get {@link RangeSet} for given {@code resourceCapacity}
-     * by fetching {@link ReservationSummary}s for all {@link #resourceCapacities}.
-     * <p/>
-     * The newly fetched {@link ReservationSummary}s will stored in {@link #reservationSetMap}
-     * (because all {@link ResourceCapacity}s will be updated).
-     *
-     * @param resourceCapacity
-     * @param interval
-     * @return {@link RangeSet} of {@link ReservationSummary}
+     * @param securityToken
+     * @return {@link ResourceCapacity}s for all resources accessible by given {@code securityToken}
      */
-    private synchronized RangeSet<ReservationSummary, DateTime> getReservationsWithFetchAll(
-            ResourceCapacity resourceCapacity, Interval interval)
+    private List<ResourceCapacity> fetchResourceCapacities(SecurityToken securityToken)
     {
-        // Try to return cached reservations
-        if (this.reservationInterval != null && this.reservationInterval.contains(interval)) {
-            return this.reservationSetMap.get(resourceCapacity);
-        }
-        DateTime start = interval.getStart();
-        DateTime end = interval.getEnd();
-
-        // Expand reservation cache at start
-        if (reservationInterval != null &&
-                reservationInterval.isAfter(start) && reservationInterval.contains(end)) {
-            interval = new Interval(start, reservationInterval.getStart());
-            reservationInterval = new Interval(start, reservationInterval.getEnd());
-        }
-        // Expand reservation cache at end
-        else if (reservationInterval != null &&
-                reservationInterval.isBefore(end) && reservationInterval.contains(start)) {
-            interval = new Interval(reservationInterval.getEnd(), end);
-            reservationInterval = new Interval(reservationInterval.getStart(), end);
-        }
-        // Load the whole reservation cache
-        else {
-            logger.info("Clearing cached reservations...");
-            reservationSetMap.clear();
-            reservationInterval = interval;
+        List<ResourceCapacity> resourceCapacities = new LinkedList<ResourceCapacity>();
+        ResourceListRequest resourceListRequest = new ResourceListRequest(securityToken);
+        resourceListRequest.setSort(ResourceListRequest.Sort.NAME);
+        resourceListRequest.addCapabilityClass(RoomProviderCapability.class);
+        resourceListRequest.addCapabilityClass(RecordingCapability.class);
+        for (ResourceSummary resourceSummary : resourceService.listResources(resourceListRequest)) {
+            String resourceId = resourceSummary.getId();
+            Resource resource = resourceService.getResource(securityToken, resourceId);
+            for (Capability capability : resource.getCapabilities()) {
+                if (capability instanceof RoomProviderCapability) {
+                    RoomProviderCapability roomProviderCapability = (RoomProviderCapability) capability;
+                    resourceCapacities.add(new ResourceCapacity.Room(resourceSummary, roomProviderCapability));
+                }
+                else if (capability instanceof RecordingCapability) {
+                    RecordingCapability recordingCapability = (RecordingCapability) capability;
+                    if (recordingCapability.getLicenseCount() != null) {
+                        resourceCapacities.add(new ResourceCapacity.Recording(resourceSummary, recordingCapability));
+                    }
+                }
+            }
         }
+        return resourceCapacities;
+    }
 
-        // Fetch reservations for all resource capacities
-        logger.info("Loading reservations for {}...", interval);
+    /**
+     * @param securityToken
+     * @param resourceCapacities
+     * @param interval
+     * @return {@link ReservationSummary}s for all {@code resourceCapacities} in given {@code interval}
+     */
+    private List<ReservationSummary> listReservations(SecurityToken securityToken,
+            Collection<ResourceCapacity> resourceCapacities, Interval interval)
+    {
         ReservationListRequest reservationListRequest = new ReservationListRequest(securityToken);
-        for (ResourceCapacity currentResourceCapacity : resourceCapacities) {
-            reservationListRequest.addResourceId(currentResourceCapacity.getResourceId());
+        for (ResourceCapacity resourceCapacity : resourceCapacities) {
+            reservationListRequest.addResourceId(resourceCapacity.getResourceId());
         }
         reservationListRequest.addReservationType(ReservationSummary.Type.ROOM);
         reservationListRequest.addReservationType(ReservationSummary.Type.RECORDING_SERVICE);
         reservationListRequest.setInterval(interval);
-        for (ReservationSummary reservation : reservationService.listReservations(reservationListRequest)) {
-            Interval reservationSlot = reservation.getSlot();
-            String reservationResourceId = reservation.getResourceId();
-            ResourceCapacity reservationResourceCapacity = getResourceCapacity(reservationResourceId, reservation);
-            RangeSet<ReservationSummary, DateTime> reservationSet = reservationSetMap.get(reservationResourceCapacity);
-            if (reservationSet == null) {
-                reservationSet = new RangeSet<ReservationSummary, DateTime>()
-                {
-                    @Override
-                    protected Bucket<DateTime, ReservationSummary> createBucket(DateTime rangeValue)
-                    {
-                        return new ResourceCapacityBucket(rangeValue);
-                    }
-                };
-                reservationSetMap.put(reservationResourceCapacity, reservationSet);
-            }
-            reservationSet.add(reservation, reservationSlot.getStart(), reservationSlot.getEnd());
-        }
-        return reservationSetMap.get(resourceCapacity);
+        return reservationService.listReservations(reservationListRequest).getItems();
     }
 
     /**
-     * Get {@link RangeSet} for given {@code resourceCapacity}
-     * by fetching {@link ReservationSummary}s only for given {@code resourceCapacity}.
-     * <p/>
-     * The newly fetched {@link ReservationSummary}s won't be stored in {@link #reservationSetMap}
-     * (because all {@link ResourceCapacity} won't be updated).
-     *
-     * @param resourceCapacity
+     * @param reservationSet
      * @param interval
-     * @return {@link RangeSet} of {@link ReservationSummary}
+     * @return {@link ResourceCapacityUtilization} for given {@code reservationSet} and {@code interval}
+     *         or {@code null} when no reservation is in the {@code interval}
      */
-    private RangeSet<ReservationSummary, DateTime> getReservations(ResourceCapacity resourceCapacity,
+    private static ResourceCapacityUtilization createUtilization(RangeSet<ReservationSummary, DateTime> reservationSet,
             Interval interval)
     {
-        // Try to return cached reservations
-        synchronized (this) {
-            if (this.reservationInterval != null && this.reservationInterval.contains(interval)) {
-                return this.reservationSetMap.get(resourceCapacity);
-            }
+        if (reservationSet == null) {
+            return null;
+        }
+        Collection<ResourceCapacityBucket> buckets =
+                reservationSet.getBuckets(interval.getStart(), interval.getEnd(), ResourceCapacityBucket.class);
+        if (buckets.size() > 0) {
+            return new ResourceCapacityUtilization(buckets);
         }
+        return null;
+    }
 
-        // Fetch reservations for single resource capacity
-        RangeSet<ReservationSummary, DateTime> reservationSet = new RangeSet<ReservationSummary, DateTime>()
+    /**
+     * @return new {@link RangeSet} for {@link ReservationSummary}s with {@link ResourceCapacityBucket}s
+     */
+    private static RangeSet<ReservationSummary, DateTime> createReservationSet()
+    {
+        return new RangeSet<ReservationSummary, DateTime>()
         {
             @Override
             protected Bucket<DateTime, ReservationSummary> createBucket(DateTime rangeValue)
@@ -328,32 +330,41 @@ public class ResourcesUtilization
                 return new ResourceCapacityBucket(rangeValue);
             }
         };
-        ReservationListRequest reservationListRequest = new ReservationListRequest(securityToken);
-        reservationListRequest.addResourceId(resourceCapacity.getResourceId());
-        reservationListRequest.addReservationType(resourceCapacity.getReservationType());
-        reservationListRequest.setInterval(interval);
-        for (ReservationSummary reservation : reservationService.listReservations(reservationListRequest)) {
-            Interval reservationSlot = reservation.getSlot();
-            reservationSet.add(reservation, reservationSlot.getStart(), reservationSlot.getEnd());
-        }
-        return reservationSet;
     }
 
     /**
-     * @param resourceId
-     * @param reservation
-     * @return {@link ResourceCapacity} for given {@code resourceId} and {@code reservation}
+     * @param interval
+     * @return given {@code interval} in default time zone (to be used as key in {@link State#utilizationMap}
+     *         for all users)
+     */
+    private static Interval getKey(Interval interval)
+    {
+        return new Interval(interval.getStartMillis(), interval.getEndMillis());
+    }
+
+    /**
+     * @param reservation1
+     * @param reservation2
+     * @return true whether given reservations are same (in attributes which are used for utilization),
+     *         false otherwise
      */
-    private ResourceCapacity getResourceCapacity(String resourceId, ReservationSummary reservation)
+    private static boolean isSame(ReservationSummary reservation1, ReservationSummary reservation2)
     {
-        return getResourceCapacity(resourceId, getResourceCapacityClass(reservation.getType()));
+        return ObjectHelper.isSame(getKey(reservation1.getSlot()), getKey(reservation2.getSlot()))
+                && ObjectHelper.isSame(reservation1.getType(), reservation2.getType())
+                && ObjectHelper.isSame(reservation1.getResourceId(), reservation2.getResourceId())
+                && ObjectHelper.isSame(reservation1.getRoomLicenseCount(), reservation2.getRoomLicenseCount())
+                && ObjectHelper.isSame(reservation1.getUserId(), reservation2.getUserId())
+                && ObjectHelper.isSame(reservation1.getReservationRequestId(), reservation2.getReservationRequestId())
+                && ObjectHelper.isSame(reservation1.getRoomName(), reservation2.getRoomName())
+                && ObjectHelper.isSame(reservation1.getValue(), reservation2.getValue());
     }
 
     /**
      * @param reservationType
      * @return class of {@link ResourceCapacity} for given {@code reservationType}
      */
-    private Class<? extends ResourceCapacity> getResourceCapacityClass(ReservationSummary.Type reservationType)
+    private static Class<? extends ResourceCapacity> getResourceCapacityClass(ReservationSummary.Type reservationType)
     {
         switch (reservationType) {
             case ROOM:
@@ -364,4 +375,297 @@ public class ResourcesUtilization
                 throw new TodoImplementException(reservationType);
         }
     }
+
+    /**
+     * Cached {@link ResourceCapacity}s, reservations and aggregated {@link ResourceCapacityUtilization}s.
+     * <p/>
+     * The {@link State} is never modified after it is swapped in as {@link ResourcesUtilization#state}
+     * (only not yet computed aggregates are added to the {@link #utilizationMap}).
+     */
+    private static class State
+    {
+        /**
+         * List of {@link ResourceCapacity} to which the user has access.
+         */
+        private final List<ResourceCapacity> resourceCapacities;
+
+        /**
+         * Map of {@link ResourceCapacity} by class and by resource-id.
+         */
+        private final Map<String, Map<Class<? extends ResourceCapacity>, ResourceCapacity>> resourceCapacityMap =
+                new HashMap<String, Map<Class<? extends ResourceCapacity>, ResourceCapacity>>();
+
+        /**
+         * {@link Interval} which is cached in {@link #reservationSetMap} or {@code null} when nothing is cached.
+         */
+        private final Interval reservationInterval;
+
+        /**
+         * Map of cached {@link ReservationSummary}s for {@link ResourceCapacity}.
+         * <p/>
+         * Cached {@link RangeSet}s are never modified (because their buckets are referenced from already returned
+         * {@link ResourceCapacityUtilization}s), they are replaced by modified copies instead.
+         */
+        private final Map<ResourceCapacity, RangeSet<ReservationSummary, DateTime>> reservationSetMap;
+
+        /**
+         * Map of cached {@link ReservationSummary}s (from {@link #reservationSetMap}) by identifier.
+         */
+        private final Map<String, ReservationSummary> reservationById;
+
+        /**
+         * Map of aggregated {@link ResourceCapacityUtilization}s for all {@link #resourceCapacities} by
+         * {@link Interval}s (the intervals are normalized by {@link #getKey(Interval)}). A {@link ResourceCapacity}
+         * without any reservation in an {@link Interval} isn't present in the aggregate.
+         */
+        private final ConcurrentMap<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>> utilizationMap =
+                new ConcurrentHashMap<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>>();
+
+        /**
+         * Constructor of {@link State} without cached reservations.
+         *
+         * @param resourceCapacities sets the {@link #resourceCapacities}
+         */
+        public State(List<ResourceCapacity> resourceCapacities)
+        {
+            this(resourceCapacities, null, new HashMap<ResourceCapacity, RangeSet<ReservationSummary, DateTime>>(),
+                    new HashMap<String, ReservationSummary>());
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param resourceCapacities  sets the {@link #resourceCapacities}
+         * @param reservationInterval sets the {@link #reservationInterval}
+         * @param reservationSetMap   sets the {@link #reservationSetMap}
+         * @param reservationById     sets the {@link #reservationById}
+         */
+        private State(List<ResourceCapacity> resourceCapacities, Interval reservationInterval,
+                Map<ResourceCapacity, RangeSet<ReservationSummary, DateTime>> reservationSetMap,
+                Map<String, ReservationSummary> reservationById)
+        {
+            this.resourceCapacities = Collections.unmodifiableList(resourceCapacities);
+            for (ResourceCapacity resourceCapacity : resourceCapacities) {
+                Map<Class<? extends ResourceCapacity>, ResourceCapacity> resourceCapacitiesByClass =
+                        resourceCapacityMap.get(resourceCapacity.getResourceId());
+                if (resourceCapacitiesByClass == null) {
+                    resourceCapacitiesByClass = new HashMap<Class<? extends ResourceCapacity>, ResourceCapacity>();
+                    resourceCapacityMap.put(resourceCapacity.getResourceId(), resourceCapacitiesByClass);
+                }
+                resourceCapacitiesByClass.put(resourceCapacity.getClass(), resourceCapacity);
+            }
+            this.reservationInterval = reservationInterval;
+            this.reservationSetMap = reservationSetMap;
+            this.reservationById = reservationById;
+        }
+
+        /**
+         * @param resourceId
+         * @param capacityClass
+         * @return {@link ResourceCapacity} for given {@code resourceId} and {@code capacityClass}
+         */
+        public ResourceCapacity getResourceCapacity(String resourceId, Class<? extends ResourceCapacity> capacityClass)
+        {
+            Map<Class<? extends ResourceCapacity>, ResourceCapacity> resourceCapacitiesByClass =
+                    resourceCapacityMap.get(resourceId);
+            if (resourceCapacitiesByClass == null) {
+                return null;
+            }
+            return resourceCapacitiesByClass.get(capacityClass);
+        }
+
+        /**
+         * @param resourceCapacity which may come from previous {@link State}
+         * @return {@link ResourceCapacity} from this {@link State} for given {@code resourceCapacity}
+         */
+        public ResourceCapacity getResourceCapacity(ResourceCapacity resourceCapacity)
+        {
+            return getResourceCapacity(resourceCapacity.getResourceId(), resourceCapacity.getClass());
+        }
+
+        /**
+         * @param resourceCapacities
+         * @return true whether given {@code resourceCapacities} are same as {@link #resourceCapacities},
+         *         false otherwise
+         */
+        public boolean isSame(List<ResourceCapacity> resourceCapacities)
+        {
+            if (resourceCapacities.size() != this.resourceCapacities.size()) {
+                return false;
+            }
+            Iterator<ResourceCapacity> iterator = this.resourceCapacities.iterator();
+            for (ResourceCapacity resourceCapacity : resourceCapacities) {
+                if (!iterator.next().isSame(resourceCapacity)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param interval
+         * @return true whether reservations for given {@code interval} are cached, false otherwise
+         */
+        public boolean containsReservations(Interval interval)
+        {
+            return reservationInterval != null && reservationInterval.contains(interval);
+        }
+
+        /**
+         * @param interval which must be contained in {@link #reservationInterval}
+         * @return aggregated {@link ResourceCapacityUtilization}s for all {@link #resourceCapacities}
+         *         in given {@code interval}
+         */
+        public Map<ResourceCapacity, ResourceCapacityUtilization> getUtilizations(Interval interval)
+        {
+            Interval utilizationKey = getKey(interval);
+            Map<ResourceCapacity, ResourceCapacityUtilization> utilizations = utilizationMap.get(utilizationKey);
+            if (utilizations == null) {
+                utilizations = new HashMap<ResourceCapacity, ResourceCapacityUtilization>();
+                for (ResourceCapacity resourceCapacity : resourceCapacities) {
+                    ResourceCapacityUtilization utilization =
+                            createUtilization(reservationSetMap.get(resourceCapacity), utilizationKey);
+                    if (utilization != null) {
+                        utilizations.put(resourceCapacity, utilization);
+                    }
+                }
+                utilizations = Collections.unmodifiableMap(utilizations);
+                Map<ResourceCapacity, ResourceCapacityUtilization> existingUtilizations =
+                        utilizationMap.putIfAbsent(utilizationKey, utilizations);
+                if (existingUtilizations != null) {
+                    utilizations = existingUtilizations;
+                }
+            }
+            return utilizations;
+        }
+
+        /**
+         * Create new {@link State} with cached reservations updated by given {@code reservations} which represents
+         * all reservations in given {@code interval} (cached reservations in the {@code interval} which aren't
+         * present in the {@code reservations} are removed).
+         * <p/>
+         * Only {@link RangeSet}s of {@link ResourceCapacity}s whose reservations have been changed are replaced
+         * and only their aggregated {@link ResourceCapacityUtilization}s are recomputed (the others are reused).
+         *
+         * @param reservationInterval for the new {@link State}
+         * @param interval            of given {@code reservations}
+         * @param reservations        all reservations in given {@code interval}
+         * @return new {@link State}
+         */
+        public State update(Interval reservationInterval, Interval interval,
+                Collection<ReservationSummary> reservations)
+        {
+            Map<String, ReservationSummary> reservationById =
+                    new HashMap<String, ReservationSummary>(this.reservationById);
+            Map<ResourceCapacity, RangeSet<ReservationSummary, DateTime>> updatedReservationSetMap =
+                    new HashMap<ResourceCapacity, RangeSet<ReservationSummary, DateTime>>();
+
+            // Add new and modified reservations
+            Set<String> reservationIds = new HashSet<String>();
+            for (ReservationSummary reservation : reservations) {
+                String reservationId = reservation.getId();
+                reservationIds.add(reservationId);
+                ReservationSummary cachedReservation = reservationById.get(reservationId);
+                if (cachedReservation != null) {
+                    if (ResourcesUtilization.isSame(reservation, cachedReservation)) {
+                        continue;
+                    }
+                    RangeSet<ReservationSummary, DateTime> reservationSet =
+                            getUpdatedReservationSet(cachedReservation, updatedReservationSetMap);
+                    if (reservationSet != null) {
+                        reservationSet.remove(cachedReservation);
+                    }
+                    reservationById.remove(reservationId);
+                }
+                RangeSet<ReservationSummary, DateTime> reservationSet =
+                        getUpdatedReservationSet(reservation, updatedReservationSetMap);
+                if (reservationSet != null) {
+                    Interval reservationSlot = reservation.getSlot();
+                    reservationSet.add(reservation, reservationSlot.getStart(), reservationSlot.getEnd());
+                    reservationById.put(reservationId, reservation);
+                }
+            }
+
+            // Remove deleted reservations
+            Iterator<ReservationSummary> cachedReservationIterator = reservationById.values().iterator();
+            while (cachedReservationIterator.hasNext()) {
+                ReservationSummary cachedReservation = cachedReservationIterator.next();
+                if (!reservationIds.contains(cachedReservation.getId())
+                        && cachedReservation.getSlot().overlaps(interval)) {
+                    RangeSet<ReservationSummary, DateTime> reservationSet =
+                            getUpdatedReservationSet(cachedReservation, updatedReservationSetMap);
+                    if (reservationSet != null) {
+                        reservationSet.remove(cachedReservation);
+                    }
+                    cachedReservationIterator.remove();
+                }
+            }
+
+            // Create new state with replaced updated reservation sets
+            Map<ResourceCapacity, RangeSet<ReservationSummary, DateTime>> reservationSetMap =
+                    new HashMap<ResourceCapacity, RangeSet<ReservationSummary, DateTime>>(this.reservationSetMap);
+            reservationSetMap.putAll(updatedReservationSetMap);
+            State state = new State(resourceCapacities, reservationInterval, reservationSetMap, reservationById);
+            if (updatedReservationSetMap.size() > 0) {
+                logger.info("Reservations updated for {} resource capacities.", updatedReservationSetMap.size());
+            }
+
+            // Reuse aggregated utilizations and recompute them only for updated resource capacities
+            for (Map.Entry<Interval, Map<ResourceCapacity, ResourceCapacityUtilization>> entry :
+                    utilizationMap.entrySet()) {
+                Interval utilizationInterval = entry.getKey();
+                Map<ResourceCapacity, ResourceCapacityUtilization> utilizations = entry.getValue();
+                if (!state.containsReservations(utilizationInterval)) {
+                    continue;
+                }
+                if (updatedReservationSetMap.size() > 0) {
+                    utilizations = new HashMap<ResourceCapacity, ResourceCapacityUtilization>(utilizations);
+                    for (Map.Entry<ResourceCapacity, RangeSet<ReservationSummary, DateTime>> updatedEntry :
+                            updatedReservationSetMap.entrySet()) {
+                        ResourceCapacity resourceCapacity = updatedEntry.getKey();
+                        ResourceCapacityUtilization utilization =
+                                createUtilization(updatedEntry.getValue(), utilizationInterval);
+                        if (utilization != null) {
+                            utilizations.put(resourceCapacity, utilization);
+                        }
+                        else {
+                            utilizations.remove(resourceCapacity);
+                        }
+                    }
+                    utilizations = Collections.unmodifiableMap(utilizations);
+                }
+                state.utilizationMap.put(utilizationInterval, utilizations);
+            }
+            return state;
+        }
+
+        /**
+         * @param reservation
+         * @param updatedReservationSetMap map of already modified copies of {@link RangeSet}s
+         * @return modified copy of {@link RangeSet} from {@link #reservationSetMap} for {@link ResourceCapacity}
+         *         of given {@code reservation} or {@code null} when the {@link ResourceCapacity} doesn't exist
+         */
+        private RangeSet<ReservationSummary, DateTime> getUpdatedReservationSet(ReservationSummary reservation,
+                Map<ResourceCapacity, RangeSet<ReservationSummary, DateTime>> updatedReservationSetMap)
+        {
+            ResourceCapacity resourceCapacity = getResourceCapacity(reservation.getResourceId(),
+                    getResourceCapacityClass(reservation.getType()));
+            if (resourceCapacity == null) {
+                return null;
+            }
+            RangeSet<ReservationSummary, DateTime> reservationSet = updatedReservationSetMap.get(resourceCapacity);
+            if (reservationSet == null) {
+                reservationSet = createReservationSet();
+                RangeSet<ReservationSummary, DateTime> cachedReservationSet = reservationSetMap.get(resourceCapacity);
+                if (cachedReservationSet != null) {
+                    for (ReservationSummary cachedReservation : cachedReservationSet) {
+                        Interval reservationSlot = cachedReservation.getSlot();
+                        reservationSet.add(cachedReservation, reservationSlot.getStart(), reservationSlot.getEnd());
+                    }
+                }
+                updatedReservationSetMap.put(resourceCapacity, reservationSet);
+            }
+            return reservationSet;
+        }
+    }
 }
@@ -0,0 +1,33 @@
+<%--
+  -- Page displaying statistics of cache (for administrators).
+  --%>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
+<%@ taglib prefix="spring" uri="http://www.springframework.org/tags" %>
+
+<table class="table table-striped table-hover">
+    <thead>
+    <tr>
+        <th><spring:message code="views.adminCache.name"/></th>
+        <th><spring:message code="views.adminCache.size"/></th>
+        <th><spring:message code="views.adminCache.hitCount"/></th>
+        <th><spring:message code="views.adminCache.missCount"/></th>
+        <th><spring:message code="views.adminCache.hitRatio"/></th>
+        <th><spring:message code="views.adminCache.loadCount"/></th>
+        <th><spring:message code="views.adminCache.expirationCount"/></th>
+    </tr>
+    </thead>
+    <tbody>
+    <c:forEach var="entry" items="${statistics}">
+        <tr>
+            <td>${entry.key}</td>
+            <td>${entry.value.size}</td>
+            <td>${entry.value.hitCount}</td>
+            <td>${entry.value.missCount}</td>
+            <td><fmt:formatNumber value="${entry.value.hitRatio}" type="percent" maxFractionDigits="1"/></td>
+            <td>${entry.value.loadCount}</td>
+            <td>${entry.value.expirationCount}</td>
+        </tr>
+    </c:forEach>
+    </tbody>
+</table>
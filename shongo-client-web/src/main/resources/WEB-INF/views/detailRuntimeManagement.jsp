@@ -283,12 +283,57 @@
                 });
             };
         }
+        function RoomParticipantChangesController($scope, $timeout) {
+            var version = null;
+            var request = null;
+            var destroyed = false;
+
+            /**
+             * Wait for changes of participants and refresh them when some change occurs.
+             *
+             * @param url for waiting for changes of participants
+             */
+            $scope.init = function(url) {
+                var waitForChanges = function() {
+                    if (destroyed) {
+                        return;
+                    }
+                    request = $.ajax({
+                        url: url,
+                        data: (version != null ? {version: version} : {}),
+                        dataType: "json"
+                    }).done(function(data) {
+                        if (data.changed) {
+                            $timeout(function(){
+                                $scope.refresh();
+                            }, 0);
+                        }
+                        version = data.version;
+                        waitForChanges();
+                    }).fail(function() {
+                        $timeout(waitForChanges, 10000);
+                    });
+                };
+                waitForChanges();
+            };
+
+            $scope.$on("$destroy", function() {
+                destroyed = true;
+                if (request != null) {
+                    request.abort();
+                }
+            });
+        }
     </script>
     <tag:url value="<%= ClientWebUrl.DETAIL_RUNTIME_MANAGEMENT_PARTICIPANTS_DATA%>" var="roomParticipantsUrl">
         <tag:param name="objectId" value=":id"/>
     </tag:url>
     <div id = "roomParticipants" ng-controller="PaginationController"
          ng-init="init('room.participants', '${roomParticipantsUrl}', {id: '${room.id}'})">
+        <tag:url var="roomParticipantChangesUrl" value="<%= ClientWebUrl.DETAIL_RUNTIME_MANAGEMENT_PARTICIPANTS_CHANGES %>">
+            <tag:param name="objectId" value="${room.id}"/>
+        </tag:url>
+        <div ng-controller="RoomParticipantChangesController" ng-init="init('${roomParticipantChangesUrl}')"></div>
         <spring:message code="views.pagination.records.all" var="paginationRecordsAll"/>
         <spring:message code="views.button.refresh" var="paginationRefresh"/>
         <c:if test="${room.technology == 'H323_SIP'}">
@@ -350,7 +395,7 @@
                                 <tag:param name="objectId" value="${room.id}"/>
                                 <tag:param name="participantId" value="{{roomParticipant.id}}" escape="false"/>
                             </tag:url>
-                            <img ng-src="${participantVideoSnapshotUrl}" style="height: 40px;"/>
+                            <img ng-src="${participantVideoSnapshotUrl}?thumbnail=true" style="height: 40px;"/>
                         </span>
                     </td>
                 </c:if>
@@ -0,0 +1,59 @@
+package cz.cesnet.shongo.client.web;
+
+import cz.cesnet.shongo.api.MediaData;
+import org.apache.tika.mime.MediaType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Tests for {@link RoomParticipantSnapshot}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class RoomParticipantSnapshotTest
+{
+    /**
+     * Test matching of entity tags by If-None-Match header.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testETagMatched() throws Exception
+    {
+        Assert.assertFalse(RoomParticipantSnapshot.isETagMatched(null, "\"abc\""));
+        Assert.assertTrue(RoomParticipantSnapshot.isETagMatched("\"abc\"", "\"abc\""));
+        Assert.assertTrue(RoomParticipantSnapshot.isETagMatched("\"x\", W/\"abc\"", "\"abc\""));
+        Assert.assertTrue(RoomParticipantSnapshot.isETagMatched("*", "\"abc\""));
+        Assert.assertFalse(RoomParticipantSnapshot.isETagMatched("\"xabcx\"", "\"abc\""));
+        Assert.assertFalse(RoomParticipantSnapshot.isETagMatched("\"abc\"x", "\"abc\""));
+    }
+
+    /**
+     * Test that the thumbnail is downscaled to {@link RoomParticipantSnapshot#THUMBNAIL_HEIGHT}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testThumbnail() throws Exception
+    {
+        BufferedImage image = new BufferedImage(1280, 720, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", outputStream);
+        MediaData data = new MediaData(MediaType.image("jpeg"), outputStream.toByteArray());
+
+        RoomParticipantSnapshot snapshot = new RoomParticipantSnapshot(data);
+        MediaData thumbnail = snapshot.getThumbnail();
+        BufferedImage thumbnailImage = ImageIO.read(new ByteArrayInputStream(thumbnail.getData()));
+        Assert.assertEquals(RoomParticipantSnapshot.THUMBNAIL_HEIGHT, thumbnailImage.getHeight());
+        Assert.assertEquals(142, thumbnailImage.getWidth());
+        Assert.assertFalse(snapshot.getETag().equals(snapshot.getThumbnailETag()));
+        Assert.assertEquals(data.getData().length + thumbnail.getData().length, snapshot.getSize());
+
+        Assert.assertEquals(0, new RoomParticipantSnapshot(null).getSize());
+    }
+}
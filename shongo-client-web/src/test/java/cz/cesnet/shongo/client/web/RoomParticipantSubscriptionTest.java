@@ -0,0 +1,113 @@
+package cz.cesnet.shongo.client.web;
+
+import cz.cesnet.shongo.api.RoomParticipant;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for {@link RoomParticipantSubscription}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class RoomParticipantSubscriptionTest
+{
+    private static final long REFRESH_PERIOD = 5000;
+
+    /**
+     * Test that the version is changed only when participants are added, modified or removed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testVersion() throws Exception
+    {
+        RoomParticipantSubscription subscription = new RoomParticipantSubscription(new AtomicLong(), REFRESH_PERIOD);
+        Assert.assertNull(subscription.getVersion());
+        Assert.assertNull(subscription.getChangedVersion(null));
+
+        // First listing
+        refresh(subscription, 0, createParticipant("1", "first"), createParticipant("2", "second"));
+        Long version = subscription.getVersion();
+        Assert.assertNotNull(version);
+        Assert.assertEquals(version, subscription.getChangedVersion(null));
+        Assert.assertEquals(version, subscription.getChangedVersion(version - 1));
+        Assert.assertNull(subscription.getChangedVersion(version));
+
+        // Same participants (only new instances)
+        refresh(subscription, REFRESH_PERIOD, createParticipant("2", "second"), createParticipant("1", "first"));
+        Assert.assertNull(subscription.getChangedVersion(version));
+
+        // Modified participant
+        refresh(subscription, 2 * REFRESH_PERIOD, createParticipant("1", "modified"), createParticipant("2", "second"));
+        Long modifiedVersion = subscription.getChangedVersion(version);
+        Assert.assertNotNull(modifiedVersion);
+        Assert.assertTrue(modifiedVersion > version);
+        version = modifiedVersion;
+
+        // Removed participant
+        refresh(subscription, 3 * REFRESH_PERIOD, createParticipant("1", "modified"));
+        Assert.assertNotNull(subscription.getChangedVersion(version));
+        version = subscription.getVersion();
+
+        // Failed listing doesn't change anything
+        Assert.assertTrue(subscription.startRefresh(4 * REFRESH_PERIOD));
+        subscription.finishRefresh(4 * REFRESH_PERIOD, null);
+        Assert.assertNull(subscription.getChangedVersion(version));
+    }
+
+    /**
+     * Test that only a single refresh is performed in {@link #REFRESH_PERIOD}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRefresh() throws Exception
+    {
+        RoomParticipantSubscription subscription = new RoomParticipantSubscription(new AtomicLong(), REFRESH_PERIOD);
+        Assert.assertTrue(subscription.startRefresh(1000));
+        Assert.assertFalse(subscription.startRefresh(1000));
+        subscription.finishRefresh(1000, new ArrayList<RoomParticipant>());
+        Assert.assertFalse(subscription.startRefresh(1000 + REFRESH_PERIOD - 1));
+        Assert.assertTrue(subscription.startRefresh(1000 + REFRESH_PERIOD));
+        subscription.finishRefresh(1000 + REFRESH_PERIOD, null);
+
+        // Versions from the shared generator must be unique across subscriptions
+        AtomicLong versionGenerator = new AtomicLong();
+        RoomParticipantSubscription subscription1 = new RoomParticipantSubscription(versionGenerator, REFRESH_PERIOD);
+        RoomParticipantSubscription subscription2 = new RoomParticipantSubscription(versionGenerator, REFRESH_PERIOD);
+        refresh(subscription1, 0, createParticipant("1", "first"));
+        refresh(subscription2, 0, createParticipant("1", "first"));
+        Assert.assertNotNull(subscription2.getChangedVersion(subscription1.getVersion()));
+    }
+
+    /**
+     * Perform refresh of given {@code subscription} by given {@code participants}.
+     *
+     * @param subscription
+     * @param time
+     * @param participants
+     */
+    private static void refresh(RoomParticipantSubscription subscription, long time, RoomParticipant... participants)
+    {
+        Assert.assertTrue(subscription.startRefresh(time));
+        List<RoomParticipant> participantList = Arrays.asList(participants);
+        subscription.finishRefresh(time, participantList);
+    }
+
+    /**
+     * @param id
+     * @param displayName
+     * @return new {@link RoomParticipant}
+     */
+    private static RoomParticipant createParticipant(String id, String displayName)
+    {
+        RoomParticipant participant = new RoomParticipant(id);
+        participant.setDisplayName(displayName);
+        return participant;
+    }
+}
@@ -0,0 +1,298 @@
+package cz.cesnet.shongo.client.web.resource;
+
+import cz.cesnet.shongo.controller.api.*;
+import cz.cesnet.shongo.controller.api.request.ListResponse;
+import cz.cesnet.shongo.controller.api.request.ReservationListRequest;
+import cz.cesnet.shongo.controller.api.rpc.ReservationService;
+import cz.cesnet.shongo.controller.api.rpc.ResourceService;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.joda.time.Period;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * Tests for {@link ResourcesUtilization}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class ResourcesUtilizationTest
+{
+    private static final SecurityToken SECURITY_TOKEN = new SecurityToken("test");
+
+    private static final Interval INTERVAL = new Interval(new DateTime("2012-01-01T00:00"), Period.days(3));
+
+    private static final Period PERIOD = Period.days(1);
+
+    /**
+     * Resources returned by the {@link ResourceService} stub.
+     */
+    private final Map<String, Resource> resources = new LinkedHashMap<String, Resource>();
+
+    /**
+     * Reservations returned by the {@link ReservationService} stub.
+     */
+    private final Map<String, ReservationSummary> reservations = new LinkedHashMap<String, ReservationSummary>();
+
+    /**
+     * Number of {@link ReservationService#listReservations} calls.
+     */
+    private int listReservationsCount;
+
+    private ResourcesUtilization resourcesUtilization;
+
+    @Before
+    public void before() throws Exception
+    {
+        resources.put("1", createResource("1", "mcu1", 10));
+        resources.put("2", createResource("2", "mcu2", 5));
+        addReservation("1", "1", "2012-01-01T10:00", 2);
+        addReservation("2", "2", "2012-01-01T10:00", 3);
+        resourcesUtilization = new ResourcesUtilization(SECURITY_TOKEN, createResourceService(),
+                createReservationService());
+    }
+
+    /**
+     * Test that aggregates are computed for all periods and that they are cached.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testUtilization() throws Exception
+    {
+        ResourceCapacity capacity1 = getResourceCapacity("1");
+        ResourceCapacity capacity2 = getResourceCapacity("2");
+
+        List<Map<ResourceCapacity, ResourceCapacityUtilization>> utilizations = getUtilizations();
+        Assert.assertEquals(3, utilizations.size());
+        Assert.assertEquals(2, getLicenseCount(utilizations.get(0).get(capacity1)));
+        Assert.assertEquals(3, getLicenseCount(utilizations.get(0).get(capacity2)));
+        Assert.assertNull(utilizations.get(1).get(capacity1));
+        Assert.assertNull(utilizations.get(2).get(capacity2));
+        Assert.assertEquals(1, listReservationsCount);
+
+        // Aggregates should be returned from the cache
+        Assert.assertSame(utilizations.get(0), getUtilizations().get(0));
+        Assert.assertSame(utilizations.get(0).get(capacity1), resourcesUtilization.getUtilization(SECURITY_TOKEN,
+                capacity1, new Interval(new DateTime("2012-01-01T00:00"), PERIOD)));
+        Assert.assertEquals(1, listReservationsCount);
+    }
+
+    /**
+     * Test that {@link ResourcesUtilization#refresh} recomputes only aggregates of changed resource capacities.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRefreshReservations() throws Exception
+    {
+        ResourceCapacity capacity1 = getResourceCapacity("1");
+        ResourceCapacity capacity2 = getResourceCapacity("2");
+        Map<ResourceCapacity, ResourceCapacityUtilization> utilizations = getUtilizations().get(0);
+
+        // Same reservations (only new instances) should keep all aggregates
+        addReservation("1", "1", "2012-01-01T10:00", 2);
+        addReservation("2", "2", "2012-01-01T10:00", 3);
+        resourcesUtilization.refresh(SECURITY_TOKEN, INTERVAL);
+        Assert.assertEquals(2, listReservationsCount);
+        Assert.assertSame(utilizations, getUtilizations().get(0));
+
+        // Modified license count should recompute only the aggregates of the first resource capacity
+        addReservation("1", "1", "2012-01-01T10:00", 4);
+        resourcesUtilization.refresh(SECURITY_TOKEN, INTERVAL);
+        Map<ResourceCapacity, ResourceCapacityUtilization> refreshedUtilizations = getUtilizations().get(0);
+        Assert.assertEquals(4, getLicenseCount(refreshedUtilizations.get(capacity1)));
+        Assert.assertSame(utilizations.get(capacity2), refreshedUtilizations.get(capacity2));
+        utilizations = refreshedUtilizations;
+
+        // Modified slot should move the reservation to other period
+        addReservation("1", "1", "2012-01-02T10:00", 4);
+        resourcesUtilization.refresh(SECURITY_TOKEN, INTERVAL);
+        List<Map<ResourceCapacity, ResourceCapacityUtilization>> utilizationList = getUtilizations();
+        Assert.assertNull(utilizationList.get(0).get(capacity1));
+        Assert.assertEquals(4, getLicenseCount(utilizationList.get(1).get(capacity1)));
+        Assert.assertSame(utilizations.get(capacity2), utilizationList.get(0).get(capacity2));
+
+        // Deleted and added reservations
+        reservations.remove("2");
+        addReservation("3", "1", "2012-01-02T11:00", 1);
+        resourcesUtilization.refresh(SECURITY_TOKEN, INTERVAL);
+        utilizationList = getUtilizations();
+        Assert.assertNull(utilizationList.get(0).get(capacity2));
+        Assert.assertEquals(5, getLicenseCount(utilizationList.get(1).get(capacity1)));
+
+        // Reservations outside the cached interval shouldn't be listed by refresh
+        int listReservationsCount = this.listReservationsCount;
+        resourcesUtilization.refresh(SECURITY_TOKEN, new Interval(new DateTime("2013-01-01T00:00"), PERIOD));
+        Assert.assertEquals(listReservationsCount, this.listReservationsCount);
+        Assert.assertEquals(2, resourcesUtilization.getResourceCapacities().size());
+    }
+
+    /**
+     * Test that {@link ResourcesUtilization#refresh} reloads resource capacities.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRefreshResourceCapacities() throws Exception
+    {
+        ResourceCapacity capacity1 = getResourceCapacity("1");
+        getUtilizations();
+
+        // Unchanged resources should keep resource capacities
+        resourcesUtilization.refresh(SECURITY_TOKEN, INTERVAL);
+        Assert.assertSame(capacity1, getResourceCapacity("1"));
+
+        // Modified license count
+        resources.put("1", createResource("1", "mcu1", 20));
+        resourcesUtilization.refresh(SECURITY_TOKEN, INTERVAL);
+        ResourceCapacity.Room capacity = (ResourceCapacity.Room) getResourceCapacity("1");
+        Assert.assertNotSame(capacity1, capacity);
+        Assert.assertEquals(Integer.valueOf(20), capacity.getLicenseCount());
+        int listReservationsCount = this.listReservationsCount;
+        Assert.assertEquals(2, getLicenseCount(getUtilizations().get(0).get(capacity)));
+        Assert.assertEquals(listReservationsCount + 1, this.listReservationsCount);
+
+        // New resource
+        resources.put("3", createResource("3", "mcu3", 1));
+        resourcesUtilization.refresh(SECURITY_TOKEN, INTERVAL);
+        Assert.assertEquals(3, resourcesUtilization.getResourceCapacities().size());
+        Assert.assertNotNull(getResourceCapacity("3"));
+    }
+
+    /**
+     * @return list of aggregates for each {@link #PERIOD} in {@link #INTERVAL}
+     */
+    private List<Map<ResourceCapacity, ResourceCapacityUtilization>> getUtilizations()
+    {
+        return new ArrayList<Map<ResourceCapacity, ResourceCapacityUtilization>>(
+                resourcesUtilization.getUtilization(SECURITY_TOKEN, INTERVAL, PERIOD).values());
+    }
+
+    /**
+     * @param resourceId
+     * @return {@link ResourceCapacity.Room} for given {@code resourceId}
+     */
+    private ResourceCapacity getResourceCapacity(String resourceId)
+    {
+        return resourcesUtilization.getResourceCapacity(resourceId, ResourceCapacity.Room.class);
+    }
+
+    /**
+     * @param utilization
+     * @return license count of the peak bucket in given {@code utilization}
+     */
+    private static int getLicenseCount(ResourceCapacityUtilization utilization)
+    {
+        Assert.assertNotNull(utilization);
+        return utilization.getPeakBucket().getLicenseCount();
+    }
+
+    /**
+     * @param id
+     * @param name
+     * @param licenseCount
+     * @return new {@link Resource} with {@link RoomProviderCapability}
+     */
+    private static Resource createResource(String id, String name, int licenseCount)
+    {
+        Resource resource = new Resource();
+        resource.setId(id);
+        resource.setName(name);
+        resource.addCapability(new RoomProviderCapability(licenseCount));
+        return resource;
+    }
+
+    /**
+     * Add new {@link ReservationSummary} (or replace the existing one with the same {@code id}) to the
+     * {@link #reservations}.
+     *
+     * @param id
+     * @param resourceId
+     * @param start
+     * @param licenseCount
+     */
+    private void addReservation(String id, String resourceId, String start, int licenseCount)
+    {
+        ReservationSummary reservation = new ReservationSummary();
+        reservation.setId(id);
+        reservation.setType(ReservationSummary.Type.ROOM);
+        reservation.setResourceId(resourceId);
+        reservation.setSlot(new Interval(new DateTime(start), Period.hours(2)));
+        reservation.setRoomLicenseCount(licenseCount);
+        reservations.put(id, reservation);
+    }
+
+    /**
+     * @return {@link ResourceService} stub which lists {@link #resources}
+     */
+    private ResourceService createResourceService()
+    {
+        return createService(ResourceService.class, new InvocationHandler()
+        {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+                if (method.getName().equals("listResources")) {
+                    ListResponse<ResourceSummary> response = new ListResponse<ResourceSummary>();
+                    for (Resource resource : resources.values()) {
+                        ResourceSummary resourceSummary = new ResourceSummary();
+                        resourceSummary.setId(resource.getId());
+                        resourceSummary.setName(resource.getName());
+                        response.addItem(resourceSummary);
+                    }
+                    return response;
+                }
+                else if (method.getName().equals("getResource")) {
+                    return resources.get(args[1]);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * @return {@link ReservationService} stub which lists {@link #reservations}
+     */
+    private ReservationService createReservationService()
+    {
+        return createService(ReservationService.class, new InvocationHandler()
+        {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+                if (method.getName().equals("listReservations")) {
+                    ReservationListRequest request = (ReservationListRequest) args[0];
+                    ListResponse<ReservationSummary> response = new ListResponse<ReservationSummary>();
+                    for (ReservationSummary reservation : reservations.values()) {
+                        if (request.getResourceIds().contains(reservation.getResourceId())
+                                && reservation.getSlot().overlaps(request.getInterval())) {
+                            response.addItem(reservation);
+                        }
+                    }
+                    listReservationsCount++;
+                    return response;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * @param serviceClass
+     * @param invocationHandler
+     * @return new stub of given {@code serviceClass}
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T createService(Class<T> serviceClass, InvocationHandler invocationHandler)
+    {
+        return (T) Proxy.newProxyInstance(serviceClass.getClassLoader(), new Class[]{serviceClass},
+                invocationHandler);
+    }
+}
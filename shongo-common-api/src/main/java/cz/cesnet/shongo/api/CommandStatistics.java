@@ -0,0 +1,152 @@
+package cz.cesnet.shongo.api;
+
+import jade.content.Concept;
+
+/**
+ * Represents latency statistics of a single command which is performed by an agent.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class CommandStatistics extends AbstractComplexType implements Concept
+{
+    /**
+     * Name of the command.
+     */
+    private String command;
+
+    /**
+     * Number of performed commands.
+     */
+    private int count;
+
+    /**
+     * Average latency in milliseconds.
+     */
+    private int averageLatency;
+
+    /**
+     * Upper bound of latency in milliseconds of 95 percent of performed commands.
+     */
+    private int percentileLatency;
+
+    /**
+     * Maximum latency in milliseconds.
+     */
+    private int maxLatency;
+
+    /**
+     * @return {@link #command}
+     */
+    public String getCommand()
+    {
+        return command;
+    }
+
+    /**
+     * @param command sets the {@link #command}
+     */
+    public void setCommand(String command)
+    {
+        this.command = command;
+    }
+
+    /**
+     * @return {@link #count}
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @param count sets the {@link #count}
+     */
+    public void setCount(int count)
+    {
+        this.count = count;
+    }
+
+    /**
+     * @return {@link #averageLatency}
+     */
+    public int getAverageLatency()
+    {
+        return averageLatency;
+    }
+
+    /**
+     * @param averageLatency sets the {@link #averageLatency}
+     */
+    public void setAverageLatency(int averageLatency)
+    {
+        this.averageLatency = averageLatency;
+    }
+
+    /**
+     * @return {@link #percentileLatency}
+     */
+    public int getPercentileLatency()
+    {
+        return percentileLatency;
+    }
+
+    /**
+     * @param percentileLatency sets the {@link #percentileLatency}
+     */
+    public void setPercentileLatency(int percentileLatency)
+    {
+        this.percentileLatency = percentileLatency;
+    }
+
+    /**
+     * @return {@link #maxLatency}
+     */
+    public int getMaxLatency()
+    {
+        return maxLatency;
+    }
+
+    /**
+     * @param maxLatency sets the {@link #maxLatency}
+     */
+    public void setMaxLatency(int maxLatency)
+    {
+        this.maxLatency = maxLatency;
+    }
+
+    public static final String COMMAND = "command";
+    public static final String COUNT = "count";
+    public static final String AVERAGE_LATENCY = "averageLatency";
+    public static final String PERCENTILE_LATENCY = "percentileLatency";
+    public static final String MAX_LATENCY = "maxLatency";
+
+    @Override
+    public DataMap toData()
+    {
+        DataMap dataMap = super.toData();
+        dataMap.set(COMMAND, command);
+        dataMap.set(COUNT, count);
+        dataMap.set(AVERAGE_LATENCY, averageLatency);
+        dataMap.set(PERCENTILE_LATENCY, percentileLatency);
+        dataMap.set(MAX_LATENCY, maxLatency);
+        return dataMap;
+    }
+
+    @Override
+    public void fromData(DataMap dataMap)
+    {
+        super.fromData(dataMap);
+        command = dataMap.getString(COMMAND);
+        count = dataMap.getInt(COUNT, 0);
+        averageLatency = dataMap.getInt(AVERAGE_LATENCY, 0);
+        percentileLatency = dataMap.getInt(PERCENTILE_LATENCY, 0);
+        maxLatency = dataMap.getInt(MAX_LATENCY, 0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("CommandStatistics (command: %s, count: %d, avg: %d ms, p95: <=%d ms, max: %d ms)",
+                command, count, averageLatency, percentileLatency, maxLatency);
+    }
+}
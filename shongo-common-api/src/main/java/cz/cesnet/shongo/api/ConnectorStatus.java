@@ -2,6 +2,9 @@ package cz.cesnet.shongo.api;
 
 import jade.content.Concept;
 
+import java.util.LinkedList;
+import java.util.List;
+
 /**
  * Status of connector.
  *
@@ -14,6 +17,16 @@ public class ConnectorStatus extends AbstractComplexType implements Concept
      */
     private State state;
 
+    /**
+     * Number of commands which have been refused by the connector because it was saturated.
+     */
+    private int refusedCount;
+
+    /**
+     * {@link CommandStatistics} of commands which have been performed by the connector.
+     */
+    private List<CommandStatistics> commandStatistics = new LinkedList<CommandStatistics>();
+
     /**
      * Constructor.
      */
@@ -47,13 +60,49 @@ public class ConnectorStatus extends AbstractComplexType implements Concept
         this.state = state;
     }
 
+    /**
+     * @return {@link #refusedCount}
+     */
+    public int getRefusedCount()
+    {
+        return refusedCount;
+    }
+
+    /**
+     * @param refusedCount sets the {@link #refusedCount}
+     */
+    public void setRefusedCount(int refusedCount)
+    {
+        this.refusedCount = refusedCount;
+    }
+
+    /**
+     * @return {@link #commandStatistics}
+     */
+    public List<CommandStatistics> getCommandStatistics()
+    {
+        return commandStatistics;
+    }
+
+    /**
+     * @param commandStatistics sets the {@link #commandStatistics}
+     */
+    public void setCommandStatistics(List<CommandStatistics> commandStatistics)
+    {
+        this.commandStatistics = commandStatistics;
+    }
+
     private static final String STATE = "state";
+    private static final String REFUSED_COUNT = "refusedCount";
+    private static final String COMMAND_STATISTICS = "commandStatistics";
 
     @Override
     public DataMap toData()
     {
         DataMap dataMap = super.toData();
         dataMap.set(STATE, state);
+        dataMap.set(REFUSED_COUNT, refusedCount);
+        dataMap.set(COMMAND_STATISTICS, commandStatistics);
         return dataMap;
     }
 
@@ -62,6 +111,8 @@ public class ConnectorStatus extends AbstractComplexType implements Concept
     {
         super.fromData(dataMap);
         state = dataMap.getEnum(STATE, State.class);
+        refusedCount = dataMap.getInt(REFUSED_COUNT, 0);
+        commandStatistics = dataMap.getList(COMMAND_STATISTICS, CommandStatistics.class);
     }
 
     @Override
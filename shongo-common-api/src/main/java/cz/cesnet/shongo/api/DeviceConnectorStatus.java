@@ -23,6 +23,8 @@ public class DeviceConnectorStatus extends ConnectorStatus
     public DeviceConnectorStatus(ConnectorStatus connectorStatus)
     {
         setState(connectorStatus.getState());
+        setRefusedCount(connectorStatus.getRefusedCount());
+        setCommandStatistics(connectorStatus.getCommandStatistics());
     }
 
     public DeviceAddress getDeviceAddress()
@@ -101,6 +101,34 @@ public class RoomSummary extends IdentifiedComplexType
         this.startDateTime = startDateTime;
     }
 
+    /**
+     * @param roomSummary
+     * @return true when this {@link RoomSummary} is same as given {@code roomSummary}, false otherwise
+     */
+    public boolean isSame(RoomSummary roomSummary)
+    {
+        if (roomSummary == null) {
+            return false;
+        }
+        if (id != null ? !id.equals(roomSummary.id) : roomSummary.id != null) {
+            return false;
+        }
+        if (name != null ? !name.equals(roomSummary.name) : roomSummary.name != null) {
+            return false;
+        }
+        if (description != null ? !description.equals(roomSummary.description) : roomSummary.description != null) {
+            return false;
+        }
+        if (alias != null ? !alias.equals(roomSummary.alias) : roomSummary.alias != null) {
+            return false;
+        }
+        if (startDateTime != null ? !startDateTime.equals(
+                roomSummary.startDateTime) : roomSummary.startDateTime != null) {
+            return false;
+        }
+        return true;
+    }
+
     public static final String NAME = "name";
     public static final String DESCRIPTION = "description";
     public static final String ALIAS = "alias";
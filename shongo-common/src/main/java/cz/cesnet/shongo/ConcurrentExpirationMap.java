@@ -0,0 +1,854 @@
+package cz.cesnet.shongo;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents a thread-safe map of {@link V} by {@link K} with {@link #expiration}, {@link #maxSize}
+ * and {@link #maxWeight}.
+ * <p/>
+ * Unlike {@link ExpirationMap} it doesn't use a single monitor (reads don't block at all) and it counts
+ * hits, misses, expirations and evictions (see {@link #getStatistics()}).
+ * <p/>
+ * Missing values can be loaded by {@link #get(Object, Loader)} and {@link #getAll(Collection, BulkLoader)}
+ * which load each missing key only once at a time (other threads which request the same key wait for
+ * the loading instead of loading it again) and which don't block threads requesting other keys. A failure of
+ * the loading is thrown only to the thread which has performed it, the waiting threads load the key by their own
+ * loaders (the failure can be specific to the caller, e.g., the caller isn't authorized to read the value).
+ *
+ * @param <K>
+ * @param <V>
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class ConcurrentExpirationMap<K, V> implements Iterable<V>
+{
+    /**
+     * Cache of {@link V} by {@link K}.
+     */
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<K, Entry<V>>();
+
+    /**
+     * Specifies expiration for the {@link #entries}.
+     */
+    private volatile Duration expiration = null;
+
+    /**
+     * Maximum number of {@link #entries} ({@code 0} means unlimited). When it is exceeded, the least recently
+     * used {@link #entries} are evicted.
+     */
+    private volatile int maxSize = 0;
+
+    /**
+     * Maximum total weight of {@link #entries} ({@code 0} means unlimited) which are weighted by {@link #weigher}.
+     * When it is exceeded, the least recently used {@link #entries} are evicted.
+     */
+    private volatile long maxWeight = 0;
+
+    /**
+     * {@link Weigher} for the {@link #maxWeight}.
+     */
+    private volatile Weigher<V> weigher = null;
+
+    /**
+     * Total weight of {@link #entries}.
+     */
+    private final AtomicLong weight = new AtomicLong();
+
+    /**
+     * Specifies how long before the expiration an entry should be refreshed (see {@link #requestRefresh}).
+     */
+    private volatile Duration refreshAhead = null;
+
+    /**
+     * {@link Loading}s of {@link V} which are in progress by {@link K}.
+     */
+    private final ConcurrentHashMap<K, Loading<V>> loadings = new ConcurrentHashMap<K, Loading<V>>();
+
+    /**
+     * Specifies whether some thread is evicting {@link #entries}.
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong expirationCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /**
+     * Constructor.
+     */
+    public ConcurrentExpirationMap()
+    {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expiration sets the {@link #expiration}
+     */
+    public ConcurrentExpirationMap(Duration expiration)
+    {
+        setExpiration(expiration);
+    }
+
+    /**
+     * @param expiration sets the {@link #expiration}
+     */
+    public void setExpiration(Duration expiration)
+    {
+        this.expiration = expiration;
+    }
+
+    /**
+     * @return {@link #maxSize}
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize sets the {@link #maxSize}
+     */
+    public void setMaxSize(int maxSize)
+    {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum size must not be negative.");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return {@link #maxWeight}
+     */
+    public long getMaxWeight()
+    {
+        return maxWeight;
+    }
+
+    /**
+     * @param maxWeight sets the {@link #maxWeight}
+     * @param weigher   sets the {@link #weigher}
+     */
+    public void setMaxWeight(long maxWeight, Weigher<V> weigher)
+    {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight must not be negative.");
+        }
+        if (maxWeight > 0 && weigher == null) {
+            throw new IllegalArgumentException("Weigher must not be null.");
+        }
+        this.weigher = weigher;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @param refreshAhead sets the {@link #refreshAhead}
+     */
+    public void setRefreshAhead(Duration refreshAhead)
+    {
+        this.refreshAhead = refreshAhead;
+    }
+
+    /**
+     * Determine whether the entry for given {@code key} expires within the {@link #refreshAhead} and thus it should
+     * be refreshed (by putting a new value). For each entry it returns {@code true} only once so that only a single
+     * caller performs the refresh.
+     *
+     * @param key
+     * @return true whether the caller should refresh the value for given {@code key}, false otherwise
+     */
+    public boolean requestRefresh(K key)
+    {
+        Duration refreshAhead = this.refreshAhead;
+        if (refreshAhead == null) {
+            return false;
+        }
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.expirationTime == Long.MAX_VALUE) {
+            return false;
+        }
+        if ((entry.expirationTime - refreshAhead.getMillis()) > System.currentTimeMillis()) {
+            return false;
+        }
+        return entry.refreshRequested.compareAndSet(false, true);
+    }
+
+    /**
+     * Only a miss is counted by this method (a hit is counted by following {@link #get}).
+     *
+     * @param key
+     * @return true if given {@code key} exists, false otherwise
+     */
+    public boolean contains(K key)
+    {
+        if (getEntry(key) == null) {
+            missCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param key
+     * @return {@link V} by given {@code key}
+     */
+    public V get(K key)
+    {
+        Entry<V> entry = getEntry(key);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        entry.accessTime = System.currentTimeMillis();
+        return entry.value;
+    }
+
+    /**
+     * Get {@link V} for given {@code key} or load it by given {@code loader} when it doesn't exist (when the same
+     * {@code key} is already being loaded by other thread, the loaded value is awaited and when the loading fails,
+     * the value is loaded by given {@code loader}).
+     *
+     * @param key
+     * @param loader to be used for loading of missing value
+     * @return {@link V} by given {@code key} ({@code null} when the {@code loader} returns {@code null})
+     */
+    public V get(K key, Loader<K, V> loader)
+    {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        Loading<V> loading = new Loading<V>();
+        Loading<V> existingLoading;
+        while ((existingLoading = loadings.putIfAbsent(key, loading)) != null) {
+            if (existingLoading.await()) {
+                return existingLoading.value;
+            }
+            // The failed loading could haven't been removed yet
+            loadings.remove(key, existingLoading);
+        }
+        try {
+            // Value could have been loaded before the loading was registered
+            Entry<V> entry = getEntry(key);
+            if (entry != null) {
+                value = entry.value;
+            }
+            else {
+                loadCount.incrementAndGet();
+                value = loader.load(key);
+                if (value != null) {
+                    put(key, value);
+                }
+            }
+            loading.complete(value, null);
+            return value;
+        }
+        catch (RuntimeException exception) {
+            loading.complete(null, exception);
+            throw exception;
+        }
+        catch (Error error) {
+            loading.complete(null, error);
+            throw error;
+        }
+        finally {
+            loadings.remove(key, loading);
+        }
+    }
+
+    /**
+     * Get {@link V}s for given {@code keys} and load all missing of them by single call of given {@code loader}
+     * (keys which are already being loaded by other threads are awaited).
+     *
+     * @param keys
+     * @param loader to be used for loading of missing values
+     * @return map of {@link V}s by {@link K}s (keys for which the {@code loader} doesn't return a value are missing)
+     */
+    public Map<K, V> getAll(Collection<K> keys, BulkLoader<K, V> loader)
+    {
+        Map<K, V> values = new LinkedHashMap<K, V>();
+        Map<K, Loading<V>> ownLoadings = new LinkedHashMap<K, Loading<V>>();
+        Map<K, Loading<V>> otherLoadings = new LinkedHashMap<K, Loading<V>>();
+        for (K key : keys) {
+            if (values.containsKey(key) || ownLoadings.containsKey(key) || otherLoadings.containsKey(key)) {
+                continue;
+            }
+            V value = get(key);
+            if (value != null) {
+                values.put(key, value);
+                continue;
+            }
+            Loading<V> loading = new Loading<V>();
+            Loading<V> existingLoading = loadings.putIfAbsent(key, loading);
+            if (existingLoading != null) {
+                otherLoadings.put(key, existingLoading);
+            }
+            else {
+                ownLoadings.put(key, loading);
+            }
+        }
+        if (!ownLoadings.isEmpty()) {
+            Throwable throwable = null;
+            Map<K, V> loadedValues = null;
+            try {
+                loadCount.incrementAndGet();
+                loadedValues = loader.load(new LinkedHashSet<K>(ownLoadings.keySet()));
+            }
+            catch (RuntimeException exception) {
+                throwable = exception;
+                throw exception;
+            }
+            catch (Error error) {
+                throwable = error;
+                throw error;
+            }
+            finally {
+                for (Map.Entry<K, Loading<V>> entry : ownLoadings.entrySet()) {
+                    K key = entry.getKey();
+                    V value = null;
+                    if (loadedValues != null) {
+                        value = loadedValues.get(key);
+                        if (value != null) {
+                            put(key, value);
+                            values.put(key, value);
+                        }
+                    }
+                    entry.getValue().complete(value, throwable);
+                    loadings.remove(key, entry.getValue());
+                }
+            }
+        }
+        List<K> failedKeys = new LinkedList<K>();
+        for (Map.Entry<K, Loading<V>> entry : otherLoadings.entrySet()) {
+            Loading<V> loading = entry.getValue();
+            if (!loading.await()) {
+                failedKeys.add(entry.getKey());
+            }
+            else if (loading.value != null) {
+                values.put(entry.getKey(), loading.value);
+            }
+        }
+        if (!failedKeys.isEmpty()) {
+            // Loadings by other threads have failed so load the keys by own loader
+            values.putAll(getAll(failedKeys, loader));
+        }
+        return values;
+    }
+
+    /**
+     * Put given {@code value} to the cache by the given {@code key}.
+     *
+     * @param key
+     * @param value
+     */
+    public void put(K key, V value)
+    {
+        long currentTime = System.currentTimeMillis();
+        Duration expiration = this.expiration;
+        long expirationTime = (expiration != null ? currentTime + expiration.getMillis() : Long.MAX_VALUE);
+        Weigher<V> weigher = this.weigher;
+        long entryWeight = (weigher != null ? weigher.getWeight(value) : 0);
+        Entry<V> oldEntry = entries.put(key, new Entry<V>(value, expirationTime, currentTime, entryWeight));
+        weight.addAndGet(entryWeight - (oldEntry != null ? oldEntry.weight : 0));
+        int maxSize = this.maxSize;
+        long maxWeight = this.maxWeight;
+        if ((maxSize > 0 && entries.size() > maxSize) || (maxWeight > 0 && weight.get() > maxWeight)) {
+            evict(maxSize, maxWeight, currentTime);
+        }
+    }
+
+    /**
+     * Remove given {@code key}.
+     *
+     * @param key
+     * @return removed value for the {@code key} or null
+     */
+    public V remove(K key)
+    {
+        Entry<V> entry = entries.remove(key);
+        if (entry != null) {
+            weight.addAndGet(-entry.weight);
+            return entry.value;
+        }
+        else {
+            return null;
+        }
+    }
+
+    /**
+     * Removes all entries with given {@code value}.
+     *
+     * @param value
+     */
+    public void removeByValue(V value)
+    {
+        for (Map.Entry<K, Entry<V>> itemEntry : entries.entrySet()) {
+            Entry<V> entry = itemEntry.getValue();
+            if (entry.value.equals(value)) {
+                removeEntry(itemEntry.getKey(), entry);
+            }
+        }
+    }
+
+    /**
+     * @return number of added keys
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * @return true whether {@link #entries} are empty, false otherwise
+     */
+    public boolean isEmpty()
+    {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Clear all {@link #entries}.
+     */
+    public void clear()
+    {
+        for (Map.Entry<K, Entry<V>> itemEntry : entries.entrySet()) {
+            removeEntry(itemEntry.getKey(), itemEntry.getValue());
+        }
+    }
+
+    /**
+     * {@link #entries}.
+     */
+    public Set<K> keySet()
+    {
+        return entries.keySet();
+    }
+
+    /**
+     * Remove all expired values.
+     *
+     * @param dateTime which represents "now"
+     */
+    public void clearExpired(DateTime dateTime)
+    {
+        long currentTime = dateTime.getMillis();
+        for (Map.Entry<K, Entry<V>> itemEntry : entries.entrySet()) {
+            Entry<V> entry = itemEntry.getValue();
+            if (entry.isExpired(currentTime) && removeEntry(itemEntry.getKey(), entry)) {
+                expirationCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return {@link Statistics} of this {@link ConcurrentExpirationMap}
+     */
+    public Statistics getStatistics()
+    {
+        return new Statistics(entries.size(), maxSize, weight.get(), maxWeight, hitCount.get(), missCount.get(),
+                expirationCount.get(), evictionCount.get(), loadCount.get());
+    }
+
+    /**
+     * Iterates over a snapshot of not expired values.
+     */
+    @Override
+    public Iterator<V> iterator()
+    {
+        long currentTime = System.currentTimeMillis();
+        List<V> values = new ArrayList<V>(entries.size());
+        for (Entry<V> entry : entries.values()) {
+            if (!entry.isExpired(currentTime)) {
+                values.add(entry.value);
+            }
+        }
+        return Collections.unmodifiableList(values).iterator();
+    }
+
+    /**
+     * @return snapshot of not expired values by keys (it doesn't affect the {@link Statistics})
+     */
+    public Map<K, V> getSnapshot()
+    {
+        long currentTime = System.currentTimeMillis();
+        Map<K, V> values = new LinkedHashMap<K, V>();
+        for (Map.Entry<K, Entry<V>> itemEntry : entries.entrySet()) {
+            Entry<V> entry = itemEntry.getValue();
+            if (!entry.isExpired(currentTime)) {
+                values.put(itemEntry.getKey(), entry.value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @param key
+     * @return not expired {@link Entry} for given {@code key} or {@code null}
+     */
+    private Entry<V> getEntry(K key)
+    {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            if (removeEntry(key, entry)) {
+                expirationCount.incrementAndGet();
+            }
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @param key
+     * @param entry to be removed for given {@code key}
+     * @return true whether the {@code entry} has been removed, false otherwise
+     */
+    private boolean removeEntry(K key, Entry<V> entry)
+    {
+        if (entries.remove(key, entry)) {
+            weight.addAndGet(-entry.weight);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remove expired and least recently used {@link #entries} to get below the given {@code maxSize} and
+     * {@code maxWeight}. The entries are evicted by a single thread at a time and with a reserve so that
+     * the eviction isn't performed by each put.
+     *
+     * @param maxSize     maximum number of {@link #entries} ({@code 0} means unlimited)
+     * @param maxWeight   maximum total weight of {@link #entries} ({@code 0} means unlimited)
+     * @param currentTime current time in milliseconds
+     */
+    private void evict(int maxSize, long maxWeight, long currentTime)
+    {
+        if (!evicting.compareAndSet(false, true)) {
+            // Other thread is already evicting
+            return;
+        }
+        try {
+            List<Map.Entry<K, Entry<V>>> candidates = new ArrayList<Map.Entry<K, Entry<V>>>(entries.size());
+            for (Map.Entry<K, Entry<V>> itemEntry : entries.entrySet()) {
+                Entry<V> entry = itemEntry.getValue();
+                if (entry.isExpired(currentTime)) {
+                    if (removeEntry(itemEntry.getKey(), entry)) {
+                        expirationCount.incrementAndGet();
+                    }
+                }
+                else {
+                    candidates.add(itemEntry);
+                }
+            }
+            int targetSize = (maxSize > 0 ? maxSize - maxSize / 10 : Integer.MAX_VALUE);
+            long targetWeight = (maxWeight > 0 ? maxWeight - maxWeight / 10 : Long.MAX_VALUE);
+            if (entries.size() <= targetSize && weight.get() <= targetWeight) {
+                return;
+            }
+            final Map<Entry<V>, Long> accessTimes = new IdentityHashMap<Entry<V>, Long>();
+            for (Map.Entry<K, Entry<V>> candidate : candidates) {
+                Entry<V> entry = candidate.getValue();
+                accessTimes.put(entry, entry.accessTime);
+            }
+            Collections.sort(candidates, new Comparator<Map.Entry<K, Entry<V>>>()
+            {
+                @Override
+                public int compare(Map.Entry<K, Entry<V>> entry1, Map.Entry<K, Entry<V>> entry2)
+                {
+                    return accessTimes.get(entry1.getValue()).compareTo(accessTimes.get(entry2.getValue()));
+                }
+            });
+            for (Map.Entry<K, Entry<V>> candidate : candidates) {
+                if (entries.size() <= targetSize && weight.get() <= targetWeight) {
+                    break;
+                }
+                if (removeEntry(candidate.getKey(), candidate.getValue())) {
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+        finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Loads a missing value for {@link #get(Object, Loader)}.
+     */
+    public static interface Loader<K, V>
+    {
+        /**
+         * @param key
+         * @return loaded value for given {@code key} or {@code null}
+         */
+        public V load(K key);
+    }
+
+    /**
+     * Loads missing values for {@link #getAll(Collection, BulkLoader)}.
+     */
+    public static interface BulkLoader<K, V>
+    {
+        /**
+         * @param keys
+         * @return map of loaded values by given {@code keys} (it needn't contain all {@code keys})
+         */
+        public Map<K, V> load(Set<K> keys);
+    }
+
+    /**
+     * Computes weights of values for {@link #setMaxWeight}.
+     */
+    public static interface Weigher<V>
+    {
+        /**
+         * @param value
+         * @return weight of given {@code value} (e.g., its size in bytes)
+         */
+        public long getWeight(V value);
+    }
+
+    /**
+     * Loading of a value which is in progress.
+     */
+    private static class Loading<V>
+    {
+        /**
+         * Counted down when the loading is completed.
+         */
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        /**
+         * Loaded value.
+         */
+        private volatile V value;
+
+        /**
+         * Exception or error thrown by the loading.
+         */
+        private volatile Throwable throwable;
+
+        /**
+         * @param value     sets the {@link #value}
+         * @param throwable sets the {@link #throwable}
+         */
+        private void complete(V value, Throwable throwable)
+        {
+            this.value = value;
+            this.throwable = throwable;
+            completed.countDown();
+        }
+
+        /**
+         * Wait for the loading to complete.
+         *
+         * @return true whether the {@link #value} has been loaded, false when the loading has failed
+         */
+        private boolean await()
+        {
+            try {
+                completed.await();
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Waiting for loading of value has been interrupted.", exception);
+            }
+            return throwable == null;
+        }
+    }
+
+    /**
+     * Entry for {@link ConcurrentExpirationMap}.
+     */
+    private static class Entry<V>
+    {
+        /**
+         * Value.
+         */
+        private final V value;
+
+        /**
+         * Expiration time in milliseconds.
+         */
+        private final long expirationTime;
+
+        /**
+         * Time in milliseconds of last access (it is updated without synchronization and thus it is approximate).
+         */
+        private volatile long accessTime;
+
+        /**
+         * Specifies whether a refresh has been requested (see {@link #requestRefresh}).
+         */
+        private final AtomicBoolean refreshRequested = new AtomicBoolean();
+
+        /**
+         * Weight of the {@link #value} (see {@link Weigher}).
+         */
+        private final long weight;
+
+        /**
+         * Constructor.
+         *
+         * @param value          sets the {@link #value}
+         * @param expirationTime sets the {@link #expirationTime}
+         * @param accessTime     sets the {@link #accessTime}
+         * @param weight         sets the {@link #weight}
+         */
+        private Entry(V value, long expirationTime, long accessTime, long weight)
+        {
+            this.value = value;
+            this.expirationTime = expirationTime;
+            this.accessTime = accessTime;
+            this.weight = weight;
+        }
+
+        /**
+         * @param currentTime current time in milliseconds
+         * @return true whether the {@link Entry} is expired, false otherwise
+         */
+        private boolean isExpired(long currentTime)
+        {
+            return expirationTime <= currentTime;
+        }
+    }
+
+    /**
+     * Snapshot of {@link ConcurrentExpirationMap} counters.
+     */
+    public static class Statistics
+    {
+        private final int size;
+
+        private final int maxSize;
+
+        private final long weight;
+
+        private final long maxWeight;
+
+        private final long hitCount;
+
+        private final long missCount;
+
+        private final long expirationCount;
+
+        private final long evictionCount;
+
+        private final long loadCount;
+
+        private Statistics(int size, int maxSize, long weight, long maxWeight, long hitCount, long missCount,
+                long expirationCount, long evictionCount, long loadCount)
+        {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.weight = weight;
+            this.maxWeight = maxWeight;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.expirationCount = expirationCount;
+            this.evictionCount = evictionCount;
+            this.loadCount = loadCount;
+        }
+
+        /**
+         * @return number of entries
+         */
+        public int getSize()
+        {
+            return size;
+        }
+
+        /**
+         * @return maximum number of entries ({@code 0} means unlimited)
+         */
+        public int getMaxSize()
+        {
+            return maxSize;
+        }
+
+        /**
+         * @return total weight of entries
+         */
+        public long getWeight()
+        {
+            return weight;
+        }
+
+        /**
+         * @return maximum total weight of entries ({@code 0} means unlimited)
+         */
+        public long getMaxWeight()
+        {
+            return maxWeight;
+        }
+
+        /**
+         * @return number of lookups which have found a value
+         */
+        public long getHitCount()
+        {
+            return hitCount;
+        }
+
+        /**
+         * @return number of lookups which haven't found a value
+         */
+        public long getMissCount()
+        {
+            return missCount;
+        }
+
+        /**
+         * @return number of entries which have been removed because they have expired
+         */
+        public long getExpirationCount()
+        {
+            return expirationCount;
+        }
+
+        /**
+         * @return number of entries which have been removed because the maximum size or weight has been exceeded
+         */
+        public long getEvictionCount()
+        {
+            return evictionCount;
+        }
+
+        /**
+         * @return number of calls of {@link Loader} or {@link BulkLoader}
+         */
+        public long getLoadCount()
+        {
+            return loadCount;
+        }
+
+        /**
+         * @return ratio of lookups which have found a value (from {@code 0.0} to {@code 1.0})
+         */
+        public double getHitRatio()
+        {
+            long lookupCount = hitCount + missCount;
+            return (lookupCount > 0 ? (double) hitCount / lookupCount : 0.0);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("size: %d/%d, weight: %d/%d, hits: %d, misses: %d, expirations: %d, evictions: %d,"
+                    + " loads: %d", size, maxSize, weight, maxWeight, hitCount, missCount, expirationCount, evictionCount,
+                    loadCount);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package cz.cesnet.shongo;
+
+import java.util.*;
+
+/**
+ * Compact set of {@code long} values which are stored sorted in a primitive array.
+ * <p/>
+ * It consumes 8 bytes per value (instead of about 70 bytes per value of {@link HashSet} with boxed {@link Long}s),
+ * lookups are performed by binary search and intersections of two {@link SortedLongSet}s by merging.
+ * It is intended for sets which are mostly read (e.g., cached identifiers of objects) and it isn't thread-safe.
+ * Adding a single value is O(n), and thus large sets should be built at once by {@link #SortedLongSet(Collection)}
+ * or {@link #addAll(Collection)} which sort and merge the values.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class SortedLongSet extends AbstractSet<Long>
+{
+    /**
+     * Initial capacity of {@link #values}.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Empty {@link #values}.
+     */
+    private static final long[] EMPTY_VALUES = new long[0];
+
+    /**
+     * Sorted values (only first {@link #size} items are valid).
+     */
+    private long[] values = EMPTY_VALUES;
+
+    /**
+     * Number of values.
+     */
+    private int size;
+
+    /**
+     * Constructor.
+     */
+    public SortedLongSet()
+    {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param values to be added to the set
+     */
+    public SortedLongSet(Collection<? extends Long> values)
+    {
+        if (values instanceof SortedLongSet) {
+            SortedLongSet sortedLongSet = (SortedLongSet) values;
+            this.values = Arrays.copyOf(sortedLongSet.values, sortedLongSet.size);
+            this.size = sortedLongSet.size;
+        }
+        else {
+            long[] newValues = new long[values.size()];
+            int index = 0;
+            for (Long value : values) {
+                newValues[index++] = value;
+            }
+            Arrays.sort(newValues);
+            // Remove duplicates
+            int newSize = 0;
+            for (index = 0; index < newValues.length; index++) {
+                if (newSize == 0 || newValues[newSize - 1] != newValues[index]) {
+                    newValues[newSize++] = newValues[index];
+                }
+            }
+            this.values = newValues;
+            this.size = newSize;
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object value)
+    {
+        return value instanceof Long && contains(((Long) value).longValue());
+    }
+
+    /**
+     * @param value
+     * @return true whether the set contains given {@code value}, false otherwise
+     */
+    public boolean contains(long value)
+    {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    @Override
+    public boolean add(Long value)
+    {
+        return add(value.longValue());
+    }
+
+    /**
+     * @param value to be added
+     * @return true whether the set didn't already contain given {@code value}, false otherwise
+     */
+    public boolean add(long value)
+    {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        index = -(index + 1);
+        if (size == values.length) {
+            long[] newValues = new long[Math.max(INITIAL_CAPACITY, size + (size >> 1))];
+            System.arraycopy(values, 0, newValues, 0, index);
+            System.arraycopy(values, index, newValues, index + 1, size - index);
+            values = newValues;
+        }
+        else {
+            System.arraycopy(values, index, values, index + 1, size - index);
+        }
+        values[index] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Add all values from given {@code collection} at once by merging (it is faster than adding the values
+     * one by one by {@link #add(long)} which must shift the greater values for each of them).
+     *
+     * @param collection of values to be added
+     * @return true whether the set has been changed, false otherwise
+     */
+    @Override
+    public boolean addAll(Collection<? extends Long> collection)
+    {
+        SortedLongSet other;
+        if (collection instanceof SortedLongSet) {
+            other = (SortedLongSet) collection;
+        }
+        else {
+            other = new SortedLongSet(collection);
+        }
+        if (other.size == 0) {
+            return false;
+        }
+        long[] newValues = new long[size + other.size];
+        int newSize = union(values, size, other.values, other.size, newValues);
+        if (newSize == size) {
+            return false;
+        }
+        values = newValues;
+        size = newSize;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object value)
+    {
+        return value instanceof Long && remove(((Long) value).longValue());
+    }
+
+    /**
+     * @param value to be removed
+     * @return true whether the set contained given {@code value}, false otherwise
+     */
+    public boolean remove(long value)
+    {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public void clear()
+    {
+        values = EMPTY_VALUES;
+        size = 0;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> collection)
+    {
+        if (!(collection instanceof SortedLongSet)) {
+            return super.retainAll(collection);
+        }
+        SortedLongSet other = (SortedLongSet) collection;
+        int oldSize = size;
+        size = intersect(values, size, other.values, other.size, values);
+        return size != oldSize;
+    }
+
+    /**
+     * Reduce the capacity of the set to it's size.
+     */
+    public void trimToSize()
+    {
+        if (values.length > size) {
+            values = (size > 0 ? Arrays.copyOf(values, size) : EMPTY_VALUES);
+        }
+    }
+
+    /**
+     * @return estimated number of bytes which are consumed by the set
+     */
+    public long getMemorySize()
+    {
+        // Object header with fields and array header with values
+        return 24 + 16 + 8L * values.length;
+    }
+
+    @Override
+    public Iterator<Long> iterator()
+    {
+        return new Iterator<Long>()
+        {
+            private int index = 0;
+
+            private boolean removable = false;
+
+            @Override
+            public boolean hasNext()
+            {
+                return index < size;
+            }
+
+            @Override
+            public Long next()
+            {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                removable = true;
+                return values[index++];
+            }
+
+            @Override
+            public void remove()
+            {
+                if (!removable) {
+                    throw new IllegalStateException();
+                }
+                removable = false;
+                removeAt(--index);
+            }
+        };
+    }
+
+    /**
+     * @param index of value to be removed
+     */
+    private void removeAt(int index)
+    {
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        if (size < (values.length >> 2)) {
+            values = Arrays.copyOf(values, Math.max(size, INITIAL_CAPACITY));
+        }
+    }
+
+    /**
+     * Merge union of two sorted arrays.
+     *
+     * @param values1 first sorted array
+     * @param size1   number of valid values in {@code values1}
+     * @param values2 second sorted array
+     * @param size2   number of valid values in {@code values2}
+     * @param result  to which the union should be written (it must have capacity {@code size1 + size2})
+     * @return number of values written to the {@code result}
+     */
+    private static int union(long[] values1, int size1, long[] values2, int size2, long[] result)
+    {
+        int index1 = 0;
+        int index2 = 0;
+        int resultSize = 0;
+        while (index1 < size1 && index2 < size2) {
+            long value1 = values1[index1];
+            long value2 = values2[index2];
+            if (value1 < value2) {
+                result[resultSize++] = value1;
+                index1++;
+            }
+            else if (value1 > value2) {
+                result[resultSize++] = value2;
+                index2++;
+            }
+            else {
+                result[resultSize++] = value1;
+                index1++;
+                index2++;
+            }
+        }
+        while (index1 < size1) {
+            result[resultSize++] = values1[index1++];
+        }
+        while (index2 < size2) {
+            result[resultSize++] = values2[index2++];
+        }
+        return resultSize;
+    }
+
+    /**
+     * Merge intersection of two sorted arrays.
+     *
+     * @param values1 first sorted array
+     * @param size1   number of valid values in {@code values1}
+     * @param values2 second sorted array
+     * @param size2   number of valid values in {@code values2}
+     * @param result  to which the intersection should be written (can be one of the given arrays)
+     * @return number of values written to the {@code result}
+     */
+    private static int intersect(long[] values1, int size1, long[] values2, int size2, long[] result)
+    {
+        int index1 = 0;
+        int index2 = 0;
+        int resultSize = 0;
+        while (index1 < size1 && index2 < size2) {
+            long value1 = values1[index1];
+            long value2 = values2[index2];
+            if (value1 < value2) {
+                index1++;
+            }
+            else if (value1 > value2) {
+                index2++;
+            }
+            else {
+                result[resultSize++] = value1;
+                index1++;
+                index2++;
+            }
+        }
+        return resultSize;
+    }
+}
@@ -6,16 +6,23 @@ import cz.cesnet.shongo.api.jade.CommandUnsupportedException;
 import cz.cesnet.shongo.api.jade.Command;
 import cz.cesnet.shongo.api.jade.CommonOntology;
 import cz.cesnet.shongo.api.jade.PingCommand;
+import jade.content.lang.leap.LEAPCodec;
 import jade.content.lang.sl.SLCodec;
 import jade.content.onto.Ontology;
 import jade.core.AID;
 import jade.domain.DFService;
+import jade.domain.FIPANames;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Represents an agent in JADE middle-ware.
  *
@@ -25,6 +32,11 @@ public class Agent extends jade.core.Agent
 {
     private static Logger logger = LoggerFactory.getLogger(Agent.class);
 
+    /**
+     * Default period in milliseconds after which the binary {@link LEAPCodec} is tried again.
+     */
+    public static final long DEFAULT_TEXT_CONTENT_RETRY_PERIOD = 600000;
+
     /**
      * Is agent started? A "started" agent is that the setup() method of which has ended.
      */
@@ -40,6 +52,38 @@ public class Agent extends jade.core.Agent
      */
     private Integer commandTimeout;
 
+    /**
+     * Maximum number of concurrently performed received {@link Command}s.
+     */
+    private int commandThreadCount = CommandResponderBehaviour.DEFAULT_THREAD_COUNT;
+
+    /**
+     * Maximum number of received {@link Command}s waiting for a thread (further {@link Command}s are refused).
+     */
+    private int commandQueueSize = CommandResponderBehaviour.DEFAULT_QUEUE_SIZE;
+
+    /**
+     * {@link CommandResponderBehaviour} which performs received {@link Command}s.
+     */
+    private CommandResponderBehaviour commandResponderBehaviour;
+
+    /**
+     * Specifies whether the binary {@link LEAPCodec} should be understood and used for sending {@link Command}s.
+     */
+    private boolean binaryContentEnabled = true;
+
+    /**
+     * Period in milliseconds after which the binary {@link LEAPCodec} is tried again for agents which haven't
+     * understood it (e.g., they may have been upgraded in the meantime).
+     */
+    private long textContentRetryPeriod = DEFAULT_TEXT_CONTENT_RETRY_PERIOD;
+
+    /**
+     * Times in milliseconds by names of agents which haven't understood the binary {@link LEAPCodec} at that time
+     * and thus {@link SLCodec} must be used for them (until the {@link #textContentRetryPeriod} elapses).
+     */
+    private final Map<String, Long> textContentAgentTimes = new ConcurrentHashMap<String, Long>();
+
     /**
      * Constructor.
      */
@@ -80,6 +124,87 @@ public class Agent extends jade.core.Agent
         this.commandTimeout = commandTimeout;
     }
 
+    /**
+     * @param commandThreadCount sets the {@link #commandThreadCount}
+     */
+    public void setCommandThreadCount(int commandThreadCount)
+    {
+        this.commandThreadCount = commandThreadCount;
+    }
+
+    /**
+     * @param commandQueueSize sets the {@link #commandQueueSize}
+     */
+    public void setCommandQueueSize(int commandQueueSize)
+    {
+        this.commandQueueSize = commandQueueSize;
+    }
+
+    /**
+     * @param binaryContentEnabled sets the {@link #binaryContentEnabled}
+     */
+    public void setBinaryContentEnabled(boolean binaryContentEnabled)
+    {
+        this.binaryContentEnabled = binaryContentEnabled;
+    }
+
+    /**
+     * @param textContentRetryPeriod sets the {@link #textContentRetryPeriod}
+     */
+    public void setTextContentRetryPeriod(long textContentRetryPeriod)
+    {
+        this.textContentRetryPeriod = textContentRetryPeriod;
+    }
+
+    /**
+     * @param receiverAgentId
+     * @return content language which should be used for messages to given {@code receiverAgentId}
+     */
+    public String getContentLanguage(AID receiverAgentId)
+    {
+        if (!binaryContentEnabled) {
+            return FIPANames.ContentLanguage.FIPA_SL;
+        }
+        String receiverAgentName = receiverAgentId.getName();
+        Long textContentTime = textContentAgentTimes.get(receiverAgentName);
+        if (textContentTime != null) {
+            if (System.currentTimeMillis() < textContentTime + textContentRetryPeriod) {
+                return FIPANames.ContentLanguage.FIPA_SL;
+            }
+            // Negotiate the binary content again
+            textContentAgentTimes.remove(receiverAgentName);
+        }
+        return LEAPCodec.NAME;
+    }
+
+    /**
+     * Use {@link SLCodec} for all following messages to given {@code receiverAgentId}, because it hasn't
+     * understood a message in given {@code language}.
+     *
+     * @param receiverAgentId
+     * @param language        which hasn't been understood
+     * @return true whether the message should be sent again in {@link SLCodec}, false otherwise
+     */
+    public boolean fallbackContentLanguage(AID receiverAgentId, String language)
+    {
+        if (!LEAPCodec.NAME.equals(language)) {
+            return false;
+        }
+        if (textContentAgentTimes.put(receiverAgentId.getName(), System.currentTimeMillis()) == null) {
+            logger.info("Agent [{}] doesn't understand binary content, {} will be used.",
+                    receiverAgentId.getName(), FIPANames.ContentLanguage.FIPA_SL);
+        }
+        return true;
+    }
+
+    /**
+     * @return {@link #commandResponderBehaviour}
+     */
+    public CommandResponderBehaviour getCommandResponderBehaviour()
+    {
+        return commandResponderBehaviour;
+    }
+
     /**
      * Perform {@link LocalCommand} on this agent.
      *
@@ -109,25 +234,75 @@ public class Agent extends jade.core.Agent
      * @return {@link SendLocalCommand} from which the result or failure can be retrieved
      */
     public SendLocalCommand sendCommand(String receiverAgentName, Command command)
+    {
+        SendLocalCommand sendLocalCommand = sendCommandAsync(receiverAgentName, command);
+        sendLocalCommand.waitForProcessed(commandTimeout);
+        return sendLocalCommand;
+    }
+
+    /**
+     * Send {@link Command} to target receiver agent without waiting for the result (non-blocking). The result can be
+     * retrieved by {@link SendLocalCommand#waitForProcessed} or by {@link SendLocalCommand#addListener}
+     * (the {@link SendLocalCommand} fails by itself when it isn't processed in {@link #commandTimeout}).
+     *
+     * @param receiverAgentName target receiver agent name
+     * @param command           to be send
+     * @return {@link SendLocalCommand} from which the result or failure can be retrieved when it is processed
+     */
+    public SendLocalCommand sendCommandAsync(String receiverAgentName, Command command)
     {
         SendLocalCommand sendLocalCommand = new SendLocalCommand(receiverAgentName, command);
         if (!isStarted()) {
             sendLocalCommand.setFailed(new JadeReportSet.AgentNotStartedReport(getAID().getLocalName()));
             return sendLocalCommand;
         }
+        sendLocalCommand.setTimeout(commandTimeout != null ? commandTimeout : SendLocalCommand.DEFAULT_TIMEOUT);
         performLocalCommand(sendLocalCommand);
-        sendLocalCommand.waitForProcessed(commandTimeout);
         return sendLocalCommand;
     }
 
+    /**
+     * Send {@link Command} to multiple target receiver agents in parallel and wait for all results (blocking).
+     * The {@link #commandTimeout} is common for all receiver agents.
+     *
+     * @param receiverAgentNames target receiver agent names
+     * @param command            to be send
+     * @return map of {@link SendLocalCommand}s by receiver agent names (in the order of {@code receiverAgentNames})
+     */
+    public Map<String, SendLocalCommand> sendCommand(Collection<String> receiverAgentNames, Command command)
+    {
+        Map<String, SendLocalCommand> sendLocalCommands = new LinkedHashMap<String, SendLocalCommand>();
+        for (String receiverAgentName : receiverAgentNames) {
+            if (!sendLocalCommands.containsKey(receiverAgentName)) {
+                sendLocalCommands.put(receiverAgentName, sendCommandAsync(receiverAgentName, command));
+            }
+        }
+        waitForProcessed(sendLocalCommands.values());
+        return sendLocalCommands;
+    }
+
+    /**
+     * Wait for given {@code sendLocalCommands} (e.g., from {@link #sendCommandAsync}) to be processed.
+     * The {@link #commandTimeout} is common for all {@code sendLocalCommands}.
+     *
+     * @param sendLocalCommands to be waited for
+     */
+    public void waitForProcessed(Collection<SendLocalCommand> sendLocalCommands)
+    {
+        SendLocalCommand.waitForProcessed(sendLocalCommands, commandTimeout);
+    }
+
     protected void setupAgent()
     {
         if (agentDescription != null) {
             // Already initialized
             return;
         }
-        // Register content language
+        // Register content languages (SL is understood by all agents and binary LEAP is preferred when understood)
         getContentManager().registerLanguage(new SLCodec());
+        if (binaryContentEnabled) {
+            getContentManager().registerLanguage(new LEAPCodec());
+        }
 
         // Add common ontology
         addOntology(CommonOntology.getInstance());
@@ -135,7 +310,8 @@ public class Agent extends jade.core.Agent
         // Each agent is able to process commands passed via O2A channel
         addBehaviour(new LocalCommandBehaviour());
         // Each agent is able to respond to agent actions
-        addBehaviour(new CommandResponderBehaviour(this));
+        commandResponderBehaviour = new CommandResponderBehaviour(this, commandThreadCount, commandQueueSize);
+        addBehaviour(commandResponderBehaviour);
 
         // Prepare agent description for DF
         agentDescription = new DFAgentDescription();
@@ -160,6 +336,11 @@ public class Agent extends jade.core.Agent
         started = false;
         agentDescription = null;
 
+        if (commandResponderBehaviour != null) {
+            commandResponderBehaviour.shutdown();
+            commandResponderBehaviour = null;
+        }
+
         super.takeDown();
 
         logger.debug("Agent [{}] exiting!", getAID().getName());
@@ -49,7 +49,21 @@ public class CommandRequesterBehaviour extends SimpleAchieveREInitiator
      */
     public CommandRequesterBehaviour(Agent agent, SendLocalCommand sendLocalCommand) throws Exception
     {
-        super(agent, createMessage(agent, sendLocalCommand.getReceiverAgentId(), sendLocalCommand.getCommand()));
+        this(agent, sendLocalCommand, agent.getContentLanguage(sendLocalCommand.getReceiverAgentId()));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param agent            representing requester who should send the request message
+     * @param sendLocalCommand which defines the target agent and the request content
+     * @param language         content language of the request message
+     */
+    public CommandRequesterBehaviour(Agent agent, SendLocalCommand sendLocalCommand, String language)
+            throws Exception
+    {
+        super(agent, createMessage(agent, sendLocalCommand.getReceiverAgentId(), sendLocalCommand.getCommand(),
+                language));
 
         this.sendLocalCommand = sendLocalCommand;
     }
@@ -60,16 +74,17 @@ public class CommandRequesterBehaviour extends SimpleAchieveREInitiator
      * @param agentRequester  sender agent
      * @param agentReceiverId receiver agent id
      * @param command         {@link Command} which should be sent
+     * @param language        content language of the message
      * @return the constructed message
      * @throws Exception when the message construction fails
      */
-    private static ACLMessage createMessage(Agent agentRequester, AID agentReceiverId, Command command)
-            throws Exception
+    private static ACLMessage createMessage(Agent agentRequester, AID agentReceiverId, Command command,
+            String language) throws Exception
     {
         ACLMessage message = new ACLMessage(ACLMessage.REQUEST);
         message.addReceiver(agentReceiverId);
         message.setSender(agentRequester.getAID());
-        message.setLanguage(FIPANames.ContentLanguage.FIPA_SL);
+        message.setLanguage(language);
         message.setProtocol(FIPANames.InteractionProtocol.FIPA_REQUEST);
         message.setOntology(command.getOntology().getName());
 
@@ -135,6 +150,24 @@ public class CommandRequesterBehaviour extends SimpleAchieveREInitiator
     {
         logger.debug("Received message: {}", msg);
 
+        // Receiver may not understand the binary content and thus send the command again in SL (only when
+        // the content couldn't be decoded, older agents without the binary content don't tell the reason)
+        Agent agent = (Agent) myAgent;
+        String content = msg.getContent();
+        boolean contentNotDecoded = content == null || content.isEmpty()
+                || CommandResponderBehaviour.NOT_UNDERSTOOD_CONTENT.equals(content);
+        if (contentNotDecoded && agent.fallbackContentLanguage(sendLocalCommand.getReceiverAgentId(),
+                msg.getLanguage())) {
+            try {
+                agent.addBehaviour(new CommandRequesterBehaviour(agent, sendLocalCommand,
+                        FIPANames.ContentLanguage.FIPA_SL));
+                return;
+            }
+            catch (Exception exception) {
+                logger.error("Error in sending the command again.", exception);
+            }
+        }
+
         logger.error("Execution of '{}' failed, because it was not understood.", sendLocalCommand.getCommand());
         sendLocalCommand.setFailed(new JadeReportSet.CommandNotUnderstoodReport(
                 sendLocalCommand.getCommand().toString(), sendLocalCommand.getReceiverAgentId().getName()));
@@ -1,10 +1,12 @@
 package cz.cesnet.shongo.jade;
 
 import cz.cesnet.shongo.JadeReportSet;
+import cz.cesnet.shongo.api.CommandStatistics;
 import cz.cesnet.shongo.api.jade.CommandDisabledException;
 import cz.cesnet.shongo.api.jade.CommandException;
 import cz.cesnet.shongo.api.jade.CommandUnsupportedException;
 import cz.cesnet.shongo.api.jade.Command;
+import cz.cesnet.shongo.util.LatencyHistogram;
 import jade.content.Concept;
 import jade.content.ContentElement;
 import jade.content.ContentManager;
@@ -16,12 +18,21 @@ import jade.content.onto.basic.Result;
 import jade.core.behaviours.Behaviour;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
+import org.joda.time.DateTimeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Behaviour that performs and responds to {@link Command} requests sent by {@link CommandRequesterBehaviour}.
  * <p/>
+ * The {@link Command}s are performed by a bounded pool of threads with a bounded queue. When both are full,
+ * the request is refused (the {@link CommandRequesterBehaviour} gets {@link ACLMessage#REFUSE}).
+ * <p/>
  * See {@link CommandRequesterBehaviour} class for the other party of the conversation.
  *
  * @author Ondrej Bouda <ondrej.bouda@cesnet.cz>
@@ -43,14 +54,134 @@ public class CommandResponderBehaviour extends ParallelResponderBehaviour
             MessageTemplate.MatchProtocol(FIPA_REQUEST),
             MessageTemplate.MatchPerformative(ACLMessage.REQUEST));
 
+    /**
+     * Default maximum number of concurrently performed {@link Command}s.
+     */
+    public static final int DEFAULT_THREAD_COUNT = 16;
+
+    /**
+     * Default maximum number of {@link Command}s waiting for a thread.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 100;
+
+    /**
+     * Content of {@link ACLMessage#NOT_UNDERSTOOD} reply which tells that the request content couldn't be decoded
+     * (i.e., the content language or ontology isn't understood).
+     */
+    public static final String NOT_UNDERSTOOD_CONTENT = "content-not-decoded";
+
+    /**
+     * {@link ThreadPoolExecutor} for performing of {@link Command}s.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * {@link LatencyHistogram}s of performed {@link Command}s by {@link Command#getName()}.
+     */
+    private final ConcurrentHashMap<String, LatencyHistogram> latencyHistograms =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+
+    /**
+     * Number of refused requests because the {@link #executor} was saturated.
+     */
+    private final AtomicLong refusedCount = new AtomicLong();
+
     /**
      * Constructor.
      *
      * @param agent
      */
     public CommandResponderBehaviour(jade.core.Agent agent)
+    {
+        this(agent, DEFAULT_THREAD_COUNT, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param agent
+     * @param threadCount maximum number of concurrently performed {@link Command}s
+     * @param queueSize   maximum number of {@link Command}s waiting for a thread
+     */
+    public CommandResponderBehaviour(jade.core.Agent agent, int threadCount, int queueSize)
     {
         super(agent, MESSAGE_TEMPLATE);
+
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        final String threadName = agent.getLocalName() + "-handler-";
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+                (queueSize > 0 ? new ArrayBlockingQueue<Runnable>(queueSize) : new SynchronousQueue<Runnable>()),
+                new ThreadFactory()
+                {
+                    private final AtomicInteger threadNumber = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable);
+                        thread.setName(threadName + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        this.executor = executor;
+    }
+
+    /**
+     * @return {@link LatencyHistogram}s of performed {@link Command}s by {@link Command#getName()}
+     */
+    public Map<String, LatencyHistogram> getLatencyHistograms()
+    {
+        return Collections.unmodifiableMap(latencyHistograms);
+    }
+
+    /**
+     * @return {@link CommandStatistics} of performed {@link Command}s ordered by {@link Command#getName()}
+     */
+    public List<CommandStatistics> getCommandStatistics()
+    {
+        List<CommandStatistics> commandStatisticsList = new LinkedList<CommandStatistics>();
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<String, LatencyHistogram>(latencyHistograms)
+                .entrySet()) {
+            LatencyHistogram latencyHistogram = entry.getValue();
+            CommandStatistics commandStatistics = new CommandStatistics();
+            commandStatistics.setCommand(entry.getKey());
+            commandStatistics.setCount((int) Math.min(latencyHistogram.getCount(), Integer.MAX_VALUE));
+            commandStatistics.setAverageLatency(
+                    (int) Math.min(latencyHistogram.getAverageLatency(), Integer.MAX_VALUE));
+            commandStatistics.setPercentileLatency(
+                    (int) Math.min(latencyHistogram.getPercentileLatency(95), Integer.MAX_VALUE));
+            commandStatistics.setMaxLatency((int) Math.min(latencyHistogram.getMaxLatency(), Integer.MAX_VALUE));
+            commandStatisticsList.add(commandStatistics);
+        }
+        return commandStatisticsList;
+    }
+
+    /**
+     * @return number of refused requests
+     */
+    public long getRefusedCount()
+    {
+        return refusedCount.get();
+    }
+
+    /**
+     * @return number of requests waiting for a thread
+     */
+    public int getQueueSize()
+    {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stop performing of {@link Command}s.
+     */
+    public void shutdown()
+    {
+        executor.shutdownNow();
     }
 
     /**
@@ -75,13 +206,39 @@ public class CommandResponderBehaviour extends ParallelResponderBehaviour
         logger.debug("Received message: {}", requestMessage);
 
         RequestHandler handler = new RequestHandler(requestMessage);
-
-        Thread handlerThread = new Thread(handler);
-        handlerThread.setName(agent.getLocalName() + "-handler");
-        handlerThread.start();
+        try {
+            executor.execute(handler);
+        }
+        catch (RejectedExecutionException exception) {
+            refusedCount.incrementAndGet();
+            logger.warn("Refusing request from '{}', because {} commands are already being performed.",
+                    requestMessage.getSender().getName(), executor.getActiveCount() + executor.getQueue().size());
+            ACLMessage reply = requestMessage.createReply();
+            reply.setPerformative(ACLMessage.REFUSE);
+            agent.send(reply);
+            return;
+        }
         addSubBehaviour(handler);
     }
 
+    /**
+     * @param command which has been performed
+     * @param latency of the {@code command} in milliseconds
+     */
+    private void addLatency(Command command, long latency)
+    {
+        String commandName = command.getName();
+        LatencyHistogram latencyHistogram = latencyHistograms.get(commandName);
+        if (latencyHistogram == null) {
+            latencyHistogram = new LatencyHistogram();
+            LatencyHistogram existingLatencyHistogram = latencyHistograms.putIfAbsent(commandName, latencyHistogram);
+            if (existingLatencyHistogram != null) {
+                latencyHistogram = existingLatencyHistogram;
+            }
+        }
+        latencyHistogram.add(latency);
+    }
+
     /**
      * Request handler.
      */
@@ -148,6 +305,7 @@ public class CommandResponderBehaviour extends ParallelResponderBehaviour
                     reply.setPerformative(ACLMessage.REFUSE);
                 }
                 Command command = (Command) actionContent;
+                long startTime = DateTimeUtils.currentTimeMillis();
                 try {
                     Object result = agent.handleCommand(command, request.getSender());
                     // respond to the caller - either with the command return value or saying it was OK
@@ -191,16 +349,21 @@ public class CommandResponderBehaviour extends ParallelResponderBehaviour
                             command.getName(), message));
                     fillMessage(reply, ACLMessage.FAILURE, response);
                 }
+                finally {
+                    addLatency(command, DateTimeUtils.currentTimeMillis() - startTime);
+                }
             }
             catch (Codec.CodecException exception) {
                 logger.error(String.format("Received a request which the agent did not understand (wrong codec): %s",
                         request), exception);
                 reply.setPerformative(ACLMessage.NOT_UNDERSTOOD);
+                reply.setContent(NOT_UNDERSTOOD_CONTENT);
             }
             catch (OntologyException exception) {
                 logger.error(String.format("Received a request which the agent did not understand (wrong ontology): %s",
                         request), exception);
                 reply.setPerformative(ACLMessage.NOT_UNDERSTOOD);
+                reply.setContent(NOT_UNDERSTOOD_CONTENT);
             }
             catch (ClassCastException exception) {
                 logger.error(
@@ -4,6 +4,13 @@ import cz.cesnet.shongo.JadeReport;
 import cz.cesnet.shongo.JadeReportSet;
 import cz.cesnet.shongo.api.jade.Command;
 import jade.core.AID;
+import jade.core.behaviours.WakerBehaviour;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * {@link LocalCommand} for sending an {@link Command} to target receiver agent via JADE middle-ware.
@@ -13,6 +20,13 @@ import jade.core.AID;
  */
 public class SendLocalCommand extends LocalCommand
 {
+    private static Logger logger = LoggerFactory.getLogger(SendLocalCommand.class);
+
+    /**
+     * Default timeout in milliseconds for the command to be processed.
+     */
+    public static final int DEFAULT_TIMEOUT = 30000;
+
     /**
      * {@link AID} of the receiver agent.
      */
@@ -26,7 +40,7 @@ public class SendLocalCommand extends LocalCommand
     /**
      * Current command state.
      */
-    private State state;
+    private volatile State state;
 
     /**
      * @see JadeReport
@@ -36,7 +50,18 @@ public class SendLocalCommand extends LocalCommand
     /**
      * Result of the command.
      */
-    private Object result;
+    private volatile Object result;
+
+    /**
+     * Timeout in milliseconds after which the command is {@link State#FAILED} when it isn't processed
+     * ({@code null} means that the command doesn't time out by itself and only waiting callers time out).
+     */
+    private Integer timeout;
+
+    /**
+     * {@link Listener}s which should be notified when the command is processed.
+     */
+    private List<Listener> listeners;
 
     /**
      * Constructor.
@@ -114,11 +139,14 @@ public class SendLocalCommand extends LocalCommand
     }
 
     /**
+     * Set the {@link #state}. When the command is already processed (e.g., it has timed out) the new {@link #state}
+     * is ignored.
+     *
      * @param state sets the {@link #state}
      */
     public void setState(State state)
     {
-        this.state = state;
+        setProcessed(state, null);
     }
 
     /**
@@ -128,8 +156,38 @@ public class SendLocalCommand extends LocalCommand
      */
     public void setFailed(JadeReport failure)
     {
-        this.state = State.FAILED;
-        this.jadeReport = failure;
+        setProcessed(State.FAILED, failure);
+    }
+
+    /**
+     * @param timeout sets the {@link #timeout}
+     */
+    public void setTimeout(Integer timeout)
+    {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Add given {@code listener} which is notified when the command is processed. When the command is already
+     * processed, the {@code listener} is notified immediately.
+     * <p/>
+     * The {@code listener} is usually notified from the JADE agent thread and thus it must not block
+     * (e.g., it must not wait for another command).
+     *
+     * @param listener to be added
+     */
+    public void addListener(Listener listener)
+    {
+        synchronized (this) {
+            if (state == State.UNKNOWN) {
+                if (listeners == null) {
+                    listeners = new ArrayList<Listener>();
+                }
+                listeners.add(listener);
+                return;
+            }
+        }
+        notifyListener(listener);
     }
 
     /**
@@ -194,26 +252,104 @@ public class SendLocalCommand extends LocalCommand
     public void waitForProcessed(Integer timeout)
     {
         if (timeout == null) {
-            timeout = 30000;
+            timeout = DEFAULT_TIMEOUT;
         }
-        final int waitingTime = 50;
+        waitForProcessedUntil(System.currentTimeMillis() + timeout);
+    }
 
-        // FIXME: use some kind of IPC instead of busy waiting
-        int count = timeout / waitingTime;
-        while (!isProcessed() && count > 0) {
-            count--;
-            try {
-                Thread.sleep(waitingTime);
-            }
-            catch (InterruptedException exception) {
-                exception.printStackTrace();
+    /**
+     * Wait for all given {@code sendLocalCommands} to be processed. The commands which aren't processed
+     * in the given {@code timeout} (which is common for all commands) are {@link State#FAILED}.
+     *
+     * @param sendLocalCommands to be waited for
+     * @param timeout           how long to wait in milliseconds for all results ({@code null} means default timeout)
+     */
+    public static void waitForProcessed(Collection<SendLocalCommand> sendLocalCommands, Integer timeout)
+    {
+        if (timeout == null) {
+            timeout = DEFAULT_TIMEOUT;
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        for (SendLocalCommand sendLocalCommand : sendLocalCommands) {
+            sendLocalCommand.waitForProcessedUntil(deadline);
+        }
+    }
+
+    /**
+     * Wait for the command to be processed until given {@code deadline}.
+     *
+     * @param deadline time in milliseconds
+     */
+    private void waitForProcessedUntil(long deadline)
+    {
+        synchronized (this) {
+            long remaining;
+            while (state == State.UNKNOWN && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    wait(remaining);
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
             }
         }
-        if (getState() == State.UNKNOWN) {
+        setTimedOut();
+    }
+
+    /**
+     * Set the {@link #state} as {@link State#FAILED} by {@link JadeReportSet.CommandTimeoutReport} when the command
+     * isn't processed yet.
+     */
+    private void setTimedOut()
+    {
+        if (state == State.UNKNOWN) {
             setFailed(new JadeReportSet.CommandTimeoutReport(command.getName(), receiverAgentId.getName()));
         }
     }
 
+    /**
+     * Set the {@link #state} and {@link #jadeReport} when the command isn't processed yet and notify all
+     * waiting callers and {@link #listeners}.
+     *
+     * @param state      sets the {@link #state}
+     * @param jadeReport sets the {@link #jadeReport}
+     */
+    private void setProcessed(State state, JadeReport jadeReport)
+    {
+        List<Listener> listeners;
+        synchronized (this) {
+            if (this.state != State.UNKNOWN) {
+                logger.debug("Command {} is already processed ({}), ignoring {}.",
+                        new Object[]{command.getName(), this.state, state});
+                return;
+            }
+            this.jadeReport = jadeReport;
+            this.state = state;
+            notifyAll();
+            listeners = this.listeners;
+            this.listeners = null;
+        }
+        if (listeners != null) {
+            for (Listener listener : listeners) {
+                notifyListener(listener);
+            }
+        }
+    }
+
+    /**
+     * @param listener to be notified that the command has been processed
+     */
+    private void notifyListener(Listener listener)
+    {
+        try {
+            listener.onProcessed(this);
+        }
+        catch (Exception exception) {
+            logger.error("Listener of command " + command.getName() + " failed.", exception);
+        }
+    }
+
     @Override
     public void process(Agent localAgent) throws LocalCommandException
     {
@@ -221,8 +357,42 @@ public class SendLocalCommand extends LocalCommand
             localAgent.addBehaviour(new CommandRequesterBehaviour(localAgent, this));
         }
         catch (Exception exception) {
+            setFailed(new JadeReportSet.CommandUnknownErrorReport(command.getName(), exception.getMessage()));
             throw new LocalCommandException("Error in sending the command.", exception);
         }
+        if (timeout != null) {
+            final WakerBehaviour timeoutBehaviour = new WakerBehaviour(localAgent, timeout)
+            {
+                @Override
+                protected void onWake()
+                {
+                    setTimedOut();
+                }
+            };
+            localAgent.addBehaviour(timeoutBehaviour);
+
+            // Stop the timeout behaviour when the command is processed sooner (otherwise it would stay scheduled
+            // in the agent until the timeout elapses)
+            addListener(new Listener()
+            {
+                @Override
+                public void onProcessed(SendLocalCommand sendLocalCommand)
+                {
+                    timeoutBehaviour.stop();
+                }
+            });
+        }
+    }
+
+    /**
+     * Listener which is notified when a {@link SendLocalCommand} is processed.
+     */
+    public static interface Listener
+    {
+        /**
+         * @param sendLocalCommand which has been processed (successfully or not)
+         */
+        public void onProcessed(SendLocalCommand sendLocalCommand);
     }
 
     /**
@@ -0,0 +1,372 @@
+package cz.cesnet.shongo.util;
+
+import java.util.*;
+
+/**
+ * Set of values where each value has assigned a half-open range {@code [start, end)}. Values are stored in
+ * a balanced (AVL) binary tree ordered by range starts and augmented by maximum range ends of subtrees, and thus
+ * values which intersect a given range can be found in {@code O(log n + k)}.
+ * <p/>
+ * Unlike the {@link RangeSet}, which splits the ranges into buckets, adding and removing a value costs
+ * {@code O(log n)} regardless of how many other values it overlaps.
+ *
+ * @param <V> type of values in the tree
+ * @param <R> type of ranges
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class IntervalTree<V, R extends Comparable<? super R>> implements Iterable<V>
+{
+    /**
+     * Root {@link Node} of the tree.
+     */
+    private Node root;
+
+    /**
+     * Map of {@link Node}s by values.
+     */
+    private Map<V, Node> nodeByValue = new HashMap<V, Node>();
+
+    /**
+     * Sequence used for ordering values with the same range start.
+     */
+    private long nextSequence = 0;
+
+    /**
+     * Add new value to the tree.
+     *
+     * @param value to be added
+     * @param start of value's range
+     * @param end   of value's range
+     * @return true if value was added,
+     *         false when the value already exists
+     */
+    public boolean add(V value, R start, R end)
+    {
+        if (nodeByValue.containsKey(value)) {
+            return false;
+        }
+        if (start.compareTo(end) > 0) {
+            throw new IllegalArgumentException("Range start must not be after range end.");
+        }
+        Node node = new Node(value, start, end, nextSequence++);
+        root = insert(root, node);
+        nodeByValue.put(value, node);
+        return true;
+    }
+
+    /**
+     * Remove given value from the tree.
+     *
+     * @param value to be removed
+     * @return true if the value was removed,
+     *         false if the value doesn't exist
+     */
+    public boolean remove(V value)
+    {
+        Node node = nodeByValue.remove(value);
+        if (node == null) {
+            return false;
+        }
+        root = delete(root, node);
+        return true;
+    }
+
+    /**
+     * @param value
+     * @return true whether the tree contains given {@code value},
+     *         false otherwise
+     */
+    public boolean contains(V value)
+    {
+        return nodeByValue.containsKey(value);
+    }
+
+    /**
+     * Remove all values from the tree.
+     */
+    public void clear()
+    {
+        root = null;
+        nodeByValue.clear();
+    }
+
+    /**
+     * @return number of values in the tree
+     */
+    public int size()
+    {
+        return nodeByValue.size();
+    }
+
+    /**
+     * @param start
+     * @param end
+     * @return set of values whose ranges intersect the given range {@code [start, end)}
+     */
+    public Set<V> getValues(R start, R end)
+    {
+        Set<V> values = new LinkedHashSet<V>();
+        collect(root, start, end, values);
+        return values;
+    }
+
+    /**
+     * @param start
+     * @param end
+     * @return true whether any value intersects the given range {@code [start, end)},
+     *         false otherwise
+     */
+    public boolean intersects(R start, R end)
+    {
+        Node node = root;
+        while (node != null) {
+            if (node.maxEnd.compareTo(start) <= 0) {
+                return false;
+            }
+            if (node.left != null && node.left.maxEnd.compareTo(start) > 0) {
+                node = node.left;
+                continue;
+            }
+            if (node.start.compareTo(end) >= 0) {
+                return false;
+            }
+            if (node.end.compareTo(start) > 0) {
+                return true;
+            }
+            node = node.right;
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<V> iterator()
+    {
+        return nodeByValue.keySet().iterator();
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("IntervalTree");
+        for (Node node : nodeByValue.values()) {
+            builder.append("\n");
+            builder.append(node.value);
+            builder.append(" [");
+            builder.append(node.start);
+            builder.append(", ");
+            builder.append(node.end);
+            builder.append(")");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Fill values from subtree of given {@code node} which intersect given range to given {@code values}.
+     *
+     * @param node
+     * @param start
+     * @param end
+     * @param values
+     */
+    private void collect(Node node, R start, R end, Set<V> values)
+    {
+        while (node != null) {
+            if (node.maxEnd.compareTo(start) <= 0) {
+                return;
+            }
+            collect(node.left, start, end, values);
+            if (node.start.compareTo(end) >= 0) {
+                return;
+            }
+            if (node.end.compareTo(start) > 0) {
+                values.add(node.value);
+            }
+            node = node.right;
+        }
+    }
+
+    /**
+     * @param node  root of subtree
+     * @param added node to be inserted
+     * @return new root of subtree
+     */
+    private Node insert(Node node, Node added)
+    {
+        if (node == null) {
+            return added;
+        }
+        if (added.compareTo(node) < 0) {
+            node.left = insert(node.left, added);
+        }
+        else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    /**
+     * @param node    root of subtree
+     * @param deleted node to be deleted
+     * @return new root of subtree
+     */
+    private Node delete(Node node, Node deleted)
+    {
+        if (node == null) {
+            throw new IllegalStateException("Node is not in the tree.");
+        }
+        int result = deleted.compareTo(node);
+        if (result < 0) {
+            node.left = delete(node.left, deleted);
+        }
+        else if (result > 0) {
+            node.right = delete(node.right, deleted);
+        }
+        else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMinimum(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    /**
+     * @param node root of subtree
+     * @return new root of subtree without the minimum node
+     */
+    private Node deleteMinimum(Node node)
+    {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMinimum(node.left);
+        return balance(node);
+    }
+
+    /**
+     * Re-balance given {@code node} and update its augmented values.
+     *
+     * @param node to be balanced
+     * @return new root of subtree
+     */
+    private Node balance(Node node)
+    {
+        node.update();
+        int balance = node.getBalance();
+        if (balance > 1) {
+            if (node.left.getBalance() < 0) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        else if (balance < -1) {
+            if (node.right.getBalance() > 0) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node rotateLeft(Node node)
+    {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        right.update();
+        return right;
+    }
+
+    private Node rotateRight(Node node)
+    {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        left.update();
+        return left;
+    }
+
+    /**
+     * Node of the {@link IntervalTree}.
+     */
+    private class Node implements Comparable<Node>
+    {
+        private final V value;
+
+        private final R start;
+
+        private final R end;
+
+        /**
+         * Sequence which distinguishes nodes with the same {@link #start}.
+         */
+        private final long sequence;
+
+        /**
+         * Maximum {@link #end} in the subtree.
+         */
+        private R maxEnd;
+
+        private int height = 1;
+
+        private Node left;
+
+        private Node right;
+
+        public Node(V value, R start, R end, long sequence)
+        {
+            this.value = value;
+            this.start = start;
+            this.end = end;
+            this.sequence = sequence;
+            this.maxEnd = end;
+        }
+
+        /**
+         * Update {@link #height} and {@link #maxEnd} from children.
+         */
+        public void update()
+        {
+            int leftHeight = (left != null ? left.height : 0);
+            int rightHeight = (right != null ? right.height : 0);
+            height = Math.max(leftHeight, rightHeight) + 1;
+            maxEnd = end;
+            if (left != null && left.maxEnd.compareTo(maxEnd) > 0) {
+                maxEnd = left.maxEnd;
+            }
+            if (right != null && right.maxEnd.compareTo(maxEnd) > 0) {
+                maxEnd = right.maxEnd;
+            }
+        }
+
+        /**
+         * @return difference between left and right subtree heights
+         */
+        public int getBalance()
+        {
+            return (left != null ? left.height : 0) - (right != null ? right.height : 0);
+        }
+
+        @Override
+        public int compareTo(Node node)
+        {
+            int result = start.compareTo(node.start);
+            if (result == 0) {
+                result = (sequence < node.sequence ? -1 : (sequence == node.sequence ? 0 : 1));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package cz.cesnet.shongo.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of latencies in milliseconds with fixed buckets.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class LatencyHistogram
+{
+    /**
+     * Upper bounds (inclusive) of buckets in milliseconds. The last bucket contains all greater latencies.
+     */
+    public static final long[] BUCKETS = new long[]{10, 50, 100, 500, 1000, 5000, 10000, 30000};
+
+    /**
+     * Number of latencies in each bucket.
+     */
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKETS.length + 1);
+
+    /**
+     * Total number of latencies.
+     */
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * Sum of all latencies in milliseconds.
+     */
+    private final AtomicLong totalLatency = new AtomicLong();
+
+    /**
+     * Maximum latency in milliseconds.
+     */
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * @param latency in milliseconds to be added
+     */
+    public void add(long latency)
+    {
+        int bucket = 0;
+        while (bucket < BUCKETS.length && latency > BUCKETS[bucket]) {
+            bucket++;
+        }
+        bucketCounts.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalLatency.addAndGet(latency);
+        long currentMaxLatency;
+        while (latency > (currentMaxLatency = maxLatency.get())) {
+            if (maxLatency.compareAndSet(currentMaxLatency, latency)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return total number of latencies
+     */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * @param bucket index of bucket (see {@link #BUCKETS})
+     * @return number of latencies in given {@code bucket}
+     */
+    public long getBucketCount(int bucket)
+    {
+        return bucketCounts.get(bucket);
+    }
+
+    /**
+     * @return average latency in milliseconds
+     */
+    public long getAverageLatency()
+    {
+        long count = this.count.get();
+        return (count > 0 ? totalLatency.get() / count : 0);
+    }
+
+    /**
+     * @return maximum latency in milliseconds
+     */
+    public long getMaxLatency()
+    {
+        return maxLatency.get();
+    }
+
+    /**
+     * @param percentile in range from {@code 0} to {@code 100}
+     * @return upper bound of bucket which contains given {@code percentile} of latencies
+     *         (the {@link #getMaxLatency()} for the last bucket)
+     */
+    public long getPercentileLatency(int percentile)
+    {
+        long count = this.count.get();
+        if (count == 0) {
+            return 0;
+        }
+        long threshold = (count * percentile + 99) / 100;
+        long bucketCount = 0;
+        for (int bucket = 0; bucket < BUCKETS.length; bucket++) {
+            bucketCount += bucketCounts.get(bucket);
+            if (bucketCount >= threshold) {
+                return BUCKETS[bucket];
+            }
+        }
+        return maxLatency.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("count: %d, avg: %d ms, p95: <=%d ms, max: %d ms, buckets:",
+                getCount(), getAverageLatency(), getPercentileLatency(95), getMaxLatency()));
+        for (int bucket = 0; bucket <= BUCKETS.length; bucket++) {
+            if (bucket < BUCKETS.length) {
+                builder.append(String.format(" <=%d: %d", BUCKETS[bucket], bucketCounts.get(bucket)));
+            }
+            else {
+                builder.append(String.format(" >%d: %d", BUCKETS[bucket - 1], bucketCounts.get(bucket)));
+            }
+        }
+        return builder.toString();
+    }
+}
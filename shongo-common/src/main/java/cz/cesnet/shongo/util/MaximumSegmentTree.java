@@ -0,0 +1,156 @@
+package cz.cesnet.shongo.util;
+
+/**
+ * Dynamic segment tree over {@code long} keys which supports adding a value to all keys in a half-open range
+ * {@code [start, end)} and retrieving maximum value in such range, both in {@code O(log K)} where {@code K} is
+ * the size of the key domain. All keys have initially value {@code 0} and tree nodes are created only for ranges
+ * which have been modified.
+ * <p/>
+ * It can be used e.g. as a timeline of used capacity where keys are milliseconds.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class MaximumSegmentTree
+{
+    /**
+     * Minimum supported key (inclusive).
+     */
+    public static final long MIN_KEY = -(1L << 52);
+
+    /**
+     * Maximum supported key (exclusive).
+     */
+    public static final long MAX_KEY = (1L << 52);
+
+    /**
+     * Root {@link Node} covering the {@code [MIN_KEY, MAX_KEY)}.
+     */
+    private Node root = new Node();
+
+    /**
+     * Add given {@code value} to all keys in range {@code [start, end)}.
+     *
+     * @param start start of the range (inclusive)
+     * @param end   end of the range (exclusive)
+     * @param value to be added (can be negative)
+     */
+    public void add(long start, long end, long value)
+    {
+        start = clamp(start);
+        end = clamp(end);
+        if (start >= end || value == 0) {
+            return;
+        }
+        add(root, MIN_KEY, MAX_KEY, start, end, value);
+    }
+
+    /**
+     * @param start start of the range (inclusive)
+     * @param end   end of the range (exclusive)
+     * @return maximum value of keys in range {@code [start, end)} (or value of {@code start} for empty range)
+     */
+    public long getMaximum(long start, long end)
+    {
+        start = Math.min(clamp(start), MAX_KEY - 1);
+        end = clamp(end);
+        if (start >= end) {
+            end = start + 1;
+        }
+        return getMaximum(root, MIN_KEY, MAX_KEY, start, end);
+    }
+
+    /**
+     * @return maximum value of all keys
+     */
+    public long getMaximum()
+    {
+        return root.maximum;
+    }
+
+    /**
+     * Reset values of all keys to {@code 0}.
+     */
+    public void clear()
+    {
+        root = new Node();
+    }
+
+    /**
+     * @param key
+     * @return given {@code key} restricted to supported key domain
+     */
+    private static long clamp(long key)
+    {
+        if (key < MIN_KEY) {
+            return MIN_KEY;
+        }
+        else if (key > MAX_KEY) {
+            return MAX_KEY;
+        }
+        return key;
+    }
+
+    private static void add(Node node, long nodeStart, long nodeEnd, long start, long end, long value)
+    {
+        if (start <= nodeStart && nodeEnd <= end) {
+            node.value += value;
+            node.maximum += value;
+            return;
+        }
+        long middle = nodeStart + (nodeEnd - nodeStart) / 2;
+        if (start < middle) {
+            if (node.left == null) {
+                node.left = new Node();
+            }
+            add(node.left, nodeStart, middle, start, end, value);
+        }
+        if (end > middle) {
+            if (node.right == null) {
+                node.right = new Node();
+            }
+            add(node.right, middle, nodeEnd, start, end, value);
+        }
+        long leftMaximum = (node.left != null ? node.left.maximum : 0);
+        long rightMaximum = (node.right != null ? node.right.maximum : 0);
+        node.maximum = node.value + Math.max(leftMaximum, rightMaximum);
+    }
+
+    private static long getMaximum(Node node, long nodeStart, long nodeEnd, long start, long end)
+    {
+        if (node == null) {
+            return 0;
+        }
+        if (start <= nodeStart && nodeEnd <= end) {
+            return node.maximum;
+        }
+        long middle = nodeStart + (nodeEnd - nodeStart) / 2;
+        long maximum = Long.MIN_VALUE;
+        if (start < middle) {
+            maximum = Math.max(maximum, getMaximum(node.left, nodeStart, middle, start, end));
+        }
+        if (end > middle) {
+            maximum = Math.max(maximum, getMaximum(node.right, middle, nodeEnd, start, end));
+        }
+        return node.value + maximum;
+    }
+
+    /**
+     * Node of the {@link MaximumSegmentTree}.
+     */
+    private static class Node
+    {
+        /**
+         * Value which was added to the whole range of the node.
+         */
+        private long value;
+
+        /**
+         * Maximum value in the range of the node (including {@link #value}).
+         */
+        private long maximum;
+
+        private Node left;
+
+        private Node right;
+    }
+}
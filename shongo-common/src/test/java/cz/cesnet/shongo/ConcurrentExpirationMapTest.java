@@ -0,0 +1,262 @@
+package cz.cesnet.shongo;
+
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link ConcurrentExpirationMap}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class ConcurrentExpirationMapTest
+{
+    @Test
+    public void testStatistics() throws Exception
+    {
+        ConcurrentExpirationMap<String, String> map = new ConcurrentExpirationMap<String, String>();
+        map.put("a", "1");
+        Assert.assertEquals("1", map.get("a"));
+        Assert.assertNull(map.get("b"));
+        Assert.assertFalse(map.contains("b"));
+        Assert.assertTrue(map.contains("a"));
+
+        ConcurrentExpirationMap.Statistics statistics = map.getStatistics();
+        Assert.assertEquals(1, statistics.getSize());
+        Assert.assertEquals(1, statistics.getHitCount());
+        Assert.assertEquals(2, statistics.getMissCount());
+    }
+
+    @Test
+    public void testExpiration() throws Exception
+    {
+        ConcurrentExpirationMap<String, String> map =
+                new ConcurrentExpirationMap<String, String>(Duration.millis(50));
+        map.put("a", "1");
+        Assert.assertEquals("1", map.get("a"));
+        Thread.sleep(100);
+        Assert.assertNull(map.get("a"));
+        Assert.assertEquals(0, map.size());
+        Assert.assertEquals(1, map.getStatistics().getExpirationCount());
+    }
+
+    @Test
+    public void testMaxSize() throws Exception
+    {
+        ConcurrentExpirationMap<Integer, Integer> map = new ConcurrentExpirationMap<Integer, Integer>();
+        map.setMaxSize(10);
+        for (int index = 0; index < 10; index++) {
+            map.put(index, index);
+        }
+        Thread.sleep(5);
+        // Access the first entry so that it isn't evicted
+        Assert.assertEquals(Integer.valueOf(0), map.get(0));
+        map.put(10, 10);
+
+        Assert.assertTrue(map.size() <= 10);
+        Assert.assertTrue(map.getStatistics().getEvictionCount() > 0);
+        Assert.assertEquals(Integer.valueOf(0), map.get(0));
+        Assert.assertEquals(Integer.valueOf(10), map.get(10));
+    }
+
+    @Test
+    public void testMaxWeight() throws Exception
+    {
+        ConcurrentExpirationMap<Integer, String> map = new ConcurrentExpirationMap<Integer, String>();
+        map.setMaxWeight(100, new ConcurrentExpirationMap.Weigher<String>()
+        {
+            @Override
+            public long getWeight(String value)
+            {
+                return value.length();
+            }
+        });
+        map.put(0, "0123456789");
+        map.put(1, "0123456789");
+        Assert.assertEquals(20, map.getStatistics().getWeight());
+        map.put(1, "01234");
+        Assert.assertEquals(15, map.getStatistics().getWeight());
+        map.remove(1);
+        Assert.assertEquals(10, map.getStatistics().getWeight());
+
+        for (int index = 1; index < 10; index++) {
+            map.put(index, "0123456789");
+        }
+        Assert.assertEquals(100, map.getStatistics().getWeight());
+        Assert.assertEquals(0, map.getStatistics().getEvictionCount());
+        map.put(10, "0123456789");
+        Assert.assertTrue(map.getStatistics().getWeight() <= 100);
+        Assert.assertTrue(map.getStatistics().getEvictionCount() > 0);
+
+        map.clear();
+        Assert.assertEquals(0, map.getStatistics().getWeight());
+    }
+
+    @Test
+    public void testRequestRefresh() throws Exception
+    {
+        ConcurrentExpirationMap<String, String> map =
+                new ConcurrentExpirationMap<String, String>(Duration.millis(200));
+        map.setRefreshAhead(Duration.millis(100));
+        map.put("a", "1");
+        Assert.assertFalse(map.requestRefresh("a"));
+        Thread.sleep(120);
+        // Only the first caller should refresh the value
+        Assert.assertTrue(map.requestRefresh("a"));
+        Assert.assertFalse(map.requestRefresh("a"));
+        Assert.assertEquals("1", map.get("a"));
+        map.put("a", "2");
+        Assert.assertFalse(map.requestRefresh("a"));
+        Assert.assertFalse(map.requestRefresh("b"));
+    }
+
+    @Test
+    public void testLoad() throws Exception
+    {
+        final ConcurrentExpirationMap<String, String> map = new ConcurrentExpirationMap<String, String>();
+        final AtomicInteger loadCount = new AtomicInteger();
+        final CountDownLatch loadStarted = new CountDownLatch(1);
+        final CountDownLatch loadFinish = new CountDownLatch(1);
+        final ConcurrentExpirationMap.Loader<String, String> loader =
+                new ConcurrentExpirationMap.Loader<String, String>()
+                {
+                    @Override
+                    public String load(String key)
+                    {
+                        loadCount.incrementAndGet();
+                        loadStarted.countDown();
+                        try {
+                            loadFinish.await();
+                        }
+                        catch (InterruptedException exception) {
+                            throw new RuntimeException(exception);
+                        }
+                        return key.toUpperCase();
+                    }
+                };
+        final List<String> values = Collections.synchronizedList(new LinkedList<String>());
+        List<Thread> threads = new LinkedList<Thread>();
+        for (int index = 0; index < 3; index++) {
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    values.add(map.get("a", loader));
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        loadStarted.await();
+        // Other keys aren't blocked by the loading
+        map.put("b", "B");
+        Assert.assertEquals("B", map.get("b", loader));
+        loadFinish.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(1, loadCount.get());
+        Assert.assertEquals(Arrays.asList("A", "A", "A"), values);
+        Assert.assertEquals("A", map.get("a"));
+        Assert.assertEquals(1, map.getStatistics().getLoadCount());
+    }
+
+    @Test
+    public void testLoadFailure() throws Exception
+    {
+        final ConcurrentExpirationMap<String, String> map = new ConcurrentExpirationMap<String, String>();
+        final CountDownLatch loadStarted = new CountDownLatch(1);
+        final CountDownLatch loadFinish = new CountDownLatch(1);
+        final List<Throwable> failures = Collections.synchronizedList(new LinkedList<Throwable>());
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    map.get("a", new ConcurrentExpirationMap.Loader<String, String>()
+                    {
+                        @Override
+                        public String load(String key)
+                        {
+                            loadStarted.countDown();
+                            try {
+                                loadFinish.await();
+                            }
+                            catch (InterruptedException exception) {
+                                throw new RuntimeException(exception);
+                            }
+                            throw new IllegalStateException("not authorized");
+                        }
+                    });
+                }
+                catch (Throwable throwable) {
+                    failures.add(throwable);
+                }
+            }
+        };
+        thread.start();
+        loadStarted.await();
+
+        // Failure of other thread shouldn't be thrown to the waiting thread which loads the value by own loader
+        Thread releaseThread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException exception) {
+                    throw new RuntimeException(exception);
+                }
+                loadFinish.countDown();
+            }
+        };
+        releaseThread.start();
+        String value = map.get("a", new ConcurrentExpirationMap.Loader<String, String>()
+        {
+            @Override
+            public String load(String key)
+            {
+                return key.toUpperCase();
+            }
+        });
+        thread.join();
+        releaseThread.join();
+        Assert.assertEquals("A", value);
+        Assert.assertEquals(1, failures.size());
+        Assert.assertEquals("not authorized", failures.get(0).getMessage());
+        Assert.assertEquals(2, map.getStatistics().getLoadCount());
+    }
+
+    @Test
+    public void testGetAll() throws Exception
+    {
+        ConcurrentExpirationMap<String, String> map = new ConcurrentExpirationMap<String, String>();
+        map.put("a", "A");
+        final List<Set<String>> loadedKeys = new LinkedList<Set<String>>();
+        Map<String, String> values = map.getAll(Arrays.asList("a", "b", "c", "b"),
+                new ConcurrentExpirationMap.BulkLoader<String, String>()
+                {
+                    @Override
+                    public Map<String, String> load(Set<String> keys)
+                    {
+                        loadedKeys.add(keys);
+                        return Collections.singletonMap("b", "B");
+                    }
+                });
+        Assert.assertEquals(1, loadedKeys.size());
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("b", "c")), loadedKeys.get(0));
+        Assert.assertEquals("A", values.get("a"));
+        Assert.assertEquals("B", values.get("b"));
+        Assert.assertFalse(values.containsKey("c"));
+        Assert.assertEquals("B", map.get("b"));
+        Assert.assertFalse(map.contains("c"));
+    }
+}
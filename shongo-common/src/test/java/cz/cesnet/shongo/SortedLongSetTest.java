@@ -0,0 +1,87 @@
+package cz.cesnet.shongo;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Tests for {@link SortedLongSet}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class SortedLongSetTest
+{
+    @Test
+    public void testSet() throws Exception
+    {
+        Random random = new Random(0);
+        Set<Long> expected = new HashSet<Long>();
+        SortedLongSet set = new SortedLongSet();
+        for (int index = 0; index < 10000; index++) {
+            long value = random.nextInt(1000);
+            if (random.nextBoolean()) {
+                Assert.assertEquals(expected.add(value), set.add(value));
+            }
+            else {
+                Assert.assertEquals(expected.remove(value), set.remove(value));
+            }
+            Assert.assertEquals(expected.size(), set.size());
+        }
+        Assert.assertEquals(expected, set);
+        Assert.assertEquals(new TreeSet<Long>(expected), new TreeSet<Long>(set));
+        Assert.assertFalse(set.contains("1"));
+
+        Iterator<Long> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            Long value = iterator.next();
+            if (value % 2 == 0) {
+                iterator.remove();
+                expected.remove(value);
+            }
+        }
+        Assert.assertEquals(expected, set);
+        Assert.assertEquals(expected, new SortedLongSet(expected));
+    }
+
+    @Test
+    public void testIntersect() throws Exception
+    {
+        SortedLongSet set = new SortedLongSet(Arrays.asList(5l, 1l, 3l, 7l, 3l));
+        Assert.assertEquals(4, set.size());
+
+        SortedLongSet unsortedSet = new SortedLongSet(set);
+        Assert.assertTrue(unsortedSet.retainAll(Arrays.asList(5l, 3l, 4l)));
+        Assert.assertEquals(new HashSet<Long>(Arrays.asList(3l, 5l)), unsortedSet);
+
+        SortedLongSet other = new SortedLongSet(Arrays.asList(2l, 3l, 4l, 5l));
+        Assert.assertTrue(set.retainAll(other));
+        Assert.assertEquals(new HashSet<Long>(Arrays.asList(3l, 5l)), set);
+        Assert.assertFalse(set.retainAll(other));
+    }
+
+    @Test
+    public void testAddAll() throws Exception
+    {
+        SortedLongSet set = new SortedLongSet(Arrays.asList(5l, 1l, 3l));
+        Assert.assertFalse(set.addAll(Arrays.asList(3l, 1l)));
+        Assert.assertFalse(set.addAll(new SortedLongSet()));
+        Assert.assertTrue(set.addAll(Arrays.asList(7l, 0l, 3l, 7l)));
+        Assert.assertEquals(Arrays.asList(0l, 1l, 3l, 5l, 7l), new ArrayList<Long>(set));
+        Assert.assertTrue(set.addAll(new SortedLongSet(Arrays.asList(2l, 9l))));
+        Assert.assertEquals(Arrays.asList(0l, 1l, 2l, 3l, 5l, 7l, 9l), new ArrayList<Long>(set));
+        Assert.assertTrue(set.contains(2l));
+        Assert.assertFalse(set.contains(4l));
+    }
+
+    @Test
+    public void testMemorySize() throws Exception
+    {
+        SortedLongSet set = new SortedLongSet();
+        for (long value = 0; value < 1000; value++) {
+            set.add(value);
+        }
+        set.trimToSize();
+        Assert.assertEquals(24 + 16 + 8 * 1000, set.getMemorySize());
+    }
+}
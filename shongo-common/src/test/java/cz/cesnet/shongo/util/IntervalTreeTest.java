@@ -0,0 +1,77 @@
+package cz.cesnet.shongo.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Tests for {@link IntervalTree}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class IntervalTreeTest
+{
+    @Test
+    public void test() throws Exception
+    {
+        IntervalTree<Integer, Integer> intervalTree = new IntervalTree<Integer, Integer>();
+        intervalTree.add(1, 0, 500);
+        intervalTree.add(2, 100, 400);
+        intervalTree.add(3, 200, 300);
+        intervalTree.add(4, 240, 260);
+        intervalTree.add(5, 600, 700);
+
+        Assert.assertFalse(intervalTree.add(1, 0, 10));
+        Assert.assertEquals(5, intervalTree.size());
+
+        Assert.assertEquals(new HashSet<Integer>(Arrays.asList(1, 2)), intervalTree.getValues(100, 200));
+        Assert.assertEquals(new HashSet<Integer>(Arrays.asList(1, 2, 3, 4)), intervalTree.getValues(250, 251));
+        Assert.assertEquals(new HashSet<Integer>(Arrays.asList(5)), intervalTree.getValues(500, 650));
+        Assert.assertEquals(new HashSet<Integer>(), intervalTree.getValues(500, 600));
+        Assert.assertFalse(intervalTree.intersects(500, 600));
+        Assert.assertTrue(intervalTree.intersects(499, 600));
+        Assert.assertFalse(intervalTree.intersects(700, 800));
+
+        Assert.assertTrue(intervalTree.remove(1));
+        Assert.assertFalse(intervalTree.remove(1));
+        Assert.assertEquals(new HashSet<Integer>(), intervalTree.getValues(0, 100));
+        Assert.assertEquals(new HashSet<Integer>(Arrays.asList(2, 3)), intervalTree.getValues(280, 350));
+
+        intervalTree.clear();
+        Assert.assertEquals(0, intervalTree.size());
+        Assert.assertFalse(intervalTree.intersects(0, 1000));
+    }
+
+    @Test
+    public void testRandom() throws Exception
+    {
+        Random random = new Random(0);
+        IntervalTree<Integer, Integer> intervalTree = new IntervalTree<Integer, Integer>();
+        Map<Integer, int[]> ranges = new HashMap<Integer, int[]>();
+        for (int index = 0; index < 2000; index++) {
+            if (ranges.size() > 0 && random.nextInt(3) == 0) {
+                Integer value = ranges.keySet().iterator().next();
+                ranges.remove(value);
+                Assert.assertTrue(intervalTree.remove(value));
+            }
+            else {
+                int start = random.nextInt(1000);
+                int end = start + random.nextInt(100);
+                ranges.put(index, new int[]{start, end});
+                Assert.assertTrue(intervalTree.add(index, start, end));
+            }
+            int start = random.nextInt(1000);
+            int end = start + random.nextInt(100);
+            Set<Integer> expected = new HashSet<Integer>();
+            for (Map.Entry<Integer, int[]> entry : ranges.entrySet()) {
+                int[] range = entry.getValue();
+                if (range[0] < end && range[1] > start) {
+                    expected.add(entry.getKey());
+                }
+            }
+            Assert.assertEquals(expected, intervalTree.getValues(start, end));
+            Assert.assertEquals(expected.size() > 0, intervalTree.intersects(start, end));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package cz.cesnet.shongo.util;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class LatencyHistogramTest
+{
+    @Test
+    public void test() throws Exception
+    {
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+        Assert.assertEquals(0, latencyHistogram.getPercentileLatency(95));
+        for (int index = 0; index < 90; index++) {
+            latencyHistogram.add(5);
+        }
+        for (int index = 0; index < 9; index++) {
+            latencyHistogram.add(400);
+        }
+        latencyHistogram.add(60000);
+
+        Assert.assertEquals(100, latencyHistogram.getCount());
+        Assert.assertEquals(90, latencyHistogram.getBucketCount(0));
+        Assert.assertEquals(9, latencyHistogram.getBucketCount(3));
+        Assert.assertEquals(1, latencyHistogram.getBucketCount(LatencyHistogram.BUCKETS.length));
+        Assert.assertEquals(10, latencyHistogram.getPercentileLatency(90));
+        Assert.assertEquals(500, latencyHistogram.getPercentileLatency(95));
+        Assert.assertEquals(60000, latencyHistogram.getPercentileLatency(100));
+        Assert.assertEquals(60000, latencyHistogram.getMaxLatency());
+        Assert.assertEquals((90 * 5 + 9 * 400 + 60000) / 100, latencyHistogram.getAverageLatency());
+    }
+}
@@ -0,0 +1,65 @@
+package cz.cesnet.shongo.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests for {@link MaximumSegmentTree}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class MaximumSegmentTreeTest
+{
+    @Test
+    public void test() throws Exception
+    {
+        MaximumSegmentTree segmentTree = new MaximumSegmentTree();
+        segmentTree.add(1, 100, 10);
+        segmentTree.add(5, 50, 20);
+        segmentTree.add(50, 95, 30);
+        segmentTree.add(10, 40, 5);
+        segmentTree.add(60, 90, 5);
+
+        Assert.assertEquals(35, segmentTree.getMaximum(20, 30));
+        Assert.assertEquals(45, segmentTree.getMaximum(70, 90));
+        Assert.assertEquals(45, segmentTree.getMaximum(1, 100));
+        Assert.assertEquals(10, segmentTree.getMaximum(1, 5));
+        Assert.assertEquals(10, segmentTree.getMaximum(95, 100));
+        Assert.assertEquals(0, segmentTree.getMaximum(100, 200));
+        Assert.assertEquals(45, segmentTree.getMaximum());
+
+        segmentTree.add(50, 95, -30);
+        Assert.assertEquals(35, segmentTree.getMaximum(1, 100));
+        Assert.assertEquals(15, segmentTree.getMaximum(60, 90));
+
+        segmentTree.add(Long.MIN_VALUE, Long.MAX_VALUE, 1);
+        Assert.assertEquals(1, segmentTree.getMaximum(1000, 2000));
+        Assert.assertEquals(36, segmentTree.getMaximum());
+    }
+
+    @Test
+    public void testRandom() throws Exception
+    {
+        Random random = new Random(0);
+        MaximumSegmentTree segmentTree = new MaximumSegmentTree();
+        long[] values = new long[200];
+        for (int index = 0; index < 2000; index++) {
+            int start = random.nextInt(values.length);
+            int end = start + random.nextInt(values.length - start) + 1;
+            int value = random.nextInt(21) - 10;
+            segmentTree.add(start, end, value);
+            for (int key = start; key < end; key++) {
+                values[key] += value;
+            }
+            start = random.nextInt(values.length);
+            end = start + random.nextInt(values.length - start) + 1;
+            long maximum = Long.MIN_VALUE;
+            for (int key = start; key < end; key++) {
+                maximum = Math.max(maximum, values[key]);
+            }
+            Assert.assertEquals(maximum, segmentTree.getMaximum(start, end));
+        }
+    }
+}
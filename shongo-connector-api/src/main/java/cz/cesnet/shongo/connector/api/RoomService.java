@@ -81,6 +81,16 @@ public interface RoomService
     Collection<RoomParticipant> listRoomParticipants(String roomId)
             throws CommandException, CommandUnsupportedException;
 
+    /**
+     * Lists all participants present in multiple virtual rooms at once (which is cheaper than
+     * calling {@link #listRoomParticipants} for each room).
+     *
+     * @param roomIds room identifiers ({@code null} or empty set means all rooms)
+     * @return collection of room participants from all the rooms (see {@link RoomParticipant#getRoomId()})
+     */
+    Collection<RoomParticipant> listRoomsParticipants(Set<String> roomIds)
+            throws CommandException, CommandUnsupportedException;
+
     /**
      * Gets participant information and settings in a room.
      *
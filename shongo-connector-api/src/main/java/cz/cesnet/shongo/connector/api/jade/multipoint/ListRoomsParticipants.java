@@ -0,0 +1,51 @@
+package cz.cesnet.shongo.connector.api.jade.multipoint;
+
+import cz.cesnet.shongo.api.jade.CommandException;
+import cz.cesnet.shongo.api.jade.CommandUnsupportedException;
+import cz.cesnet.shongo.connector.api.CommonService;
+import cz.cesnet.shongo.connector.api.jade.ConnectorCommand;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ * @see {@link cz.cesnet.shongo.connector.api.RoomService#listRoomsParticipants}
+ */
+public class ListRoomsParticipants extends ConnectorCommand
+{
+    private Set<String> roomIds = new HashSet<String>();
+
+    public ListRoomsParticipants()
+    {
+    }
+
+    public ListRoomsParticipants(Set<String> roomIds)
+    {
+        if (roomIds != null) {
+            this.roomIds.addAll(roomIds);
+        }
+    }
+
+    public Set<String> getRoomIds()
+    {
+        return roomIds;
+    }
+
+    public void setRoomIds(Set<String> roomIds)
+    {
+        this.roomIds = roomIds;
+    }
+
+    @Override
+    public Object execute(CommonService connector) throws CommandException, CommandUnsupportedException
+    {
+        logger.debug("Getting list of all participants in rooms {}", roomIds);
+        return getMultipoint(connector).listRoomsParticipants(roomIds);
+    }
+
+    public String toString()
+    {
+        return String.format(ListRoomsParticipants.class.getSimpleName() + " (roomIds: %s)", roomIds);
+    }
+}
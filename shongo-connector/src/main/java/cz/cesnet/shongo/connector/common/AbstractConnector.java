@@ -13,6 +13,7 @@ import cz.cesnet.shongo.api.ConnectorStatus;
 import cz.cesnet.shongo.connector.jade.ConnectorAgent;
 import cz.cesnet.shongo.controller.api.jade.ControllerCommand;
 import cz.cesnet.shongo.controller.api.jade.GetUserInformation;
+import cz.cesnet.shongo.jade.CommandResponderBehaviour;
 import cz.cesnet.shongo.jade.SendLocalCommand;
 import org.joda.time.Duration;
 
@@ -83,6 +84,13 @@ abstract public class AbstractConnector implements CommonService
     {
         ConnectorStatus connectorStatus = new ConnectorStatus();
         connectorStatus.setState(ConnectorStatus.State.NOT_AVAILABLE);
+        if (agent != null) {
+            CommandResponderBehaviour commandResponder = agent.getCommandResponderBehaviour();
+            if (commandResponder != null) {
+                connectorStatus.setRefusedCount((int) Math.min(commandResponder.getRefusedCount(), Integer.MAX_VALUE));
+                connectorStatus.setCommandStatistics(commandResponder.getCommandStatistics());
+            }
+        }
         return connectorStatus;
     }
 
@@ -0,0 +1,117 @@
+package cz.cesnet.shongo.connector.common;
+
+import cz.cesnet.shongo.api.jade.CommandException;
+
+import java.util.LinkedList;
+
+/**
+ * Bounded pool of connections to a single device. It allows for performing up to {@link #maxConnectionCount}
+ * requests to the device concurrently (each request must {@link #acquire()} a connection and {@link #release}
+ * it afterwards). Connections are created lazily and idle connections are reused (so that keep-alive connections
+ * are not dropped).
+ *
+ * @param <T> type of connection
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public abstract class ConnectionPool<T>
+{
+    /**
+     * Maximum number of connections which can be acquired at the same time.
+     */
+    private final int maxConnectionCount;
+
+    /**
+     * Connections which are not acquired.
+     */
+    private final LinkedList<T> idleConnections = new LinkedList<T>();
+
+    /**
+     * Number of existing connections (acquired and idle).
+     */
+    private int connectionCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param maxConnectionCount sets the {@link #maxConnectionCount}
+     */
+    public ConnectionPool(int maxConnectionCount)
+    {
+        if (maxConnectionCount < 1) {
+            throw new IllegalArgumentException("Maximum connection count must be positive.");
+        }
+        this.maxConnectionCount = maxConnectionCount;
+    }
+
+    /**
+     * @return {@link #maxConnectionCount}
+     */
+    public int getMaxConnectionCount()
+    {
+        return maxConnectionCount;
+    }
+
+    /**
+     * Acquire a connection (wait while {@link #maxConnectionCount} connections are acquired).
+     *
+     * @return acquired connection which must be returned by {@link #release} or {@link #invalidate}
+     * @throws CommandException when the connection cannot be created or when the waiting is interrupted
+     */
+    public T acquire() throws CommandException
+    {
+        synchronized (this) {
+            while (idleConnections.isEmpty() && connectionCount >= maxConnectionCount) {
+                try {
+                    wait();
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new CommandException("Waiting for connection to the device has been interrupted.",
+                            exception);
+                }
+            }
+            if (!idleConnections.isEmpty()) {
+                // Most recently used connection is the most likely to be still alive
+                return idleConnections.removeFirst();
+            }
+            connectionCount++;
+        }
+        // Create new connection outside the lock (it may take some time)
+        boolean created = false;
+        try {
+            T connection = createConnection();
+            created = true;
+            return connection;
+        }
+        finally {
+            if (!created) {
+                invalidate(null);
+            }
+        }
+    }
+
+    /**
+     * @param connection which has been acquired by {@link #acquire()} and which can be reused
+     */
+    public synchronized void release(T connection)
+    {
+        idleConnections.addFirst(connection);
+        notify();
+    }
+
+    /**
+     * @param connection which has been acquired by {@link #acquire()} and which must not be reused
+     *                   (e.g., because it has been reset by the device)
+     */
+    public synchronized void invalidate(T connection)
+    {
+        connectionCount--;
+        notify();
+    }
+
+    /**
+     * @return new connection to the device
+     * @throws CommandException when the connection cannot be created
+     */
+    protected abstract T createConnection() throws CommandException;
+}
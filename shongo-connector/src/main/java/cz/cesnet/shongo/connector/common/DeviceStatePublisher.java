@@ -0,0 +1,258 @@
+package cz.cesnet.shongo.connector.common;
+
+import cz.cesnet.shongo.api.RoomParticipant;
+import cz.cesnet.shongo.api.RoomSummary;
+import cz.cesnet.shongo.api.jade.CommandException;
+import cz.cesnet.shongo.api.jade.CommandUnsupportedException;
+import cz.cesnet.shongo.connector.api.MonitoringService;
+import cz.cesnet.shongo.connector.api.RoomService;
+import cz.cesnet.shongo.controller.api.jade.UpdateDeviceState;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Periodically pushes the state of a device (rooms, room participants and {@link cz.cesnet.shongo.api.DeviceLoadInfo})
+ * to the controller by {@link UpdateDeviceState}s. Only changes since the previous push are sent, unless
+ * the controller requests the complete state (e.g., after it has been restarted).
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class DeviceStatePublisher
+{
+    private static Logger logger = LoggerFactory.getLogger(DeviceStatePublisher.class);
+
+    /**
+     * Connector option for period of pushing the device state (the state isn't pushed when the option isn't set).
+     */
+    public static final String DEVICE_STATE_PERIOD = "device-state-period";
+
+    /**
+     * {@link AbstractDeviceConnector} which manages the device.
+     */
+    private final AbstractDeviceConnector connector;
+
+    /**
+     * Period in milliseconds of pushing the device state.
+     */
+    private final int period;
+
+    /**
+     * Thread which pushes the device state.
+     */
+    private Thread publishThread;
+
+    /**
+     * Pushed {@link RoomSummary}s by room identifiers ({@code null} means that the complete state should be pushed).
+     */
+    private Map<String, RoomSummary> publishedRooms;
+
+    /**
+     * Pushed lists of {@link RoomParticipant}s by room identifiers.
+     */
+    private Map<String, List<RoomParticipant>> publishedRoomParticipants;
+
+    /**
+     * Constructor.
+     *
+     * @param connector sets the {@link #connector}
+     * @param period    sets the {@link #period}
+     */
+    public DeviceStatePublisher(AbstractDeviceConnector connector, int period)
+    {
+        this.connector = connector;
+        this.period = period;
+    }
+
+    /**
+     * Start pushing the device state.
+     */
+    public void start()
+    {
+        this.publishThread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                logger.info("Pushing of device state - starting...");
+                while (publishThread != null) {
+                    try {
+                        Thread.sleep(period);
+                    }
+                    catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        continue;
+                    }
+                    if (publishThread == null || !connector.isConnected()) {
+                        continue;
+                    }
+
+                    try {
+                        publish();
+                    }
+                    catch (Exception exception) {
+                        // Push the complete state next time
+                        publishedRooms = null;
+                        logger.warn("Pushing of device state failed", exception);
+                    }
+                }
+                logger.info("Pushing of device state - exiting...");
+            }
+        };
+        this.publishThread.setName(Thread.currentThread().getName() + "-device-state");
+        this.publishThread.setDaemon(true);
+        this.publishThread.start();
+    }
+
+    /**
+     * Stop pushing the device state.
+     */
+    public void stop()
+    {
+        Thread publishThread = this.publishThread;
+        this.publishThread = null;
+        if (publishThread != null) {
+            publishThread.interrupt();
+        }
+    }
+
+    /**
+     * Push changes of the device state to the controller.
+     *
+     * @throws CommandException when the device state cannot be retrieved or pushed
+     */
+    protected void publish() throws CommandException
+    {
+        boolean complete = (publishedRooms == null);
+        UpdateDeviceState updateDeviceState = new UpdateDeviceState(complete);
+        updateDeviceState.setDateTime(DateTime.now());
+        Map<String, RoomSummary> rooms = null;
+        Map<String, List<RoomParticipant>> roomParticipants = null;
+        if (connector instanceof RoomService) {
+            rooms = listRooms((RoomService) connector);
+            roomParticipants = listRoomParticipants((RoomService) connector, rooms);
+            for (RoomSummary room : rooms.values()) {
+                RoomSummary publishedRoom = (complete ? null : publishedRooms.get(room.getId()));
+                if (!room.isSame(publishedRoom)) {
+                    updateDeviceState.addRoom(room);
+                }
+            }
+            if (!complete) {
+                for (String roomId : publishedRooms.keySet()) {
+                    if (!rooms.containsKey(roomId)) {
+                        updateDeviceState.addDeletedRoomId(roomId);
+                    }
+                }
+            }
+            for (Map.Entry<String, List<RoomParticipant>> entry : roomParticipants.entrySet()) {
+                String roomId = entry.getKey();
+                List<RoomParticipant> participants = entry.getValue();
+                List<RoomParticipant> publishedParticipants = (complete ? null : publishedRoomParticipants.get(roomId));
+                if (!isSame(participants, publishedParticipants)) {
+                    updateDeviceState.addRoomParticipants(roomId, participants);
+                }
+            }
+        }
+        if (connector instanceof MonitoringService) {
+            try {
+                updateDeviceState.setDeviceLoadInfo(((MonitoringService) connector).getDeviceLoadInfo());
+            }
+            catch (CommandUnsupportedException exception) {
+                logger.trace("Device load info isn't supported.", exception);
+            }
+        }
+
+        Boolean completeRequired = (Boolean) connector.performControllerAction(updateDeviceState);
+        if (Boolean.TRUE.equals(completeRequired)) {
+            publishedRooms = null;
+            publishedRoomParticipants = null;
+        }
+        else {
+            publishedRooms = (rooms != null ? rooms : new HashMap<String, RoomSummary>());
+            publishedRoomParticipants = (roomParticipants != null
+                    ? roomParticipants : new HashMap<String, List<RoomParticipant>>());
+        }
+    }
+
+    /**
+     * @param roomService
+     * @return map of {@link RoomSummary}s by room identifiers
+     * @throws CommandException
+     */
+    private Map<String, RoomSummary> listRooms(RoomService roomService) throws CommandException
+    {
+        Map<String, RoomSummary> rooms = new LinkedHashMap<String, RoomSummary>();
+        try {
+            for (RoomSummary room : roomService.listRooms()) {
+                rooms.put(room.getId(), room);
+            }
+        }
+        catch (CommandUnsupportedException exception) {
+            logger.trace("Listing of rooms isn't supported.", exception);
+        }
+        return rooms;
+    }
+
+    /**
+     * @param roomService
+     * @param rooms       for which the {@link RoomParticipant}s should be listed
+     * @return map of lists of {@link RoomParticipant}s by room identifiers
+     *         (rooms for which the listing isn't supported are skipped)
+     * @throws CommandException
+     */
+    private Map<String, List<RoomParticipant>> listRoomParticipants(RoomService roomService,
+            Map<String, RoomSummary> rooms) throws CommandException
+    {
+        Map<String, List<RoomParticipant>> roomParticipants = new HashMap<String, List<RoomParticipant>>();
+        try {
+            for (String roomId : rooms.keySet()) {
+                roomParticipants.put(roomId, new ArrayList<RoomParticipant>());
+            }
+            for (RoomParticipant roomParticipant : roomService.listRoomsParticipants(null)) {
+                List<RoomParticipant> participants = roomParticipants.get(roomParticipant.getRoomId());
+                if (participants != null) {
+                    participants.add(roomParticipant);
+                }
+            }
+            return roomParticipants;
+        }
+        catch (CommandUnsupportedException exception) {
+            logger.trace("Listing of participants in multiple rooms isn't supported.", exception);
+            roomParticipants.clear();
+        }
+        for (String roomId : rooms.keySet()) {
+            try {
+                roomParticipants.put(roomId, new ArrayList<RoomParticipant>(roomService.listRoomParticipants(roomId)));
+            }
+            catch (CommandUnsupportedException exception) {
+                logger.trace("Listing of room participants isn't supported.", exception);
+                break;
+            }
+        }
+        return roomParticipants;
+    }
+
+    /**
+     * @param participants1
+     * @param participants2
+     * @return true whether given lists of {@link RoomParticipant}s are same, false otherwise
+     */
+    private static boolean isSame(List<RoomParticipant> participants1, List<RoomParticipant> participants2)
+    {
+        if (participants1 == null || participants2 == null) {
+            return participants1 == participants2;
+        }
+        if (participants1.size() != participants2.size()) {
+            return false;
+        }
+        Iterator<RoomParticipant> iterator2 = participants2.iterator();
+        for (RoomParticipant participant1 : participants1) {
+            if (!participant1.isSame(iterator2.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,696 @@
+package cz.cesnet.shongo.connector.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Bounded queue of recordings which should be moved from a device to a storage. Recordings are moved by a limited
+ * number of threads (which limits the number of concurrent transfers to the storage), recordings with higher
+ * priority are moved first and failed moves are retried with exponential backoff. Queued recordings are stored
+ * in a journal file and thus they are moved also after restart of the connector. Changes of the queue are appended
+ * to the journal file which is rewritten only when it contains too many outdated records.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class RecordingMoveQueue
+{
+    private static Logger logger = LoggerFactory.getLogger(RecordingMoveQueue.class);
+
+    /**
+     * Priority for recordings which are found by periodic checking.
+     */
+    public static final int PRIORITY_NORMAL = 0;
+
+    /**
+     * Priority for recordings which have been recently finished.
+     */
+    public static final int PRIORITY_HIGH = 1;
+
+    /**
+     * Number of attempts after which the moving of a recording fails.
+     */
+    public static final int MAX_ATTEMPT_COUNT = 5;
+
+    /**
+     * Separator of values in {@link #journalFile}.
+     */
+    private static final String JOURNAL_SEPARATOR = "\t";
+
+    /**
+     * Type of record in {@link #journalFile} which adds or updates a recording.
+     */
+    private static final String JOURNAL_PUT = "+";
+
+    /**
+     * Type of record in {@link #journalFile} which removes a recording.
+     */
+    private static final String JOURNAL_REMOVE = "-";
+
+    /**
+     * Minimum number of records in {@link #journalFile} before it is compacted (it is compacted when it contains
+     * more than twice as many records as the number of queued recordings).
+     */
+    private static final int JOURNAL_COMPACTION_RECORD_COUNT = 1000;
+
+    /**
+     * @see Mover
+     */
+    private final Mover mover;
+
+    /**
+     * Number of threads which move the recordings.
+     */
+    private final int threadCount;
+
+    /**
+     * Maximum number of queued recordings.
+     */
+    private final int capacity;
+
+    /**
+     * File to which the queued recordings are stored or {@code null}.
+     */
+    private final File journalFile;
+
+    /**
+     * {@link Writer} which appends records to the {@link #journalFile} or {@code null} when it isn't opened.
+     */
+    private Writer journalWriter;
+
+    /**
+     * Number of records in the {@link #journalFile}.
+     */
+    private int journalRecordCount = 0;
+
+    /**
+     * Delay in milliseconds before checking again a recording which isn't ready to be moved.
+     */
+    private long readyCheckDelay = 30000;
+
+    /**
+     * Delay in milliseconds before the first retry of failed moving (it is doubled for each next retry).
+     */
+    private long retryDelay = 60000;
+
+    /**
+     * Queued {@link Entry}s by recording identifiers.
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    /**
+     * Sequence number for the next {@link Entry}.
+     */
+    private long nextSequence = 0;
+
+    /**
+     * Threads which move the recordings.
+     */
+    private final List<Thread> threads = new LinkedList<Thread>();
+
+    /**
+     * Specifies whether the {@link #threads} should be running.
+     */
+    private volatile boolean running = false;
+
+    /**
+     * Specifies whether the queue has been stopped (and thus the {@link #journalFile} mustn't be modified anymore,
+     * e.g., by a recording whose moving finished after the {@link #stop()}).
+     */
+    private boolean stopped = false;
+
+    /**
+     * Constructor.
+     *
+     * @param mover       sets the {@link #mover}
+     * @param threadCount sets the {@link #threadCount}
+     * @param capacity    sets the {@link #capacity}
+     * @param journalFile sets the {@link #journalFile}
+     */
+    public RecordingMoveQueue(Mover mover, int threadCount, int capacity, File journalFile)
+    {
+        this.mover = mover;
+        this.threadCount = threadCount;
+        this.capacity = capacity;
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * @param readyCheckDelay sets the {@link #readyCheckDelay}
+     */
+    public void setReadyCheckDelay(long readyCheckDelay)
+    {
+        this.readyCheckDelay = readyCheckDelay;
+    }
+
+    /**
+     * @param retryDelay sets the {@link #retryDelay}
+     */
+    public void setRetryDelay(long retryDelay)
+    {
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Load recordings from the {@link #journalFile} and start moving the recordings.
+     */
+    public synchronized void start()
+    {
+        if (running) {
+            return;
+        }
+        loadJournal();
+        running = true;
+        stopped = false;
+        String threadName = Thread.currentThread().getName() + "-recordings-move";
+        for (int index = 0; index < threadCount; index++) {
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    Entry entry;
+                    while ((entry = takeEntry()) != null) {
+                        moveEntry(entry);
+                    }
+                }
+            };
+            thread.setName(threadName + "-" + (index + 1));
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stop moving the recordings and wait for the {@link #threads} to finish (recordings which are being moved are
+     * interrupted and all queued recordings, including the interrupted ones, remain in the {@link #journalFile}).
+     */
+    public void stop()
+    {
+        List<Thread> stoppedThreads;
+        synchronized (this) {
+            running = false;
+            stopped = true;
+            stoppedThreads = new ArrayList<Thread>(threads);
+            threads.clear();
+            closeJournal();
+            notifyAll();
+        }
+        for (Thread thread : stoppedThreads) {
+            thread.interrupt();
+        }
+        for (Thread thread : stoppedThreads) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                logger.warn("Waiting for moving of recordings to stop has been interrupted.");
+                return;
+            }
+        }
+    }
+
+    /**
+     * Add a new recording to the queue (or increase the priority of already queued recording).
+     *
+     * @param recordingId       identifier of the recording
+     * @param recordingFolderId identifier of recording folder to which the recording should be moved
+     * @param priority          priority of the recording (e.g., {@link #PRIORITY_HIGH})
+     * @return true whether the recording is queued, false when the queue is full
+     */
+    public synchronized boolean add(String recordingId, String recordingFolderId, int priority)
+    {
+        Entry entry = entries.get(recordingId);
+        if (entry != null) {
+            if (priority > entry.priority) {
+                entry.priority = priority;
+                entry.nextAttemptTime = 0;
+                storeJournal(entry);
+                notifyAll();
+            }
+            return true;
+        }
+        if (entries.size() >= capacity) {
+            logger.warn("Recording {} cannot be queued for moving, the queue is full ({}).", recordingId, capacity);
+            return false;
+        }
+        entry = new Entry(recordingId, recordingFolderId, priority, 0);
+        entries.put(recordingId, entry);
+        storeJournal(entry);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Remove all recordings for given {@code recordingFolderId} which are not being moved right now.
+     *
+     * @param recordingFolderId
+     */
+    public synchronized void removeFolder(String recordingFolderId)
+    {
+        List<Entry> removedEntries = new LinkedList<Entry>();
+        for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+            Entry entry = iterator.next();
+            if (entry.recordingFolderId.equals(recordingFolderId) && !entry.moving) {
+                iterator.remove();
+                removedEntries.add(entry);
+            }
+        }
+        if (!removedEntries.isEmpty()) {
+            for (Entry entry : removedEntries) {
+                storeJournalRemove(entry);
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * @param recordingFolderId
+     * @return identifiers of recordings for given {@code recordingFolderId} which are being moved right now
+     */
+    public synchronized List<String> getMovingRecordingIds(String recordingFolderId)
+    {
+        List<String> recordingIds = new LinkedList<String>();
+        for (Entry entry : entries.values()) {
+            if (entry.recordingFolderId.equals(recordingFolderId) && entry.moving) {
+                recordingIds.add(entry.recordingId);
+            }
+        }
+        return recordingIds;
+    }
+
+    /**
+     * @return number of queued recordings (including recordings which are being moved)
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Wait until the queue is empty.
+     *
+     * @param timeout maximum time in milliseconds to wait
+     * @return true whether the queue is empty, false when the timeout elapsed
+     * @throws InterruptedException
+     */
+    public synchronized boolean awaitEmpty(long timeout) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (!entries.isEmpty()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Wait until recordings with given {@code recordingIds} are removed from the queue (i.e., they are moved,
+     * their moving has failed or they have been removed by {@link #removeFolder}).
+     *
+     * @param recordingIds identifiers of recordings
+     * @param timeout      maximum time in milliseconds to wait
+     * @return true whether the recordings are removed, false when the timeout elapsed
+     * @throws InterruptedException
+     */
+    public synchronized boolean awaitRemoved(Collection<String> recordingIds, long timeout)
+            throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+        for (String recordingId : recordingIds) {
+            while (entries.containsKey(recordingId)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait for the next {@link Entry} which is ready to be moved (the entry with the highest priority is returned
+     * and entries with the same priority are returned in the order in which they were added).
+     *
+     * @return {@link Entry} which should be moved or {@code null} when the queue has been stopped
+     */
+    private synchronized Entry takeEntry()
+    {
+        while (running) {
+            long currentTime = System.currentTimeMillis();
+            Entry nextEntry = null;
+            long nextAttemptTime = Long.MAX_VALUE;
+            for (Entry entry : entries.values()) {
+                if (entry.moving) {
+                    continue;
+                }
+                if (entry.nextAttemptTime > currentTime) {
+                    nextAttemptTime = Math.min(nextAttemptTime, entry.nextAttemptTime);
+                    continue;
+                }
+                if (nextEntry == null || entry.priority > nextEntry.priority
+                        || (entry.priority == nextEntry.priority && entry.sequence < nextEntry.sequence)) {
+                    nextEntry = entry;
+                }
+            }
+            if (nextEntry != null) {
+                nextEntry.moving = true;
+                return nextEntry;
+            }
+            try {
+                if (nextAttemptTime == Long.MAX_VALUE) {
+                    wait();
+                }
+                else {
+                    wait(nextAttemptTime - currentTime);
+                }
+            }
+            catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Move recording from given {@code entry} and update the queue according to the result.
+     *
+     * @param entry to be moved
+     */
+    private void moveEntry(Entry entry)
+    {
+        boolean moved;
+        try {
+            moved = mover.move(entry.recordingId);
+        }
+        catch (Exception exception) {
+            int attemptCount;
+            synchronized (this) {
+                attemptCount = ++entry.attemptCount;
+                if (attemptCount < MAX_ATTEMPT_COUNT) {
+                    long delay = retryDelay << (attemptCount - 1);
+                    logger.warn("Moving recording " + entry.recordingId + " failed (attempt " + attemptCount
+                            + "), it will be retried in " + delay + " ms.", exception);
+                    rescheduleEntry(entry, delay);
+                    storeJournal(entry);
+                    return;
+                }
+            }
+            try {
+                mover.onFailed(entry.recordingId, attemptCount, exception);
+            }
+            finally {
+                removeEntry(entry);
+            }
+            return;
+        }
+        synchronized (this) {
+            if (moved) {
+                removeEntry(entry);
+            }
+            else {
+                rescheduleEntry(entry, readyCheckDelay);
+            }
+        }
+    }
+
+    /**
+     * @param entry to be moved again after given {@code delay}
+     * @param delay in milliseconds
+     */
+    private synchronized void rescheduleEntry(Entry entry, long delay)
+    {
+        entry.moving = false;
+        entry.nextAttemptTime = System.currentTimeMillis() + delay;
+        notifyAll();
+    }
+
+    /**
+     * @param entry to be removed from the queue
+     */
+    private synchronized void removeEntry(Entry entry)
+    {
+        entries.remove(entry.recordingId);
+        storeJournalRemove(entry);
+        notifyAll();
+    }
+
+    /**
+     * Load {@link #entries} from the {@link #journalFile} (invalid records are skipped).
+     */
+    private synchronized void loadJournal()
+    {
+        if (journalFile == null || !journalFile.exists()) {
+            return;
+        }
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        loadJournalRecord(line.split(JOURNAL_SEPARATOR));
+                    }
+                    catch (Exception exception) {
+                        logger.warn("Invalid line '{}' in journal {}.", line, journalFile);
+                    }
+                }
+            }
+            finally {
+                reader.close();
+            }
+            logger.info("Loaded {} recordings to be moved from journal {}.", entries.size(), journalFile);
+        }
+        catch (Exception exception) {
+            logger.warn("Loading journal " + journalFile + " failed.", exception);
+        }
+    }
+
+    /**
+     * Apply given record from the {@link #journalFile} to the {@link #entries}.
+     *
+     * @param values of the record
+     * @throws IllegalArgumentException when the record is invalid
+     */
+    private void loadJournalRecord(String[] values)
+    {
+        if (values.length == 2 && values[0].equals(JOURNAL_REMOVE)) {
+            entries.remove(values[1]);
+            return;
+        }
+        if (values.length != 5 || !values[0].equals(JOURNAL_PUT)) {
+            throw new IllegalArgumentException("Invalid record.");
+        }
+        String recordingId = values[1];
+        String recordingFolderId = values[2];
+        int priority = Integer.parseInt(values[3]);
+        int attemptCount = Integer.parseInt(values[4]);
+        Entry entry = entries.get(recordingId);
+        if (entry != null) {
+            entry.priority = priority;
+            entry.attemptCount = attemptCount;
+        }
+        else {
+            entries.put(recordingId, new Entry(recordingId, recordingFolderId, priority, attemptCount));
+        }
+    }
+
+    /**
+     * Append given added or updated {@code entry} to the {@link #journalFile}.
+     *
+     * @param entry which has been added or updated
+     */
+    private synchronized void storeJournal(Entry entry)
+    {
+        appendJournal(getJournalRecord(entry));
+    }
+
+    /**
+     * Append given removed {@code entry} to the {@link #journalFile}.
+     *
+     * @param entry which has been removed
+     */
+    private synchronized void storeJournalRemove(Entry entry)
+    {
+        appendJournal(JOURNAL_REMOVE + JOURNAL_SEPARATOR + entry.recordingId + "\n");
+    }
+
+    /**
+     * Append given {@code record} to the {@link #journalFile} or compact the {@link #journalFile} when it isn't
+     * opened yet or when it contains too many records (the compacted journal already contains the change).
+     * Nothing is appended when the queue has been {@link #stopped}.
+     *
+     * @param record to be appended
+     */
+    private synchronized void appendJournal(String record)
+    {
+        if (journalFile == null || stopped) {
+            return;
+        }
+        if (journalWriter == null
+                || journalRecordCount >= Math.max(JOURNAL_COMPACTION_RECORD_COUNT, 2 * entries.size())) {
+            compactJournal();
+            return;
+        }
+        try {
+            journalWriter.write(record);
+            journalWriter.flush();
+            journalRecordCount++;
+        }
+        catch (IOException exception) {
+            logger.warn("Storing journal " + journalFile + " failed.", exception);
+            // The journal will be compacted by the next change
+            closeJournal();
+        }
+    }
+
+    /**
+     * Store {@link #entries} to the {@link #journalFile} (the journal is written to temporary file which
+     * then replaces the journal) and open the {@link #journalWriter} for appending next changes.
+     */
+    private synchronized void compactJournal()
+    {
+        closeJournal();
+        File temporaryFile = new File(journalFile.getPath() + ".tmp");
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(temporaryFile), "UTF-8");
+            try {
+                for (Entry entry : entries.values()) {
+                    writer.write(getJournalRecord(entry));
+                }
+            }
+            finally {
+                writer.close();
+            }
+            if (!temporaryFile.renameTo(journalFile)) {
+                if (!journalFile.delete() || !temporaryFile.renameTo(journalFile)) {
+                    throw new IOException("Cannot replace " + journalFile + ".");
+                }
+            }
+            journalWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFile, true), "UTF-8"));
+            journalRecordCount = entries.size();
+        }
+        catch (IOException exception) {
+            logger.warn("Storing journal " + journalFile + " failed.", exception);
+        }
+    }
+
+    /**
+     * @param entry to be stored
+     * @return record of given {@code entry} for the {@link #journalFile}
+     */
+    private static String getJournalRecord(Entry entry)
+    {
+        return JOURNAL_PUT + JOURNAL_SEPARATOR + entry.recordingId + JOURNAL_SEPARATOR + entry.recordingFolderId
+                + JOURNAL_SEPARATOR + entry.priority + JOURNAL_SEPARATOR + entry.attemptCount + "\n";
+    }
+
+    /**
+     * Close the {@link #journalWriter}.
+     */
+    private synchronized void closeJournal()
+    {
+        if (journalWriter == null) {
+            return;
+        }
+        try {
+            journalWriter.close();
+        }
+        catch (IOException exception) {
+            logger.warn("Closing journal " + journalFile + " failed.", exception);
+        }
+        journalWriter = null;
+    }
+
+    /**
+     * Moves recordings for {@link RecordingMoveQueue}.
+     */
+    public static interface Mover
+    {
+        /**
+         * Move recording with given {@code recordingId}.
+         *
+         * @param recordingId of recording to be moved
+         * @return true whether the recording has been moved (or it shouldn't be moved anymore),
+         *         false when the recording isn't ready to be moved yet
+         * @throws Exception when the moving failed and it should be retried
+         */
+        boolean move(String recordingId) throws Exception;
+
+        /**
+         * Moving of recording with given {@code recordingId} has failed {@link #MAX_ATTEMPT_COUNT} times
+         * and the recording will be removed from the queue.
+         *
+         * @param recordingId  of recording which failed to be moved
+         * @param attemptCount number of failed attempts
+         * @param exception    which was thrown by the last attempt
+         */
+        void onFailed(String recordingId, int attemptCount, Exception exception);
+    }
+
+    /**
+     * Recording in the queue.
+     */
+    private class Entry
+    {
+        /**
+         * Identifier of the recording.
+         */
+        private final String recordingId;
+
+        /**
+         * Identifier of recording folder to which the recording should be moved.
+         */
+        private final String recordingFolderId;
+
+        /**
+         * Sequence number in which the entry was added.
+         */
+        private final long sequence = nextSequence++;
+
+        /**
+         * Priority of the recording.
+         */
+        private int priority;
+
+        /**
+         * Number of failed attempts.
+         */
+        private int attemptCount;
+
+        /**
+         * Time in milliseconds before which the recording shouldn't be moved.
+         */
+        private long nextAttemptTime = 0;
+
+        /**
+         * Specifies whether the recording is being moved right now.
+         */
+        private boolean moving = false;
+
+        /**
+         * Constructor.
+         *
+         * @param recordingId       sets the {@link #recordingId}
+         * @param recordingFolderId sets the {@link #recordingFolderId}
+         * @param priority          sets the {@link #priority}
+         * @param attemptCount      sets the {@link #attemptCount}
+         */
+        public Entry(String recordingId, String recordingFolderId, int priority, int attemptCount)
+        {
+            this.recordingId = recordingId;
+            this.recordingFolderId = recordingFolderId;
+            this.priority = priority;
+            this.attemptCount = attemptCount;
+        }
+    }
+}
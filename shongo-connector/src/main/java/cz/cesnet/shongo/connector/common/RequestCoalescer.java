@@ -0,0 +1,142 @@
+package cz.cesnet.shongo.connector.common;
+
+import cz.cesnet.shongo.api.jade.CommandException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Coalesces identical concurrent requests to a device. When a {@link Request} with a given key is being performed
+ * and another {@link Request} with the same key is passed to {@link #execute}, the second caller doesn't send
+ * anything to the device and it just waits for the result of the first {@link Request}.
+ * <p/>
+ * The results are shared by all callers and thus they should be immutable.
+ * <p/>
+ * When a caller modifies the data which are read by the {@link Request}s, it must call {@link #invalidateAll()}
+ * after the modification. Otherwise a {@link Request} which has been started before the modification finished
+ * could be joined by the caller's following {@link #execute} and the caller wouldn't see its own modification.
+ *
+ * @param <K> type of key which identifies identical requests
+ * @param <V> type of result
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class RequestCoalescer<K, V>
+{
+    /**
+     * {@link PendingRequest}s which are being performed by keys.
+     */
+    private final Map<K, PendingRequest<V>> pendingRequests = new HashMap<K, PendingRequest<V>>();
+
+    /**
+     * Perform given {@code request} or wait for the result of identical {@link Request} which is already performed.
+     *
+     * @param key     identifying the {@code request}
+     * @param request to be performed
+     * @return result of the {@code request}
+     * @throws CommandException when the {@code request} fails
+     */
+    public V execute(K key, Request<V> request) throws CommandException
+    {
+        PendingRequest<V> pendingRequest;
+        boolean performing = false;
+        synchronized (pendingRequests) {
+            pendingRequest = pendingRequests.get(key);
+            if (pendingRequest == null) {
+                pendingRequest = new PendingRequest<V>();
+                pendingRequests.put(key, pendingRequest);
+                performing = true;
+            }
+        }
+        if (!performing) {
+            // Identical request is already performed so wait for its result
+            return pendingRequest.getResult();
+        }
+        Throwable failure = null;
+        V result = null;
+        try {
+            result = request.perform();
+            return result;
+        }
+        catch (CommandException exception) {
+            failure = exception;
+            throw exception;
+        }
+        catch (RuntimeException exception) {
+            failure = exception;
+            throw exception;
+        }
+        catch (Error error) {
+            failure = error;
+            throw error;
+        }
+        finally {
+            synchronized (pendingRequests) {
+                // The request could have been already replaced by a newer one (see invalidateAll)
+                if (pendingRequests.get(key) == pendingRequest) {
+                    pendingRequests.remove(key);
+                }
+            }
+            pendingRequest.setResult(result, failure);
+        }
+    }
+
+    /**
+     * Stop coalescing with all {@link Request}s which are being performed (the callers already waiting for them
+     * still get their results, but all following calls of {@link #execute} perform new {@link Request}s).
+     */
+    public void invalidateAll()
+    {
+        synchronized (pendingRequests) {
+            pendingRequests.clear();
+        }
+    }
+
+    /**
+     * Request which can be coalesced.
+     */
+    public static interface Request<V>
+    {
+        /**
+         * @return result of the request
+         * @throws CommandException
+         */
+        public V perform() throws CommandException;
+    }
+
+    /**
+     * Request which is being performed.
+     */
+    private static class PendingRequest<V>
+    {
+        private boolean completed = false;
+
+        private V result;
+
+        private Throwable failure;
+
+        public synchronized void setResult(V result, Throwable failure)
+        {
+            this.result = result;
+            this.failure = failure;
+            this.completed = true;
+            notifyAll();
+        }
+
+        public synchronized V getResult() throws CommandException
+        {
+            while (!completed) {
+                try {
+                    wait();
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new CommandException("Waiting for the result has been interrupted.", exception);
+                }
+            }
+            if (failure != null) {
+                throw new CommandException(failure.getMessage(), failure);
+            }
+            return result;
+        }
+    }
+}
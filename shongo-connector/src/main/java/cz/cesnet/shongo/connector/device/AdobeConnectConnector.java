@@ -1013,6 +1013,22 @@ public class AdobeConnectConnector extends AbstractMultipointConnector implement
         return Collections.unmodifiableList(participantList);
     }
 
+    @Override
+    public Collection<RoomParticipant> listRoomsParticipants(Set<String> roomIds) throws CommandException
+    {
+        // Only rooms with active meeting can have participants, so the participants are listed only for them
+        Element response = execApi("report-active-meetings", new RequestAttributeList());
+
+        List<RoomParticipant> participantList = new ArrayList<RoomParticipant>();
+        for (Element sco : response.getChild("report-active-meetings").getChildren()) {
+            String roomId = sco.getAttributeValue("sco-id");
+            if (roomIds == null || roomIds.isEmpty() || roomIds.contains(roomId)) {
+                participantList.addAll(listRoomParticipants(roomId));
+            }
+        }
+        return Collections.unmodifiableList(participantList);
+    }
+
     @Override
     public RoomParticipant getRoomParticipant(String roomId, String roomParticipantId) throws CommandException
     {
@@ -10,6 +10,8 @@ import cz.cesnet.shongo.api.jade.CommandUnsupportedException;
 import cz.cesnet.shongo.api.util.DeviceAddress;
 import cz.cesnet.shongo.connector.common.AbstractMultipointConnector;
 import cz.cesnet.shongo.connector.common.Command;
+import cz.cesnet.shongo.connector.common.ConnectionPool;
+import cz.cesnet.shongo.connector.common.RequestCoalescer;
 import cz.cesnet.shongo.connector.support.KeepAliveTransportFactory;
 import cz.cesnet.shongo.connector.api.*;
 import cz.cesnet.shongo.ssl.ConfiguredSSLContext;
@@ -46,6 +48,7 @@ import java.net.MalformedURLException;
 import java.net.SocketException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -75,6 +78,12 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
      */
     public static final String ROOM_NUMBER_EXTRACTION_FROM_H323_NUMBER = "room-number-extraction-from-h323-number";
     public static final String ROOM_NUMBER_EXTRACTION_FROM_SIP_URI = "room-number-extraction-from-sip-uri";
+    public static final String MAX_CONNECTIONS = "max-connections";
+
+    /**
+     * Default maximum number of XML-RPC requests which are performed concurrently on the device.
+     */
+    public static final int MAX_CONNECTIONS_DEFAULT = 4;
 
     /**
      * Maximum length of string which can be sent to the device.
@@ -102,9 +111,16 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
     public static final int DEFAULT_PORT = 443;
 
     /**
-     * {@link XmlRpcClient} used for the XML-RPC API communication with the device.
+     * Pool of {@link XmlRpcClient}s used for the XML-RPC API communication with the device
+     * (each {@link XmlRpcClient} has its own keep-alive connection).
      */
-    private XmlRpcClient xmlRpcClient;
+    private volatile ConnectionPool<XmlRpcClient> xmlRpcClientPool;
+
+    /**
+     * Coalesces identical concurrent calls of {@link #execApiEnumerate}.
+     */
+    private final RequestCoalescer<String, List<Map<String, Object>>> enumerateCoalescer =
+            new RequestCoalescer<String, List<Map<String, Object>>>();
 
     /**
      * {@link XmlRpcClient} used for the Http communication with the device.
@@ -137,7 +153,7 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
      * Cache of results of previous calls to commands supporting revision numbers.
      * Map of cache ID to previous results.
      */
-    private final Map<String, ResultsCache> resultsCache = new HashMap<String, ResultsCache>();
+    private final Map<String, ResultsCache> resultsCache = new ConcurrentHashMap<String, ResultsCache>();
 
     /**
      * Cache of snapshot URL for room participants ("roomId:roomParticipantId").
@@ -217,14 +233,24 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
             authUsername = username;
             authPassword = password;
 
-            // Create XmlRpcClient for XML-RPC API communication
-            XmlRpcClientConfigImpl config = new XmlRpcClientConfigImpl();
-            config.setServerURL(getDeviceApiUrl());
-            config.setConnectionTimeout(requestTimeout);
-            config.setReplyTimeout(requestTimeout);
-            xmlRpcClient = new XmlRpcClient();
-            xmlRpcClient.setConfig(config);
-            xmlRpcClient.setTransportFactory(new KeepAliveTransportFactory(xmlRpcClient));
+            // Create pool of XmlRpcClients for XML-RPC API communication
+            final URL deviceApiUrl = getDeviceApiUrl();
+            xmlRpcClientPool = new ConnectionPool<XmlRpcClient>(
+                    configuration.getOptionInt(MAX_CONNECTIONS, MAX_CONNECTIONS_DEFAULT))
+            {
+                @Override
+                protected XmlRpcClient createConnection()
+                {
+                    XmlRpcClientConfigImpl config = new XmlRpcClientConfigImpl();
+                    config.setServerURL(deviceApiUrl);
+                    config.setConnectionTimeout(requestTimeout);
+                    config.setReplyTimeout(requestTimeout);
+                    XmlRpcClient xmlRpcClient = new XmlRpcClient();
+                    xmlRpcClient.setConfig(config);
+                    xmlRpcClient.setTransportFactory(new KeepAliveTransportFactory(xmlRpcClient));
+                    return xmlRpcClient;
+                }
+            };
 
             // Create HttpClient for Http communication
             httpClient = ConfiguredSSLContext.getInstance().createHttpClient(requestTimeout);
@@ -258,12 +284,7 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
     public ConnectionState getConnectionState()
     {
         try {
-            synchronized (this) {
-                XmlRpcClientConfigImpl configuration = ((XmlRpcClientConfigImpl) xmlRpcClient.getConfig());
-                configuration.setReplyTimeout(CONNECTION_STATE_TIMEOUT);
-                execApi("device.query", null);
-                configuration.setReplyTimeout(requestTimeout);
-            }
+            execApi("device.query", null, CONNECTION_STATE_TIMEOUT);
             return ConnectionState.CONNECTED;
         }
         catch (Exception exception) {
@@ -277,7 +298,7 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
     {
         // TODO: consider publishing feedback events from the MCU
         // no real operation - the communication protocol is stateless
-        xmlRpcClient = null; // just for sure the attributes are not used anymore
+        xmlRpcClientPool = null; // just for sure the attributes are not used anymore
     }
 
     //</editor-fold>
@@ -642,6 +663,12 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
         return getRoomParticipants(roomId, false);
     }
 
+    @Override
+    public Collection<RoomParticipant> listRoomsParticipants(Set<String> roomIds) throws CommandException
+    {
+        return getRoomParticipants((roomIds != null && !roomIds.isEmpty()) ? roomIds : null, false);
+    }
+
     @Override
     public RoomParticipant getRoomParticipant(String roomId, String roomParticipantId) throws CommandException
     {
@@ -884,40 +911,73 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
     /**
      * Sends a command to the device. Blocks until response to the command is complete.
      *
+     * <p/>
+     * After a command which modifies the device (even a failed one), the enumerations which are being performed
+     * are no longer coalesced (see {@link RequestCoalescer#invalidateAll()}), so that the caller always reads
+     * its own modification.
+     *
      * @param command a command to the device; note that some parameters may be added to the command
      * @return output of the command
      */
     private Map<String, Object> execApi(Command command) throws CommandException
     {
-        int retryCount = 5;
-        while (retryCount > 0) {
-            try {
-                return execApi(command.getCommand(), command.getParameters());
-            }
-            catch (XmlRpcException exception) {
-                if (isExecApiRetryPossible(exception)) {
-                    retryCount--;
-                    logger.warn("{}: Trying again...", exception.getMessage());
-                    continue;
+        try {
+            int retryCount = 5;
+            while (retryCount > 0) {
+                try {
+                    return execApi(command.getCommand(), command.getParameters(), requestTimeout);
                 }
-                else {
-                    throw new CommandException(exception.getMessage(), exception.getCause());
+                catch (XmlRpcException exception) {
+                    if (isExecApiRetryPossible(exception)) {
+                        retryCount--;
+                        logger.warn("{}: Trying again...", exception.getMessage());
+                        continue;
+                    }
+                    else {
+                        throw new CommandException(exception.getMessage(), exception.getCause());
+                    }
                 }
             }
+            throw new CommandException(String.format("Command %s failed.", command));
+        }
+        finally {
+            if (isModifyingCommand(command)) {
+                enumerateCoalescer.invalidateAll();
+            }
         }
-        throw new CommandException(String.format("Command %s failed.", command));
+    }
+
+    /**
+     * @param command
+     * @return true whether given {@code command} can modify the device, false when it only reads from the device
+     */
+    private static boolean isModifyingCommand(Command command)
+    {
+        String commandName = command.getCommand();
+        return !(commandName.endsWith(".enumerate") || commandName.endsWith(".status")
+                || commandName.endsWith(".query"));
     }
 
     /**
      * Sends a command to the device. Blocks until response to the command is complete.
+     * <p/>
+     * Up to {@link ConnectionPool#getMaxConnectionCount()} commands are sent to the device concurrently,
+     * other commands wait for a free {@link XmlRpcClient} in the {@link #xmlRpcClientPool}.
      *
      * @param command
      * @param params
+     * @param timeout reply timeout in milliseconds
      * @return output of the command
      * @throws XmlRpcException
+     * @throws CommandException when the connector isn't connected
      */
-    private synchronized Map<String, Object> execApi(String command, Map<String, Object> params) throws XmlRpcException
+    private Map<String, Object> execApi(String command, Map<String, Object> params, int timeout)
+            throws XmlRpcException, CommandException
     {
+        ConnectionPool<XmlRpcClient> xmlRpcClientPool = this.xmlRpcClientPool;
+        if (xmlRpcClientPool == null) {
+            throw new CommandException("The connector is not connected to the device.");
+        }
         logger.debug(String.format("Issuing command '%s' on %s", command, deviceAddress));
         HashMap<String, Object> content = new HashMap<String, Object>();
         if (params != null) {
@@ -925,9 +985,31 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
         }
         content.put("authenticationUser", authUsername);
         content.put("authenticationPassword", authPassword);
-        @SuppressWarnings("unchecked")
-        Map<String, Object> result = (Map<String, Object>) xmlRpcClient.execute(command, new Object[]{content});
-        return result;
+        XmlRpcClient xmlRpcClient = xmlRpcClientPool.acquire();
+        boolean reusable = true;
+        try {
+            ((XmlRpcClientConfigImpl) xmlRpcClient.getConfig()).setReplyTimeout(timeout);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> result = (Map<String, Object>) xmlRpcClient.execute(command, new Object[]{content});
+            return result;
+        }
+        catch (XmlRpcException exception) {
+            // Do not reuse connection which has failed (faults reported by the device are fine)
+            reusable = !(exception.getCause() instanceof IOException);
+            throw exception;
+        }
+        catch (RuntimeException exception) {
+            reusable = false;
+            throw exception;
+        }
+        finally {
+            if (reusable) {
+                xmlRpcClientPool.release(xmlRpcClient);
+            }
+            else {
+                xmlRpcClientPool.invalidate(xmlRpcClient);
+            }
+        }
     }
 
     /**
@@ -949,13 +1031,36 @@ public class CiscoMCUConnector extends AbstractMultipointConnector
      * seems to be broken on the device (it reports dead items even with the listAll parameter set to true), and either
      * way it generates short lists.
      *
+     * <p/>
+     * Identical concurrent calls (with the same {@link #getCommandCacheId}) are coalesced into one enumeration
+     * on the device and all callers get the same result. An enumeration started after a modifying command may
+     * overlap an older one for the same command, which is safe because the stored revision and items of
+     * the {@link ResultsCache} are replaced together.
+     *
      * @param command   command for enumerating the objects; note that some parameters may be added to the command
      * @param enumField the field within result containing the list of enumerated objects
      * @return list of objects from the enumField, each as a map from field names to values;
      *         the list is unmodifiable (so that it may be reused by the execApiEnumerate() method)
      * @throws CommandException
      */
-    private synchronized List<Map<String, Object>> execApiEnumerate(Command command, String enumField)
+    private List<Map<String, Object>> execApiEnumerate(final Command command, final String enumField)
+            throws CommandException
+    {
+        return enumerateCoalescer.execute(getCommandCacheId(command),
+                new RequestCoalescer.Request<List<Map<String, Object>>>()
+                {
+                    @Override
+                    public List<Map<String, Object>> perform() throws CommandException
+                    {
+                        return performApiEnumerate(command, enumField);
+                    }
+                });
+    }
+
+    /**
+     * @see #execApiEnumerate
+     */
+    private List<Map<String, Object>> performApiEnumerate(Command command, String enumField)
             throws CommandException
     {
         List<Map<String, Object>> results = new ArrayList<Map<String, Object>>();
@@ -1211,6 +1316,20 @@ ParamsLoop:
     }
 
     private Collection<RoomParticipant> getRoomParticipants(String roomId, boolean withHidden) throws CommandException
+    {
+        return getRoomParticipants(Collections.singleton(roomId), withHidden);
+    }
+
+    /**
+     * List participants of multiple rooms by a single participant.enumerate.
+     *
+     * @param roomIds    identifiers of rooms ({@code null} means all rooms)
+     * @param withHidden specifies whether hidden participants should be appended to the end
+     * @return collection of {@link RoomParticipant}s
+     * @throws CommandException
+     */
+    private Collection<RoomParticipant> getRoomParticipants(Set<String> roomIds, boolean withHidden)
+            throws CommandException
     {
         Command cmd = new Command("participant.enumerate");
         cmd.setParameter("operationScope", new String[]{"currentState"});
@@ -1223,7 +1342,7 @@ ParamsLoop:
             if (participant == null) {
                 continue;
             }
-            if (!roomId.equals(participant.get("conferenceName"))) {
+            if (roomIds != null && !roomIds.contains(participant.get("conferenceName"))) {
                 // not from this room
                 continue;
             }
@@ -1656,31 +1775,27 @@ ParamsLoop:
 
         private int revision;
 
-        private List<Item> results;
+        private Map<Item, Map<String, Object>> results;
 
-        public int getRevision()
+        public synchronized int getRevision()
         {
             return revision;
         }
 
-        public Map<String, Object> getItem(Map<String, Object> item)
+        public synchronized Map<String, Object> getItem(Map<String, Object> item)
         {
-            final Item it = new Item(item);
-            // FIXME: optimize - should be O(1) rather than O(n)
-            for (Item cachedItem : results) {
-                if (cachedItem.equals(it)) {
-                    return cachedItem.getContents();
-                }
-            }
-            return null;
+            return results.get(new Item(item));
         }
 
-        public void store(int revision, List<Map<String, Object>> results)
+        public synchronized void store(int revision, List<Map<String, Object>> results)
         {
             this.revision = revision;
-            this.results = new ArrayList<Item>(results.size());
+            this.results = new HashMap<Item, Map<String, Object>>(results.size() * 2);
             for (Map<String, Object> res : results) {
-                this.results.add(new Item(res));
+                Item item = new Item(res);
+                if (!this.results.containsKey(item)) {
+                    this.results.put(item, res);
+                }
             }
         }
 
@@ -10,6 +10,7 @@ import cz.cesnet.shongo.api.jade.CommandUnsupportedException;
 import cz.cesnet.shongo.api.util.DeviceAddress;
 import cz.cesnet.shongo.connector.common.AbstractDeviceConnector;
 import cz.cesnet.shongo.connector.common.Command;
+import cz.cesnet.shongo.connector.common.RecordingMoveQueue;
 import cz.cesnet.shongo.connector.api.RecordingService;
 import cz.cesnet.shongo.connector.api.RecordingSettings;
 import cz.cesnet.shongo.connector.storage.*;
@@ -26,10 +27,13 @@ import org.apache.http.auth.ContextAwareAuthScheme;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.auth.DigestScheme;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.message.BasicHttpRequest;
 import org.apache.http.params.CoreProtocolPNames;
 import org.apache.http.protocol.BasicHttpContext;
@@ -50,10 +54,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -115,9 +115,19 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
     private final String NS_NS1 = "ns1";
 
     /**
-     * Maximal number of threads for mooving recordings to storage.
+     * Default maximal number of threads for mooving recordings to storage.
      */
-    private final int NUM_OF_THREADS = 10;
+    private final int DEFAULT_RECORDINGS_MOVE_THREADS = 4;
+
+    /**
+     * Default maximal number of recordings waiting for mooving to storage.
+     */
+    private final int DEFAULT_RECORDINGS_QUEUE_CAPACITY = 1000;
+
+    /**
+     * Name of file in metadata storage to which the recordings waiting for mooving to storage are stored.
+     */
+    private final String RECORDINGS_QUEUE_JOURNAL = ".recordings-queue";
 
     /**
      * Path for SOAP request on TCS
@@ -190,9 +200,14 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
     private LocalStorageHandler metadataStorage;
 
     /**
-     * Concurrent map of recordingFolderId by recordingId which are being moved from device to storage.
+     * Queue of recordings which are being moved from device to storage.
+     */
+    private RecordingMoveQueue recordingMoveQueue;
+
+    /**
+     * Lock for deleting recording folders and for queueing recordings into them.
      */
-    private final ConcurrentHashMap<String, String> recordingsBeingMoved = new ConcurrentHashMap<String, String>();
+    private final Object recordingFoldersLock = new Object();
 
     private SAXBuilder saxBuilder = new SAXBuilder();
     private XMLOutputter xmlOutputter = new XMLOutputter();
@@ -256,6 +271,25 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
 
         checkServerVitality();
 
+        // Continue with moving of recordings which were queued before the connector was restarted
+        this.recordingMoveQueue = new RecordingMoveQueue(new RecordingMoveQueue.Mover()
+        {
+            @Override
+            public boolean move(String recordingId) throws Exception
+            {
+                return performMoveRecording(recordingId);
+            }
+
+            @Override
+            public void onFailed(String recordingId, int attemptCount, Exception exception)
+            {
+                notifyMovingRecordingFailed(recordingId, attemptCount, exception);
+            }
+        }, configuration.getOptionInt("recordings-move-threads", DEFAULT_RECORDINGS_MOVE_THREADS),
+                configuration.getOptionInt("recordings-queue-capacity", DEFAULT_RECORDINGS_QUEUE_CAPACITY),
+                new java.io.File(this.metadataStorage.getUrl(), RECORDINGS_QUEUE_JOURNAL));
+        this.recordingMoveQueue.start();
+
         this.checkRecordingsThread = new Thread()
         {
             private Logger logger = LoggerFactory.getLogger(CiscoTCSConnector.class);
@@ -337,6 +371,9 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
     public void disconnect() throws CommandException
     {
         checkRecordingsThread = null;
+        if (recordingMoveQueue != null) {
+            recordingMoveQueue.stop();
+        }
     }
 
     /**
@@ -423,8 +460,11 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
         if (recordingFolderId == null || recordingFolderId.isEmpty()) {
             throw new IllegalArgumentException("Argument recordingFolderId must be not empty.");
         }
-        synchronized (CiscoTCSConnector.class) {
+        synchronized (recordingFoldersLock) {
             logger.debug("Removing recording folder (" + recordingFolderId + ").");
+            // Recordings which aren't being moved yet won't be moved
+            recordingMoveQueue.removeFolder(recordingFolderId);
+
             // First call delete folder - it will wait till the moving is done there
             boolean skipWaiting = false;
             try {
@@ -440,19 +480,11 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
             if (!skipWaiting) {
                 // Wait until moving recordings is done
                 // TODO: Stop the moving (because it can last very long)
-                while (recordingsBeingMoved.containsValue(recordingFolderId)) {
+                List<String> recordings;
+                while (!(recordings = recordingMoveQueue.getMovingRecordingIds(recordingFolderId)).isEmpty()) {
                     try {
-                        StringBuilder recordings = new StringBuilder();
-                        for (Map.Entry<String, String> entry : recordingsBeingMoved.entrySet()) {
-                            if (entry.getValue().equals(recordingFolderId)) {
-                                if (recordings.length() > 0) {
-                                    recordings.append(", ");
-                                }
-                                recordings.append(entry.getKey());
-                            }
-                        }
                         logger.debug(
-                                "Waiting with deletion of recording folder {} for recordings [{}] to be moved into it.",
+                                "Waiting with deletion of recording folder {} for recordings {} to be moved into it.",
                                 recordingFolderId, recordings);
                         Thread.sleep(100);
                     } catch (InterruptedException e) {
@@ -683,6 +715,12 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
         String recordingTcsId = getRecordingTcsIdFromRecordingId(recordingId);
         Element originalRecordingElement = getTcsRecordingElementRequired(recordingTcsId);
         createMetadataFiles(recordingId, originalRecordingElement);
+
+        // Move the recording as soon as it is ready (before recordings found by periodic checking)
+        synchronized (recordingFoldersLock) {
+            recordingMoveQueue.add(recordingId, getRecordingFolderIdFromRecordingId(recordingId),
+                    RecordingMoveQueue.PRIORITY_HIGH);
+        }
     }
 
     @Override
@@ -731,13 +769,7 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
         if (recording.getDownloadUrl() == null) {
             return;
         }
-        synchronized (recordingsBeingMoved) {
-            if (recordingsBeingMoved.containsKey(recordingId)) {
-                return;
-            }
-            recordingsBeingMoved.put(recordingId, recordingFolderId);
-        }
-        moveRecordingToAppropriateRecordingFolder(recordingId);
+        recordingMoveQueue.add(recordingId, recordingFolderId, RecordingMoveQueue.PRIORITY_HIGH);
         */
     }
 
@@ -746,9 +778,10 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
     @Override
     public void checkRecordings() throws CommandException
     {
-        ExecutorService executorService = performCheckRecordings();
+        List<String> recordingIds = performCheckRecordings();
         try {
-            executorService.awaitTermination(getRequestTimeout(), TimeUnit.MILLISECONDS);
+            // Wait only for recordings queued by this check (not for the whole queue)
+            recordingMoveQueue.awaitRemoved(recordingIds, getRequestTimeout());
         }
         catch (InterruptedException exception) {
             throw new CommandException("Check recordings interrupted", exception);
@@ -1450,8 +1483,7 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
                     logger.warn("Cannot create TCS storage directory \"" + folder.getFolderName() + "\" and move recording. Skipping.");
                     sendUnavailableNotification(storage.getUrl() + "/" + folder.getFolderName());
 
-                    //Remove recording from #link{recordingsBeingMoved} till storage is accessible
-                    recordingsBeingMoved.remove(recordingId, recordingFolderId);
+                    // Recording will be queued again by periodic checking when storage is accessible
                     return;
                 } catch (Exception e) {
                     throw new CommandException("Recreating of TCS storage folder \"" + recordingFolderId + "\" failed.",e);
@@ -1468,21 +1500,47 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
             file.setFolderId(recordingFolderId);
             final String recordingUrl = recording.getDownloadUrl();
             final HttpClient httpClient = ConfiguredSSLContext.getInstance().createHttpClient();
-            HttpGet request = new HttpGet(recordingUrl);
-            HttpResponse response = httpClient.execute(request);
-            InputStream inputStream = response.getEntity().getContent();
-            storage.createFile(file, inputStream, new ResumeSupport()
-            {
-                @Override
-                public InputStream reopenInputStream(InputStream oldInputStream, int offset) throws IOException
-                {
-                    // resume input stream for recording data at given offset
-                    HttpGet request = new HttpGet(recordingUrl);
-                    request.setHeader("Range", "bytes=" + offset + "-");
-                    HttpResponse response = httpClient.execute(request);
-                    return response.getEntity().getContent();
+            final long contentLength = getRangeContentLength(httpClient, recordingUrl);
+            if (contentLength > 0) {
+                // Download recording data by multiple ranges in parallel
+                ClientConnectionManager connectionManager = httpClient.getConnectionManager();
+                if (connectionManager instanceof PoolingClientConnectionManager) {
+                    ((PoolingClientConnectionManager) connectionManager).setDefaultMaxPerRoute(
+                            LocalStorageHandler.MAX_PART_COUNT);
                 }
-            });
+                storage.createFile(file, new RangeSupport()
+                {
+                    @Override
+                    public long getContentLength()
+                    {
+                        return contentLength;
+                    }
+
+                    @Override
+                    public InputStream openInputStream(long offset, long length) throws IOException
+                    {
+                        return openRecordingInputStream(httpClient, recordingUrl, offset, length);
+                    }
+
+                    @Override
+                    public InputStream reopenInputStream(InputStream oldInputStream, long offset) throws IOException
+                    {
+                        return openInputStream(offset, -1);
+                    }
+                });
+            }
+            else {
+                InputStream inputStream = openRecordingInputStream(httpClient, recordingUrl, 0, -1);
+                storage.createFile(file, inputStream, new ResumeSupport()
+                {
+                    @Override
+                    public InputStream reopenInputStream(InputStream oldInputStream, long offset) throws IOException
+                    {
+                        // resume input stream for recording data at given offset
+                        return openRecordingInputStream(httpClient, recordingUrl, offset, -1);
+                    }
+                });
+            }
 
             updateMetadataFiles(recordingFolderId, recordingId, recordingTcsElement);
 
@@ -1492,8 +1550,78 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
         catch (Exception exception) {
             throw new CommandException("Error while moving recording " + recordingId + ".", exception);
         }
-        finally {
-            recordingsBeingMoved.remove(recordingId);
+    }
+
+    /**
+     * Open given range of recording data. The whole recording data are requested without the "Range" header and
+     * any other range must be returned with status 206 and "Content-Range" starting at given {@code offset}
+     * (otherwise the TCS has returned different data, e.g., the whole recording data or an error page).
+     *
+     * @param httpClient   to be used
+     * @param recordingUrl of recording data
+     * @param offset       at which the recording data should be opened
+     * @param length       of the range or {@code -1} for the rest of recording data
+     * @return {@link InputStream} of given range of recording data
+     * @throws RangeNotSupportedException when the TCS hasn't returned the requested range
+     * @throws IOException                when the request failed
+     */
+    private static InputStream openRecordingInputStream(HttpClient httpClient, String recordingUrl, long offset,
+            long length) throws IOException
+    {
+        HttpGet request = new HttpGet(recordingUrl);
+        boolean wholeContent = (offset == 0 && length < 0);
+        if (!wholeContent) {
+            if (length >= 0) {
+                request.setHeader("Range", "bytes=" + offset + "-" + (offset + length - 1));
+            }
+            else {
+                request.setHeader("Range", "bytes=" + offset + "-");
+            }
+        }
+        HttpResponse response = httpClient.execute(request);
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (wholeContent) {
+            if (statusCode != HttpStatus.SC_OK) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                throw new IOException("Downloading of " + recordingUrl + " failed with status " + statusCode + ".");
+            }
+        }
+        else {
+            Header contentRange = response.getFirstHeader("Content-Range");
+            if (statusCode != HttpStatus.SC_PARTIAL_CONTENT || contentRange == null
+                    || !contentRange.getValue().trim().startsWith("bytes " + offset + "-")) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                throw new RangeNotSupportedException("Range " + offset + " of " + recordingUrl
+                        + " was not returned (status " + statusCode + ", Content-Range "
+                        + (contentRange != null ? contentRange.getValue() : null) + ").");
+            }
+        }
+        return response.getEntity().getContent();
+    }
+
+    /**
+     * @param httpClient   to be used
+     * @param recordingUrl of recording data
+     * @return length of recording data when the TCS supports downloading of ranges of the recording data,
+     *         {@code -1} otherwise
+     */
+    private long getRangeContentLength(HttpClient httpClient, String recordingUrl)
+    {
+        try {
+            HttpHead request = new HttpHead(recordingUrl);
+            HttpResponse response = httpClient.execute(request);
+            EntityUtils.consumeQuietly(response.getEntity());
+            Header acceptRanges = response.getFirstHeader("Accept-Ranges");
+            Header contentLength = response.getFirstHeader("Content-Length");
+            if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK
+                    || acceptRanges == null || !"bytes".equals(acceptRanges.getValue()) || contentLength == null) {
+                return -1;
+            }
+            return Long.parseLong(contentLength.getValue());
+        }
+        catch (Exception exception) {
+            logger.debug("Checking of range support for " + recordingUrl + " failed.", exception);
+            return -1;
         }
     }
 
@@ -1504,91 +1632,108 @@ public class CiscoTCSConnector extends AbstractDeviceConnector implements Record
     }
 
     /**
-     * Check if all recordings are stored, otherwise move them to appropriate folder (asks controller for folder name)
+     * Check if all recordings are stored, otherwise queue them for moving to appropriate folder
      *
+     * @return identifiers of queued recordings
      * @throws CommandException
      */
-    private ExecutorService performCheckRecordings() throws CommandException
+    private List<String> performCheckRecordings() throws CommandException
     {
-        ExecutorService exec = Executors.newFixedThreadPool(NUM_OF_THREADS);
-        try {
-            List<Recording> recordingsToMove = new LinkedList<Recording>();
-            synchronized (CiscoTCSConnector.class) {
-                logger.debug("Checking recordings to be moved...");
-                List<Recording> recordings = listTcsRecordings("*");
-                logger.debug("Checking " + recordings.size() + " recordings...");
-                if (recordings.size() > 0) {
-                    Set<String> recordingFolderIds = getRecordingFolderIds();
-                    for (Recording recording : recordings) {
-                        try {
-                            String recordingId = recording.getId();
-                            String recordingFolderId = recording.getRecordingFolderId();
-                            if (!recordingFolderIds.contains(recordingFolderId)) {
-                                continue;
-                            }
-                            if (!isTcsRecordingReadyForMoving(recording)) {
-                                continue;
-                            }
-                            synchronized (recordingsBeingMoved) {
-                                if (recordingsBeingMoved.containsKey(recordingId)) {
-                                    continue;
-                                }
-                                recordingsBeingMoved.put(recordingId, recordingFolderId);
-                            }
-                            recordingsToMove.add(recording);
+        List<String> queuedRecordingIds = new LinkedList<String>();
+        synchronized (recordingFoldersLock) {
+            logger.debug("Checking recordings to be moved...");
+            List<Recording> recordings = listTcsRecordings("*");
+            logger.debug("Checking " + recordings.size() + " recordings...");
+            if (recordings.size() > 0) {
+                Set<String> recordingFolderIds = getRecordingFolderIds();
+                for (Recording recording : recordings) {
+                    try {
+                        String recordingFolderId = recording.getRecordingFolderId();
+                        if (!recordingFolderIds.contains(recordingFolderId)) {
+                            continue;
                         }
-                        catch (Exception exception) {
-                            logger.warn("Recordings CheckAndMove failed.", exception);
+                        if (!isTcsRecordingReadyForMoving(recording)) {
                             continue;
                         }
+                        if (!recordingMoveQueue.add(recording.getId(), recordingFolderId,
+                                RecordingMoveQueue.PRIORITY_NORMAL)) {
+                            break;
+                        }
+                        queuedRecordingIds.add(recording.getId());
+                    }
+                    catch (Exception exception) {
+                        logger.warn("Recordings CheckAndMove failed.", exception);
+                        continue;
                     }
-                    logger.debug("Number of recordings to move at the time: " + recordingsBeingMoved.size() + "");
                 }
+                logger.debug("Number of recordings to move at the time: " + recordingMoveQueue.size() + "");
             }
+        }
+        return queuedRecordingIds;
+    }
 
-            for (final Recording recording : recordingsToMove) {
-                exec.submit(new Runnable()
-                {
-                    @Override
-                    public void run()
-                    {
-                        String recordingId = recording.getId();
-                        try {
-                            moveRecordingToAppropriateRecordingFolder(recordingId);
-                        }
-                        catch (Exception exception) {
-                            logger.error("Error while moving recording " + recordingId + ".", exception);
-                            String recordingFolderId = getRecordingFolderIdFromRecordingId(recordingId);
-                            String recordingTcsId = getRecordingTcsIdFromRecordingId(recordingId);
-                            NotifyTarget notifyTarget = new NotifyTarget(Service.NotifyTargetType.RESOURCE_ADMINS);
-                            notifyTarget.addMessage("en",
-                                    "Moving recording from TCS failed",
-                                    "Error ocured while moving recording.\n"
-                                            + "Recording TCS ID: " + recordingTcsId + "\n"
-                                            + "Recording folder ID: " + recordingFolderId + "\n"
-                                            + "Recording filename: " + recording.getFileName() + "\n\n"
-                                            + "Thrown exception: " + exception);
-                            notifyTarget.addMessage("cs",
-                                    "Přesunutí nahrávky z TCS selhalo",
-                                    "Nastala chyba při přesouvání nahrávky.\n"
-                                            + "TCS ID nahrávky: " + recordingTcsId + "\n"
-                                            + "ID složky: " + recordingFolderId + "\n"
-                                            + "Název souboru nahrávky: " + recording.getFileName() + "\n\n"
-                                            + "Vyhozená výjimka: " + exception);
-                            try {
-                                performControllerAction(notifyTarget);
-                            }
-                            catch (CommandException notifyException) {
-                                logger.error("Failed to report that moving of recording has failed.", notifyException);
-                            }
-                        }
-                    }
-                });
-            }
-            return exec;
+    /**
+     * Move recording from {@link #recordingMoveQueue}.
+     *
+     * @param recordingId to be moved
+     * @return true whether the recording has been moved (or it shouldn't be moved anymore),
+     *         false when the recording isn't ready to be moved yet
+     * @throws CommandException
+     */
+    private boolean performMoveRecording(String recordingId) throws CommandException
+    {
+        String recordingTcsId = getRecordingTcsIdFromRecordingId(recordingId);
+        Element recordingTcsElement = getTcsRecordingElement(recordingTcsId);
+        if (recordingTcsElement == null) {
+            // Recording has been already moved or deleted
+            return true;
+        }
+        Recording recording = parseRecording(recordingTcsElement);
+        if (!getRecordingFolderIds().contains(recording.getRecordingFolderId())) {
+            // Recording folder has been deleted
+            return true;
+        }
+        if (!isTcsRecordingReadyForMoving(recording)) {
+            return false;
+        }
+        moveRecordingToAppropriateRecordingFolder(recordingId);
+        return true;
+    }
+
+    /**
+     * Notify resource administrators that moving of recording has failed.
+     *
+     * @param recordingId  of recording which failed to be moved
+     * @param attemptCount number of failed attempts
+     * @param exception    which was thrown by the last attempt
+     */
+    private void notifyMovingRecordingFailed(String recordingId, int attemptCount, Exception exception)
+    {
+        logger.error("Error while moving recording " + recordingId + " (" + attemptCount + " attempts).", exception);
+        String recordingFolderId = getRecordingFolderIdFromRecordingId(recordingId);
+        String recordingTcsId = getRecordingTcsIdFromRecordingId(recordingId);
+        NotifyTarget notifyTarget = new NotifyTarget(Service.NotifyTargetType.RESOURCE_ADMINS);
+        notifyTarget.addMessage("en",
+                "Moving recording from TCS failed",
+                "Error ocured while moving recording.\n"
+                        + "Recording TCS ID: " + recordingTcsId + "\n"
+                        + "Recording folder ID: " + recordingFolderId + "\n"
+                        + "Recording ID: " + recordingId + "\n"
+                        + "Number of attempts: " + attemptCount + "\n\n"
+                        + "Thrown exception: " + exception);
+        notifyTarget.addMessage("cs",
+                "Přesunutí nahrávky z TCS selhalo",
+                "Nastala chyba při přesouvání nahrávky.\n"
+                        + "TCS ID nahrávky: " + recordingTcsId + "\n"
+                        + "ID složky: " + recordingFolderId + "\n"
+                        + "ID nahrávky: " + recordingId + "\n"
+                        + "Počet pokusů: " + attemptCount + "\n\n"
+                        + "Vyhozená výjimka: " + exception);
+        try {
+            performControllerAction(notifyTarget);
         }
-        finally {
-            exec.shutdown();
+        catch (CommandException notifyException) {
+            logger.error("Failed to report that moving of recording has failed.", notifyException);
         }
     }
 
@@ -12,10 +12,13 @@ import cz.cesnet.shongo.connector.api.ConnectorInitException;
 import cz.cesnet.shongo.connector.api.jade.ConnectorCommand;
 import cz.cesnet.shongo.connector.api.jade.ConnectorOntology;
 import cz.cesnet.shongo.connector.common.AbstractConnector;
+import cz.cesnet.shongo.connector.common.AbstractDeviceConnector;
+import cz.cesnet.shongo.connector.common.DeviceStatePublisher;
 import cz.cesnet.shongo.controller.ControllerScope;
 import cz.cesnet.shongo.controller.api.jade.ControllerOntology;
 import cz.cesnet.shongo.jade.*;
 import jade.core.AID;
+import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +44,11 @@ public class ConnectorAgent extends Agent
      */
     private String cachedControllerAgentName;
 
+    /**
+     * {@link DeviceStatePublisher} which pushes the state of managed device to the controller.
+     */
+    private DeviceStatePublisher deviceStatePublisher;
+
     @Override
     protected void setup()
     {
@@ -65,6 +73,14 @@ public class ConnectorAgent extends Agent
         addOntology(ConnectorOntology.getInstance());
         addOntology(ControllerOntology.getInstance());
         setCommandTimeout((int) connectorContainerConfiguration.getJadeCommandTimeout().getMillis());
+        setCommandThreadCount(connectorContainerConfiguration.getInt(
+                ConnectorContainerConfiguration.JADE_COMMAND_THREAD_COUNT,
+                CommandResponderBehaviour.DEFAULT_THREAD_COUNT));
+        setCommandQueueSize(connectorContainerConfiguration.getInt(
+                ConnectorContainerConfiguration.JADE_COMMAND_QUEUE_SIZE,
+                CommandResponderBehaviour.DEFAULT_QUEUE_SIZE));
+        setBinaryContentEnabled(connectorContainerConfiguration.getBoolean(
+                ConnectorContainerConfiguration.JADE_BINARY_CONTENT, true));
 
         // Create and initialize connector
         Class<? extends CommonService> connectorClass;
@@ -85,6 +101,14 @@ public class ConnectorAgent extends Agent
             }
             connectorService.connect(connectorConfiguration);
             logger.info("Connector managed: {}", connectorService.getStatus());
+
+            Duration deviceStatePeriod =
+                    connectorConfiguration.getOptionDuration(DeviceStatePublisher.DEVICE_STATE_PERIOD, null);
+            if (deviceStatePeriod != null && connectorService instanceof AbstractDeviceConnector) {
+                deviceStatePublisher = new DeviceStatePublisher(
+                        (AbstractDeviceConnector) connectorService, (int) deviceStatePeriod.getMillis());
+                deviceStatePublisher.start();
+            }
         }
         catch (NoSuchMethodException exception) {
             throw new ConnectorInitException("Invalid connector class: " + connectorClass +
@@ -114,6 +138,10 @@ public class ConnectorAgent extends Agent
     @Override
     protected void takeDown()
     {
+        if (deviceStatePublisher != null) {
+            deviceStatePublisher.stop();
+            deviceStatePublisher = null;
+        }
         if (connectorService != null) {
             try {
                 connectorService.disconnect();
@@ -144,29 +172,36 @@ public class ConnectorAgent extends Agent
     }
 
     @Override
-    public SendLocalCommand sendCommand(String receiverAgentName, Command command)
+    public SendLocalCommand sendCommandAsync(String receiverAgentName, final Command command)
     {
         ConnectorContainer.requestedCommands.info("Action:{} {}.", command.getId(), command);
-        SendLocalCommand sendLocalCommand = super.sendCommand(receiverAgentName, command);
-        String commandState;
-        switch (sendLocalCommand.getState()) {
-            case SUCCESSFUL:
-                Object result = sendLocalCommand.getResult();
-                if (result != null && result instanceof String) {
-                    commandState = String.format("OK: %s", result);
-                }
-                else {
-                    commandState = "OK";
+        SendLocalCommand sendLocalCommand = super.sendCommandAsync(receiverAgentName, command);
+        sendLocalCommand.addListener(new SendLocalCommand.Listener()
+        {
+            @Override
+            public void onProcessed(SendLocalCommand sendLocalCommand)
+            {
+                String commandState;
+                switch (sendLocalCommand.getState()) {
+                    case SUCCESSFUL:
+                        Object result = sendLocalCommand.getResult();
+                        if (result != null && result instanceof String) {
+                            commandState = String.format("OK: %s", result);
+                        }
+                        else {
+                            commandState = "OK";
+                        }
+                        break;
+                    case FAILED:
+                        commandState = String.format("FAILED: %s", sendLocalCommand.getJadeReport().getMessage());
+                        break;
+                    default:
+                        commandState = "UNKNOWN";
+                        break;
                 }
-                break;
-            case FAILED:
-                commandState = String.format("FAILED: %s", sendLocalCommand.getJadeReport().getMessage());
-                break;
-            default:
-                commandState = "UNKNOWN";
-                break;
-        }
-        ConnectorContainer.requestedCommands.info("Action:{} Done ({}).", command.getId(), commandState);
+                ConnectorContainer.requestedCommands.info("Action:{} Done ({}).", command.getId(), commandState);
+            }
+        });
         return sendLocalCommand;
     }
 
@@ -7,10 +7,15 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * {@link LocalStorageHandler} can manage file and folders in local directory.
@@ -31,6 +36,37 @@ public class LocalStorageHandler
      */
     private final int WAIT_SLEEP = 100;
 
+    /**
+     * Size in bytes of direct buffer which is used for copying file content.
+     */
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Maximum number of parts of a single file which are downloaded in parallel.
+     */
+    public static final int MAX_PART_COUNT = 4;
+
+    /**
+     * Maximum number of direct buffers in {@link #bufferPool}.
+     */
+    private static final int MAX_BUFFER_POOL_SIZE = 2 * MAX_PART_COUNT;
+
+    /**
+     * Default value for {@link #partLength}.
+     */
+    public static final long DEFAULT_PART_LENGTH = 64L * 1024 * 1024;
+
+    /**
+     * Suffix of temporary file to which the parts are downloaded in parallel (the file is renamed when all parts
+     * are downloaded and thus an incomplete file never has the name of the created file).
+     */
+    public static final String PART_FILE_SUFFIX = ".part";
+
+    /**
+     * Maximum duration in milliseconds to wait for parts to be stopped.
+     */
+    private static final long PART_STOP_TIMEOUT = 10000;
+
     /**
      * URL of the {@link LocalStorageHandler}.
      */
@@ -41,6 +77,17 @@ public class LocalStorageHandler
      */
     private List<String> foldersBeingDeleted = new CopyOnWriteArrayList<String>();
 
+    /**
+     * Minimum length in bytes of a part of file which is downloaded in parallel.
+     */
+    private long partLength = DEFAULT_PART_LENGTH;
+
+    /**
+     * Pool of direct buffers of {@link #BUFFER_SIZE} for copying file content (allocation of direct buffers
+     * is expensive and their memory is released only by garbage collection).
+     */
+    private final BlockingQueue<ByteBuffer> bufferPool = new ArrayBlockingQueue<ByteBuffer>(MAX_BUFFER_POOL_SIZE);
+
     /**
      * Map of files to be created or that are being copied now (entry key represents a fileId and entry value
      * represents a recordingFolderId of folder for the file to be created in)
@@ -195,6 +242,277 @@ public class LocalStorageHandler
      * @param resumeSupport to be used for re-opening given {@code fileContent}
      */
     public void createFile(File file, InputStream fileContent, ResumeSupport resumeSupport)
+    {
+        FileTransfer transfer = startFileTransfer(file, -1);
+        boolean created = false;
+        try {
+            transferFilePart(transfer, fileContent, resumeSupport, 0, -1);
+            transfer.logStatistics(1);
+            created = true;
+        }
+        catch (IOException exception) {
+            throw new RuntimeException("File '" + transfer.fileUrl + "' cannot be created.", exception);
+        }
+        finally {
+            if (!created && !getFileInstance(transfer.fileUrl).delete()) {
+                logger.warn("Incomplete file {} cannot be deleted.", transfer.fileUrl);
+            }
+            finishFileTransfer(transfer);
+        }
+    }
+
+    /**
+     * Create a new file in existing folder by downloading the file content in multiple parts in parallel
+     * (temporary file with {@link #PART_FILE_SUFFIX} is preallocated, each part is written to its position in it and
+     * it is renamed to the file when all parts are downloaded, otherwise it is deleted).
+     *
+     * @param file         information about the new file
+     * @param rangeSupport to be used for opening parts of the file content
+     */
+    public void createFile(File file, final RangeSupport rangeSupport)
+    {
+        long contentLength = rangeSupport.getContentLength();
+        if (contentLength < 0) {
+            createFileSequentially(file, rangeSupport);
+            return;
+        }
+
+        final FileTransfer transfer = startFileTransfer(file, contentLength);
+        if (transfer.resumeOffset > 0) {
+            resumeFile(file, transfer, rangeSupport, contentLength);
+            return;
+        }
+        transfer.contentUrl = transfer.fileUrl + PART_FILE_SUFFIX;
+        int partCount = (int) Math.max(1, Math.min(MAX_PART_COUNT, contentLength / partLength));
+        long partSize = (contentLength + partCount - 1) / partCount;
+        ExecutorService executorService = Executors.newFixedThreadPool(partCount);
+        boolean created = false;
+        boolean rangeNotSupported = false;
+        try {
+            // Preallocate the temporary file (which is rewritten when it is left from previous creation)
+            RandomAccessFile randomAccessFile = new RandomAccessFile(transfer.contentUrl, "rw");
+            try {
+                randomAccessFile.setLength(contentLength);
+            }
+            finally {
+                randomAccessFile.close();
+            }
+
+            // Download parts in parallel
+            List<Future<Object>> futures = new LinkedList<Future<Object>>();
+            for (int part = 0; part < partCount; part++) {
+                final long offset = part * partSize;
+                final long length = Math.min(partSize, contentLength - offset);
+                futures.add(executorService.submit(new Callable<Object>()
+                {
+                    @Override
+                    public Object call() throws Exception
+                    {
+                        transferFilePart(transfer, rangeSupport.openInputStream(offset, length),
+                                getPartResumeSupport(rangeSupport, offset, length), offset, length);
+                        return null;
+                    }
+                }));
+            }
+            Throwable failure = null;
+            for (Future<Object> future : futures) {
+                try {
+                    future.get();
+                }
+                catch (ExecutionException exception) {
+                    // Stop other parts
+                    transfer.stopped = true;
+                    if (failure == null) {
+                        failure = exception.getCause();
+                    }
+                }
+            }
+            if (failure != null) {
+                if (isRangeNotSupported(failure)) {
+                    logger.warn("Ranges cannot be opened for file {} ({}), creating it sequentially...",
+                            transfer.fileUrl, failure.getMessage());
+                    rangeNotSupported = true;
+                }
+                else {
+                    throw new RuntimeException("File '" + transfer.fileUrl + "' cannot be created.", failure);
+                }
+            }
+            else {
+                if (!getFileInstance(transfer.contentUrl).renameTo(getFileInstance(transfer.fileUrl))) {
+                    throw new IOException("File '" + transfer.contentUrl + "' cannot be renamed.");
+                }
+                created = true;
+                transfer.logStatistics(partCount);
+            }
+        }
+        catch (IOException exception) {
+            throw new RuntimeException("File '" + transfer.fileUrl + "' cannot be created.", exception);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Creation of file '" + transfer.fileUrl + "' has been interrupted.", exception);
+        }
+        finally {
+            if (created) {
+                executorService.shutdown();
+            }
+            else {
+                // Stop all parts before the incomplete file is deleted (otherwise they could create it again)
+                transfer.stopped = true;
+                stopParts(executorService);
+                if (!getFileInstance(transfer.contentUrl).delete()) {
+                    logger.warn("Incomplete file {} cannot be deleted.", transfer.contentUrl);
+                }
+            }
+            finishFileTransfer(transfer);
+        }
+
+        // Fallback to sequential creation
+        if (rangeNotSupported) {
+            createFileSequentially(file, rangeSupport);
+        }
+    }
+
+    /**
+     * Resume creation of incomplete file by downloading the rest of the file content from
+     * {@link FileTransfer#resumeOffset} (when ranges aren't supported the incomplete file is deleted and
+     * the file is created sequentially).
+     *
+     * @param file          information about the new file
+     * @param transfer      for the incomplete file
+     * @param rangeSupport  to be used for opening the rest of the file content
+     * @param contentLength length of the whole file content
+     */
+    private void resumeFile(File file, FileTransfer transfer, RangeSupport rangeSupport, long contentLength)
+    {
+        long offset = transfer.resumeOffset;
+        long length = contentLength - offset;
+        boolean rangeNotSupported = false;
+        logger.info("Resuming creation of incomplete file {} at {}...", transfer.fileUrl, offset);
+        try {
+            transferFilePart(transfer, rangeSupport.openInputStream(offset, length),
+                    getPartResumeSupport(rangeSupport, offset, length), offset, length);
+            transfer.logStatistics(1);
+        }
+        catch (Exception exception) {
+            if (!isRangeNotSupported(exception)) {
+                // Incomplete file is kept to be resumed next time
+                throw new RuntimeException("File '" + transfer.fileUrl + "' cannot be created.", exception);
+            }
+            logger.warn("Range cannot be opened for incomplete file {} ({}), creating it sequentially...",
+                    transfer.fileUrl, exception.getMessage());
+            if (!getFileInstance(transfer.fileUrl).delete()) {
+                throw new RuntimeException("Incomplete file '" + transfer.fileUrl + "' cannot be deleted.",
+                        exception);
+            }
+            rangeNotSupported = true;
+        }
+        finally {
+            finishFileTransfer(transfer);
+        }
+
+        // Fallback to sequential creation
+        if (rangeNotSupported) {
+            createFileSequentially(file, rangeSupport);
+        }
+    }
+
+    /**
+     * Create a new file in existing folder by reading the whole file content by single input stream.
+     *
+     * @param file         information about the new file
+     * @param rangeSupport to be used for opening the file content
+     */
+    private void createFileSequentially(File file, RangeSupport rangeSupport)
+    {
+        InputStream fileContent;
+        try {
+            fileContent = rangeSupport.openInputStream(0, -1);
+        }
+        catch (IOException exception) {
+            throw new RuntimeException("Opening input stream failed for creation of file " +
+                    file.getFolderId() + ":" + file.getFileName() + ".", exception);
+        }
+        createFile(file, fileContent, rangeSupport);
+    }
+
+    /**
+     * Interrupt all parts which are being downloaded by given {@code executorService} and wait for them to stop.
+     *
+     * @param executorService by which the parts are downloaded
+     */
+    private static void stopParts(ExecutorService executorService)
+    {
+        executorService.shutdownNow();
+        // The current thread can be already interrupted and thus clear the flag during the waiting
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (!executorService.awaitTermination(PART_STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                logger.warn("Parts haven't been stopped in {} ms.", PART_STOP_TIMEOUT);
+            }
+        }
+        catch (InterruptedException exception) {
+            interrupted = true;
+        }
+        finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @param rangeSupport to be used for re-opening the part
+     * @param offset       at which the part starts
+     * @param length       of the part
+     * @return {@link ResumeSupport} which re-opens the part of the file content from given position
+     */
+    private static ResumeSupport getPartResumeSupport(final RangeSupport rangeSupport, final long offset,
+            final long length)
+    {
+        return new ResumeSupport()
+        {
+            @Override
+            public InputStream reopenInputStream(InputStream oldInputStream, long partOffset) throws IOException
+            {
+                closeQuietly(oldInputStream);
+                return rangeSupport.openInputStream(partOffset, offset + length - partOffset);
+            }
+        };
+    }
+
+    /**
+     * @param throwable to be checked
+     * @return true whether given {@code throwable} is caused by {@link RangeNotSupportedException},
+     *         false otherwise
+     */
+    private static boolean isRangeNotSupported(Throwable throwable)
+    {
+        while (throwable != null) {
+            if (throwable instanceof RangeNotSupportedException) {
+                return true;
+            }
+            throwable = throwable.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * @param minimumPartLength sets the {@link #partLength}
+     */
+    public void setPartLength(long minimumPartLength)
+    {
+        this.partLength = minimumPartLength;
+    }
+
+    /**
+     * @param file          to be created
+     * @param contentLength length of the file content or {@code -1} when it isn't known
+     *                      (an existing file shorter than known {@code contentLength} is considered incomplete
+     *                      and the {@link FileTransfer#resumeOffset} is set to its length)
+     * @return new {@link FileTransfer} for given {@code file}
+     */
+    private FileTransfer startFileTransfer(File file, long contentLength)
     {
         String folderId = file.getFolderId();
         String folderUrl = getUrlFromId(folderId);
@@ -202,121 +520,190 @@ public class LocalStorageHandler
         String fileName = file.getFileName();
         String fileUrl = getChildUrl(folderUrl, fileName);
 
-        if (getFileInstance(fileUrl).exists()) {
-            throw new RuntimeException("File '" + fileUrl + "' already exists.");
+        // File which is created in parallel parts doesn't exist until all parts are downloaded
+        if (folderUrl.equals(filesBeingCreated.get(fileName))) {
+            throw new RuntimeException("File '" + fileUrl + "' is already being created.");
+        }
+        long resumeOffset = 0;
+        java.io.File ioFile = getFileInstance(fileUrl);
+        if (ioFile.exists()) {
+            resumeOffset = ioFile.length();
+            if (resumeOffset >= contentLength) {
+                throw new RuntimeException("File '" + fileUrl + "' already exists.");
+            }
         }
 
         if (folderId != null) {
             filesBeingCreated.put(fileName, folderUrl);
         }
+        FileTransfer transfer = new FileTransfer(folderId, folderUrl, fileName, fileUrl);
+        transfer.resumeOffset = resumeOffset;
+        return transfer;
+    }
+
+    /**
+     * @param transfer which has been finished (successfully or not)
+     */
+    private void finishFileTransfer(FileTransfer transfer)
+    {
+        filesBeingCreated.remove(transfer.fileName, transfer.folderUrl);
+    }
+
+    /**
+     * Copy content from given {@code inputStream} to given part of the file by a large pooled direct buffer. Reading is
+     * resumed by given {@code resumeSupport} from the position up to which the content has been read and writing
+     * is resumed by reopening the file (each write is done at explicit position in the file).
+     *
+     * @param transfer      to which the part belongs
+     * @param inputStream   from which the content of the part can be read
+     * @param resumeSupport to be used for re-opening given {@code inputStream} or {@code null}
+     * @param offset        in the file at which the part starts
+     * @param length        of the part or {@code -1} when the part ends with the end of {@code inputStream}
+     * @throws IOException when the content cannot be read or written
+     */
+    private void transferFilePart(FileTransfer transfer, InputStream inputStream, ResumeSupport resumeSupport,
+            long offset, long length) throws IOException
+    {
+        String message = "Creation of file " + transfer.folderUrl + "/" + transfer.fileName + ": ";
+        long end = (length >= 0 ? offset + length : Long.MAX_VALUE);
+        long position = offset;
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        ReadableByteChannel inputChannel = Channels.newChannel(inputStream);
+        FileChannel fileChannel = null;
         try {
-            int fileContentIndex = 0;
-            OutputStream fileOutputStream = new FileOutputStream(fileUrl);
-            byte[] buffer = new byte[4096];
-            while (true) {
+            fileChannel = new RandomAccessFile(transfer.contentUrl, "rw").getChannel();
+            boolean endOfContent = false;
+            while (!endOfContent && position < end) {
                 // Read next bytes into buffer
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
                 int readResumeCount = MAX_RESUME_COUNT;
-                int bytesRead;
-                while (true) {
+                while (buffer.hasRemaining()) {
                     try {
-                        bytesRead = fileContent.read(buffer, 0, buffer.length);
+                        if (inputChannel.read(buffer) == -1) {
+                            if (length >= 0) {
+                                throw new EOFException("Content ended before " + end + ".");
+                            }
+                            endOfContent = true;
+                            break;
+                        }
                         readResumeCount = MAX_RESUME_COUNT;
-                        break;
                     }
                     catch (IOException exception) {
+                        // Position up to which the content has been read
+                        long readPosition = position + buffer.position();
+
                         // Check if resume isn't available
-                        if (resumeSupport == null || --readResumeCount <= 0) {
+                        if (resumeSupport == null || --readResumeCount <= 0 || transfer.stopped) {
                             throw exception;
                         }
 
-                        String message = "Creation of file " + folderUrl + "/" + fileName + ": ";
-                        logger.warn(message + "Reading data failed at " + fileContentIndex + ".", exception);
+                        logger.warn(message + "Reading data failed at " + readPosition + ".", exception);
 
                         // Wait before resuming
-                        try {
-                            Thread.sleep(WAIT_SLEEP);
-                        }
-                        catch (InterruptedException sleepException) {
-                            logger.warn("Thread.sleep", sleepException);
-                        }
+                        waitBeforeResume();
 
                         // Reopen file content stream
-                        logger.info(message + "Trying to resume the reading the data at {}...", fileContentIndex);
+                        logger.info(message + "Trying to resume the reading the data at {}...", readPosition);
                         try {
-                            fileContent = resumeSupport.reopenInputStream(fileContent, fileContentIndex);
+                            inputStream = resumeSupport.reopenInputStream(inputStream, readPosition);
+                            inputChannel = Channels.newChannel(inputStream);
+                            transfer.resumeCount.incrementAndGet();
                             logger.info(message + "Resume succeeded, continuing in file creation...");
                         }
                         catch (Exception resumeException) {
                             throw new RuntimeException("Reopening input stream failed for creation of file " +
-                                    folderUrl + "/" + fileName + ".", resumeException);
+                                    transfer.folderUrl + "/" + transfer.fileName + ".", resumeException);
                         }
                     }
                     catch (Exception exception) {
                         throw new RuntimeException("Reading input stream failed for creation of file " +
-                                folderUrl + "/" + fileName + " at " + fileContentIndex + ".", exception);
+                                transfer.folderUrl + "/" + transfer.fileName + " at " +
+                                (position + buffer.position()) + ".", exception);
                     }
                 }
 
-                // Check for end of file content
-                if (bytesRead == -1) {
-                    break;
-                }
                 // Check if folder isn't already deleted
-                if (foldersBeingDeleted.contains(file.getFolderId())) {
-                    logger.warn("Creation of file " + folderUrl + "/" + fileName +
-                            " has been stopped because folder " + folderId + " is being deleted.");
+                if (foldersBeingDeleted.contains(transfer.folderId)) {
+                    logger.warn("Creation of file " + transfer.folderUrl + "/" + transfer.fileName +
+                            " has been stopped because folder " + transfer.folderId + " is being deleted.");
+                    transfer.stopped = true;
+                }
+                // Check if the transfer isn't already stopped (e.g., other part failed)
+                if (transfer.stopped) {
                     break;
                 }
+
                 // Write bytes from buffer
+                buffer.flip();
                 int writeResumeCount = MAX_RESUME_COUNT;
-                while (true) {
+                while (buffer.hasRemaining()) {
                     try {
-                        fileOutputStream.write(buffer, 0, bytesRead);
+                        int bytesWritten = fileChannel.write(buffer, position);
+                        position += bytesWritten;
+                        transfer.transferredBytes.addAndGet(bytesWritten);
                         writeResumeCount = MAX_RESUME_COUNT;
-                        break;
                     }
                     catch (IOException exception) {
-                        // Close output stream
-                        fileOutputStream.close();
+                        // Close file channel
+                        closeQuietly(fileChannel);
 
                         // Check if resume isn't available
                         if (--writeResumeCount <= 0) {
                             throw exception;
                         }
 
-                        // Resume writing
+                        // Resume writing at the same position
                         try {
-                            fileOutputStream = new FileOutputStream(fileUrl);
+                            fileChannel = new RandomAccessFile(transfer.contentUrl, "rw").getChannel();
                         }
                         catch (Exception resumeException) {
                             throw new RuntimeException("Reopening output stream failed for creation of file " +
-                                    file.getFolderId() + ":" + file.getFileName() + ".", resumeException);
+                                    transfer.folderId + ":" + transfer.fileName + ".", resumeException);
                         }
                         logger.warn("Writing file {}:{} failed at {}, resuming...", new Object[]{
-                                file.getFolderId(), file.getFileName(), fileContentIndex
+                                transfer.folderId, transfer.fileName, position
                         });
-                        try {
-                            Thread.sleep(WAIT_SLEEP);
-                        }
-                        catch (InterruptedException sleepException) {
-                            logger.warn("Thread.sleep", sleepException);
-                        }
+                        waitBeforeResume();
                     }
                 }
-
-
-                // Move file content
-                fileContentIndex += bytesRead;
             }
+        }
+        finally {
+            if (fileChannel != null) {
+                closeQuietly(fileChannel);
+            }
+            closeQuietly(inputStream);
+            bufferPool.offer(buffer);
+        }
+    }
 
-            fileContent.close();
-            fileOutputStream.close();
+    /**
+     * Sleep for {@link #WAIT_SLEEP} before resuming.
+     */
+    private void waitBeforeResume()
+    {
+        try {
+            Thread.sleep(WAIT_SLEEP);
         }
-        catch (IOException exception) {
-            throw new RuntimeException("File '" + fileUrl + "' cannot be created.", exception);
+        catch (InterruptedException sleepException) {
+            logger.warn("Thread.sleep", sleepException);
         }
-        finally {
-            filesBeingCreated.remove(fileName,folderUrl);
+    }
+
+    /**
+     * @param closeable to be closed (failure is only logged)
+     */
+    private static void closeQuietly(Closeable closeable)
+    {
+        try {
+            closeable.close();
+        }
+        catch (IOException exception) {
+            logger.debug("Closing failed.", exception);
         }
     }
 
@@ -519,4 +906,91 @@ public class LocalStorageHandler
         URI uri = constructURI(url);
         return new java.io.File(uri.getPath());
     }
+
+    /**
+     * State of a single creation of file.
+     */
+    private static class FileTransfer
+    {
+        /**
+         * Identifier of folder in which the file is created.
+         */
+        private final String folderId;
+
+        /**
+         * URL of folder in which the file is created.
+         */
+        private final String folderUrl;
+
+        /**
+         * Name of the file.
+         */
+        private final String fileName;
+
+        /**
+         * URL of the file.
+         */
+        private final String fileUrl;
+
+        /**
+         * URL of the file to which the content is written (the {@link #fileUrl} or a temporary file).
+         */
+        private String contentUrl;
+
+        /**
+         * Time in milliseconds when the creation started.
+         */
+        private final long startTime = System.currentTimeMillis();
+
+        /**
+         * Number of bytes which have been written to the file.
+         */
+        private final AtomicLong transferredBytes = new AtomicLong();
+
+        /**
+         * Number of resumes of reading.
+         */
+        private final AtomicInteger resumeCount = new AtomicInteger();
+
+        /**
+         * Specifies whether the creation should be stopped.
+         */
+        private volatile boolean stopped;
+
+        /**
+         * Length of the incomplete file from which the creation is resumed.
+         */
+        private long resumeOffset;
+
+        /**
+         * Constructor.
+         *
+         * @param folderId  sets the {@link #folderId}
+         * @param folderUrl sets the {@link #folderUrl}
+         * @param fileName  sets the {@link #fileName}
+         * @param fileUrl   sets the {@link #fileUrl}
+         */
+        public FileTransfer(String folderId, String folderUrl, String fileName, String fileUrl)
+        {
+            this.folderId = folderId;
+            this.folderUrl = folderUrl;
+            this.fileName = fileName;
+            this.fileUrl = fileUrl;
+            this.contentUrl = fileUrl;
+        }
+
+        /**
+         * Log throughput of the creation.
+         *
+         * @param partCount number of parts which have been downloaded in parallel
+         */
+        public void logStatistics(int partCount)
+        {
+            long duration = Math.max(1, System.currentTimeMillis() - startTime);
+            long bytes = transferredBytes.get();
+            logger.info("File {} created ({} bytes in {} ms, {} kB/s, parts: {}, resumes: {}).", new Object[]{
+                    fileUrl, bytes, duration, (bytes * 1000 / duration) / 1024, partCount, resumeCount.get()
+            });
+        }
+    }
 }
@@ -0,0 +1,23 @@
+package cz.cesnet.shongo.connector.storage;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link RangeSupport#openInputStream} when the requested range of the content can't be opened
+ * (e.g., the server ignored the range and it would return the whole content instead) and thus the content
+ * must be read sequentially from the beginning.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class RangeNotSupportedException extends IOException
+{
+    /**
+     * Constructor.
+     *
+     * @param message description of the failure
+     */
+    public RangeNotSupportedException(String message)
+    {
+        super(message);
+    }
+}
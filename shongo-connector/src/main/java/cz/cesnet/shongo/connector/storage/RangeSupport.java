@@ -0,0 +1,27 @@
+package cz.cesnet.shongo.connector.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link ResumeSupport} which can also open {@link java.io.InputStream} for any range of the content and thus
+ * the content can be downloaded by multiple parts in parallel.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public interface RangeSupport extends ResumeSupport
+{
+    /**
+     * @return length of the content in bytes or {@code -1} when it isn't known
+     */
+    long getContentLength();
+
+    /**
+     * @param offset at which the {@link java.io.InputStream} should be opened
+     * @param length of the range or {@code -1} for the rest of the content
+     * @return newly opened {@link java.io.InputStream} for given range of the content
+     * @throws RangeNotSupportedException when the range can't be opened and the content should be read
+     *                                    sequentially by {@code openInputStream(0, -1)}
+     */
+    InputStream openInputStream(long offset, long length) throws IOException;
+}
@@ -15,5 +15,5 @@ public interface ResumeSupport
      * @param offset         at which the {@link java.io.InputStream} should be reopened
      * @return newly opened {@link java.io.InputStream}
      */
-    InputStream reopenInputStream(InputStream oldInputStream, int offset) throws IOException;
+    InputStream reopenInputStream(InputStream oldInputStream, long offset) throws IOException;
 }
@@ -65,6 +65,14 @@ public interface Storage
      */
     void createFile(File file, InputStream fileContent, ResumeSupport resumeSupport);
 
+    /**
+     * Create a new file in existing folder in the storage by downloading the content in multiple parts in parallel.
+     *
+     * @param file         information about the new file
+     * @param rangeSupport to be used for opening parts of the file content
+     */
+    void createFile(File file, RangeSupport rangeSupport);
+
     /**
      * Delete existing file in the storage.
      *
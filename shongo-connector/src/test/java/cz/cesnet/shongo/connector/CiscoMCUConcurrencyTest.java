@@ -0,0 +1,126 @@
+package cz.cesnet.shongo.connector;
+
+import cz.cesnet.shongo.api.util.DeviceAddress;
+import cz.cesnet.shongo.connector.common.ConnectorConfigurationImpl;
+import cz.cesnet.shongo.connector.device.CiscoMCUConnector;
+import junit.framework.Assert;
+import org.apache.log4j.Level;
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.server.PropertyHandlerMapping;
+import org.apache.xmlrpc.server.XmlRpcErrorLogger;
+import org.apache.xmlrpc.server.XmlRpcServer;
+import org.apache.xmlrpc.server.XmlRpcServerConfigImpl;
+import org.apache.xmlrpc.webserver.WebServer;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for concurrent commands in {@link CiscoMCUConnector}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class CiscoMCUConcurrencyTest
+{
+    private static final AtomicInteger enumerateCount = new AtomicInteger();
+
+    private static final AtomicInteger runningCount = new AtomicInteger();
+
+    private static final AtomicInteger maxRunningCount = new AtomicInteger();
+
+    @Test
+    public void testConcurrentCommands() throws Exception
+    {
+        org.apache.log4j.Logger logger = org.apache.log4j.Logger.getLogger(XmlRpcErrorLogger.class);
+        logger.setLevel(Level.OFF);
+
+        WebServer webServer = new WebServer(0);
+        XmlRpcServer xmlRpcServer = webServer.getXmlRpcServer();
+        PropertyHandlerMapping handlerMapping = new PropertyHandlerMapping();
+        handlerMapping.addHandler("device", ConnectionResetTest.McuRpcDevice.class);
+        handlerMapping.addHandler("conference", McuRpcConference.class);
+        xmlRpcServer.setHandlerMapping(handlerMapping);
+        XmlRpcServerConfigImpl serverConfig = (XmlRpcServerConfigImpl) xmlRpcServer.getConfig();
+        serverConfig.setEnabledForExtensions(true);
+        serverConfig.setContentLengthOptional(false);
+        webServer.start();
+        try {
+            final CiscoMCUConnector connector = new CiscoMCUConnector();
+            connector.connect(new ConnectorConfigurationImpl(
+                    DeviceAddress.parseAddress("http://127.0.0.1:" + webServer.getPort()), "test", "test"));
+
+            final List<Throwable> failures = Collections.synchronizedList(new LinkedList<Throwable>());
+            List<Thread> threads = new LinkedList<Thread>();
+            for (int index = 0; index < 3; index++) {
+                threads.add(new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try {
+                            Assert.assertNotNull(connector.listRooms());
+                        }
+                        catch (Throwable throwable) {
+                            failures.add(throwable);
+                        }
+                    }
+                });
+            }
+            threads.add(new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        Assert.assertNull(connector.getRoom("test"));
+                    }
+                    catch (Throwable throwable) {
+                        failures.add(throwable);
+                    }
+                }
+            });
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            Assert.assertTrue(failures.toString(), failures.isEmpty());
+            // Identical enumerations should be coalesced
+            Assert.assertEquals(1, enumerateCount.get());
+            // Enumeration and status query should be performed at the same time
+            Assert.assertEquals(2, maxRunningCount.get());
+        }
+        finally {
+            webServer.shutdown();
+        }
+    }
+
+    public static class McuRpcConference
+    {
+        public Map enumerate(Map parameters) throws Exception
+        {
+            enumerateCount.incrementAndGet();
+            perform();
+            return new HashMap<String, String>();
+        }
+
+        public Map status(Map parameters) throws Exception
+        {
+            perform();
+            throw new XmlRpcException(4, "no such conference or auto attendant");
+        }
+
+        private void perform() throws InterruptedException
+        {
+            int currentCount = runningCount.incrementAndGet();
+            synchronized (maxRunningCount) {
+                maxRunningCount.set(Math.max(maxRunningCount.get(), currentCount));
+            }
+            Thread.sleep(500);
+            runningCount.decrementAndGet();
+        }
+    }
+}
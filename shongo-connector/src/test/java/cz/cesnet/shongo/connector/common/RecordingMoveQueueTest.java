@@ -0,0 +1,294 @@
+package cz.cesnet.shongo.connector.common;
+
+import junit.framework.Assert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests for {@link RecordingMoveQueue}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class RecordingMoveQueueTest
+{
+    private File journalFile;
+
+    @Before
+    public void before() throws Exception
+    {
+        journalFile = File.createTempFile("recordings-queue", null);
+        journalFile.delete();
+    }
+
+    @After
+    public void after() throws Exception
+    {
+        journalFile.delete();
+    }
+
+    /**
+     * Test that queued recordings are loaded from journal and moved by priority.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testJournalAndPriority() throws Exception
+    {
+        final List<String> movedRecordingIds = Collections.synchronizedList(new LinkedList<String>());
+        RecordingMoveQueue.Mover mover = new RecordingMoveQueue.Mover()
+        {
+            @Override
+            public boolean move(String recordingId) throws Exception
+            {
+                movedRecordingIds.add(recordingId);
+                return true;
+            }
+
+            @Override
+            public void onFailed(String recordingId, int attemptCount, Exception exception)
+            {
+                throw new IllegalStateException(recordingId);
+            }
+        };
+
+        // Queue recordings without moving them (e.g., the connector is stopped)
+        RecordingMoveQueue queue = new RecordingMoveQueue(mover, 1, 2, journalFile);
+        Assert.assertTrue(queue.add("folder1_rec1_1", "folder1", RecordingMoveQueue.PRIORITY_NORMAL));
+        Assert.assertTrue(queue.add("folder1_rec2_2", "folder1", RecordingMoveQueue.PRIORITY_NORMAL));
+        Assert.assertFalse(queue.add("folder2_rec3_3", "folder2", RecordingMoveQueue.PRIORITY_HIGH));
+        Assert.assertTrue(queue.add("folder1_rec2_2", "folder1", RecordingMoveQueue.PRIORITY_HIGH));
+        Assert.assertTrue(journalFile.exists());
+
+        // Restart and move the recordings from journal
+        queue = new RecordingMoveQueue(mover, 1, 2, journalFile);
+        queue.start();
+        try {
+            Assert.assertTrue(queue.awaitEmpty(10000));
+        }
+        finally {
+            queue.stop();
+        }
+        Assert.assertEquals(Arrays.asList("folder1_rec2_2", "folder1_rec1_1"), movedRecordingIds);
+
+        // Nothing should be loaded after the recordings have been moved
+        queue = new RecordingMoveQueue(mover, 1, 2, journalFile);
+        queue.start();
+        queue.stop();
+        Assert.assertEquals(0, queue.size());
+    }
+
+    /**
+     * Test retrying of recordings which failed to be moved or which aren't ready to be moved.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRetry() throws Exception
+    {
+        final Map<String, Integer> attemptCounts = new HashMap<String, Integer>();
+        final Map<String, Integer> failedAttemptCounts = new HashMap<String, Integer>();
+        RecordingMoveQueue queue = new RecordingMoveQueue(new RecordingMoveQueue.Mover()
+        {
+            @Override
+            public boolean move(String recordingId) throws Exception
+            {
+                int attemptCount;
+                synchronized (attemptCounts) {
+                    attemptCount = attemptCounts.containsKey(recordingId) ? attemptCounts.get(recordingId) + 1 : 1;
+                    attemptCounts.put(recordingId, attemptCount);
+                }
+                if (recordingId.startsWith("failing")) {
+                    throw new Exception("Moving of " + recordingId + " failed.");
+                }
+                if (recordingId.startsWith("retried") && attemptCount < 3) {
+                    throw new Exception("Moving of " + recordingId + " failed.");
+                }
+                if (recordingId.startsWith("unready") && attemptCount < 3) {
+                    return false;
+                }
+                return true;
+            }
+
+            @Override
+            public void onFailed(String recordingId, int attemptCount, Exception exception)
+            {
+                synchronized (failedAttemptCounts) {
+                    failedAttemptCounts.put(recordingId, attemptCount);
+                }
+            }
+        }, 2, 10, journalFile);
+        queue.setRetryDelay(1);
+        queue.setReadyCheckDelay(1);
+        queue.start();
+        try {
+            queue.add("retried_rec_1", "retried", RecordingMoveQueue.PRIORITY_NORMAL);
+            queue.add("unready_rec_2", "unready", RecordingMoveQueue.PRIORITY_NORMAL);
+            queue.add("failing_rec_3", "failing", RecordingMoveQueue.PRIORITY_NORMAL);
+            Assert.assertTrue(queue.awaitRemoved(Collections.singleton("unready_rec_2"), 10000));
+            Assert.assertTrue(queue.awaitEmpty(10000));
+        }
+        finally {
+            queue.stop();
+        }
+        Assert.assertEquals(Integer.valueOf(3), attemptCounts.get("retried_rec_1"));
+        Assert.assertEquals(Integer.valueOf(3), attemptCounts.get("unready_rec_2"));
+        Assert.assertEquals(Integer.valueOf(RecordingMoveQueue.MAX_ATTEMPT_COUNT), attemptCounts.get("failing_rec_3"));
+        Assert.assertEquals(Collections.singletonMap("failing_rec_3", RecordingMoveQueue.MAX_ATTEMPT_COUNT),
+                failedAttemptCounts);
+    }
+
+    /**
+     * Test that invalid records in journal are skipped and that journal is compacted.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testJournalRecords() throws Exception
+    {
+        final List<String> movedRecordingIds = Collections.synchronizedList(new LinkedList<String>());
+        RecordingMoveQueue.Mover mover = new RecordingMoveQueue.Mover()
+        {
+            @Override
+            public boolean move(String recordingId) throws Exception
+            {
+                movedRecordingIds.add(recordingId);
+                return true;
+            }
+
+            @Override
+            public void onFailed(String recordingId, int attemptCount, Exception exception)
+            {
+                throw new IllegalStateException(recordingId);
+            }
+        };
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(journalFile), "UTF-8");
+        try {
+            writer.write("+\tfolder1_rec1_1\tfolder1\t0\t0\n");
+            writer.write("folder1_rec5_5\tfolder1\t0\t0\n");
+            writer.write("invalid\n");
+            writer.write("+\tfolder1_rec2_2\tfolder1\tinvalid\t0\n");
+            writer.write("+\tfolder1_rec3_3\tfolder1\t0\t0\n");
+            writer.write("+\tfolder1_rec4_4\tfolder1\t0\t0\n");
+            writer.write("-\tfolder1_rec4_4\n");
+            writer.write("+\tfolder1_rec3_3\tfolder1\t1\t0\n");
+        }
+        finally {
+            writer.close();
+        }
+        RecordingMoveQueue queue = new RecordingMoveQueue(mover, 1, 10, journalFile);
+        queue.start();
+        try {
+            Assert.assertTrue(queue.awaitEmpty(10000));
+        }
+        finally {
+            queue.stop();
+        }
+        Assert.assertEquals(Arrays.asList("folder1_rec3_3", "folder1_rec1_1"), movedRecordingIds);
+
+        // Changes should be appended and the journal should be compacted
+        queue = new RecordingMoveQueue(mover, 1, 10, journalFile);
+        Assert.assertTrue(queue.add("folder1_rec1_1", "folder1", RecordingMoveQueue.PRIORITY_NORMAL));
+        Assert.assertTrue(queue.add("folder1_rec2_2", "folder1", RecordingMoveQueue.PRIORITY_NORMAL));
+        Assert.assertEquals(2, getLineCount(journalFile));
+        for (int index = 0; index < 3000; index++) {
+            queue.add("folder2_rec" + index + "_" + index, "folder2", RecordingMoveQueue.PRIORITY_NORMAL);
+            queue.removeFolder("folder2");
+        }
+        queue.stop();
+        Assert.assertTrue(getLineCount(journalFile) <= 1000);
+
+        movedRecordingIds.clear();
+        queue = new RecordingMoveQueue(mover, 1, 10, journalFile);
+        queue.start();
+        try {
+            Assert.assertTrue(queue.awaitEmpty(10000));
+        }
+        finally {
+            queue.stop();
+        }
+        Assert.assertEquals(Arrays.asList("folder1_rec1_1", "folder1_rec2_2"), movedRecordingIds);
+    }
+
+    /**
+     * Test that {@link RecordingMoveQueue#stop()} interrupts recordings which are being moved and that they remain
+     * in the journal.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStop() throws Exception
+    {
+        final CountDownLatch moveStarted = new CountDownLatch(1);
+        RecordingMoveQueue queue = new RecordingMoveQueue(new RecordingMoveQueue.Mover()
+        {
+            @Override
+            public boolean move(String recordingId) throws Exception
+            {
+                moveStarted.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                }
+                catch (InterruptedException exception) {
+                    // Moving finishes after the queue has been stopped
+                }
+                return true;
+            }
+
+            @Override
+            public void onFailed(String recordingId, int attemptCount, Exception exception)
+            {
+                throw new IllegalStateException(recordingId);
+            }
+        }, 1, 10, journalFile);
+        queue.start();
+        queue.add("folder1_rec1_1", "folder1", RecordingMoveQueue.PRIORITY_NORMAL);
+        moveStarted.await();
+        queue.stop();
+        File temporaryJournalFile = new File(journalFile.getPath() + ".tmp");
+        Assert.assertFalse(temporaryJournalFile.exists());
+        Assert.assertEquals(1, getLineCount(journalFile));
+
+        queue = new RecordingMoveQueue(new RecordingMoveQueue.Mover()
+        {
+            @Override
+            public boolean move(String recordingId) throws Exception
+            {
+                return false;
+            }
+
+            @Override
+            public void onFailed(String recordingId, int attemptCount, Exception exception)
+            {
+            }
+        }, 1, 10, journalFile);
+        queue.start();
+        queue.stop();
+        Assert.assertEquals(1, queue.size());
+    }
+
+    /**
+     * @param file
+     * @return number of lines in given {@code file}
+     * @throws IOException
+     */
+    private static int getLineCount(File file) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            int lineCount = 0;
+            while (reader.readLine() != null) {
+                lineCount++;
+            }
+            return lineCount;
+        }
+        finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package cz.cesnet.shongo.connector.common;
+
+import cz.cesnet.shongo.api.jade.CommandException;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for {@link RequestCoalescer}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class RequestCoalescerTest
+{
+    /**
+     * Test that a request which has been started before {@link RequestCoalescer#invalidateAll()} isn't joined.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInvalidate() throws Exception
+    {
+        final RequestCoalescer<String, String> coalescer = new RequestCoalescer<String, String>();
+        final CountDownLatch oldRequestStarted = new CountDownLatch(1);
+        final CountDownLatch oldRequestFinish = new CountDownLatch(1);
+        final AtomicReference<Object> oldResult = new AtomicReference<Object>();
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    oldResult.set(coalescer.execute("key", new RequestCoalescer.Request<String>()
+                    {
+                        @Override
+                        public String perform() throws CommandException
+                        {
+                            oldRequestStarted.countDown();
+                            try {
+                                oldRequestFinish.await();
+                            }
+                            catch (InterruptedException exception) {
+                                throw new CommandException("interrupted", exception);
+                            }
+                            return "old";
+                        }
+                    }));
+                }
+                catch (Throwable throwable) {
+                    oldResult.set(throwable);
+                }
+            }
+        };
+        thread.start();
+        try {
+            oldRequestStarted.await();
+
+            // Modification has been performed, so the old request mustn't be joined
+            coalescer.invalidateAll();
+            String newResult = coalescer.execute("key", new RequestCoalescer.Request<String>()
+            {
+                @Override
+                public String perform() throws CommandException
+                {
+                    return "new";
+                }
+            });
+            Assert.assertEquals("new", newResult);
+        }
+        finally {
+            oldRequestFinish.countDown();
+            thread.join();
+        }
+        Assert.assertEquals("old", oldResult.get());
+    }
+}
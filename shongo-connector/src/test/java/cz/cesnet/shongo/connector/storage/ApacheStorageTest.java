@@ -12,7 +12,9 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
-import java.util.HashMap;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests for {@link ApacheStorageTest}.
@@ -115,7 +117,7 @@ public class ApacheStorageTest
                 storage.createFile(new File(null, "test"), fileContent, new ResumeSupport()
                 {
                     @Override
-                    public InputStream reopenInputStream(InputStream oldInputStream, int offset) throws IOException
+                    public InputStream reopenInputStream(InputStream oldInputStream, long offset) throws IOException
                     {
                         ByteBufferInputStream inputStream = new ByteBufferInputStream(fileData);
                         long skipped = inputStream.skip(offset);
@@ -150,6 +152,314 @@ public class ApacheStorageTest
         }
     }
 
+    @Test
+    public void testParallelParts() throws Exception
+    {
+        // Prepare data
+        final int size = 1024 * 1024 * 10;
+        final ByteBuffer fileData = ByteBuffer.allocateDirect(size);
+        for (int index = 0; index < fileData.remaining(); index++) {
+            fileData.put((byte) (index % 251));
+        }
+        fileData.rewind();
+
+        // Create file by parts (each part fails in the middle and must be resumed)
+        LocalStorageHandler localStorageHandler = new LocalStorageHandler(storage.getUrl());
+        localStorageHandler.setPartLength(1024 * 1024);
+        final Set<Long> failedOffsets = Collections.synchronizedSet(new HashSet<Long>());
+        localStorageHandler.createFile(new File(null, "test"), new RangeSupport()
+        {
+            @Override
+            public long getContentLength()
+            {
+                return size;
+            }
+
+            @Override
+            public InputStream openInputStream(long offset, long length) throws IOException
+            {
+                ByteBuffer range = fileData.duplicate();
+                range.position((int) offset);
+                range.limit((int) (length >= 0 ? offset + length : size));
+                ByteBufferInputStream inputStream = new ByteBufferInputStream(range.slice());
+                if (offset % (size / LocalStorageHandler.MAX_PART_COUNT) == 0 && failedOffsets.add(offset)) {
+                    inputStream.setCloseAfterBytes((int) (length / 2));
+                }
+                return inputStream;
+            }
+
+            @Override
+            public InputStream reopenInputStream(InputStream oldInputStream, long offset) throws IOException
+            {
+                return openInputStream(offset, -1);
+            }
+        });
+        Assert.assertEquals(LocalStorageHandler.MAX_PART_COUNT, failedOffsets.size());
+
+        // Check file
+        java.io.File file = new java.io.File(LocalStorageHandler.getChildUrl(storage.getUrl(), "test"));
+        Assert.assertEquals(size, file.length());
+        InputStream inputStream = storage.getFileContent(null, "test");
+        try {
+            byte[] expected = new byte[size];
+            fileData.rewind();
+            fileData.get(expected);
+            byte[] actual = new byte[size];
+            new DataInputStream(inputStream).readFully(actual);
+            Assert.assertTrue(Arrays.equals(expected, actual));
+        }
+        finally {
+            inputStream.close();
+        }
+    }
+
+    @Test
+    public void testParallelPartsNotSupported() throws Exception
+    {
+        // Prepare data
+        final int size = 1024 * 1024 * 4;
+        final byte[] fileData = new byte[size];
+        for (int index = 0; index < size; index++) {
+            fileData[index] = (byte) (index % 251);
+        }
+
+        // Create file by parts when ranges are not supported (it should be created sequentially)
+        LocalStorageHandler localStorageHandler = new LocalStorageHandler(storage.getUrl());
+        localStorageHandler.setPartLength(1024 * 1024);
+        final List<Long> openedOffsets = Collections.synchronizedList(new LinkedList<Long>());
+        localStorageHandler.createFile(new File(null, "test"), new RangeSupport()
+        {
+            @Override
+            public long getContentLength()
+            {
+                return size;
+            }
+
+            @Override
+            public InputStream openInputStream(long offset, long length) throws IOException
+            {
+                if (offset > 0 || length >= 0) {
+                    throw new RangeNotSupportedException("Range " + offset + " not supported.");
+                }
+                openedOffsets.add(offset);
+                return new ByteArrayInputStream(fileData);
+            }
+
+            @Override
+            public InputStream reopenInputStream(InputStream oldInputStream, long offset) throws IOException
+            {
+                return openInputStream(offset, -1);
+            }
+        });
+        Assert.assertEquals(Collections.singletonList(0l), openedOffsets);
+
+        // Check file
+        InputStream inputStream = storage.getFileContent(null, "test");
+        try {
+            byte[] actual = new byte[size];
+            new DataInputStream(inputStream).readFully(actual);
+            Assert.assertTrue(Arrays.equals(fileData, actual));
+            Assert.assertEquals(-1, inputStream.read());
+        }
+        finally {
+            inputStream.close();
+        }
+    }
+
+    @Test
+    public void testResumeIncompleteFile() throws Exception
+    {
+        // Prepare data
+        final int size = 1024 * 1024 * 4;
+        final byte[] fileData = new byte[size];
+        for (int index = 0; index < size; index++) {
+            fileData[index] = (byte) (index % 251);
+        }
+
+        // Prepare incomplete file
+        java.io.File file = new java.io.File(LocalStorageHandler.getChildUrl(storage.getUrl(), "test"));
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(fileData, 0, size / 3);
+        }
+        finally {
+            outputStream.close();
+        }
+
+        // Create file (it should be resumed from the end of the incomplete file)
+        LocalStorageHandler localStorageHandler = new LocalStorageHandler(storage.getUrl());
+        final List<Long> openedOffsets = Collections.synchronizedList(new LinkedList<Long>());
+        localStorageHandler.createFile(new File(null, "test"), new RangeSupport()
+        {
+            @Override
+            public long getContentLength()
+            {
+                return size;
+            }
+
+            @Override
+            public InputStream openInputStream(long offset, long length) throws IOException
+            {
+                openedOffsets.add(offset);
+                return new ByteArrayInputStream(fileData, (int) offset, (int) (length >= 0 ? length : size - offset));
+            }
+
+            @Override
+            public InputStream reopenInputStream(InputStream oldInputStream, long offset) throws IOException
+            {
+                return openInputStream(offset, -1);
+            }
+        });
+        Assert.assertEquals(Collections.singletonList((long) (size / 3)), openedOffsets);
+
+        // Check file
+        Assert.assertEquals(size, file.length());
+        InputStream inputStream = storage.getFileContent(null, "test");
+        try {
+            byte[] actual = new byte[size];
+            new DataInputStream(inputStream).readFully(actual);
+            Assert.assertTrue(Arrays.equals(fileData, actual));
+        }
+        finally {
+            inputStream.close();
+        }
+
+        // Complete file can't be created again
+        try {
+            localStorageHandler.createFile(new File(null, "test"), getInputStream("<data>"));
+            Assert.fail("File should already exist.");
+        }
+        catch (RuntimeException exception) {
+            Assert.assertEquals(size, file.length());
+        }
+    }
+
+    @Test
+    public void testParallelPartsInterrupted() throws Exception
+    {
+        // Prepare data
+        final int size = 1024 * 1024 * 4;
+        final byte[] fileData = new byte[size];
+        for (int index = 0; index < size; index++) {
+            fileData[index] = (byte) (index % 251);
+        }
+
+        // Create file by parts and interrupt it while the last part is blocked
+        final LocalStorageHandler localStorageHandler = new LocalStorageHandler(storage.getUrl());
+        localStorageHandler.setPartLength(1024 * 1024);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final List<RuntimeException> failures = Collections.synchronizedList(new LinkedList<RuntimeException>());
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    localStorageHandler.createFile(new File(null, "test"), new RangeSupport()
+                    {
+                        @Override
+                        public long getContentLength()
+                        {
+                            return size;
+                        }
+
+                        @Override
+                        public InputStream openInputStream(long offset, long length) throws IOException
+                        {
+                            if (offset + length < size) {
+                                return new ByteArrayInputStream(fileData, (int) offset, (int) length);
+                            }
+                            return new InputStream()
+                            {
+                                @Override
+                                public int read() throws IOException
+                                {
+                                    blocked.countDown();
+                                    try {
+                                        Thread.sleep(60000);
+                                    }
+                                    catch (InterruptedException exception) {
+                                        throw new InterruptedIOException();
+                                    }
+                                    return -1;
+                                }
+                            };
+                        }
+
+                        @Override
+                        public InputStream reopenInputStream(InputStream oldInputStream, long offset)
+                                throws IOException
+                        {
+                            return openInputStream(offset, -1);
+                        }
+                    });
+                }
+                catch (RuntimeException exception) {
+                    failures.add(exception);
+                }
+            }
+        };
+        thread.start();
+        Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        thread.interrupt();
+        thread.join(20000);
+        Assert.assertFalse(thread.isAlive());
+        Assert.assertEquals(1, failures.size());
+        Assert.assertFalse(fileExists("test"));
+        Assert.assertFalse(fileExists("test" + LocalStorageHandler.PART_FILE_SUFFIX));
+
+        // Create file again (it should be completed)
+        localStorageHandler.createFile(new File(null, "test"), new RangeSupport()
+        {
+            @Override
+            public long getContentLength()
+            {
+                return size;
+            }
+
+            @Override
+            public InputStream openInputStream(long offset, long length) throws IOException
+            {
+                return new ByteArrayInputStream(fileData, (int) offset, (int) (length >= 0 ? length : size - offset));
+            }
+
+            @Override
+            public InputStream reopenInputStream(InputStream oldInputStream, long offset) throws IOException
+            {
+                return openInputStream(offset, -1);
+            }
+        });
+
+        // Check file
+        InputStream inputStream = storage.getFileContent(null, "test");
+        try {
+            byte[] actual = new byte[size];
+            new DataInputStream(inputStream).readFully(actual);
+            Assert.assertTrue(Arrays.equals(fileData, actual));
+            Assert.assertEquals(-1, inputStream.read());
+        }
+        finally {
+            inputStream.close();
+        }
+        Assert.assertFalse(fileExists("test" + LocalStorageHandler.PART_FILE_SUFFIX));
+    }
+
+    @Test
+    public void testIncompleteFileDeleted() throws Exception
+    {
+        // Create file from content which fails in the middle and can't be resumed
+        final ByteBufferInputStream fileContent = new ByteBufferInputStream(ByteBuffer.allocate(1024 * 1024));
+        fileContent.setCloseAfterBytes(1024);
+        try {
+            storage.createFile(new File(null, "test"), fileContent, null);
+            Assert.fail("File creation should fail.");
+        }
+        catch (RuntimeException exception) {
+            logger.debug("File creation failed.", exception);
+        }
+        Assert.assertFalse(fileExists("test"));
+    }
+
     /*@Test
     public void testConnectionResetHttp() throws Exception
     {
@@ -0,0 +1,244 @@
+package cz.cesnet.shongo.controller.api;
+
+import cz.cesnet.shongo.api.AbstractComplexType;
+import cz.cesnet.shongo.api.DataMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Represents statistics of a cache in the controller.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class CacheStatistics extends AbstractComplexType
+{
+    /**
+     * Name of the cache.
+     */
+    private String name;
+
+    /**
+     * Number of entries in the cache.
+     */
+    private int size;
+
+    /**
+     * Maximum number of entries in the cache ({@code 0} means unlimited).
+     */
+    private int maxSize;
+
+    /**
+     * Number of lookups which have found a value.
+     */
+    private int hitCount;
+
+    /**
+     * Number of lookups which haven't found a value.
+     */
+    private int missCount;
+
+    /**
+     * Number of entries which have been removed because they have expired.
+     */
+    private int expirationCount;
+
+    /**
+     * Number of entries which have been removed because the {@link #maxSize} has been exceeded.
+     */
+    private int evictionCount;
+
+    /**
+     * Estimated memory size in bytes of entries by keys (only for caches which support the estimation,
+     * e.g., ACL states of users by user-ids).
+     */
+    private Map<String, Long> memorySizeByKey = new LinkedHashMap<String, Long>();
+
+    /**
+     * @return {@link #name}
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @param name sets the {@link #name}
+     */
+    public void setName(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * @return {@link #size}
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * @param size sets the {@link #size}
+     */
+    public void setSize(int size)
+    {
+        this.size = size;
+    }
+
+    /**
+     * @return {@link #maxSize}
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize sets the {@link #maxSize}
+     */
+    public void setMaxSize(int maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return {@link #hitCount}
+     */
+    public int getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * @param hitCount sets the {@link #hitCount}
+     */
+    public void setHitCount(int hitCount)
+    {
+        this.hitCount = hitCount;
+    }
+
+    /**
+     * @return {@link #missCount}
+     */
+    public int getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * @param missCount sets the {@link #missCount}
+     */
+    public void setMissCount(int missCount)
+    {
+        this.missCount = missCount;
+    }
+
+    /**
+     * @return {@link #expirationCount}
+     */
+    public int getExpirationCount()
+    {
+        return expirationCount;
+    }
+
+    /**
+     * @param expirationCount sets the {@link #expirationCount}
+     */
+    public void setExpirationCount(int expirationCount)
+    {
+        this.expirationCount = expirationCount;
+    }
+
+    /**
+     * @return {@link #evictionCount}
+     */
+    public int getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    /**
+     * @param evictionCount sets the {@link #evictionCount}
+     */
+    public void setEvictionCount(int evictionCount)
+    {
+        this.evictionCount = evictionCount;
+    }
+
+    /**
+     * @return {@link #memorySizeByKey}
+     */
+    public Map<String, Long> getMemorySizeByKey()
+    {
+        return memorySizeByKey;
+    }
+
+    /**
+     * @param key        of the entry
+     * @param memorySize estimated memory size in bytes of the entry
+     */
+    public void addMemorySize(String key, long memorySize)
+    {
+        memorySizeByKey.put(key, memorySize);
+    }
+
+    /**
+     * @return total estimated memory size in bytes of entries from {@link #memorySizeByKey}
+     */
+    public long getMemorySize()
+    {
+        long memorySize = 0;
+        for (Long entryMemorySize : memorySizeByKey.values()) {
+            memorySize += entryMemorySize;
+        }
+        return memorySize;
+    }
+
+    public static final String NAME = "name";
+    public static final String SIZE = "size";
+    public static final String MAX_SIZE = "maxSize";
+    public static final String HIT_COUNT = "hitCount";
+    public static final String MISS_COUNT = "missCount";
+    public static final String EXPIRATION_COUNT = "expirationCount";
+    public static final String EVICTION_COUNT = "evictionCount";
+    public static final String MEMORY_SIZE_BY_KEY = "memorySizeByKey";
+
+    @Override
+    public DataMap toData()
+    {
+        DataMap dataMap = super.toData();
+        dataMap.set(NAME, name);
+        dataMap.set(SIZE, size);
+        dataMap.set(MAX_SIZE, maxSize);
+        dataMap.set(HIT_COUNT, hitCount);
+        dataMap.set(MISS_COUNT, missCount);
+        dataMap.set(EXPIRATION_COUNT, expirationCount);
+        dataMap.set(EVICTION_COUNT, evictionCount);
+        // Memory sizes are passed as strings because XML-RPC doesn't support long values
+        Map<String, String> memorySizeData = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, Long> entry : memorySizeByKey.entrySet()) {
+            memorySizeData.put(entry.getKey(), entry.getValue().toString());
+        }
+        dataMap.set(MEMORY_SIZE_BY_KEY, memorySizeData);
+        return dataMap;
+    }
+
+    @Override
+    public void fromData(DataMap dataMap)
+    {
+        super.fromData(dataMap);
+        name = dataMap.getString(NAME);
+        size = dataMap.getInt(SIZE, 0);
+        maxSize = dataMap.getInt(MAX_SIZE, 0);
+        hitCount = dataMap.getInt(HIT_COUNT, 0);
+        missCount = dataMap.getInt(MISS_COUNT, 0);
+        expirationCount = dataMap.getInt(EXPIRATION_COUNT, 0);
+        evictionCount = dataMap.getInt(EVICTION_COUNT, 0);
+        memorySizeByKey = new LinkedHashMap<String, Long>();
+        for (Map.Entry<String, String> entry :
+                dataMap.getMap(MEMORY_SIZE_BY_KEY, String.class, String.class).entrySet()) {
+            memorySizeByKey.put(entry.getKey(), Long.valueOf(entry.getValue()));
+        }
+    }
+}
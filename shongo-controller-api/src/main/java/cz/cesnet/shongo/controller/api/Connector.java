@@ -31,6 +31,11 @@ public class Connector extends AbstractComplexType
      */
     private AgentState agentState;
 
+    /**
+     * {@link ExecutionStatistics} of the managed resource ({@code null} when nothing has been executed on it).
+     */
+    private ExecutionStatistics executionStatistics;
+
     /**
      * @return {@link #name}
      */
@@ -79,6 +84,22 @@ public class Connector extends AbstractComplexType
         this.agentState = agentState;
     }
 
+    /**
+     * @return {@link #executionStatistics}
+     */
+    public ExecutionStatistics getExecutionStatistics()
+    {
+        return executionStatistics;
+    }
+
+    /**
+     * @param executionStatistics sets the {@link #executionStatistics}
+     */
+    public void setExecutionStatistics(ExecutionStatistics executionStatistics)
+    {
+        this.executionStatistics = executionStatistics;
+    }
+
     /**
      * @return {@link #status}
      */
@@ -99,6 +120,7 @@ public class Connector extends AbstractComplexType
     private static final String RESOURCE_ID = "resourceId";
     private static final String AGENT_STATE = "agentState";
     private static final String STATUS = "status";
+    private static final String EXECUTION_STATISTICS = "executionStatistics";
 
     @Override
     public DataMap toData()
@@ -108,6 +130,7 @@ public class Connector extends AbstractComplexType
         dataMap.set(RESOURCE_ID, resourceId);
         dataMap.set(AGENT_STATE, agentState);
         dataMap.set(STATUS, status);
+        dataMap.set(EXECUTION_STATISTICS, executionStatistics);
         return dataMap;
     }
 
@@ -119,6 +142,7 @@ public class Connector extends AbstractComplexType
         resourceId = dataMap.getString(RESOURCE_ID);
         agentState = dataMap.getEnum(AGENT_STATE, AgentState.class);
         status = dataMap.getComplexType(STATUS, ConnectorStatus.class);
+        executionStatistics = dataMap.getComplexType(EXECUTION_STATISTICS, ExecutionStatistics.class);
     }
 
     /**
@@ -0,0 +1,194 @@
+package cz.cesnet.shongo.controller.api;
+
+import cz.cesnet.shongo.api.AbstractComplexType;
+import cz.cesnet.shongo.api.DataMap;
+
+/**
+ * Represents queue and latency statistics of actions which are performed by the executor on a single device.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class ExecutionStatistics extends AbstractComplexType
+{
+    /**
+     * Number of actions which are waiting for the device.
+     */
+    private int waitingCount;
+
+    /**
+     * Number of actions which are being performed on the device.
+     */
+    private int runningCount;
+
+    /**
+     * Number of completed actions.
+     */
+    private int completedCount;
+
+    /**
+     * Average time in milliseconds which the actions have spent waiting for the device.
+     */
+    private int averageWaitingDuration;
+
+    /**
+     * Maximum time in milliseconds which an action has spent waiting for the device.
+     */
+    private int maxWaitingDuration;
+
+    /**
+     * Average time in milliseconds of performing the actions.
+     */
+    private int averageExecutionDuration;
+
+    /**
+     * Maximum time in milliseconds of performing an action.
+     */
+    private int maxExecutionDuration;
+
+    /**
+     * @return {@link #waitingCount}
+     */
+    public int getWaitingCount()
+    {
+        return waitingCount;
+    }
+
+    /**
+     * @param waitingCount sets the {@link #waitingCount}
+     */
+    public void setWaitingCount(int waitingCount)
+    {
+        this.waitingCount = waitingCount;
+    }
+
+    /**
+     * @return {@link #runningCount}
+     */
+    public int getRunningCount()
+    {
+        return runningCount;
+    }
+
+    /**
+     * @param runningCount sets the {@link #runningCount}
+     */
+    public void setRunningCount(int runningCount)
+    {
+        this.runningCount = runningCount;
+    }
+
+    /**
+     * @return {@link #completedCount}
+     */
+    public int getCompletedCount()
+    {
+        return completedCount;
+    }
+
+    /**
+     * @param completedCount sets the {@link #completedCount}
+     */
+    public void setCompletedCount(int completedCount)
+    {
+        this.completedCount = completedCount;
+    }
+
+    /**
+     * @return {@link #averageWaitingDuration}
+     */
+    public int getAverageWaitingDuration()
+    {
+        return averageWaitingDuration;
+    }
+
+    /**
+     * @param averageWaitingDuration sets the {@link #averageWaitingDuration}
+     */
+    public void setAverageWaitingDuration(int averageWaitingDuration)
+    {
+        this.averageWaitingDuration = averageWaitingDuration;
+    }
+
+    /**
+     * @return {@link #maxWaitingDuration}
+     */
+    public int getMaxWaitingDuration()
+    {
+        return maxWaitingDuration;
+    }
+
+    /**
+     * @param maxWaitingDuration sets the {@link #maxWaitingDuration}
+     */
+    public void setMaxWaitingDuration(int maxWaitingDuration)
+    {
+        this.maxWaitingDuration = maxWaitingDuration;
+    }
+
+    /**
+     * @return {@link #averageExecutionDuration}
+     */
+    public int getAverageExecutionDuration()
+    {
+        return averageExecutionDuration;
+    }
+
+    /**
+     * @param averageExecutionDuration sets the {@link #averageExecutionDuration}
+     */
+    public void setAverageExecutionDuration(int averageExecutionDuration)
+    {
+        this.averageExecutionDuration = averageExecutionDuration;
+    }
+
+    /**
+     * @return {@link #maxExecutionDuration}
+     */
+    public int getMaxExecutionDuration()
+    {
+        return maxExecutionDuration;
+    }
+
+    /**
+     * @param maxExecutionDuration sets the {@link #maxExecutionDuration}
+     */
+    public void setMaxExecutionDuration(int maxExecutionDuration)
+    {
+        this.maxExecutionDuration = maxExecutionDuration;
+    }
+
+    public static final String WAITING_COUNT = "waitingCount";
+    public static final String RUNNING_COUNT = "runningCount";
+    public static final String COMPLETED_COUNT = "completedCount";
+    public static final String AVERAGE_WAITING_DURATION = "averageWaitingDuration";
+    public static final String MAX_WAITING_DURATION = "maxWaitingDuration";
+    public static final String AVERAGE_EXECUTION_DURATION = "averageExecutionDuration";
+    public static final String MAX_EXECUTION_DURATION = "maxExecutionDuration";
+
+    @Override
+    public DataMap toData()
+    {
+        DataMap dataMap = super.toData();
+        dataMap.set(WAITING_COUNT, waitingCount);
+        dataMap.set(RUNNING_COUNT, runningCount);
+        dataMap.set(COMPLETED_COUNT, completedCount);
+        dataMap.set(AVERAGE_WAITING_DURATION, averageWaitingDuration);
+        dataMap.set(MAX_WAITING_DURATION, maxWaitingDuration);
+        dataMap.set(AVERAGE_EXECUTION_DURATION, averageExecutionDuration);
+        dataMap.set(MAX_EXECUTION_DURATION, maxExecutionDuration);
+        return dataMap;
+    }
+
+    @Override
+    public void fromData(DataMap dataMap)
+    {
+        super.fromData(dataMap);
+        waitingCount = dataMap.getInt(WAITING_COUNT, 0);
+        runningCount = dataMap.getInt(RUNNING_COUNT, 0);
+        completedCount = dataMap.getInt(COMPLETED_COUNT, 0);
+        averageWaitingDuration = dataMap.getInt(AVERAGE_WAITING_DURATION, 0);
+        maxWaitingDuration = dataMap.getInt(MAX_WAITING_DURATION, 0);
+        averageExecutionDuration = dataMap.getInt(AVERAGE_EXECUTION_DURATION, 0);
+        maxExecutionDuration = dataMap.getInt(MAX_EXECUTION_DURATION, 0);
+    }
+}
@@ -29,6 +29,11 @@ public class ResourceAllocation extends IdentifiedComplexType
      */
     private List<ResourceReservation> reservations = new ArrayList<ResourceReservation>();
 
+    /**
+     * {@link ValueProviderAllocation}s of value providers of the resource.
+     */
+    private List<ValueProviderAllocation> valueProviderAllocations = new ArrayList<ValueProviderAllocation>();
+
     /**
      * @return {@link #name}
      */
@@ -85,9 +90,26 @@ public class ResourceAllocation extends IdentifiedComplexType
         reservations.add(reservation);
     }
 
+    /**
+     * @return {@link #valueProviderAllocations}
+     */
+    public List<ValueProviderAllocation> getValueProviderAllocations()
+    {
+        return valueProviderAllocations;
+    }
+
+    /**
+     * @param valueProviderAllocation to be added to the {@link #valueProviderAllocations}
+     */
+    public void addValueProviderAllocation(ValueProviderAllocation valueProviderAllocation)
+    {
+        valueProviderAllocations.add(valueProviderAllocation);
+    }
+
     private static final String NAME = "name";
     private static final String INTERVAL = "interval";
     private static final String RESERVATIONS = "reservations";
+    private static final String VALUE_PROVIDER_ALLOCATIONS = "valueProviderAllocations";
 
     @Override
     public DataMap toData()
@@ -96,6 +118,7 @@ public class ResourceAllocation extends IdentifiedComplexType
         dataMap.set(NAME, name);
         dataMap.set(INTERVAL, interval);
         dataMap.set(RESERVATIONS, reservations);
+        dataMap.set(VALUE_PROVIDER_ALLOCATIONS, valueProviderAllocations);
         return dataMap;
     }
 
@@ -106,5 +129,6 @@ public class ResourceAllocation extends IdentifiedComplexType
         name = dataMap.getString(NAME);
         interval = dataMap.getInterval(INTERVAL);
         reservations = dataMap.getList(RESERVATIONS, ResourceReservation.class);
+        valueProviderAllocations = dataMap.getList(VALUE_PROVIDER_ALLOCATIONS, ValueProviderAllocation.class);
     }
 }
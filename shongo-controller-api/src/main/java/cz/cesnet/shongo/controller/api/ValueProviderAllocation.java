@@ -0,0 +1,118 @@
+package cz.cesnet.shongo.controller.api;
+
+import cz.cesnet.shongo.api.AbstractComplexType;
+import cz.cesnet.shongo.api.DataMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents an information about allocated values of a {@link ValueProvider.Pattern}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class ValueProviderAllocation extends AbstractComplexType
+{
+    /**
+     * Patterns of the value provider.
+     */
+    private List<String> patterns = new ArrayList<String>();
+
+    /**
+     * Maximum number of values which can be allocated ({@code -1} means unlimited).
+     */
+    private int maximumValueCount;
+
+    /**
+     * Number of allocated values.
+     */
+    private int usedValueCount;
+
+    /**
+     * @return {@link #patterns}
+     */
+    public List<String> getPatterns()
+    {
+        return patterns;
+    }
+
+    /**
+     * @param pattern to be added to the {@link #patterns}
+     */
+    public void addPattern(String pattern)
+    {
+        patterns.add(pattern);
+    }
+
+    /**
+     * @return {@link #maximumValueCount}
+     */
+    public int getMaximumValueCount()
+    {
+        return maximumValueCount;
+    }
+
+    /**
+     * @param maximumValueCount sets the {@link #maximumValueCount}
+     */
+    public void setMaximumValueCount(int maximumValueCount)
+    {
+        this.maximumValueCount = maximumValueCount;
+    }
+
+    /**
+     * @return {@link #usedValueCount}
+     */
+    public int getUsedValueCount()
+    {
+        return usedValueCount;
+    }
+
+    /**
+     * @param usedValueCount sets the {@link #usedValueCount}
+     */
+    public void setUsedValueCount(int usedValueCount)
+    {
+        this.usedValueCount = usedValueCount;
+    }
+
+    /**
+     * The fill level is limited to {@code 1.0} even when the {@link #usedValueCount} exceeds
+     * the {@link #maximumValueCount}.
+     *
+     * @return fill level in range from {@code 0.0} to {@code 1.0} or {@code null} when the values aren't limited
+     */
+    public Double getFillLevel()
+    {
+        if (maximumValueCount < 0) {
+            return null;
+        }
+        else if (usedValueCount >= maximumValueCount) {
+            return 1.0;
+        }
+        return (double) usedValueCount / maximumValueCount;
+    }
+
+    private static final String PATTERNS = "patterns";
+    private static final String MAXIMUM_VALUE_COUNT = "maximumValueCount";
+    private static final String USED_VALUE_COUNT = "usedValueCount";
+
+    @Override
+    public DataMap toData()
+    {
+        DataMap dataMap = super.toData();
+        dataMap.set(PATTERNS, patterns);
+        dataMap.set(MAXIMUM_VALUE_COUNT, maximumValueCount);
+        dataMap.set(USED_VALUE_COUNT, usedValueCount);
+        return dataMap;
+    }
+
+    @Override
+    public void fromData(DataMap dataMap)
+    {
+        super.fromData(dataMap);
+        patterns = dataMap.getStringList(PATTERNS, DEFAULT_COLUMN_LENGTH);
+        maximumValueCount = dataMap.getInt(MAXIMUM_VALUE_COUNT);
+        usedValueCount = dataMap.getInt(USED_VALUE_COUNT);
+    }
+}
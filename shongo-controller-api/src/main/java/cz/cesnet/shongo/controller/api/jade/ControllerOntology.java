@@ -39,6 +39,7 @@ public class ControllerOntology extends AbstractOntology
             add(GetRoom.class);
             add(NotifyTarget.class);
             add(GetRecordingFolderId.class);
+            add(UpdateDeviceState.class);
 
             // Add all API classes
             for (String item : ClassHelper.getPackages()) {
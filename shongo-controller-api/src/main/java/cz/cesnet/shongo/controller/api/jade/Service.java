@@ -53,6 +53,16 @@ public interface Service
      */
     public String getRecordingFolderId(String agentName, String roomId) throws CommandException;
 
+    /**
+     * Update the state of device which is managed by agent with given {@code agentName}.
+     *
+     * @param agentName         of the agent which manages the device
+     * @param updateDeviceState changes in the state of the device
+     * @return true whether the next {@link UpdateDeviceState} should be {@link UpdateDeviceState#complete},
+     *         false otherwise
+     */
+    public Boolean updateDeviceState(String agentName, UpdateDeviceState updateDeviceState) throws CommandException;
+
     /**
      * Enumeration of all possible notification targets.
      */
@@ -0,0 +1,169 @@
+package cz.cesnet.shongo.controller.api.jade;
+
+import cz.cesnet.shongo.api.DeviceLoadInfo;
+import cz.cesnet.shongo.api.RoomParticipant;
+import cz.cesnet.shongo.api.RoomSummary;
+import cz.cesnet.shongo.api.jade.CommandException;
+import org.joda.time.DateTime;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Changes in the state of a device which are periodically pushed by a connector to the controller.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ * @see {@link Service#updateDeviceState}
+ */
+public class UpdateDeviceState extends ControllerCommand
+{
+    /**
+     * Specifies whether this update contains the complete state of the device (otherwise it contains only changes
+     * since the previous update).
+     */
+    private boolean complete;
+
+    /**
+     * Date/time when the state of the device has been retrieved (the update is rejected by the controller when
+     * the device has been modified after this date/time).
+     */
+    private DateTime dateTime;
+
+    /**
+     * Rooms which have been added or modified (all rooms for {@link #complete} update).
+     */
+    private List<RoomSummary> rooms = new LinkedList<RoomSummary>();
+
+    /**
+     * Identifiers of rooms which have been deleted.
+     */
+    private List<String> deletedRoomIds = new LinkedList<String>();
+
+    /**
+     * Identifiers of rooms for which the participants are replaced by {@link #roomParticipants}.
+     */
+    private List<String> participantRoomIds = new LinkedList<String>();
+
+    /**
+     * Participants of rooms from {@link #participantRoomIds}.
+     */
+    private List<RoomParticipant> roomParticipants = new LinkedList<RoomParticipant>();
+
+    /**
+     * Current {@link DeviceLoadInfo} or {@code null} when it isn't available.
+     */
+    private DeviceLoadInfo deviceLoadInfo;
+
+    public UpdateDeviceState()
+    {
+    }
+
+    public UpdateDeviceState(boolean complete)
+    {
+        this.complete = complete;
+    }
+
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    public void setComplete(boolean complete)
+    {
+        this.complete = complete;
+    }
+
+    public DateTime getDateTime()
+    {
+        return dateTime;
+    }
+
+    public void setDateTime(DateTime dateTime)
+    {
+        this.dateTime = dateTime;
+    }
+
+    public List<RoomSummary> getRooms()
+    {
+        return rooms;
+    }
+
+    public void setRooms(List<RoomSummary> rooms)
+    {
+        this.rooms = rooms;
+    }
+
+    public void addRoom(RoomSummary room)
+    {
+        rooms.add(room);
+    }
+
+    public List<String> getDeletedRoomIds()
+    {
+        return deletedRoomIds;
+    }
+
+    public void setDeletedRoomIds(List<String> deletedRoomIds)
+    {
+        this.deletedRoomIds = deletedRoomIds;
+    }
+
+    public void addDeletedRoomId(String roomId)
+    {
+        deletedRoomIds.add(roomId);
+    }
+
+    public List<String> getParticipantRoomIds()
+    {
+        return participantRoomIds;
+    }
+
+    public void setParticipantRoomIds(List<String> participantRoomIds)
+    {
+        this.participantRoomIds = participantRoomIds;
+    }
+
+    public List<RoomParticipant> getRoomParticipants()
+    {
+        return roomParticipants;
+    }
+
+    public void setRoomParticipants(List<RoomParticipant> roomParticipants)
+    {
+        this.roomParticipants = roomParticipants;
+    }
+
+    /**
+     * @param roomId           of the room
+     * @param roomParticipants all current participants of the room with given {@code roomId}
+     */
+    public void addRoomParticipants(String roomId, List<RoomParticipant> roomParticipants)
+    {
+        this.participantRoomIds.add(roomId);
+        this.roomParticipants.addAll(roomParticipants);
+    }
+
+    public DeviceLoadInfo getDeviceLoadInfo()
+    {
+        return deviceLoadInfo;
+    }
+
+    public void setDeviceLoadInfo(DeviceLoadInfo deviceLoadInfo)
+    {
+        this.deviceLoadInfo = deviceLoadInfo;
+    }
+
+    @Override
+    public Object execute(Service commonService, String senderAgentName) throws CommandException
+    {
+        return commonService.updateDeviceState(senderAgentName, this);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(UpdateDeviceState.class.getSimpleName()
+                + " (complete: %s, rooms: %d, deletedRooms: %d, participantRooms: %d)",
+                complete, rooms.size(), deletedRoomIds.size(), participantRoomIds.size());
+    }
+}
@@ -1,6 +1,5 @@
 package cz.cesnet.shongo.controller.api.request;
 
-import com.sun.org.apache.regexp.internal.recompile;
 import cz.cesnet.shongo.api.DataMap;
 import cz.cesnet.shongo.controller.api.SecurityToken;
 
@@ -21,6 +20,17 @@ public class ListRequest extends AbstractRequest
      */
     private Integer count;
 
+    /**
+     * Cursor which points to the first item which should be fetched (see {@link ListResponse#getNextCursor()}).
+     * When it is set, the {@link #start} is ignored.
+     */
+    private String cursor;
+
+    /**
+     * Specifies whether total number of items should be determined (see {@link ListResponse#getCount()}).
+     */
+    private boolean countEnabled = true;
+
     /**
      * Constructor.
      */
@@ -116,8 +126,48 @@ public class ListRequest extends AbstractRequest
         this.count = count;
     }
 
+    /**
+     * @return {@link #cursor}
+     */
+    public String getCursor()
+    {
+        return cursor;
+    }
+
+    /**
+     * @param cursor sets the {@link #cursor}
+     */
+    public void setCursor(String cursor)
+    {
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return {@link #countEnabled}
+     */
+    public boolean isCountEnabled()
+    {
+        return countEnabled;
+    }
+
+    /**
+     * @param countEnabled sets the {@link #countEnabled}
+     */
+    public void setCountEnabled(boolean countEnabled)
+    {
+        this.countEnabled = countEnabled;
+    }
+
+    /**
+     * Name of type which is reported by {@link cz.cesnet.shongo.CommonReportSet.TypeIllegalValueException}
+     * for invalid {@link #cursor}.
+     */
+    public static final String CURSOR_TYPE = "Cursor";
+
     private static final String START = "start";
     private static final String COUNT = "count";
+    private static final String CURSOR = "cursor";
+    private static final String COUNT_ENABLED = "countEnabled";
 
     @Override
     public DataMap toData()
@@ -125,6 +175,10 @@ public class ListRequest extends AbstractRequest
         DataMap dataMap = super.toData();
         dataMap.set(START, start);
         dataMap.set(COUNT, count);
+        dataMap.set(CURSOR, cursor);
+        if (!countEnabled) {
+            dataMap.set(COUNT_ENABLED, countEnabled);
+        }
         return dataMap;
     }
 
@@ -134,5 +188,8 @@ public class ListRequest extends AbstractRequest
         super.fromData(dataMap);
         start = dataMap.getInteger(START);
         count = dataMap.getInteger(COUNT);
+        cursor = dataMap.getString(CURSOR);
+        Boolean countEnabled = dataMap.getBoolean(COUNT_ENABLED);
+        this.countEnabled = (countEnabled != null ? countEnabled : true);
     }
 }
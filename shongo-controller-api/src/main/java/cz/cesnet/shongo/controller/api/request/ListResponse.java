@@ -1,5 +1,6 @@
 package cz.cesnet.shongo.controller.api.request;
 
+import cz.cesnet.shongo.CommonReportSet;
 import cz.cesnet.shongo.api.DataMap;
 import cz.cesnet.shongo.api.UserInformation;
 import cz.cesnet.shongo.controller.api.Group;
@@ -23,9 +24,17 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
 
     /**
      * Total number of items available (but {@link #items} can contain only portion of them based on request).
+     * When {@link ListRequest#isCountEnabled()} is {@code false} it is only a lower estimate
+     * ({@link #start} plus number of {@link #items} plus one when {@link #nextCursor} is set).
      */
     private int count = 0;
 
+    /**
+     * Cursor which can be passed to {@link ListRequest#setCursor} to fetch items following the {@link #items}
+     * or {@code null} when no more items are available.
+     */
+    private String nextCursor;
+
     /**
      * List of fetched items.
      */
@@ -70,6 +79,22 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
         this.count = count;
     }
 
+    /**
+     * @return {@link #nextCursor}
+     */
+    public String getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    /**
+     * @param nextCursor sets the {@link #nextCursor}
+     */
+    public void setNextCursor(String nextCursor)
+    {
+        this.nextCursor = nextCursor;
+    }
+
     /**
      * @return {@link #items}
      */
@@ -112,6 +137,7 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
     private static final String START = "start";
     private static final String COUNT = "count";
     private static final String ITEMS = "items";
+    private static final String NEXT_CURSOR = "nextCursor";
 
     @Override
     public DataMap toData()
@@ -120,6 +146,7 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
         dataMap.set(START, start);
         dataMap.set(COUNT, count);
         dataMap.set(ITEMS, items);
+        dataMap.set(NEXT_CURSOR, nextCursor);
         return dataMap;
     }
 
@@ -130,6 +157,7 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
         start = dataMap.getInt(START);
         count = dataMap.getInt(COUNT);
         items = (List<T>) dataMap.getList(ITEMS, Object.class);
+        nextCursor = dataMap.getString(NEXT_CURSOR);
     }
 
     @Override
@@ -148,9 +176,32 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
         return output.toString();
     }
 
+    /**
+     * @param request for listing
+     * @param data    all items
+     * @return {@link ListResponse} with items from given {@code data} which are requested by given {@code request}
+     * @throws CommonReportSet.TypeIllegalValueException when the {@link ListRequest#getCursor()} is invalid
+     */
     public static <T> ListResponse<T> fromRequest(ListRequest request, List<T> data)
     {
-        int start = request.getStart(0, data.size());
+        int start;
+        String cursor = request.getCursor();
+        if (cursor != null) {
+            // Cursor for in-memory data is just the index of the first item
+            try {
+                start = Integer.parseInt(cursor);
+            }
+            catch (NumberFormatException exception) {
+                throw new CommonReportSet.TypeIllegalValueException(exception, ListRequest.CURSOR_TYPE, cursor);
+            }
+            if (start < 0) {
+                throw new CommonReportSet.TypeIllegalValueException(ListRequest.CURSOR_TYPE, cursor);
+            }
+            start = Math.min(start, data.size());
+        }
+        else {
+            start = request.getStart(0, data.size());
+        }
         int end = start + request.getCount(data.size() - start);
         ListResponse<T> response = new ListResponse<T>();
         response.setStart(start);
@@ -158,6 +209,9 @@ public class ListResponse<T> extends AbstractResponse implements Iterable<T>
         for (T item : data.subList(start, end)) {
             response.addItem(item);
         }
+        if (end < data.size()) {
+            response.setNextCursor(String.valueOf(end));
+        }
         return response;
     }
 
@@ -194,4 +194,11 @@ public interface AuthorizationService extends Service
      */
     @API
     public List<ReferencedUser> listReferencedUsers(SecurityToken securityToken);
+
+    /**
+     * @param securityToken token of the user requesting the operation
+     * @return list of {@link CacheStatistics} of authorization caches in the controller
+     */
+    @API
+    public List<CacheStatistics> listCacheStatistics(SecurityToken securityToken);
 }
@@ -114,6 +114,18 @@ public interface ResourceControlService extends Service
     @API
     public Collection<RoomParticipant> listRoomParticipants(SecurityToken token, String deviceResourceId, String roomId);
 
+    /**
+     * Lists participants of multiple rooms by a single request to the device.
+     *
+     * @param token            security token
+     * @param deviceResourceId shongo-id of the device to perform the action
+     * @param roomIds          room identifiers ({@code null} or empty set means all rooms)
+     * @return collection of {@link RoomParticipant}s from all the rooms (see {@link RoomParticipant#getRoomId()})
+     */
+    @API
+    public Collection<RoomParticipant> listRoomsParticipants(SecurityToken token, String deviceResourceId,
+            Set<String> roomIds);
+
     @API
     public RoomParticipant getRoomParticipant(SecurityToken token, String deviceResourceId, String roomId,
             String roomParticipantId);
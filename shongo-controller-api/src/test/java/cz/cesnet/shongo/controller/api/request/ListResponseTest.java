@@ -0,0 +1,45 @@
+package cz.cesnet.shongo.controller.api.request;
+
+import cz.cesnet.shongo.CommonReportSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link ListResponse}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class ListResponseTest
+{
+    @Test
+    public void testFromRequestByCursor() throws Exception
+    {
+        List<String> data = Arrays.asList("a", "b", "c");
+        ListRequest request = new ListRequest(null, 2);
+
+        ListResponse<String> response = ListResponse.fromRequest(request, data);
+        Assert.assertEquals(Arrays.asList("a", "b"), response.getItems());
+        Assert.assertEquals("2", response.getNextCursor());
+
+        request.setCursor(response.getNextCursor());
+        response = ListResponse.fromRequest(request, data);
+        Assert.assertEquals(Arrays.asList("c"), response.getItems());
+        Assert.assertNull(response.getNextCursor());
+
+        // Invalid cursors
+        for (String invalidCursor : new String[]{"invalid", "-1", "2:n1"}) {
+            request.setCursor(invalidCursor);
+            try {
+                ListResponse.fromRequest(request, data);
+                Assert.fail("Invalid cursor should be reported.");
+            }
+            catch (CommonReportSet.TypeIllegalValueException exception) {
+                Assert.assertEquals(ListRequest.CURSOR_TYPE, exception.getTypeName());
+                Assert.assertEquals(invalidCursor, exception.getValue());
+            }
+        }
+    }
+}
@@ -886,6 +886,8 @@ public class Controller
                 controller.getConfiguration().getString(ControllerConfiguration.DATABASE_USERNAME));
         properties.put("hibernate.connection.password",
                 controller.getConfiguration().getString(ControllerConfiguration.DATABASE_PASSWORD));
+        properties.put("hibernate.jdbc.batch_size",
+                controller.getConfiguration().getString(ControllerConfiguration.DATABASE_JDBC_BATCH_SIZE));
         EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("controller", properties);
         logger.debug("Entity manager factory created in {} ms.", timer.stop());
 
@@ -912,15 +914,19 @@ public class Controller
 
         // Add XML-RPC services
         RecordingsCache recordingsCache = new RecordingsCache();
-        controller.addRpcService(new CommonServiceImpl());
+        DeviceStateCache deviceStateCache =
+                new DeviceStateCache(configuration.getDuration(ControllerConfiguration.DEVICE_STATE_EXPIRATION));
+        controller.addRpcService(new CommonServiceImpl(executor));
         controller.addRpcService(new AuthorizationServiceImpl());
         controller.addRpcService(new ResourceServiceImpl(cache));
-        controller.addRpcService(new ResourceControlServiceImpl(recordingsCache));
-        controller.addRpcService(new ReservationServiceImpl(cache));
+        controller.addRpcService(new ResourceControlServiceImpl(recordingsCache, deviceStateCache));
+        controller.addRpcService(new ReservationServiceImpl(cache, scheduler));
         controller.addRpcService(new ExecutableServiceImpl(executor, recordingsCache));
 
         // Add JADE service
-        controller.setJadeService(new ServiceImpl(entityManagerFactory, notificationManager, executor, authorization));
+        ServiceImpl jadeService = new ServiceImpl(entityManagerFactory, notificationManager, executor, authorization);
+        jadeService.setDeviceStateCache(deviceStateCache);
+        controller.setJadeService(jadeService);
 
         // Prepare shutdown runnable
         Runnable shutdown = new Runnable()
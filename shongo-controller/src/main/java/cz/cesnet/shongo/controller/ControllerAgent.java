@@ -9,14 +9,17 @@ import cz.cesnet.shongo.controller.api.jade.ControllerCommand;
 import cz.cesnet.shongo.controller.api.jade.ControllerOntology;
 import cz.cesnet.shongo.controller.api.jade.Service;
 import cz.cesnet.shongo.jade.Agent;
+import cz.cesnet.shongo.jade.CommandResponderBehaviour;
 import cz.cesnet.shongo.jade.SendLocalCommand;
 import cz.cesnet.shongo.shell.CommandHandler;
 import cz.cesnet.shongo.shell.CommandSet;
 import cz.cesnet.shongo.shell.Shell;
+import cz.cesnet.shongo.util.LatencyHistogram;
 import jade.core.AID;
 import org.apache.commons.cli.CommandLine;
 
 import java.net.URL;
+import java.util.Map;
 
 /**
  * Jade Agent for Domain Controller
@@ -38,6 +41,11 @@ public class ControllerAgent extends Agent
     public ControllerAgent(ControllerConfiguration configuration)
     {
         setCommandTimeout((int) configuration.getJadeCommandTimeout().getMillis());
+        setCommandThreadCount(configuration.getInt(ControllerConfiguration.JADE_COMMAND_THREAD_COUNT,
+                CommandResponderBehaviour.DEFAULT_THREAD_COUNT));
+        setCommandQueueSize(configuration.getInt(ControllerConfiguration.JADE_COMMAND_QUEUE_SIZE,
+                CommandResponderBehaviour.DEFAULT_QUEUE_SIZE));
+        setBinaryContentEnabled(configuration.getBoolean(ControllerConfiguration.JADE_BINARY_CONTENT, true));
     }
 
     /**
@@ -64,6 +72,24 @@ public class ControllerAgent extends Agent
                 }
             }
         });
+        commandSet.addCommand("commands", "Show statistics of commands performed by the controller agent",
+                new CommandHandler()
+                {
+                    @Override
+                    public void perform(CommandLine commandLine)
+                    {
+                        CommandResponderBehaviour commandResponder = getCommandResponderBehaviour();
+                        if (commandResponder == null) {
+                            return;
+                        }
+                        Shell.printInfo("Queued: %d, refused: %d", commandResponder.getQueueSize(),
+                                commandResponder.getRefusedCount());
+                        for (Map.Entry<String, LatencyHistogram> entry :
+                                commandResponder.getLatencyHistograms().entrySet()) {
+                            Shell.printInfo("Command [%s] %s", entry.getKey(), entry.getValue());
+                        }
+                    }
+                });
         return commandSet;
     }
 
@@ -87,29 +113,36 @@ public class ControllerAgent extends Agent
     }
 
     @Override
-    public SendLocalCommand sendCommand(String receiverAgentName, Command command)
+    public SendLocalCommand sendCommandAsync(String receiverAgentName, final Command command)
     {
         Controller.loggerRequestedCommands.info("Action:{} {}.", command.getId(), command);
-        SendLocalCommand sendLocalCommand = super.sendCommand(receiverAgentName, command);
-        String commandState;
-        switch (sendLocalCommand.getState()) {
-            case SUCCESSFUL:
-                Object result = sendLocalCommand.getResult();
-                if (result != null && result instanceof String) {
-                    commandState = String.format("OK: %s", result);
-                }
-                else {
-                    commandState = "OK";
+        SendLocalCommand sendLocalCommand = super.sendCommandAsync(receiverAgentName, command);
+        sendLocalCommand.addListener(new SendLocalCommand.Listener()
+        {
+            @Override
+            public void onProcessed(SendLocalCommand sendLocalCommand)
+            {
+                String commandState;
+                switch (sendLocalCommand.getState()) {
+                    case SUCCESSFUL:
+                        Object result = sendLocalCommand.getResult();
+                        if (result != null && result instanceof String) {
+                            commandState = String.format("OK: %s", result);
+                        }
+                        else {
+                            commandState = "OK";
+                        }
+                        break;
+                    case FAILED:
+                        commandState = String.format("FAILED: %s", sendLocalCommand.getJadeReport().getMessage());
+                        break;
+                    default:
+                        commandState = "UNKNOWN";
+                        break;
                 }
-                break;
-            case FAILED:
-                commandState = String.format("FAILED: %s", sendLocalCommand.getJadeReport().getMessage());
-                break;
-            default:
-                commandState = "UNKNOWN";
-                break;
-        }
-        Controller.loggerRequestedCommands.info("Action:{} Done ({}).", command.getId(), commandState);
+                Controller.loggerRequestedCommands.info("Action:{} Done ({}).", command.getId(), commandState);
+            }
+        });
         return sendLocalCommand;
     }
 
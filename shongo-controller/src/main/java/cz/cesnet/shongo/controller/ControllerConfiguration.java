@@ -44,6 +44,11 @@ public class ControllerConfiguration extends CombinedConfiguration
     public static final String DATABASE_USERNAME = "database.username";
     public static final String DATABASE_PASSWORD = "database.password";
 
+    /**
+     * Specifies maximum number of statements which are sent to database in a single JDBC batch.
+     */
+    public static final String DATABASE_JDBC_BATCH_SIZE = "database.jdbc-batch-size";
+
     /**
      * XML-RPC configuration
      */
@@ -57,6 +62,9 @@ public class ControllerConfiguration extends CombinedConfiguration
     public static final String JADE_PORT = "jade.port";
     public static final String JADE_AGENT_NAME = "jade.agent-name";
     public static final String JADE_PLATFORM_ID = "jade.platform-id";
+    public static final String JADE_COMMAND_THREAD_COUNT = "jade.command-thread-count";
+    public static final String JADE_COMMAND_QUEUE_SIZE = "jade.command-queue-size";
+    public static final String JADE_BINARY_CONTENT = "jade.binary-content";
 
     /**
      * Worker configuration (it runs scheduler and executor).
@@ -64,6 +72,11 @@ public class ControllerConfiguration extends CombinedConfiguration
     public static final String WORKER_PERIOD = "worker.period";
     public static final String WORKER_LOOKAHEAD = "worker.lookahead";
 
+    /**
+     * Number of threads in which the scheduler allocates reservation requests with disjoint resources.
+     */
+    public static final String WORKER_SCHEDULER_PARALLELISM = "worker.scheduler-parallelism";
+
     /**
      * Maximum duration of reservations.
      */
@@ -108,6 +121,18 @@ public class ControllerConfiguration extends CombinedConfiguration
      */
     public static final String EXECUTOR_STARTING_DURATION_ROOM = "executor.starting-duration.room";
 
+    /**
+     * Maximum number of actions which {@link cz.cesnet.shongo.controller.executor.Executor} performs concurrently
+     * (in total and for a single device).
+     */
+    public static final String EXECUTOR_THREAD_COUNT = "executor.thread-count";
+    public static final String EXECUTOR_DEVICE_THREAD_COUNT = "executor.device-thread-count";
+
+    /**
+     * Maximum age of device state pushed by a connector which is used instead of asking the device.
+     */
+    public static final String DEVICE_STATE_EXPIRATION = "device-state.expiration";
+
     /**
      * URL to AA server.
      */
@@ -143,6 +168,17 @@ public class ControllerConfiguration extends CombinedConfiguration
      */
     public static final String SECURITY_EXPIRATION_GROUP = "security.expiration.group";
 
+    /**
+     * Specifies maximum number of entries in each authorization cache.
+     */
+    public static final String SECURITY_CACHE_SIZE = "security.cache-size";
+
+    /**
+     * Specifies maximum number of items which are fetched, flushed or deleted by a single statement
+     * when ACL entries are propagated.
+     */
+    public static final String SECURITY_ACL_BATCH_SIZE = "security.acl-batch-size";
+
     /**
      * Specifies filename where the root access token will be written when controller starts.
      */
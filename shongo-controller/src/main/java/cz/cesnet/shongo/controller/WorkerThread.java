@@ -13,9 +13,12 @@ import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import java.util.Set;
 
 /**
- * Thread which periodically runs {@link Preprocessor} and {@link Scheduler}.
+ * Thread which runs {@link Preprocessor} and {@link Scheduler} periodically for all reservation requests and
+ * immediately only for reservation requests which are created, modified or deleted
+ * (see {@link Scheduler#addModifiedReservationRequest}).
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
@@ -24,7 +27,7 @@ public class WorkerThread extends Thread
     private static Logger logger = LoggerFactory.getLogger(WorkerThread.class);
 
     /**
-     * Period in which the worker works.
+     * Period in which the worker works when no reservation request is modified.
      */
     private Duration period;
 
@@ -115,9 +118,20 @@ public class WorkerThread extends Thread
         }
 
         while (!Thread.interrupted()) {
-            work();
+            // Work on all reservation requests once per period
+            work(null);
             try {
-                Thread.sleep(period.getMillis());
+                // Until the next period work only on modified reservation requests
+                long nextPeriodMillis = System.currentTimeMillis() + period.getMillis();
+                long remainingMillis;
+                while ((remainingMillis = nextPeriodMillis - System.currentTimeMillis()) > 0) {
+                    Set<Long> reservationRequestIds = scheduler.waitForModifiedReservationRequests(remainingMillis);
+                    if (reservationRequestIds.isEmpty()) {
+                        break;
+                    }
+                    logger.debug("Worker woken up by modified reservation requests {}.", reservationRequestIds);
+                    work(reservationRequestIds);
+                }
             }
             catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -143,8 +157,11 @@ public class WorkerThread extends Thread
 
     /**
      * Run {@link Preprocessor} and {@link Scheduler}.
+     *
+     * @param reservationRequestIds identifiers of reservation requests to which the work should be restricted
+     *                              (or {@code null} for all reservation requests)
      */
-    private void work()
+    private void work(Set<Long> reservationRequestIds)
     {
         // Globally synchronized (see ThreadLock documentation)
         //logger.debug("Worker waiting for lock...........................");
@@ -158,8 +175,8 @@ public class WorkerThread extends Thread
             Reporter reporter = Reporter.getInstance();
             try {
                 // Run preprocessor, scheduler and notifications
-                preprocessor.run(interval, entityManager);
-                scheduler.run(interval, entityManager);
+                preprocessor.run(interval, entityManager, reservationRequestIds);
+                scheduler.run(interval, entityManager, reservationRequestIds);
                 notificationManager.executeNotifications(entityManager);
 
                 // Clear reporter cache once per hour
@@ -1,6 +1,6 @@
 package cz.cesnet.shongo.controller.acl;
 
-import cz.cesnet.shongo.SimplePersistentObject;
+import cz.cesnet.shongo.PersistentObject;
 import cz.cesnet.shongo.api.AbstractComplexType;
 
 import javax.persistence.*;
@@ -18,8 +18,15 @@ import javax.persistence.*;
         @NamedQuery(name="AclEntry.findByObjectIdentity", query="SELECT e FROM AclEntry e WHERE e.objectIdentity = :objectIdentity"),
         @NamedQuery(name="AclEntry.findByObjectIdentityAndRole", query="SELECT e FROM AclEntry e WHERE e.objectIdentity = :objectIdentity AND e.role = :role")
 })
-public class AclEntry extends SimplePersistentObject
+public class AclEntry extends PersistentObject
 {
+    /**
+     * Number of identifiers which are allocated from the sequence at once for {@link AclEntry}s and
+     * {@link cz.cesnet.shongo.controller.authorization.AclEntryDependency}s (new entries can be inserted
+     * by JDBC batches without a round-trip to the sequence for each of them).
+     */
+    public static final int ID_ALLOCATION_SIZE = 100;
+
     /**
      * @see AclIdentity
      */
@@ -35,6 +42,15 @@ public class AclEntry extends SimplePersistentObject
      */
     private String role;
 
+    @Id
+    @SequenceGenerator(name = "acl_entry_id", sequenceName = "acl_entry_id_seq", allocationSize = ID_ALLOCATION_SIZE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "acl_entry_id")
+    @Override
+    public Long getId()
+    {
+        return id;
+    }
+
     /**
      * @return {@link #identity}
      */
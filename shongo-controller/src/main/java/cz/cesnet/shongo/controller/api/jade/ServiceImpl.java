@@ -9,6 +9,7 @@ import cz.cesnet.shongo.controller.ControllerReportSet;
 import cz.cesnet.shongo.controller.ObjectRole;
 import cz.cesnet.shongo.controller.ObjectType;
 import cz.cesnet.shongo.controller.RoomNotExistsException;
+import cz.cesnet.shongo.controller.api.rpc.DeviceStateCache;
 import cz.cesnet.shongo.controller.authorization.Authorization;
 import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
 import cz.cesnet.shongo.controller.booking.executable.ExecutableManager;
@@ -55,6 +56,11 @@ public class ServiceImpl implements Service
      */
     private Authorization authorization;
 
+    /**
+     * @see DeviceStateCache
+     */
+    private DeviceStateCache deviceStateCache;
+
     /**
      * Constructor.
      */
@@ -67,6 +73,14 @@ public class ServiceImpl implements Service
         this.authorization = authorization;
     }
 
+    /**
+     * @param deviceStateCache sets the {@link #deviceStateCache}
+     */
+    public void setDeviceStateCache(DeviceStateCache deviceStateCache)
+    {
+        this.deviceStateCache = deviceStateCache;
+    }
+
     @Override
     public UserInformation getUserInformation(String userId)
     {
@@ -254,6 +268,15 @@ public class ServiceImpl implements Service
         }
     }
 
+    @Override
+    public Boolean updateDeviceState(String agentName, UpdateDeviceState updateDeviceState) throws CommandException
+    {
+        if (deviceStateCache == null) {
+            throw new CommandException("Device state isn't cached by the controller.");
+        }
+        return deviceStateCache.update(agentName, updateDeviceState);
+    }
+
     /**
      * Gets device resource identifier based on agent name.
      *
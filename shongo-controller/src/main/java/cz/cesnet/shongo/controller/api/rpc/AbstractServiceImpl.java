@@ -91,6 +91,11 @@ public abstract class AbstractServiceImpl extends Component
 
     /**
      * Get listing response.
+     * <p/>
+     * When {@link ListRequest#getCursor()} is specified, the listing continues from the cursor (see
+     * {@link QueryFilter#applyCursor}) and the {@link ListResponse#getNextCursor()} is set when more records
+     * are available. When {@link ListRequest#isCountEnabled()} is {@code false}, the {@code queryCount} isn't
+     * performed.
      *
      * @param queryList
      * @param queryCount
@@ -102,23 +107,38 @@ public abstract class AbstractServiceImpl extends Component
     private <T> List<T> getResponse(Query queryList, Query queryCount, QueryFilter queryFilter,
             ListRequest listRequest, ListResponse listResponse)
     {
+        // Queries without order keys can use only offset cursors
+        if (!queryFilter.isCursorApplied()) {
+            queryFilter.applyCursor(listRequest.getCursor());
+        }
+
         // Fill filter parameters to queries
         queryFilter.fillQueryParameters(queryList);
-        queryFilter.fillQueryParameters(queryCount);
 
-        // Restrict first result
-        Integer firstResult = listRequest.getStart(0);
+        // Determine first result (records preceding cursor can be already skipped by filter)
+        Integer cursorStart = queryFilter.getCursorStart();
+        int start = (cursorStart != null ? cursorStart : listRequest.getStart(0));
+        int skippedResultCount = (queryFilter.isCursorFiltered() ? start : 0);
+        int firstResult = start - skippedResultCount;
         queryList.setFirstResult(firstResult);
 
         // Restrict result count
         Integer totalResultCount = null;
         int maxResultCount = listRequest.getCount();
+        boolean countEnabled = listRequest.isCountEnabled();
         if (maxResultCount != -1) {
-            totalResultCount = ((Number) queryCount.getSingleResult()).intValue();
-            if ((firstResult + maxResultCount) > totalResultCount) {
-                maxResultCount = totalResultCount - firstResult;
+            if (countEnabled) {
+                queryFilter.fillQueryParameters(queryCount);
+                totalResultCount = skippedResultCount + ((Number) queryCount.getSingleResult()).intValue();
+                if ((start + maxResultCount) > totalResultCount) {
+                    maxResultCount = totalResultCount - start;
+                }
+                queryList.setMaxResults(maxResultCount);
+            }
+            else {
+                // Fetch one more result to determine whether more results are available
+                queryList.setMaxResults(maxResultCount + 1);
             }
-            queryList.setMaxResults(maxResultCount);
         }
 
         // List requested results
@@ -131,13 +151,29 @@ public abstract class AbstractServiceImpl extends Component
             resultList = Collections.emptyList();
         }
 
+        // Determine whether more results are available
+        boolean moreResults = false;
+        if (maxResultCount != -1) {
+            if (countEnabled) {
+                moreResults = (start + resultList.size()) < totalResultCount;
+            }
+            else if (resultList.size() > maxResultCount) {
+                resultList = resultList.subList(0, maxResultCount);
+                moreResults = true;
+            }
+        }
+
         if (totalResultCount == null) {
-            totalResultCount = resultList.size();
+            totalResultCount = start + resultList.size() + (moreResults ? 1 : 0);
         }
 
         // Setup response
         listResponse.setCount(totalResultCount);
-        listResponse.setStart(firstResult);
+        listResponse.setStart(start);
+        if (moreResults && resultList.size() > 0) {
+            int nextStart = start + resultList.size();
+            listResponse.setNextCursor(queryFilter.formatCursor(nextStart, resultList.get(resultList.size() - 1)));
+        }
 
         return resultList;
     }
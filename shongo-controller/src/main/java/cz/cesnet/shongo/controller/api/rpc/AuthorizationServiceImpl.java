@@ -1,6 +1,7 @@
 package cz.cesnet.shongo.controller.api.rpc;
 
 import cz.cesnet.shongo.CommonReportSet;
+import cz.cesnet.shongo.ConcurrentExpirationMap;
 import cz.cesnet.shongo.PersistentObject;
 import cz.cesnet.shongo.TodoImplementException;
 import cz.cesnet.shongo.api.UserInformation;
@@ -124,11 +125,9 @@ public class AuthorizationServiceImpl extends AbstractServiceImpl
                 }
             }
 
-            // Get users
-            if (userIds != null && userIds.size() < 3) {
-                for (String userId : userIds) {
-                    users.add(authorization.getUserInformation(userId));
-                }
+            // Get users (not cached users are fetched by a single request and not existing users are skipped)
+            if (userIds != null) {
+                users.addAll(authorization.listUserInformation(userIds));
                 // Filter them
                 if (search != null) {
                     UserInformation.filter(users, search);
@@ -819,6 +818,37 @@ public class AuthorizationServiceImpl extends AbstractServiceImpl
         }
     }
 
+    @Override
+    public List<CacheStatistics> listCacheStatistics(SecurityToken securityToken)
+    {
+        authorization.validate(securityToken);
+
+        if (!authorization.isAdministrator(securityToken)) {
+            ControllerReportSetHelper.throwSecurityNotAuthorizedFault("list cache statistics");
+        }
+
+        List<CacheStatistics> cacheStatistics = new LinkedList<CacheStatistics>();
+        for (Map.Entry<String, ConcurrentExpirationMap.Statistics> entry :
+                authorization.getCacheStatistics().entrySet()) {
+            ConcurrentExpirationMap.Statistics statistics = entry.getValue();
+            CacheStatistics cacheStatisticsItem = new CacheStatistics();
+            cacheStatisticsItem.setName(entry.getKey());
+            cacheStatisticsItem.setSize(statistics.getSize());
+            cacheStatisticsItem.setMaxSize(statistics.getMaxSize());
+            cacheStatisticsItem.setHitCount((int) Math.min(statistics.getHitCount(), Integer.MAX_VALUE));
+            cacheStatisticsItem.setMissCount((int) Math.min(statistics.getMissCount(), Integer.MAX_VALUE));
+            cacheStatisticsItem.setExpirationCount((int) Math.min(statistics.getExpirationCount(), Integer.MAX_VALUE));
+            cacheStatisticsItem.setEvictionCount((int) Math.min(statistics.getEvictionCount(), Integer.MAX_VALUE));
+            if (entry.getKey().equals("aclUserState")) {
+                for (Map.Entry<String, Long> memorySizeEntry : authorization.getAclUserStateMemorySizes().entrySet()) {
+                    cacheStatisticsItem.addMemorySize(memorySizeEntry.getKey(), memorySizeEntry.getValue());
+                }
+            }
+            cacheStatistics.add(cacheStatisticsItem);
+        }
+        return cacheStatistics;
+    }
+
     /**
      * @param objectId      of object which should be checked for existence
      * @param entityManager which can be used
@@ -10,6 +10,8 @@ import cz.cesnet.shongo.controller.authorization.Authorization;
 import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
 import cz.cesnet.shongo.controller.booking.resource.DeviceResource;
 import cz.cesnet.shongo.controller.booking.resource.ResourceManager;
+import cz.cesnet.shongo.controller.executor.ExecutionPool;
+import cz.cesnet.shongo.controller.executor.Executor;
 import cz.cesnet.shongo.jade.SendLocalCommand;
 import jade.core.AID;
 
@@ -41,6 +43,21 @@ public class CommonServiceImpl extends AbstractServiceImpl
      */
     private Authorization authorization;
 
+    /**
+     * @see Executor
+     */
+    private final Executor executor;
+
+    /**
+     * Constructor.
+     *
+     * @param executor sets the {@link #executor}
+     */
+    public CommonServiceImpl(Executor executor)
+    {
+        this.executor = executor;
+    }
+
     @Override
     public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory)
     {
@@ -65,6 +82,7 @@ public class CommonServiceImpl extends AbstractServiceImpl
         checkDependency(entityManagerFactory, EntityManagerFactory.class);
         checkDependency(controllerAgent, ControllerAgent.class);
         checkDependency(authorization, Authorization.class);
+        checkDependency(executor, Executor.class);
         super.init(configuration);
     }
 
@@ -111,14 +129,30 @@ public class CommonServiceImpl extends AbstractServiceImpl
             deviceResourceMap.put(agentName, deviceResource);
         }
 
-        List<Connector> connectorList = new ArrayList<Connector>();
+        // Get status of all connector agents in parallel
+        List<String> agentNames = new ArrayList<String>();
         for (AID aid : controllerAgent.listConnectorAgents()) {
-            String agentName = aid.getLocalName();
+            agentNames.add(aid.getLocalName());
+        }
+        Map<String, SendLocalCommand> sendLocalCommands = controllerAgent.sendCommand(agentNames, new GetStatus());
+
+        // Get execution statistics of managed resources
+        Map<Long, ExecutionStatistics> executionStatisticsByResourceId = new HashMap<Long, ExecutionStatistics>();
+        ExecutionPool executionPool = executor.getExecutionPool();
+        if (executionPool != null) {
+            for (ExecutionPool.DeviceStatistics deviceStatistics : executionPool.getDeviceStatistics()) {
+                executionStatisticsByResourceId.put(deviceStatistics.getDeviceResourceId(), deviceStatistics.toApi());
+            }
+        }
+
+        List<Connector> connectorList = new ArrayList<Connector>();
+        for (Map.Entry<String, SendLocalCommand> entry : sendLocalCommands.entrySet()) {
+            String agentName = entry.getKey();
 
             Connector connector = new Connector();
             connector.setName(agentName);
 
-            SendLocalCommand sendLocalCommand = controllerAgent.sendCommand(agentName, new GetStatus());
+            SendLocalCommand sendLocalCommand = entry.getValue();
             if (sendLocalCommand.getState().equals(SendLocalCommand.State.SUCCESSFUL)) {
                 ConnectorStatus connectorStatus = (ConnectorStatus) sendLocalCommand.getResult();
                 connector.setAgentState(Connector.AgentState.AVAILABLE);
@@ -132,6 +166,7 @@ public class CommonServiceImpl extends AbstractServiceImpl
             DeviceResource deviceResource = deviceResourceMap.get(agentName);
             if (deviceResource != null) {
                 connector.setResourceId(ObjectIdentifier.formatId(deviceResource));
+                connector.setExecutionStatistics(executionStatisticsByResourceId.get(deviceResource.getId()));
                 deviceResourceMap.remove(agentName);
             }
 
@@ -142,6 +177,7 @@ public class CommonServiceImpl extends AbstractServiceImpl
             Connector connector = new Connector();
             connector.setName(entry.getKey());
             connector.setResourceId(ObjectIdentifier.formatId(entry.getValue()));
+            connector.setExecutionStatistics(executionStatisticsByResourceId.get(entry.getValue().getId()));
             connector.setAgentState(Connector.AgentState.NOT_AVAILABLE);
             connector.setStatus(new ConnectorStatus(ConnectorStatus.State.NOT_AVAILABLE));
             connectorList.add(connector);
@@ -0,0 +1,337 @@
+package cz.cesnet.shongo.controller.api.rpc;
+
+import cz.cesnet.shongo.api.DeviceLoadInfo;
+import cz.cesnet.shongo.api.RoomParticipant;
+import cz.cesnet.shongo.api.RoomSummary;
+import cz.cesnet.shongo.controller.api.jade.UpdateDeviceState;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of states of devices (rooms, room participants and {@link DeviceLoadInfo}) which are periodically pushed
+ * by connectors in {@link UpdateDeviceState}s. The cached state of a device is used only when it has been updated
+ * in the {@link #expiration} and when it hasn't been {@link #invalidate}d since the last update (otherwise
+ * the device should be asked directly). Updates with state which has been retrieved by the connector before
+ * the last invalidation are rejected (the clocks of the controller and the connectors are expected to be
+ * synchronized).
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class DeviceStateCache
+{
+    /**
+     * Default value for {@link #expiration}.
+     */
+    public static final Duration DEFAULT_EXPIRATION = Duration.standardSeconds(30);
+
+    /**
+     * {@link DeviceState}s by agent names.
+     */
+    private final ConcurrentHashMap<String, DeviceState> deviceStates = new ConcurrentHashMap<String, DeviceState>();
+
+    /**
+     * Maximum age of {@link DeviceState} which can be used.
+     */
+    private volatile Duration expiration = DEFAULT_EXPIRATION;
+
+    /**
+     * Constructor.
+     */
+    public DeviceStateCache()
+    {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expiration sets the {@link #expiration}
+     */
+    public DeviceStateCache(Duration expiration)
+    {
+        setExpiration(expiration);
+    }
+
+    /**
+     * @param expiration sets the {@link #expiration}
+     */
+    public void setExpiration(Duration expiration)
+    {
+        this.expiration = (expiration != null ? expiration : DEFAULT_EXPIRATION);
+    }
+
+    /**
+     * Apply given {@code updateDeviceState} to the state of device managed by agent with given {@code agentName}.
+     *
+     * @param agentName
+     * @param updateDeviceState
+     * @return true whether the next {@link UpdateDeviceState} must be {@link UpdateDeviceState#complete}
+     *         (e.g., because the controller has been restarted or because the update has been rejected),
+     *         false otherwise
+     */
+    public boolean update(String agentName, UpdateDeviceState updateDeviceState)
+    {
+        return !getOrCreateDeviceState(agentName).update(updateDeviceState);
+    }
+
+    /**
+     * Invalidate the state of device managed by agent with given {@code agentName} until the next update
+     * with state which is retrieved after now (e.g., because the device has been modified).
+     *
+     * @param agentName
+     */
+    public void invalidate(String agentName)
+    {
+        getOrCreateDeviceState(agentName).invalidate();
+    }
+
+    /**
+     * Remove the state of device managed by agent with given {@code agentName}.
+     *
+     * @param agentName
+     */
+    public void remove(String agentName)
+    {
+        deviceStates.remove(agentName);
+    }
+
+    /**
+     * @param agentName
+     * @return collection of {@link RoomSummary}s or {@code null} when the state isn't available
+     */
+    public Collection<RoomSummary> getRooms(String agentName)
+    {
+        DeviceState deviceState = getDeviceState(agentName);
+        if (deviceState == null) {
+            return null;
+        }
+        return deviceState.getRooms();
+    }
+
+    /**
+     * @param agentName
+     * @param roomId
+     * @return collection of {@link RoomParticipant}s or {@code null} when the state isn't available
+     */
+    public Collection<RoomParticipant> getRoomParticipants(String agentName, String roomId)
+    {
+        DeviceState deviceState = getDeviceState(agentName);
+        if (deviceState == null) {
+            return null;
+        }
+        return deviceState.getRoomParticipants(roomId);
+    }
+
+    /**
+     * @param agentName
+     * @param roomIds   identifiers of rooms ({@code null} means all rooms)
+     * @return collection of {@link RoomParticipant}s from all given rooms or {@code null} when the state
+     *         isn't available (for any of the rooms)
+     */
+    public Collection<RoomParticipant> getRoomParticipants(String agentName, Set<String> roomIds)
+    {
+        DeviceState deviceState = getDeviceState(agentName);
+        if (deviceState == null) {
+            return null;
+        }
+        return deviceState.getRoomParticipants(roomIds);
+    }
+
+    /**
+     * @param agentName
+     * @return {@link DeviceLoadInfo} or {@code null} when the state isn't available
+     */
+    public DeviceLoadInfo getDeviceLoadInfo(String agentName)
+    {
+        DeviceState deviceState = getDeviceState(agentName);
+        if (deviceState == null) {
+            return null;
+        }
+        return deviceState.getDeviceLoadInfo();
+    }
+
+    /**
+     * @param agentName
+     * @return existing or new {@link DeviceState} for given {@code agentName}
+     */
+    private DeviceState getOrCreateDeviceState(String agentName)
+    {
+        DeviceState deviceState = deviceStates.get(agentName);
+        if (deviceState == null) {
+            deviceState = new DeviceState();
+            DeviceState existingDeviceState = deviceStates.putIfAbsent(agentName, deviceState);
+            if (existingDeviceState != null) {
+                deviceState = existingDeviceState;
+            }
+        }
+        return deviceState;
+    }
+
+    /**
+     * @param agentName
+     * @return {@link DeviceState} for given {@code agentName} when it can be used, {@code null} otherwise
+     */
+    private DeviceState getDeviceState(String agentName)
+    {
+        DeviceState deviceState = deviceStates.get(agentName);
+        if (deviceState == null || !deviceState.isValid(System.currentTimeMillis() - expiration.getMillis())) {
+            return null;
+        }
+        return deviceState;
+    }
+
+    /**
+     * State of a single device.
+     */
+    private static class DeviceState
+    {
+        /**
+         * {@link RoomSummary}s by room identifiers.
+         */
+        private final Map<String, RoomSummary> rooms = new LinkedHashMap<String, RoomSummary>();
+
+        /**
+         * Lists of {@link RoomParticipant}s by room identifiers (only for rooms for which the participants
+         * have been pushed).
+         */
+        private final Map<String, List<RoomParticipant>> roomParticipants =
+                new HashMap<String, List<RoomParticipant>>();
+
+        /**
+         * @see DeviceLoadInfo
+         */
+        private DeviceLoadInfo deviceLoadInfo;
+
+        /**
+         * Time in milliseconds of the last update.
+         */
+        private long updateTime;
+
+        /**
+         * Specifies whether the state has been invalidated since the last update.
+         */
+        private boolean invalidated;
+
+        /**
+         * Time in milliseconds of the last invalidation.
+         */
+        private long invalidationTime;
+
+        /**
+         * Specifies whether the state doesn't correspond to the state known by the connector and thus only
+         * {@link UpdateDeviceState#complete} update can be applied.
+         */
+        private boolean incomplete = true;
+
+        /**
+         * @param updateDeviceState to be applied
+         * @return true whether the {@code updateDeviceState} has been applied, false whether it has been rejected
+         */
+        public synchronized boolean update(UpdateDeviceState updateDeviceState)
+        {
+            DateTime dateTime = updateDeviceState.getDateTime();
+            if (dateTime != null && dateTime.getMillis() < invalidationTime) {
+                // State has been retrieved before the device was modified
+                incomplete = true;
+                return false;
+            }
+            if (updateDeviceState.isComplete()) {
+                rooms.clear();
+                roomParticipants.clear();
+                incomplete = false;
+            }
+            else if (incomplete) {
+                // Changes cannot be applied to unknown state
+                return false;
+            }
+            for (String roomId : updateDeviceState.getDeletedRoomIds()) {
+                rooms.remove(roomId);
+                roomParticipants.remove(roomId);
+            }
+            for (RoomSummary room : updateDeviceState.getRooms()) {
+                rooms.put(room.getId(), room);
+            }
+            for (String roomId : updateDeviceState.getParticipantRoomIds()) {
+                roomParticipants.put(roomId, new LinkedList<RoomParticipant>());
+            }
+            for (RoomParticipant roomParticipant : updateDeviceState.getRoomParticipants()) {
+                List<RoomParticipant> roomParticipants = this.roomParticipants.get(roomParticipant.getRoomId());
+                if (roomParticipants != null) {
+                    roomParticipants.add(roomParticipant);
+                }
+            }
+            deviceLoadInfo = updateDeviceState.getDeviceLoadInfo();
+            updateTime = System.currentTimeMillis();
+            invalidated = false;
+            return true;
+        }
+
+        /**
+         * Invalidate the state until the next {@link #update} with state which is retrieved after now.
+         */
+        public synchronized void invalidate()
+        {
+            invalidated = true;
+            invalidationTime = System.currentTimeMillis();
+        }
+
+        /**
+         * @param minimumUpdateTime minimum time in milliseconds of the last update
+         * @return true whether the state can be used, false otherwise
+         */
+        public synchronized boolean isValid(long minimumUpdateTime)
+        {
+            return !invalidated && !incomplete && updateTime >= minimumUpdateTime;
+        }
+
+        /**
+         * @return collection of {@link RoomSummary}s
+         */
+        public synchronized Collection<RoomSummary> getRooms()
+        {
+            return new ArrayList<RoomSummary>(rooms.values());
+        }
+
+        /**
+         * @param roomId
+         * @return collection of {@link RoomParticipant}s for room with given {@code roomId} or {@code null}
+         *         when they haven't been pushed
+         */
+        public synchronized Collection<RoomParticipant> getRoomParticipants(String roomId)
+        {
+            List<RoomParticipant> roomParticipants = this.roomParticipants.get(roomId);
+            if (roomParticipants == null) {
+                return null;
+            }
+            return new ArrayList<RoomParticipant>(roomParticipants);
+        }
+
+        /**
+         * @param roomIds identifiers of rooms ({@code null} means all rooms)
+         * @return collection of {@link RoomParticipant}s from all given rooms or {@code null} when they haven't
+         *         been pushed for any of the rooms
+         */
+        public synchronized Collection<RoomParticipant> getRoomParticipants(Set<String> roomIds)
+        {
+            List<RoomParticipant> result = new ArrayList<RoomParticipant>();
+            for (String roomId : (roomIds != null ? roomIds : rooms.keySet())) {
+                List<RoomParticipant> roomParticipants = this.roomParticipants.get(roomId);
+                if (roomParticipants == null) {
+                    return null;
+                }
+                result.addAll(roomParticipants);
+            }
+            return result;
+        }
+
+        /**
+         * @return {@link #deviceLoadInfo}
+         */
+        public synchronized DeviceLoadInfo getDeviceLoadInfo()
+        {
+            return deviceLoadInfo;
+        }
+    }
+}
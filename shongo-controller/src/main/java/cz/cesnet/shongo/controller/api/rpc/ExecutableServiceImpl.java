@@ -207,8 +207,11 @@ public class ExecutableServiceImpl extends AbstractServiceImpl
                 }
             }
 
-            // Sort query part
-            String queryOrderBy;
+            // Sort query part (by unique keys when possible to allow keyset cursors)
+            String queryOrderBy = null;
+            QueryFilter.OrderKey orderKeyId = new QueryFilter.OrderKey("executable_summary.id", 0,
+                    QueryFilter.OrderKey.Type.NUMBER);
+            QueryFilter.OrderKey[] orderKeys = null;
             ExecutableListRequest.Sort sort = request.getSort();
             if (sort != null) {
                 switch (sort) {
@@ -216,10 +219,14 @@ public class ExecutableServiceImpl extends AbstractServiceImpl
                         queryOrderBy = "executable_summary.room_name";
                         break;
                     case SLOT:
-                        queryOrderBy = "executable_summary.slot_end";
+                        orderKeys = new QueryFilter.OrderKey[]{
+                                new QueryFilter.OrderKey("executable_summary.slot_end", 3,
+                                        QueryFilter.OrderKey.Type.TIMESTAMP), orderKeyId};
                         break;
                     case STATE:
-                        queryOrderBy = "executable_summary.state";
+                        orderKeys = new QueryFilter.OrderKey[]{
+                                new QueryFilter.OrderKey("executable_summary.state", 4,
+                                        QueryFilter.OrderKey.Type.STRING), orderKeyId};
                         break;
                     case ROOM_TECHNOLOGY:
                         queryOrderBy = "executable_summary.room_technologies";
@@ -232,13 +239,17 @@ public class ExecutableServiceImpl extends AbstractServiceImpl
                 }
             }
             else {
-                queryOrderBy = "executable_summary.id";
+                orderKeys = new QueryFilter.OrderKey[]{orderKeyId};
             }
             Boolean sortDescending = request.getSortDescending();
             sortDescending = (sortDescending != null ? sortDescending : false);
-            if (sortDescending) {
+            if (orderKeys != null) {
+                queryOrderBy = queryFilter.setOrderKeys(sortDescending, orderKeys);
+            }
+            else if (sortDescending) {
                 queryOrderBy = queryOrderBy + " DESC";
             }
+            queryFilter.applyCursor(request.getCursor());
 
             Map<String, String> parameters = new HashMap<String, String>();
             parameters.put("filterExecutableId", filterExecutableId);
@@ -409,17 +420,11 @@ public class ExecutableServiceImpl extends AbstractServiceImpl
                     executionPlan.build();
 
                     // Perform execution plan
-                    while (!executionPlan.isEmpty()) {
-                        Collection<ExecutionAction> executionActions = executionPlan.popExecutionActions();
-                        for (ExecutionAction executionAction : executionActions) {
-                            executionAction.start();
-                        }
-                        try {
-                            Thread.sleep(100);
-                        }
-                        catch (InterruptedException exception) {
-                            executor.getLogger().error("Execution interrupted.", exception);
-                        }
+                    try {
+                        executor.performExecutionPlan(executionPlan);
+                    }
+                    catch (InterruptedException exception) {
+                        executor.getLogger().error("Execution interrupted.", exception);
                     }
 
                     // Set services as checked
@@ -896,19 +901,30 @@ public class ExecutableServiceImpl extends AbstractServiceImpl
                     recordingFolders = Collections.emptyMap();
                 }
 
-                // Get all recordings from folders
-                resourceRecordings = new LinkedList<ResourceRecording>();
+                // Request all recordings from folders in parallel
+                Map<DeviceResource, SendLocalCommand> sendLocalCommands =
+                        new LinkedHashMap<DeviceResource, SendLocalCommand>();
                 for (Map.Entry<RecordingCapability, String> entry : recordingFolders.entrySet()) {
                     RecordingCapability recordingCapability = entry.getKey();
                     DeviceResource recordingDeviceResource = recordingCapability.getDeviceResource();
-                    String recordingDeviceResourceId = ObjectIdentifier.formatId(recordingDeviceResource);
                     String recordingFolderId = entry.getValue();
                     if (recordingFolderId == null) {
                         continue;
                     }
+                    ManagedMode managedMode = recordingDeviceResource.requireManaged();
+                    sendLocalCommands.put(recordingDeviceResource, controllerAgent.sendCommandAsync(
+                            managedMode.getConnectorAgentName(), new ListRecordings(recordingFolderId)));
+                }
+                controllerAgent.waitForProcessed(sendLocalCommands.values());
+
+                // Get all recordings from folders
+                resourceRecordings = new LinkedList<ResourceRecording>();
+                for (Map.Entry<DeviceResource, SendLocalCommand> entry : sendLocalCommands.entrySet()) {
+                    DeviceResource recordingDeviceResource = entry.getKey();
+                    String recordingDeviceResourceId = ObjectIdentifier.formatId(recordingDeviceResource);
                     @SuppressWarnings("unchecked")
-                    Collection<Recording> serviceRecordings = (Collection<Recording>) performDeviceCommand(
-                            recordingDeviceResource, new ListRecordings(recordingFolderId));
+                    Collection<Recording> serviceRecordings = (Collection<Recording>) getDeviceCommandResult(
+                            recordingDeviceResource, entry.getValue());
                     for (Recording recording : serviceRecordings) {
                         resourceRecordings.add(
                                 new ResourceRecording(recordingDeviceResourceId, recording));
@@ -974,9 +990,20 @@ public class ExecutableServiceImpl extends AbstractServiceImpl
         ManagedMode managedMode = deviceResource.requireManaged();
         String agentName = managedMode.getConnectorAgentName();
         SendLocalCommand sendLocalCommand = controllerAgent.sendCommand(agentName, command);
+        return getDeviceCommandResult(deviceResource, sendLocalCommand);
+    }
+
+    /**
+     * @param deviceResource   to which the {@code sendLocalCommand} has been sent
+     * @param sendLocalCommand which has been processed
+     * @return result of given {@code sendLocalCommand}
+     * @throws ControllerReportSet.DeviceCommandFailedException when the {@code sendLocalCommand} hasn't succeeded
+     */
+    private Object getDeviceCommandResult(DeviceResource deviceResource, SendLocalCommand sendLocalCommand)
+    {
         if (!sendLocalCommand.getState().equals(SendLocalCommand.State.SUCCESSFUL)) {
             throw new ControllerReportSet.DeviceCommandFailedException(ObjectIdentifier.formatId(deviceResource),
-                    command.toString(), sendLocalCommand.getJadeReport());
+                    sendLocalCommand.getCommand().toString(), sendLocalCommand.getJadeReport());
         }
         return sendLocalCommand.getResult();
     }
@@ -45,6 +45,11 @@ public class ReservationServiceImpl extends AbstractServiceImpl
      */
     private Cache cache;
 
+    /**
+     * @see Scheduler
+     */
+    private Scheduler scheduler;
+
     /**
      * @see javax.persistence.EntityManagerFactory
      */
@@ -57,10 +62,14 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
     /**
      * Constructor.
+     *
+     * @param cache     sets the {@link #cache}
+     * @param scheduler sets the {@link #scheduler}
      */
-    public ReservationServiceImpl(Cache cache)
+    public ReservationServiceImpl(Cache cache, Scheduler scheduler)
     {
         this.cache = cache;
+        this.scheduler = scheduler;
     }
 
     @Override
@@ -252,6 +261,8 @@ public class ReservationServiceImpl extends AbstractServiceImpl
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction();
 
+            addModifiedReservationRequest(reservationRequest);
+
             return ObjectIdentifier.formatId(reservationRequest);
         }
         finally {
@@ -370,6 +381,8 @@ public class ReservationServiceImpl extends AbstractServiceImpl
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction();
 
+            addModifiedReservationRequest(newReservationRequest);
+
             return ObjectIdentifier.formatId(newReservationRequest);
         }
         finally {
@@ -434,6 +447,8 @@ public class ReservationServiceImpl extends AbstractServiceImpl
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction();
 
+            addModifiedReservationRequest(modifiedReservationRequest);
+
             return ObjectIdentifier.formatId(modifiedReservationRequest);
         }
         finally {
@@ -484,6 +499,8 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction();
+
+            addModifiedReservationRequest(reservationRequest);
         }
         finally {
             if (authorizationManager.isTransactionActive()) {
@@ -546,6 +563,8 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction();
+
+            addModifiedReservationRequest(abstractReservationRequest);
         }
         finally {
             if (authorizationManager.isTransactionActive()) {
@@ -708,8 +727,11 @@ public class ReservationServiceImpl extends AbstractServiceImpl
                 }
             }
 
-            // Query order by
-            String queryOrderBy;
+            // Query order by (by unique keys when possible to allow keyset cursors)
+            String queryOrderBy = null;
+            QueryFilter.OrderKey orderKeyId = new QueryFilter.OrderKey("reservation_request_summary.id", 0,
+                    QueryFilter.OrderKey.Type.NUMBER);
+            QueryFilter.OrderKey[] orderKeys = null;
             ReservationRequestListRequest.Sort sort = request.getSort();
             if (sort != null) {
                 switch (sort) {
@@ -717,7 +739,9 @@ public class ReservationServiceImpl extends AbstractServiceImpl
                         queryOrderBy = "specification_summary.alias_room_name";
                         break;
                     case DATETIME:
-                        queryOrderBy = "reservation_request_summary.created_at";
+                        orderKeys = new QueryFilter.OrderKey[]{
+                                new QueryFilter.OrderKey("reservation_request_summary.created_at", 3,
+                                        QueryFilter.OrderKey.Type.TIMESTAMP), orderKeyId};
                         break;
                     case REUSED_RESERVATION_REQUEST:
                         queryOrderBy = "reservation_request_summary.reused_reservation_request_id IS NOT NULL";
@@ -741,20 +765,26 @@ public class ReservationServiceImpl extends AbstractServiceImpl
                         queryOrderBy = "specification_summary.type";
                         break;
                     case USER:
-                        queryOrderBy = "reservation_request_summary.created_by";
+                        orderKeys = new QueryFilter.OrderKey[]{
+                                new QueryFilter.OrderKey("reservation_request_summary.created_by", 4,
+                                        QueryFilter.OrderKey.Type.STRING), orderKeyId};
                         break;
                     default:
                         throw new TodoImplementException(sort);
                 }
             }
             else {
-                queryOrderBy = "reservation_request_summary.id";
+                orderKeys = new QueryFilter.OrderKey[]{orderKeyId};
             }
             Boolean sortDescending = request.getSortDescending();
             sortDescending = (sortDescending != null ? sortDescending : false);
-            if (sortDescending) {
+            if (orderKeys != null) {
+                queryOrderBy = queryFilter.setOrderKeys(sortDescending, orderKeys);
+            }
+            else if (sortDescending) {
                 queryOrderBy = queryOrderBy + " DESC";
             }
+            queryFilter.applyCursor(request.getCursor());
 
             Map<String, String> parameters = new HashMap<String, String>();
             parameters.put("filter", queryFilter.toQueryWhere());
@@ -935,26 +965,21 @@ public class ReservationServiceImpl extends AbstractServiceImpl
 
         EntityManager entityManager = entityManagerFactory.createEntityManager();
         try {
-            QueryFilter queryFilter = new QueryFilter("reservation_summary");
+            QueryFilter queryFilter = new QueryFilter("reservation_summary", true);
 
             // List only reservations which is current user permitted to read or which allocates resource owned by the user
-            Set<Long> readableReservationIds = authorization.getEntitiesWithPermission(securityToken,
+            // (readable reservations are selected by sub-query to not bind all their identifiers)
+            String readableFilter = queryFilter.getFilterAcl("reservation_summary.id", authorization, securityToken,
                     cz.cesnet.shongo.controller.booking.reservation.Reservation.class, ObjectPermission.READ);
-            if (readableReservationIds != null) {
+            if (readableFilter != null) {
                 Set<Long> ownedResourceIds = authorization.getEntitiesWithRole(securityToken,
                         cz.cesnet.shongo.controller.booking.resource.Resource.class, ObjectRole.OWNER);
-                StringBuilder filterBuilder = new StringBuilder();
-                filterBuilder.append("1=0");
-                if (!readableReservationIds.isEmpty()) {
-                    filterBuilder.append(" OR reservation_summary.id IN(:readableReservationIds)");
-                    queryFilter.addFilterParameter("readableReservationIds", readableReservationIds);
-                }
                 if (!ownedResourceIds.isEmpty()) {
-                    filterBuilder.append(" OR reservation_summary.resource_id IN(:ownedResourceIds)");
+                    readableFilter = "(" + readableFilter
+                            + " OR reservation_summary.resource_id IN (:ownedResourceIds))";
                     queryFilter.addFilterParameter("ownedResourceIds", ownedResourceIds);
-
                 }
-                queryFilter.addFilter(filterBuilder.toString());
+                queryFilter.addFilter(readableFilter);
             }
 
             // List only reservations of requested types
@@ -990,26 +1015,29 @@ public class ReservationServiceImpl extends AbstractServiceImpl
                 queryFilter.addFilterParameter("slotEnd", interval.getEnd().toDate());
             }
 
-            // Sort query part
-            String queryOrderBy;
+            // Sort query part (by unique keys to allow keyset cursors)
+            QueryFilter.OrderKey orderKeyId = new QueryFilter.OrderKey("reservation_summary.id", 0,
+                    QueryFilter.OrderKey.Type.NUMBER);
+            QueryFilter.OrderKey[] orderKeys;
             ReservationListRequest.Sort sort = request.getSort();
             if (sort != null) {
                 switch (sort) {
                     case SLOT:
-                        queryOrderBy = "reservation_summary.slot_start";
+                        orderKeys = new QueryFilter.OrderKey[]{
+                                new QueryFilter.OrderKey("reservation_summary.slot_start", 4,
+                                        QueryFilter.OrderKey.Type.TIMESTAMP), orderKeyId};
                         break;
                     default:
                         throw new TodoImplementException(sort);
                 }
             }
             else {
-                queryOrderBy = "reservation_summary.id";
+                orderKeys = new QueryFilter.OrderKey[]{orderKeyId};
             }
             Boolean sortDescending = request.getSortDescending();
             sortDescending = (sortDescending != null ? sortDescending : false);
-            if (sortDescending) {
-                queryOrderBy = queryOrderBy + " DESC";
-            }
+            String queryOrderBy = queryFilter.setOrderKeys(sortDescending, orderKeys);
+            queryFilter.applyCursor(request.getCursor());
 
             Map<String, String> parameters = new HashMap<String, String>();
             parameters.put("filter", queryFilter.toQueryWhere());
@@ -1054,6 +1082,20 @@ public class ReservationServiceImpl extends AbstractServiceImpl
         }
     }
 
+    /**
+     * Notify the {@link #scheduler} about committed creation, modification or deletion of given
+     * {@code reservationRequest}.
+     *
+     * @param reservationRequest which has been created, modified or deleted
+     */
+    private void addModifiedReservationRequest(
+            cz.cesnet.shongo.controller.booking.request.AbstractReservationRequest reservationRequest)
+    {
+        if (scheduler != null) {
+            scheduler.addModifiedReservationRequest(reservationRequest.getId());
+        }
+    }
+
     /**
      * Check whether {@code abstractReservationRequest} can be modified.
      *
@@ -26,6 +26,7 @@ import cz.cesnet.shongo.jade.SendLocalCommand;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -59,14 +60,31 @@ public class ResourceControlServiceImpl extends AbstractServiceImpl
      */
     private final RecordingsCache recordingsCache;
 
+    /**
+     * @see DeviceStateCache
+     */
+    private final DeviceStateCache deviceStateCache;
+
     /**
      * Constructor.
      *
      * @param recordingsCache sets the {@link #recordingsCache}
      */
     public ResourceControlServiceImpl(RecordingsCache recordingsCache)
+    {
+        this(recordingsCache, new DeviceStateCache());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param recordingsCache  sets the {@link #recordingsCache}
+     * @param deviceStateCache sets the {@link #deviceStateCache}
+     */
+    public ResourceControlServiceImpl(RecordingsCache recordingsCache, DeviceStateCache deviceStateCache)
     {
         this.recordingsCache = recordingsCache;
+        this.deviceStateCache = deviceStateCache;
     }
 
     @Override
@@ -112,6 +130,10 @@ public class ResourceControlServiceImpl extends AbstractServiceImpl
     public DeviceLoadInfo getDeviceLoadInfo(SecurityToken token, String deviceResourceId)
     {
         String agentName = validate(token, deviceResourceId);
+        DeviceLoadInfo deviceLoadInfo = deviceStateCache.getDeviceLoadInfo(agentName);
+        if (deviceLoadInfo != null) {
+            return deviceLoadInfo;
+        }
         return (DeviceLoadInfo) performDeviceCommand(deviceResourceId, agentName, new GetDeviceLoadInfo());
     }
 
@@ -210,6 +232,10 @@ public class ResourceControlServiceImpl extends AbstractServiceImpl
     public Collection<RoomSummary> listRooms(SecurityToken token, String deviceResourceId)
     {
         String agentName = validate(token, deviceResourceId);
+        Collection<RoomSummary> rooms = deviceStateCache.getRooms(agentName);
+        if (rooms != null) {
+            return rooms;
+        }
         return (Collection<RoomSummary>) performDeviceCommand(deviceResourceId, agentName, new ListRooms());
     }
 
@@ -224,30 +250,50 @@ public class ResourceControlServiceImpl extends AbstractServiceImpl
     public String createRoom(SecurityToken token, String deviceResourceId, Room room)
     {
         String agentName = validate(token, deviceResourceId);
-        return (String) performDeviceCommand(deviceResourceId, agentName, new CreateRoom(room));
+        return (String) performModifyingDeviceCommand(deviceResourceId, agentName, new CreateRoom(room));
     }
 
     @Override
     public String modifyRoom(SecurityToken token, String deviceResourceId, Room room)
     {
         String agentName = validateRoom(token, deviceResourceId, room.getId());
-        return (String) performDeviceCommand(deviceResourceId, agentName, new ModifyRoom(room));
+        return (String) performModifyingDeviceCommand(deviceResourceId, agentName, new ModifyRoom(room));
     }
 
     @Override
     public void deleteRoom(SecurityToken token, String deviceResourceId, String roomId)
     {
         String agentName = validateRoom(token, deviceResourceId, roomId);
-        performDeviceCommand(deviceResourceId, agentName, new DeleteRoom(roomId));
+        performModifyingDeviceCommand(deviceResourceId, agentName, new DeleteRoom(roomId));
     }
 
     @Override
     public Collection<RoomParticipant> listRoomParticipants(SecurityToken token, String deviceResourceId, String roomId)
     {
         String agentName = validateRoom(token, deviceResourceId, roomId);
+        Collection<RoomParticipant> roomParticipants = deviceStateCache.getRoomParticipants(agentName, roomId);
+        if (roomParticipants != null) {
+            return roomParticipants;
+        }
         return (List<RoomParticipant>) performDeviceCommand(deviceResourceId, agentName, new ListRoomParticipants(roomId));
     }
 
+    @Override
+    public Collection<RoomParticipant> listRoomsParticipants(SecurityToken token, String deviceResourceId,
+            Set<String> roomIds)
+    {
+        if (roomIds != null && roomIds.isEmpty()) {
+            roomIds = null;
+        }
+        String agentName = validateRooms(token, deviceResourceId, roomIds);
+        Collection<RoomParticipant> roomParticipants = deviceStateCache.getRoomParticipants(agentName, roomIds);
+        if (roomParticipants != null) {
+            return roomParticipants;
+        }
+        return (List<RoomParticipant>) performDeviceCommand(deviceResourceId, agentName,
+                new ListRoomsParticipants(roomIds));
+    }
+
     @Override
     public RoomParticipant getRoomParticipant(SecurityToken token, String deviceResourceId, String roomId,
             String roomParticipantId)
@@ -270,21 +316,21 @@ public class ResourceControlServiceImpl extends AbstractServiceImpl
     public void modifyRoomParticipant(SecurityToken token, String deviceResourceId, RoomParticipant roomParticipant)
     {
         String agentName = validateRoom(token, deviceResourceId, roomParticipant.getRoomId());
-        performDeviceCommand(deviceResourceId, agentName, new ModifyRoomParticipant(roomParticipant));
+        performModifyingDeviceCommand(deviceResourceId, agentName, new ModifyRoomParticipant(roomParticipant));
     }
 
     @Override
     public void modifyRoomParticipants(SecurityToken token, String deviceResourceId, RoomParticipant roomParticipants)
     {
         String agentName = validateRoom(token, deviceResourceId, roomParticipants.getRoomId());
-        performDeviceCommand(deviceResourceId, agentName, new ModifyRoomParticipants(roomParticipants));
+        performModifyingDeviceCommand(deviceResourceId, agentName, new ModifyRoomParticipants(roomParticipants));
     }
 
     @Override
     public String dialRoomParticipant(SecurityToken token, String deviceResourceId, String roomId, Alias alias)
     {
         String agentName = validateRoom(token, deviceResourceId, roomId);
-        return (String) performDeviceCommand(deviceResourceId, agentName, new DialRoomParticipant(roomId, alias));
+        return (String) performModifyingDeviceCommand(deviceResourceId, agentName, new DialRoomParticipant(roomId, alias));
     }
 
     @Override
@@ -292,7 +338,7 @@ public class ResourceControlServiceImpl extends AbstractServiceImpl
             String roomParticipantId)
     {
         String agentName = validateRoom(token, deviceResourceId, roomId);
-        performDeviceCommand(deviceResourceId, agentName, new DisconnectRoomParticipant(roomId, roomParticipantId));
+        performModifyingDeviceCommand(deviceResourceId, agentName, new DisconnectRoomParticipant(roomId, roomParticipantId));
     }
 
     @Override
@@ -429,6 +475,24 @@ public class ResourceControlServiceImpl extends AbstractServiceImpl
                 deviceResourceId, command.toString(), sendLocalCommand.getJadeReport());
     }
 
+    /**
+     * Asks the local controller agent to send a command which modifies a device and invalidate the state of
+     * the device in the {@link #deviceStateCache} when the command returns (so that the state which has been
+     * retrieved before the modification isn't used).
+     *
+     * @param agentName on which the command should be performed
+     * @param command   command to be performed by the device
+     */
+    private Object performModifyingDeviceCommand(String deviceResourceId, String agentName, ConnectorCommand command)
+    {
+        try {
+            return performDeviceCommand(deviceResourceId, agentName, command);
+        }
+        finally {
+            deviceStateCache.invalidate(agentName);
+        }
+    }
+
     /**
      * @param securityToken    to be validated against given {@code deviceResourceId}
      * @param deviceResourceId
@@ -463,9 +527,22 @@ public class ResourceControlServiceImpl extends AbstractServiceImpl
      */
     private String validateRoom(SecurityToken securityToken, String deviceResourceId, String roomId)
     {
+        return validateRooms(securityToken, deviceResourceId, Collections.singleton(roomId));
+    }
+
+    /**
+     * @param securityToken    to be validated against given {@code deviceResourceId} and {@code roomIds}
+     * @param deviceResourceId
+     * @param roomIds          identifiers of rooms ({@code null} means all rooms)
+     * @return agent name
+     */
+    private String validateRooms(SecurityToken securityToken, String deviceResourceId, Set<String> roomIds)
+    {
+        if (roomIds == null) {
+            return validate(securityToken, deviceResourceId);
+        }
         authorization.validate(securityToken);
         checkNotNull("deviceResourceId", deviceResourceId);
-        checkNotNull("roomId", deviceResourceId);
 
         EntityManager entityManager = entityManagerFactory.createEntityManager();
         ResourceManager resourceManager = new ResourceManager(entityManager);
@@ -475,12 +552,14 @@ public class ResourceControlServiceImpl extends AbstractServiceImpl
             String agentName = getAgentName(deviceResource);
             if (!authorization.hasObjectPermission(securityToken, deviceResource, ObjectPermission.CONTROL_RESOURCE)) {
                 ExecutableManager executableManager = new ExecutableManager(entityManager);
-                RoomEndpoint roomEndpoint = executableManager.getRoomEndpoint(
-                        deviceResourceIdentifier.getPersistenceId(), roomId);
-                if (roomEndpoint == null
-                        || !authorization.hasObjectPermission(securityToken, roomEndpoint, ObjectPermission.READ)) {
-                    ControllerReportSetHelper.throwSecurityNotAuthorizedFault(
-                            "control device %s", deviceResourceIdentifier);
+                for (String roomId : roomIds) {
+                    RoomEndpoint roomEndpoint = executableManager.getRoomEndpoint(
+                            deviceResourceIdentifier.getPersistenceId(), roomId);
+                    if (roomEndpoint == null
+                            || !authorization.hasObjectPermission(securityToken, roomEndpoint, ObjectPermission.READ)) {
+                        ControllerReportSetHelper.throwSecurityNotAuthorizedFault(
+                                "control device %s", deviceResourceIdentifier);
+                    }
                 }
             }
             return agentName;
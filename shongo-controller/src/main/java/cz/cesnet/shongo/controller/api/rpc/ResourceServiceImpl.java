@@ -1,5 +1,6 @@
 package cz.cesnet.shongo.controller.api.rpc;
 
+import cz.cesnet.shongo.PersistentObject;
 import cz.cesnet.shongo.Technology;
 import cz.cesnet.shongo.TodoImplementException;
 import cz.cesnet.shongo.controller.*;
@@ -18,6 +19,9 @@ import cz.cesnet.shongo.controller.booking.resource.DeviceResource;
 import cz.cesnet.shongo.controller.booking.resource.ResourceManager;
 import cz.cesnet.shongo.controller.booking.room.RoomProviderCapability;
 import cz.cesnet.shongo.controller.booking.room.AvailableRoom;
+import cz.cesnet.shongo.controller.booking.value.ValueProviderCapability;
+import cz.cesnet.shongo.controller.booking.value.provider.PatternValueProvider;
+import cz.cesnet.shongo.controller.booking.value.provider.ValueProvider;
 import cz.cesnet.shongo.controller.scheduler.SchedulerContext;
 import cz.cesnet.shongo.controller.util.NativeQuery;
 import cz.cesnet.shongo.controller.util.QueryFilter;
@@ -257,46 +261,36 @@ public class ResourceServiceImpl extends AbstractServiceImpl
         EntityManager entityManager = entityManagerFactory.createEntityManager();
         ResourceManager resourceManager = new ResourceManager(entityManager);
         try {
-            Set<Long> readableResourceIds = authorization.getEntitiesWithPermission(securityToken,
-                    cz.cesnet.shongo.controller.booking.resource.Resource.class, ObjectPermission.READ);
-            if (readableResourceIds != null) {
-                // Allow to add/delete items in the set
-                readableResourceIds = new HashSet<Long>(readableResourceIds);
-            }
-
             QueryFilter queryFilter = new QueryFilter("resource_summary", true);
-            queryFilter.addFilterIn("id", readableResourceIds);
 
             // Filter requested resource-ids
             if (request.getResourceIds().size() > 0) {
                 Set<Long> requestedResourceIds = new HashSet<Long>();
-                Set<Long> notReadableResourceIds = new HashSet<Long>();
                 for (String resourceApiId : request.getResourceIds()) {
-                    Long resourceId = ObjectIdentifier.parseId(resourceApiId, ObjectType.RESOURCE);
-                    if (readableResourceIds != null && !readableResourceIds.contains(resourceId)) {
-                        notReadableResourceIds.add(resourceId);
-                    }
-                    requestedResourceIds.add(resourceId);
+                    requestedResourceIds.add(ObjectIdentifier.parseId(resourceApiId, ObjectType.RESOURCE));
                 }
                 queryFilter.addFilter("id IN(:resourceIds)");
                 queryFilter.addFilterParameter("resourceIds", requestedResourceIds);
 
-                // Check if user has any reservations for not readable resources for them to become readable
-                if (notReadableResourceIds.size() > 0) {
-                    Set<Long> readableReservationIds = authorization.getEntitiesWithPermission(securityToken,
+                // List only readable resources (requested resources are readable also when the user can read
+                // any reservation which allocates them)
+                String readableResourceFilter = queryFilter.getFilterAcl("resource_summary.id", authorization,
+                        securityToken, cz.cesnet.shongo.controller.booking.resource.Resource.class,
+                        ObjectPermission.READ);
+                if (readableResourceFilter != null) {
+                    String readableReservationFilter = queryFilter.getFilterAcl("resource_reservation.id",
+                            authorization, securityToken,
                             cz.cesnet.shongo.controller.booking.reservation.Reservation.class, ObjectPermission.READ);
-                    List readableResources = entityManager.createNativeQuery("SELECT resource_reservation.resource_id"
-                            + " FROM resource_reservation"
-                            + " WHERE resource_reservation.id IN (:reservationIds)"
-                            + " AND resource_reservation.resource_id IN(:resourceIds)")
-                            .setParameter("reservationIds", readableReservationIds)
-                            .setParameter("resourceIds", notReadableResourceIds)
-                            .getResultList();
-                    for (Object readableResourceId : readableResources) {
-                        readableReservationIds.add(((Number) readableResourceId).longValue());
-                    }
+                    queryFilter.addFilter("(" + readableResourceFilter + " OR resource_summary.id IN ("
+                            + " SELECT resource_reservation.resource_id FROM resource_reservation"
+                            + " WHERE " + readableReservationFilter + "))");
                 }
             }
+            else {
+                // List only readable resources
+                queryFilter.addFilterAcl("id", authorization, securityToken,
+                        cz.cesnet.shongo.controller.booking.resource.Resource.class, ObjectPermission.READ);
+            }
 
             // Filter user-ids
             Set<String> userIds = request.getUserIds();
@@ -473,6 +467,40 @@ public class ResourceServiceImpl extends AbstractServiceImpl
                             aliasReservation.toApi(entityManager, authorization.isOperator(securityToken)));
                 }
             }
+
+            // Fill value provider allocations
+            Set<PatternValueProvider> valueProviders = new LinkedHashSet<PatternValueProvider>();
+            for (AliasProviderCapability aliasProvider : aliasProviders) {
+                ValueProvider valueProvider = PersistentObject.getLazyImplementation(
+                        aliasProvider.getValueProvider().getTargetValueProvider());
+                if (valueProvider instanceof PatternValueProvider) {
+                    valueProviders.add((PatternValueProvider) valueProvider);
+                }
+            }
+            for (ValueProviderCapability valueProviderCapability :
+                    resourceImpl.getCapabilities(ValueProviderCapability.class)) {
+                ValueProvider valueProvider = PersistentObject.getLazyImplementation(
+                        valueProviderCapability.getValueProvider().getTargetValueProvider());
+                if (valueProvider instanceof PatternValueProvider) {
+                    valueProviders.add((PatternValueProvider) valueProvider);
+                }
+            }
+            for (PatternValueProvider valueProvider : valueProviders) {
+                if (valueProvider.getCapabilityResource() != resourceImpl) {
+                    // Value provider is allocated by other resource
+                    continue;
+                }
+                List<String> usedValues =
+                        resourceManager.listValueReservationValuesInInterval(valueProvider.getId(), slot);
+                long valueCount = valueProvider.getValueCount();
+                ValueProviderAllocation valueProviderAllocation = new ValueProviderAllocation();
+                for (String pattern : valueProvider.getPatterns()) {
+                    valueProviderAllocation.addPattern(pattern);
+                }
+                valueProviderAllocation.setMaximumValueCount((int) Math.min(valueCount, Integer.MAX_VALUE));
+                valueProviderAllocation.setUsedValueCount(valueProvider.getUsedValueCount(usedValues));
+                resourceAllocation.addValueProviderAllocation(valueProviderAllocation);
+            }
             return resourceAllocation;
         }
         finally {
@@ -1,6 +1,6 @@
 package cz.cesnet.shongo.controller.authorization;
 
-import cz.cesnet.shongo.SimplePersistentObject;
+import cz.cesnet.shongo.PersistentObject;
 import cz.cesnet.shongo.api.AbstractComplexType;
 import cz.cesnet.shongo.controller.acl.AclEntry;
 
@@ -13,7 +13,7 @@ import javax.persistence.*;
  */
 @Entity
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = {"parent_acl_entry_id", "child_acl_entry_id"}))
-public class AclEntryDependency extends SimplePersistentObject
+public class AclEntryDependency extends PersistentObject
 {
     /**
      * Parent {@link cz.cesnet.shongo.controller.acl.AclEntry} which owns the {@link #childAclEntry}.
@@ -30,6 +30,16 @@ public class AclEntryDependency extends SimplePersistentObject
      */
     private Type type;
 
+    @Id
+    @SequenceGenerator(name = "acl_entry_dependency_id", sequenceName = "acl_entry_dependency_id_seq",
+            allocationSize = AclEntry.ID_ALLOCATION_SIZE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "acl_entry_dependency_id")
+    @Override
+    public Long getId()
+    {
+        return id;
+    }
+
     /**
      * @return {@link #parentAclEntry}
      */
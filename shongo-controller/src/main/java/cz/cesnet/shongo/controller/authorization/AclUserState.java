@@ -1,10 +1,12 @@
 package cz.cesnet.shongo.controller.authorization;
 
+import cz.cesnet.shongo.SortedLongSet;
 import cz.cesnet.shongo.TodoImplementException;
 import cz.cesnet.shongo.controller.ObjectPermission;
 import cz.cesnet.shongo.controller.ObjectRole;
 import cz.cesnet.shongo.controller.ObjectType;
 import cz.cesnet.shongo.controller.acl.AclEntry;
+import cz.cesnet.shongo.controller.acl.AclIdentity;
 import cz.cesnet.shongo.controller.acl.AclObjectClass;
 import cz.cesnet.shongo.controller.acl.AclObjectIdentity;
 import cz.cesnet.shongo.controller.booking.ObjectTypeResolver;
@@ -13,81 +15,119 @@ import java.util.*;
 
 /**
  * Represents an user state in the {@link AuthorizationCache}.
+ * <p/>
+ * Identifiers are stored in {@link SortedLongSet}s and {@link AclEntry}s of each object in a small array
+ * (roles and permissions are computed from them) to keep the memory footprint of the cached states small
+ * (see {@link #getMemorySize()}). The {@link SortedLongSet}s of objects are never modified, they are replaced
+ * by modified copies, and thus they are returned without copying. The state should be filled at once
+ * by {@link #addAclEntries} which builds each {@link SortedLongSet} only once.
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
 public class AclUserState
 {
     /**
-     * Set of {@link AclEntry}s for the user.
+     * Empty array of {@link AclEntry}s.
      */
-    private Map<Long, AclEntry> aclEntries = new HashMap<Long, AclEntry>();
+    private static final AclEntry[] EMPTY_ACL_ENTRIES = new AclEntry[0];
 
     /**
-     * {@link cz.cesnet.shongo.controller.authorization.AclUserState.ObjectState} for the user.
+     * Set of {@link AclIdentity} identifiers of the user and of his groups.
      */
-    private Map<AclObjectIdentity, ObjectState> objectStateByObjectIdentity =
-            new HashMap<AclObjectIdentity, ObjectState>();
+    private SortedLongSet identityIds = new SortedLongSet();
+
+    /**
+     * Set of identifiers of {@link AclEntry}s for the user.
+     */
+    private SortedLongSet aclEntryIds = new SortedLongSet();
+
+    /**
+     * {@link AclEntry}s for the user by {@link AclObjectIdentity} (each array usually contains only a few items
+     * and it is never modified, it is replaced by a modified copy).
+     */
+    private Map<AclObjectIdentity, AclEntry[]> aclEntriesByObjectIdentity = new HashMap<AclObjectIdentity, AclEntry[]>();
 
     /**
      * Map of objects which are accessible to the user (he has {@link ObjectPermission#READ} for them) by {@link AclObjectClass}.
      */
-    private Map<AclObjectClass, Set<Long>> accessibleObjectsByClass =
-            new HashMap<AclObjectClass, Set<Long>>();
+    private Map<AclObjectClass, SortedLongSet> accessibleObjectsByClass =
+            new HashMap<AclObjectClass, SortedLongSet>();
 
     /**
      * Map of objects which are owned by the user (he has {@link ObjectRole#OWNER} for them) by {@link AclObjectClass}.
      */
-    private Map<AclObjectClass, Set<Long>> ownedObjectsByClass =
-            new HashMap<AclObjectClass, Set<Long>>();
+    private Map<AclObjectClass, SortedLongSet> ownedObjectsByClass =
+            new HashMap<AclObjectClass, SortedLongSet>();
 
     /**
-     * @param aclEntry to be added to the {@link AclUserState}
+     * @param identityIds to be added to the {@link #identityIds}
      */
-    public synchronized void addAclEntry(AclEntry aclEntry)
+    public synchronized void addIdentityIds(Collection<Long> identityIds)
     {
-        Long aclEntryId = aclEntry.getId();
-        AclObjectIdentity objectIdentity = aclEntry.getObjectIdentity();
-        if (aclEntries.put(aclEntryId, aclEntry) == null) {
-            ObjectState objectState = objectStateByObjectIdentity.get(objectIdentity);
-            if (objectState == null) {
-                objectState = new ObjectState();
-                objectStateByObjectIdentity.put(objectIdentity, objectState);
-            }
+        SortedLongSet newIdentityIds = new SortedLongSet(this.identityIds);
+        newIdentityIds.addAll(identityIds);
+        this.identityIds = newIdentityIds;
+    }
 
-            // Update records
-            objectState.aclEntries.put(aclEntryId, aclEntry);
+    /**
+     * @return {@link #identityIds}
+     */
+    public synchronized Set<Long> getIdentityIds()
+    {
+        return Collections.unmodifiableSet(identityIds);
+    }
 
-            // Update roles
-            ObjectRole objectRole = ObjectRole.valueOf(aclEntry.getRole());
-            objectState.roles.add(objectRole);
+    /**
+     * @param aclEntry to be added to the {@link AclUserState}
+     */
+    public void addAclEntry(AclEntry aclEntry)
+    {
+        addAclEntries(Collections.singletonList(aclEntry));
+    }
 
-            // Update permissions
-            AclObjectClass objectClass = objectIdentity.getObjectClass();
-            ObjectType objectType = ObjectTypeResolver.getObjectType(objectClass);
-            for (ObjectPermission objectPermission : objectType.getRolePermissions(objectRole)) {
-                objectState.permissions.add(objectPermission);
+    /**
+     * @param aclEntries to be added to the {@link AclUserState}
+     */
+    public synchronized void addAclEntries(Collection<AclEntry> aclEntries)
+    {
+        // Update records
+        SortedLongSet addedAclEntryIds = new SortedLongSet();
+        Set<AclObjectIdentity> objectIdentities = new HashSet<AclObjectIdentity>();
+        for (AclEntry aclEntry : aclEntries) {
+            Long aclEntryId = aclEntry.getId();
+            if (aclEntryIds.contains(aclEntryId.longValue()) || !addedAclEntryIds.add(aclEntryId)) {
+                continue;
+            }
+            AclObjectIdentity objectIdentity = aclEntry.getObjectIdentity();
+            AclEntry[] objectAclEntries = aclEntriesByObjectIdentity.get(objectIdentity);
+            if (objectAclEntries == null) {
+                objectAclEntries = EMPTY_ACL_ENTRIES;
             }
+            objectAclEntries = Arrays.copyOf(objectAclEntries, objectAclEntries.length + 1);
+            objectAclEntries[objectAclEntries.length - 1] = aclEntry;
+            aclEntriesByObjectIdentity.put(objectIdentity, objectAclEntries);
+            objectIdentities.add(objectIdentity);
+        }
+        if (addedAclEntryIds.isEmpty()) {
+            return;
+        }
+        aclEntryIds.addAll(addedAclEntryIds);
 
-            // Update owned entities
-            if (objectState.roles.contains(ObjectRole.OWNER)) {
-                Set<Long> entities = ownedObjectsByClass.get(objectClass);
-                if (entities == null) {
-                    entities = new HashSet<Long>();
-                    ownedObjectsByClass.put(objectClass, entities);
-                }
-                entities.add(objectIdentity.getObjectId());
+        // Update owned and accessible entities (the new sets are built at once)
+        Map<AclObjectClass, List<Long>> ownedObjects = new HashMap<AclObjectClass, List<Long>>();
+        Map<AclObjectClass, List<Long>> accessibleObjects = new HashMap<AclObjectClass, List<Long>>();
+        for (AclObjectIdentity objectIdentity : objectIdentities) {
+            AclEntry[] objectAclEntries = aclEntriesByObjectIdentity.get(objectIdentity);
+            AclObjectClass objectClass = objectIdentity.getObjectClass();
+            if (hasRole(objectAclEntries, ObjectRole.OWNER)) {
+                addObject(ownedObjects, objectClass, objectIdentity.getObjectId());
             }
-            // Update accessible entities
-            if (objectState.permissions.contains(ObjectPermission.READ)) {
-                Set<Long> entities = accessibleObjectsByClass.get(objectClass);
-                if (entities == null) {
-                    entities = new HashSet<Long>();
-                    accessibleObjectsByClass.put(objectClass, entities);
-                }
-                entities.add(objectIdentity.getObjectId());
+            if (hasPermission(objectAclEntries, objectClass, ObjectPermission.READ)) {
+                addObject(accessibleObjects, objectClass, objectIdentity.getObjectId());
             }
         }
+        addObjects(ownedObjectsByClass, ownedObjects);
+        addObjects(accessibleObjectsByClass, accessibleObjects);
     }
 
     /**
@@ -96,53 +136,36 @@ public class AclUserState
     public synchronized void removeAclEntry(AclEntry aclEntry)
     {
         Long aclEntryId = aclEntry.getId();
-        if (aclEntries.remove(aclEntryId) != null) {
+        if (aclEntryIds.remove(aclEntryId.longValue())) {
             AclObjectIdentity objectIdentity = aclEntry.getObjectIdentity();
-            ObjectState objectState = objectStateByObjectIdentity.get(objectIdentity);
-            if (objectState == null) {
+            AclEntry[] objectAclEntries = aclEntriesByObjectIdentity.get(objectIdentity);
+            if (objectAclEntries == null) {
                 return;
             }
 
             // Update records
-            objectState.aclEntries.remove(aclEntryId);
-
-            // Update roles and permissions
-            objectState.roles.clear();
-            objectState.permissions.clear();
-            AclObjectClass objectClass = objectIdentity.getObjectClass();
-            ObjectType objectType = ObjectTypeResolver.getObjectType(objectClass);
-            for (AclEntry existingAclEntry : objectState.aclEntries.values()) {
-                ObjectRole objectRole = ObjectRole.valueOf(existingAclEntry.getRole());
-                objectState.roles.add(objectRole);
-                for (ObjectPermission objectPermission : objectType.getRolePermissions(objectRole)) {
-                    objectState.permissions.add(objectPermission);
+            List<AclEntry> newObjectAclEntries = new ArrayList<AclEntry>(objectAclEntries.length);
+            for (AclEntry existingAclEntry : objectAclEntries) {
+                if (!aclEntryId.equals(existingAclEntry.getId())) {
+                    newObjectAclEntries.add(existingAclEntry);
                 }
             }
+            objectAclEntries = newObjectAclEntries.toArray(new AclEntry[newObjectAclEntries.size()]);
+            if (objectAclEntries.length > 0) {
+                aclEntriesByObjectIdentity.put(objectIdentity, objectAclEntries);
+            }
+            else {
+                aclEntriesByObjectIdentity.remove(objectIdentity);
+            }
 
             // Update owned entities
-            if (!objectState.roles.contains(ObjectRole.OWNER)) {
-                Set<Long> entities = ownedObjectsByClass.get(objectClass);
-                if (entities != null) {
-                    entities.remove(objectIdentity.getObjectId());
-                    if (entities.size() == 0) {
-                        ownedObjectsByClass.remove(objectClass);
-                    }
-                }
+            AclObjectClass objectClass = objectIdentity.getObjectClass();
+            if (!hasRole(objectAclEntries, ObjectRole.OWNER)) {
+                removeObject(ownedObjectsByClass, objectClass, objectIdentity.getObjectId());
             }
             // Update accessible entities
-            if (!objectState.permissions.contains(ObjectPermission.READ)) {
-                Set<Long> entities = accessibleObjectsByClass.get(objectClass);
-                if (entities != null) {
-                    entities.remove(objectIdentity.getObjectId());
-                    if (entities.size() == 0) {
-                        accessibleObjectsByClass.remove(objectClass);
-                    }
-                }
-            }
-
-            // Remove objects states
-            if (objectState.aclEntries.size() == 0) {
-                objectStateByObjectIdentity.remove(objectIdentity);
+            if (!hasPermission(objectAclEntries, objectClass, ObjectPermission.READ)) {
+                removeObject(accessibleObjectsByClass, objectClass, objectIdentity.getObjectId());
             }
         }
     }
@@ -153,9 +176,9 @@ public class AclUserState
      */
     public synchronized Collection<AclEntry> getAclEntries(AclObjectIdentity objectIdentity)
     {
-        ObjectState objectState = objectStateByObjectIdentity.get(objectIdentity);
-        if (objectState != null) {
-            return objectState.aclEntries.values();
+        AclEntry[] objectAclEntries = aclEntriesByObjectIdentity.get(objectIdentity);
+        if (objectAclEntries != null) {
+            return Collections.unmodifiableList(Arrays.asList(objectAclEntries));
         }
         return null;
     }
@@ -166,9 +189,13 @@ public class AclUserState
      */
     public synchronized Set<ObjectRole> getObjectRoles(AclObjectIdentity objectIdentity)
     {
-        ObjectState objectState = objectStateByObjectIdentity.get(objectIdentity);
-        if (objectState != null) {
-            return Collections.unmodifiableSet(objectState.roles);
+        AclEntry[] objectAclEntries = aclEntriesByObjectIdentity.get(objectIdentity);
+        if (objectAclEntries != null) {
+            Set<ObjectRole> objectRoles = EnumSet.noneOf(ObjectRole.class);
+            for (AclEntry aclEntry : objectAclEntries) {
+                objectRoles.add(ObjectRole.valueOf(aclEntry.getRole()));
+            }
+            return objectRoles;
         }
         return null;
     }
@@ -179,9 +206,18 @@ public class AclUserState
      */
     public synchronized Set<ObjectPermission> getObjectPermissions(AclObjectIdentity objectIdentity)
     {
-        ObjectState objectState = objectStateByObjectIdentity.get(objectIdentity);
-        if (objectState != null) {
-            return Collections.unmodifiableSet(objectState.permissions);
+        AclEntry[] objectAclEntries = aclEntriesByObjectIdentity.get(objectIdentity);
+        if (objectAclEntries != null) {
+            Set<ObjectPermission> objectPermissions = EnumSet.noneOf(ObjectPermission.class);
+            ObjectType objectType = ObjectTypeResolver.getObjectType(objectIdentity.getObjectClass());
+            for (AclEntry aclEntry : objectAclEntries) {
+                Set<ObjectPermission> rolePermissions =
+                        objectType.getRolePermissions(ObjectRole.valueOf(aclEntry.getRole()));
+                if (rolePermissions != null) {
+                    objectPermissions.addAll(rolePermissions);
+                }
+            }
+            return objectPermissions;
         }
         return null;
     }
@@ -193,8 +229,8 @@ public class AclUserState
      */
     public synchronized boolean hasObjectRole(AclObjectIdentity objectIdentity, ObjectRole objectRole)
     {
-        ObjectState objectState = objectStateByObjectIdentity.get(objectIdentity);
-        return objectState != null && objectState.roles.contains(objectRole);
+        AclEntry[] objectAclEntries = aclEntriesByObjectIdentity.get(objectIdentity);
+        return objectAclEntries != null && hasRole(objectAclEntries, objectRole);
     }
 
     /**
@@ -204,8 +240,9 @@ public class AclUserState
      */
     public synchronized boolean hasObjectPermission(AclObjectIdentity objectIdentity, ObjectPermission objectPermission)
     {
-        ObjectState objectState = objectStateByObjectIdentity.get(objectIdentity);
-        return objectState != null && objectState.permissions.contains(objectPermission);
+        AclEntry[] objectAclEntries = aclEntriesByObjectIdentity.get(objectIdentity);
+        return objectAclEntries != null
+                && hasPermission(objectAclEntries, objectIdentity.getObjectClass(), objectPermission);
     }
 
     /**
@@ -213,12 +250,12 @@ public class AclUserState
      * @param objectRole which the user must have for the returned {@link AclObjectIdentity#objectId}s
      * @return set of {@link AclObjectIdentity#objectId}s of given {@code objectClass} for which the user has given {@code objectRole}
      */
-    public Set<Long> getObjectsByRole(AclObjectClass objectClass, ObjectRole objectRole)
+    public synchronized Set<Long> getObjectsByRole(AclObjectClass objectClass, ObjectRole objectRole)
     {
         if (!objectRole.equals(ObjectRole.OWNER)) {
             throw new TodoImplementException(objectRole);
         }
-        Set<Long> entities = ownedObjectsByClass.get(objectClass);
+        SortedLongSet entities = ownedObjectsByClass.get(objectClass);
         if (entities != null) {
             return Collections.unmodifiableSet(entities);
         }
@@ -235,7 +272,7 @@ public class AclUserState
         if (!objectPermission.equals(ObjectPermission.READ)) {
             throw new TodoImplementException(objectPermission);
         }
-        Set<Long> entities = accessibleObjectsByClass.get(objectClass);
+        SortedLongSet entities = accessibleObjectsByClass.get(objectClass);
         if (entities != null) {
             return Collections.unmodifiableSet(entities);
         }
@@ -243,23 +280,123 @@ public class AclUserState
     }
 
     /**
-     * Represents an object state for the user.
+     * @return estimated number of bytes which are consumed by the {@link AclUserState}
+     *         (without the {@link AclEntry}s and {@link AclObjectIdentity}s which are shared with other caches)
      */
-    private static class ObjectState
+    public synchronized long getMemorySize()
     {
-        /**
-         * Set of {@link AclEntry}s for the object.
-         */
-        private Map<Long, AclEntry> aclEntries = new HashMap<Long, AclEntry>();
+        // Object header with fields, hash map entry is estimated to 48 bytes
+        long memorySize = 40 + identityIds.getMemorySize() + aclEntryIds.getMemorySize();
+        memorySize += 48 + 48L * aclEntriesByObjectIdentity.size();
+        for (AclEntry[] objectAclEntries : aclEntriesByObjectIdentity.values()) {
+            // Array header with references
+            memorySize += 16 + 8L * objectAclEntries.length;
+        }
+        for (SortedLongSet entities : ownedObjectsByClass.values()) {
+            memorySize += 48 + entities.getMemorySize();
+        }
+        for (SortedLongSet entities : accessibleObjectsByClass.values()) {
+            memorySize += 48 + entities.getMemorySize();
+        }
+        return memorySize;
+    }
 
-        /**
-         * Set of {@link ObjectRole}s for the object.
-         */
-        private Set<ObjectRole> roles = new HashSet<ObjectRole>();
+    /**
+     * @param aclEntries
+     * @param objectRole
+     * @return true whether some of given {@code aclEntries} has given {@code objectRole}, false otherwise
+     */
+    private static boolean hasRole(AclEntry[] aclEntries, ObjectRole objectRole)
+    {
+        for (AclEntry aclEntry : aclEntries) {
+            if (objectRole.toString().equals(aclEntry.getRole())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param aclEntries
+     * @param objectClass
+     * @param objectPermission
+     * @return true whether some of given {@code aclEntries} for object of given {@code objectClass}
+     *         grants given {@code objectPermission}, false otherwise
+     */
+    private static boolean hasPermission(AclEntry[] aclEntries, AclObjectClass objectClass,
+            ObjectPermission objectPermission)
+    {
+        ObjectType objectType = ObjectTypeResolver.getObjectType(objectClass);
+        for (AclEntry aclEntry : aclEntries) {
+            Set<ObjectPermission> rolePermissions =
+                    objectType.getRolePermissions(ObjectRole.valueOf(aclEntry.getRole()));
+            if (rolePermissions != null && rolePermissions.contains(objectPermission)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        /**
-         * Set of {@link ObjectPermission}s for the object.
-         */
-        private Set<ObjectPermission> permissions = new HashSet<ObjectPermission>();
+    /**
+     * @param objects     to which the {@code objectId} should be added
+     * @param objectClass
+     * @param objectId
+     */
+    private static void addObject(Map<AclObjectClass, List<Long>> objects, AclObjectClass objectClass,
+            Long objectId)
+    {
+        List<Long> objectIds = objects.get(objectClass);
+        if (objectIds == null) {
+            objectIds = new ArrayList<Long>();
+            objects.put(objectClass, objectIds);
+        }
+        objectIds.add(objectId);
+    }
+
+    /**
+     * Replace {@link SortedLongSet}s in given {@code objectsByClass} by copies with added {@code objects}.
+     *
+     * @param objectsByClass
+     * @param objects
+     */
+    private static void addObjects(Map<AclObjectClass, SortedLongSet> objectsByClass,
+            Map<AclObjectClass, List<Long>> objects)
+    {
+        for (Map.Entry<AclObjectClass, List<Long>> entry : objects.entrySet()) {
+            AclObjectClass objectClass = entry.getKey();
+            SortedLongSet entities = objectsByClass.get(objectClass);
+            if (entities == null) {
+                entities = new SortedLongSet(entry.getValue());
+            }
+            else {
+                entities = new SortedLongSet(entities);
+                entities.addAll(entry.getValue());
+            }
+            entities.trimToSize();
+            objectsByClass.put(objectClass, entities);
+        }
+    }
+
+    /**
+     * Replace {@link SortedLongSet} in given {@code objectsByClass} by a copy without given {@code objectId}.
+     *
+     * @param objectsByClass
+     * @param objectClass
+     * @param objectId
+     */
+    private static void removeObject(Map<AclObjectClass, SortedLongSet> objectsByClass, AclObjectClass objectClass,
+            Long objectId)
+    {
+        SortedLongSet entities = objectsByClass.get(objectClass);
+        if (entities != null && entities.contains(objectId.longValue())) {
+            entities = new SortedLongSet(entities);
+            entities.remove(objectId.longValue());
+            if (entities.size() == 0) {
+                objectsByClass.remove(objectClass);
+            }
+            else {
+                objectsByClass.put(objectClass, entities);
+            }
+        }
     }
 }
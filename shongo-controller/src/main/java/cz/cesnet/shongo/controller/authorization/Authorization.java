@@ -1,5 +1,6 @@
 package cz.cesnet.shongo.controller.authorization;
 
+import cz.cesnet.shongo.ConcurrentExpirationMap;
 import cz.cesnet.shongo.PersistentObject;
 import cz.cesnet.shongo.TodoImplementException;
 import cz.cesnet.shongo.api.UserInformation;
@@ -18,6 +19,10 @@ import org.slf4j.LoggerFactory;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Provides methods for performing authentication, authorization and fetching user data from web service.
@@ -63,6 +68,71 @@ public abstract class Authorization
      */
     private AuthorizationCache cache = new AuthorizationCache();
 
+    /**
+     * Loads {@link UserData} which aren't cached (concurrent loads of the same user are performed only once
+     * by the {@link #cache} and not existing users are cached as missing).
+     */
+    private final ConcurrentExpirationMap.Loader<String, UserData> userDataLoader =
+            new ConcurrentExpirationMap.Loader<String, UserData>()
+            {
+                @Override
+                public UserData load(String userId)
+                {
+                    UserData userData = fetchUserData(userId);
+                    if (userData == null) {
+                        cache.putUserDataByUserId(userId, null);
+                    }
+                    return userData;
+                }
+            };
+
+    /**
+     * Loads {@link Group}s which aren't cached (concurrent loads of the same group are performed only once
+     * by the {@link #cache} and not existing groups are cached as missing).
+     */
+    private final ConcurrentExpirationMap.Loader<String, Group> groupLoader =
+            new ConcurrentExpirationMap.Loader<String, Group>()
+            {
+                @Override
+                public Group load(String groupId)
+                {
+                    Group group = fetchGroup(groupId);
+                    if (group == null) {
+                        cache.putGroupByGroupId(groupId, null);
+                    }
+                    return group;
+                }
+            };
+
+    /**
+     * Loads user-ids in groups which aren't cached (concurrent loads of the same group are performed only once
+     * by the {@link #cache}).
+     */
+    private final ConcurrentExpirationMap.Loader<String, Set<String>> groupUserIdsLoader =
+            new ConcurrentExpirationMap.Loader<String, Set<String>>()
+            {
+                @Override
+                public Set<String> load(String groupId)
+                {
+                    return fetchGroupUserIds(groupId);
+                }
+            };
+
+    /**
+     * {@link ExecutorService} for refreshing cached values before they expire.
+     */
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+    {
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable);
+            thread.setName("authorization-refresh");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     /**
      * Set of access-tokens which has administrator access.
      */
@@ -89,6 +159,12 @@ public abstract class Authorization
      */
     private AuthorizationExpression reservationExpression;
 
+    /**
+     * Maximum number of items which are fetched, flushed or deleted by a single statement
+     * when the {@link AclEntry}s are propagated (see {@link AuthorizationManager}).
+     */
+    private int aclBatchSize;
+
     /**
      * Constructor.
      *
@@ -128,6 +204,9 @@ public abstract class Authorization
                 ControllerConfiguration.SECURITY_EXPIRATION_ACL));
         this.cache.setGroupExpiration(configuration.getDuration(
                 ControllerConfiguration.SECURITY_EXPIRATION_GROUP));
+        this.cache.setMaxSize(configuration.getInt(ControllerConfiguration.SECURITY_CACHE_SIZE, 0));
+        this.aclBatchSize = configuration.getInt(ControllerConfiguration.SECURITY_ACL_BATCH_SIZE,
+                AuthorizationManager.DEFAULT_BATCH_SIZE);
 
         // Authorization expressions
         this.administratorExpression = new AuthorizationExpression(
@@ -156,6 +235,7 @@ public abstract class Authorization
      */
     public void destroy()
     {
+        refreshExecutor.shutdownNow();
         authorization = null;
     }
 
@@ -167,6 +247,14 @@ public abstract class Authorization
         return aclProvider;
     }
 
+    /**
+     * @return {@link #aclBatchSize}
+     */
+    public int getAclBatchSize()
+    {
+        return aclBatchSize;
+    }
+
     /**
      * Clear the {@link AuthorizationCache}.
      */
@@ -175,6 +263,22 @@ public abstract class Authorization
         cache.clear();
     }
 
+    /**
+     * @return {@link ConcurrentExpirationMap.Statistics} of the {@link AuthorizationCache} by names of caches
+     */
+    public Map<String, ConcurrentExpirationMap.Statistics> getCacheStatistics()
+    {
+        return cache.getStatistics();
+    }
+
+    /**
+     * @return estimated memory size in bytes of each cached {@link AclUserState} by user-id
+     */
+    public Map<String, Long> getAclUserStateMemorySizes()
+    {
+        return cache.getAclUserStateMemorySizes();
+    }
+
     /**
      * Validate given {@code securityToken}.
      *
@@ -315,30 +419,139 @@ public abstract class Authorization
      * @return {@link UserData} for the user with given {@code userId}
      * @throws ControllerReportSet.UserNotExistsException when user not exists
      */
-    public final UserData getUserData(String userId)
+    public final UserData getUserData(final String userId)
             throws ControllerReportSet.UserNotExistsException
     {
         // Root user
         if (userId.equals(ROOT_USER_ID)) {
             return ROOT_USER_DATA;
         }
-        UserData userData;
-        if (cache.hasUserDataByUserId(userId)) {
-            userData = cache.getUserDataByUserId(userId);
+        UserData userData = cache.getUserDataByUserId(userId, userDataLoader);
+        if (cache.requestUserDataRefresh(userId)) {
+            refresh("user " + userId, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    cache.putUserDataByUserId(userId, fetchUserData(userId));
+                }
+            });
         }
-        else {
+        if (userData == null) {
+            throw new ControllerReportSet.UserNotExistsException(userId);
+        }
+        return userData;
+    }
+
+    /**
+     * Fetch {@link UserData} for users with given {@code userIds} which aren't cached by a single request
+     * (so that following {@link #getUserData} calls for the users don't have to perform separate requests).
+     * Users which don't exist are cached as missing in the same way as by {@link #getUserData}.
+     *
+     * @param userIds of users
+     */
+    public final void prefetchUserData(Collection<String> userIds)
+    {
+        Set<String> missingUserIds = new HashSet<String>();
+        for (String userId : userIds) {
+            if (!userId.equals(ROOT_USER_ID) && !cache.hasUserDataByUserId(userId)) {
+                missingUserIds.add(userId);
+            }
+        }
+        while (missingUserIds.size() > 1) {
+            logger.debug("Prefetching user data for {} users...", missingUserIds.size());
+            Collection<UserData> userDataList;
             try {
-                userData = onGetUserDataByUserId(userId);
+                userDataList = onListUserData(missingUserIds, null);
             }
             catch (ControllerReportSet.UserNotExistsException exception) {
-                userData = null;
+                // Whole request fails for a single not existing user and thus the request is repeated without the user
+                String userId = exception.getUser();
+                if (!missingUserIds.remove(userId)) {
+                    // Not existing user is unknown and thus the users will be fetched separately
+                    return;
+                }
+                cache.putUserDataByUserId(userId, null);
+                continue;
             }
-            cache.putUserDataByUserId(userId, userData);
+            for (UserData userData : userDataList) {
+                String userId = userData.getUserId();
+                cache.putUserDataByUserId(userId, userData);
+                missingUserIds.remove(userId);
+            }
+            for (String userId : missingUserIds) {
+                cache.putUserDataByUserId(userId, null);
+            }
+            return;
         }
-        if (userData == null) {
-            throw new ControllerReportSet.UserNotExistsException(userId);
+    }
+
+    /**
+     * Retrieve {@link UserInformation}s for given {@code userIds} (not cached users are fetched by a single request).
+     * Users which don't exist are skipped.
+     *
+     * @param userIds of users
+     * @return list of {@link UserInformation}s in order of given {@code userIds}
+     */
+    public final List<UserInformation> listUserInformation(Collection<String> userIds)
+    {
+        prefetchUserData(userIds);
+        List<UserInformation> userInformationList = new LinkedList<UserInformation>();
+        for (String userId : userIds) {
+            try {
+                userInformationList.add(getUserData(userId).getUserInformation());
+            }
+            catch (ControllerReportSet.UserNotExistsException exception) {
+                logger.debug("User {} doesn't exist and thus it is skipped.", userId);
+            }
+        }
+        return userInformationList;
+    }
+
+    /**
+     * Fetch {@link UserData} for given {@code userId}.
+     *
+     * @param userId of an user
+     * @return {@link UserData} or {@code null} when the user doesn't exist
+     */
+    private UserData fetchUserData(String userId)
+    {
+        try {
+            return onGetUserDataByUserId(userId);
+        }
+        catch (ControllerReportSet.UserNotExistsException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Refresh cached value in the {@link #refreshExecutor}.
+     *
+     * @param description of the cached value
+     * @param refresh     to be performed
+     */
+    private void refresh(final String description, final Runnable refresh)
+    {
+        try {
+            refreshExecutor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        logger.debug("Refreshing cached {}...", description);
+                        refresh.run();
+                    }
+                    catch (Exception exception) {
+                        // The cached value will expire and it will be fetched again
+                        logger.warn("Failed to refresh cached " + description + ".", exception);
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException exception) {
+            logger.debug("Refreshing cached {} has been rejected.", description);
         }
-        return userData;
     }
 
     /**
@@ -452,20 +665,10 @@ public abstract class Authorization
     public boolean hasObjectRole(SecurityToken securityToken,
             AclObjectIdentity objectIdentity, ObjectRole objectRole)
     {
-        if (isAdministrator(securityToken)) {
-            // Administrator has all possible permissions
+        if (hasRoleForAllObjects(securityToken, objectRole)) {
             return true;
         }
-        else if (isOperator(securityToken) && ObjectRole.READER.equals(objectRole)) {
-            // Operator has READER role for all objects
-            return true;
-        }
-        String userId = securityToken.getUserId();
-        AclUserState aclUserState = cache.getAclUserStateByUserId(userId);
-        if (aclUserState == null) {
-            aclUserState = fetchAclUserState(userId);
-            cache.putAclUserStateByUserId(userId, aclUserState);
-        }
+        AclUserState aclUserState = getAclUserState(securityToken.getUserId());
         return aclUserState.hasObjectRole(objectIdentity, objectRole);
     }
 
@@ -493,20 +696,10 @@ public abstract class Authorization
     public boolean hasObjectPermission(SecurityToken securityToken,
             AclObjectIdentity objectIdentity, ObjectPermission objectPermission)
     {
-            if (isAdministrator(securityToken)) {
-            // Administrator has all possible permissions
+        if (hasPermissionForAllObjects(securityToken, objectPermission)) {
             return true;
         }
-        else if (isOperator(securityToken) && ObjectPermission.READ.equals(objectPermission)) {
-            // Operator has READ permission for all objects
-            return true;
-        }
-        String userId = securityToken.getUserId();
-        AclUserState aclUserState = cache.getAclUserStateByUserId(userId);
-        if (aclUserState == null) {
-            aclUserState = fetchAclUserState(userId);
-            cache.putAclUserStateByUserId(userId, aclUserState);
-        }
+        AclUserState aclUserState = getAclUserState(securityToken.getUserId());
         return aclUserState.hasObjectPermission(objectIdentity, objectPermission);
     }
 
@@ -528,12 +721,7 @@ public abstract class Authorization
             permissions.add(ObjectPermission.READ);
             return permissions;
         }
-        String userId = securityToken.getUserId();
-        AclUserState aclUserState = cache.getAclUserStateByUserId(userId);
-        if (aclUserState == null) {
-            aclUserState = fetchAclUserState(userId);
-            cache.putAclUserStateByUserId(userId, aclUserState);
-        }
+        AclUserState aclUserState = getAclUserState(securityToken.getUserId());
         AclObjectIdentity aclObjectIdentity = aclProvider.getObjectIdentity(object);
         Set<ObjectPermission> objectPermissions = aclUserState.getObjectPermissions(aclObjectIdentity);
         if (objectPermissions == null) {
@@ -553,20 +741,10 @@ public abstract class Authorization
             Class<? extends PersistentObject> objectClass, ObjectRole objectRole)
     {
         AclObjectClass aclObjectClass = aclProvider.getObjectClass(objectClass);
-        if (isAdministrator(securityToken)) {
-            // Administrator has all possible roles for all objects
-            return null;
-        }
-        if (ObjectRole.READER.equals(objectRole) && isOperator(securityToken)) {
-            // Operator has READER role for all objects
+        if (hasRoleForAllObjects(securityToken, objectRole)) {
             return null;
         }
-        String userId = securityToken.getUserId();
-        AclUserState aclUserState = cache.getAclUserStateByUserId(userId);
-        if (aclUserState == null) {
-            aclUserState = fetchAclUserState(userId);
-            cache.putAclUserStateByUserId(userId, aclUserState);
-        }
+        AclUserState aclUserState = getAclUserState(securityToken.getUserId());
         Set<Long> entities = aclUserState.getObjectsByRole(aclObjectClass, objectRole);
         if (entities == null) {
             return Collections.emptySet();
@@ -585,25 +763,101 @@ public abstract class Authorization
             Class<? extends PersistentObject> objectClass, ObjectPermission objectPermission)
     {
         AclObjectClass aclObjectClass = aclProvider.getObjectClass(objectClass);
-        if (isAdministrator(securityToken)) {
-            // Administrator has all possible permissions for all objects
+        if (hasPermissionForAllObjects(securityToken, objectPermission)) {
             return null;
         }
-        if (ObjectPermission.READ.equals(objectPermission) && isOperator(securityToken)) {
-            // Operator has READ permission for all objects
+        AclUserState aclUserState = getAclUserState(securityToken.getUserId());
+        Set<Long> entities = aclUserState.getObjectsByPermission(aclObjectClass, objectPermission);
+        if (entities == null) {
+            return Collections.emptySet();
+        }
+        return entities;
+    }
+
+    /**
+     * Get SQL sub-query which selects identifiers of entities for which the user has given {@code objectPermission}.
+     * <p/>
+     * The sub-query is evaluated against the ACL tables by the database, and thus it can be used in native queries
+     * instead of {@link #getEntitiesWithPermission} (which can return thousands of identifiers for a bind list).
+     * Parameters of the sub-query are prefixed by "acl" and by {@link AclObjectClass#getId()}.
+     *
+     * @param securityToken    of the user
+     * @param objectClass      of the entities
+     * @param objectPermission which the user must have for the selected entities
+     * @param parameters       to which the parameters of the sub-query are added
+     * @return SQL sub-query or {@code null} when the user has given {@code objectPermission} for all entities
+     */
+    public String getEntitiesWithPermissionQuery(SecurityToken securityToken,
+            Class<? extends PersistentObject> objectClass, ObjectPermission objectPermission,
+            Map<String, Object> parameters)
+    {
+        AclObjectClass aclObjectClass = aclProvider.getObjectClass(objectClass);
+        if (hasPermissionForAllObjects(securityToken, objectPermission)) {
             return null;
         }
-        String userId = securityToken.getUserId();
+        AclUserState aclUserState = getAclUserState(securityToken.getUserId());
+
+        // Roles which grants the permission
+        Set<String> roles = new HashSet<String>();
+        ObjectType objectType = ObjectTypeResolver.getObjectType(aclObjectClass);
+        for (ObjectRole objectRole : ObjectRole.values()) {
+            Set<ObjectPermission> objectPermissions = objectType.getRolePermissions(objectRole);
+            if (objectPermissions != null && objectPermissions.contains(objectPermission)) {
+                roles.add(objectRole.toString());
+            }
+        }
+        Set<Long> identityIds = aclUserState.getIdentityIds();
+        if (roles.isEmpty() || identityIds.isEmpty()) {
+            return "SELECT acl_object_identity.object_id FROM acl_object_identity WHERE 1=0";
+        }
+
+        String parameterPrefix = "acl" + aclObjectClass.getId();
+        parameters.put(parameterPrefix + "ObjectClassId", aclObjectClass.getId());
+        parameters.put(parameterPrefix + "Roles", roles);
+        parameters.put(parameterPrefix + "IdentityIds", identityIds);
+        return "SELECT acl_object_identity.object_id"
+                + " FROM acl_entry"
+                + " INNER JOIN acl_object_identity ON acl_object_identity.id = acl_entry.acl_object_identity_id"
+                + " WHERE acl_object_identity.acl_object_class_id = :" + parameterPrefix + "ObjectClassId"
+                + " AND acl_entry.role IN (:" + parameterPrefix + "Roles)"
+                + " AND acl_entry.acl_identity_id IN (:" + parameterPrefix + "IdentityIds)";
+    }
+
+    /**
+     * @param securityToken of the user
+     * @param objectRole    which should be checked
+     * @return true whether the user has given {@code objectRole} for all objects (administrator has all roles
+     *         and operator has {@link ObjectRole#READER} role), false otherwise
+     */
+    private boolean hasRoleForAllObjects(SecurityToken securityToken, ObjectRole objectRole)
+    {
+        return isAdministrator(securityToken) || (ObjectRole.READER.equals(objectRole) && isOperator(securityToken));
+    }
+
+    /**
+     * @param securityToken    of the user
+     * @param objectPermission which should be checked
+     * @return true whether the user has given {@code objectPermission} for all objects (administrator has all
+     *         permissions and operator has {@link ObjectPermission#READ} permission), false otherwise
+     */
+    private boolean hasPermissionForAllObjects(SecurityToken securityToken, ObjectPermission objectPermission)
+    {
+        return isAdministrator(securityToken)
+                || (ObjectPermission.READ.equals(objectPermission) && isOperator(securityToken));
+    }
+
+    /**
+     * @param userId of the user
+     * @return {@link AclUserState} for given {@code userId} from the {@link #cache} (it is fetched when missing)
+     */
+    private AclUserState getAclUserState(String userId)
+    {
         AclUserState aclUserState = cache.getAclUserStateByUserId(userId);
         if (aclUserState == null) {
             aclUserState = fetchAclUserState(userId);
             cache.putAclUserStateByUserId(userId, aclUserState);
         }
-        Set<Long> entities = aclUserState.getObjectsByPermission(aclObjectClass, objectPermission);
-        if (entities == null) {
-            return Collections.emptySet();
-        }
-        return entities;
+        return aclUserState;
     }
 
     /**
@@ -698,21 +952,19 @@ public abstract class Authorization
      * @return {@link Group} for the group with given {@code groupId}
      * @throws ControllerReportSet.GroupNotExistsException when group not exists
      */
-    public final Group getGroup(String groupId)
+    public final Group getGroup(final String groupId)
             throws ControllerReportSet.GroupNotExistsException
     {
-        Group group;
-        if (cache.hasGroupByGroupId(groupId)) {
-            group = cache.getGroupByGroupId(groupId);
-        }
-        else {
-            try {
-                group = onGetGroup(groupId);
-            }
-            catch (ControllerReportSet.GroupNotExistsException exception) {
-                group = null;
-            }
-            cache.putGroupByGroupId(groupId, group);
+        Group group = cache.getGroupByGroupId(groupId, groupLoader);
+        if (cache.requestGroupRefresh(groupId)) {
+            refresh("group " + groupId, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    cache.putGroupByGroupId(groupId, fetchGroup(groupId));
+                }
+            });
         }
         if (group == null) {
             throw new ControllerReportSet.GroupNotExistsException(groupId);
@@ -720,6 +972,22 @@ public abstract class Authorization
         return group;
     }
 
+    /**
+     * Fetch {@link Group} for given {@code groupId}.
+     *
+     * @param groupId of a group
+     * @return {@link Group} or {@code null} when the group doesn't exist
+     */
+    private Group fetchGroup(String groupId)
+    {
+        try {
+            return onGetGroup(groupId);
+        }
+        catch (ControllerReportSet.GroupNotExistsException exception) {
+            return null;
+        }
+    }
+
     /**
      * @param filterGroupIds   to filter groups
      * @param filterGroupTypes to filter groups
@@ -733,16 +1001,33 @@ public abstract class Authorization
     /**
      * @return list of user-ids for users which are in group with given {@code groupId}
      */
-    public final Set<String> listGroupUserIds(String groupId)
+    public final Set<String> listGroupUserIds(final String groupId)
     {
-        Set<String> userIds = cache.getUserIdsInGroup(groupId);
-        if (userIds == null) {
-            userIds = new HashSet<String>(onListGroupUserIds(groupId));
-            cache.putUserIdsInGroup(groupId, userIds);
+        Set<String> userIds = cache.getUserIdsInGroup(groupId, groupUserIdsLoader);
+        if (cache.requestUserIdsInGroupRefresh(groupId)) {
+            refresh("users in group " + groupId, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    cache.putUserIdsInGroup(groupId, fetchGroupUserIds(groupId));
+                }
+            });
         }
         return userIds;
     }
 
+    /**
+     * Fetch user-ids of users in group with given {@code groupId}.
+     *
+     * @param groupId of a group
+     * @return set of user-ids
+     */
+    private Set<String> fetchGroupUserIds(String groupId)
+    {
+        return new HashSet<String>(onListGroupUserIds(groupId));
+    }
+
     /**
      * @return list of group-ids for groups in which the user with given {@code userId} is a member
      */
@@ -972,13 +1257,19 @@ public abstract class Authorization
         for (String groupId : listUserGroupIds(userId)) {
             aclIdentities.add(aclProvider.getIdentity(AclIdentityType.GROUP, groupId));
         }
+        List<Long> identityIds = new ArrayList<Long>();
+        for (AclIdentity aclIdentity : aclIdentities) {
+            identityIds.add(aclIdentity.getId());
+        }
+        aclUserState.addIdentityIds(identityIds);
         EntityManager entityManager = entityManagerFactory.createEntityManager();
         AuthorizationManager authorizationManager = new AuthorizationManager(entityManager, authorization);
         try {
-            for (AclEntry aclEntry : authorizationManager.listAclEntries(aclIdentities)) {
-                aclUserState.addAclEntry(aclEntry);
+            Collection<AclEntry> aclEntries = authorizationManager.listAclEntries(aclIdentities);
+            for (AclEntry aclEntry : aclEntries) {
                 cache.putAclEntryById(aclEntry);
             }
+            aclUserState.addAclEntries(aclEntries);
         }
         finally {
             entityManager.close();
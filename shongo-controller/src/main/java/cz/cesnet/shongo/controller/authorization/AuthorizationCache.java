@@ -1,73 +1,87 @@
 package cz.cesnet.shongo.controller.authorization;
 
-import cz.cesnet.shongo.ExpirationMap;
+import cz.cesnet.shongo.ConcurrentExpirationMap;
 import cz.cesnet.shongo.api.UserInformation;
 import cz.cesnet.shongo.controller.acl.AclEntry;
 import cz.cesnet.shongo.controller.acl.AclObjectIdentity;
 import cz.cesnet.shongo.controller.api.Group;
 import org.joda.time.Duration;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Represents a cache of {@link AclEntry}s
+ * <p/>
+ * It is used by each API call and thus it doesn't use a single monitor but each cache is a
+ * {@link ConcurrentExpirationMap} which doesn't block reads.
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
 public class AuthorizationCache
 {
+    /**
+     * Cached values are refreshed in the last {@code 1 / REFRESH_AHEAD_DIVISOR} of theirs expiration.
+     */
+    private static final int REFRESH_AHEAD_DIVISOR = 5;
+
     /**
      * Cache of user-id by access token.
      */
-    private ExpirationMap<String, String> userIdByAccessTokenCache = new ExpirationMap<String, String>();
+    private final ConcurrentExpirationMap<String, String> userIdByAccessTokenCache =
+            new ConcurrentExpirationMap<String, String>();
 
     /**
      * Cache of user-id by principal name.
      */
-    private ExpirationMap<String, String> userIdByPrincipalNameCache = new ExpirationMap<String, String>();
+    private final ConcurrentExpirationMap<String, String> userIdByPrincipalNameCache =
+            new ConcurrentExpirationMap<String, String>();
 
     /**
      * Cache of {@link UserInformation} by user-id.
      */
-    private ExpirationMap<String, UserData> userDataByUserIdCache =
-            new ExpirationMap<String, UserData>();
+    private final ConcurrentExpirationMap<String, UserData> userDataByUserIdCache =
+            new ConcurrentExpirationMap<String, UserData>();
 
     /**
      * Cache of {@link UserAuthorizationData} by access token.
      */
-    private ExpirationMap<String, UserAuthorizationData> userAuthorizationDataByAccessTokenCache =
-            new ExpirationMap<String, UserAuthorizationData>();
+    private final ConcurrentExpirationMap<String, UserAuthorizationData> userAuthorizationDataByAccessTokenCache =
+            new ConcurrentExpirationMap<String, UserAuthorizationData>();
 
     /**
      * Cache of {@link AclEntry} by {@link AclEntry#id}.
      */
-    private ExpirationMap<Long, AclEntry> aclEntryCache = new ExpirationMap<Long, AclEntry>();
+    private final ConcurrentExpirationMap<Long, AclEntry> aclEntryCache = new ConcurrentExpirationMap<Long, AclEntry>();
 
     /**
      * Cache of {@link AclUserState} by user-id.
      */
-    private ExpirationMap<String, AclUserState> aclUserStateCache = new ExpirationMap<String, AclUserState>();
+    private final ConcurrentExpirationMap<String, AclUserState> aclUserStateCache =
+            new ConcurrentExpirationMap<String, AclUserState>();
 
     /**
      * Cache of {@link AclObjectState} by {@link AclObjectIdentity}.
      */
-    private ExpirationMap<AclObjectIdentity, AclObjectState> aclObjectStateCache =
-            new ExpirationMap<AclObjectIdentity, AclObjectState>();
+    private final ConcurrentExpirationMap<AclObjectIdentity, AclObjectState> aclObjectStateCache =
+            new ConcurrentExpirationMap<AclObjectIdentity, AclObjectState>();
 
     /**
      * Cache of {@link Group} by group-id.
      */
-    private ExpirationMap<String, Group> groupByGroupId = new ExpirationMap<String, Group>();
+    private final ConcurrentExpirationMap<String, Group> groupByGroupId = new ConcurrentExpirationMap<String, Group>();
 
     /**
      * Cache of group-id by group name.
      */
-    private ExpirationMap<String, String> groupIdByName = new ExpirationMap<String, String>();
+    private final ConcurrentExpirationMap<String, String> groupIdByName = new ConcurrentExpirationMap<String, String>();
 
     /**
      * Cache of user-ids by group-ids for users which are in the group.
      */
-    private ExpirationMap<String, Set<String>> userIdsByGroupId = new ExpirationMap<String, Set<String>>();
+    private final ConcurrentExpirationMap<String, Set<String>> userIdsByGroupId =
+            new ConcurrentExpirationMap<String, Set<String>>();
 
     /**
      * @param expiration sets the {@link #userIdByAccessTokenCache} expiration
@@ -84,6 +98,7 @@ public class AuthorizationCache
     public void setUserInformationExpiration(Duration expiration)
     {
         userDataByUserIdCache.setExpiration(expiration);
+        userDataByUserIdCache.setRefreshAhead(getRefreshAhead(expiration));
         userAuthorizationDataByAccessTokenCache.setExpiration(expiration);
     }
 
@@ -103,13 +118,82 @@ public class AuthorizationCache
     public void setGroupExpiration(Duration expiration)
     {
         groupByGroupId.setExpiration(expiration);
+        groupByGroupId.setRefreshAhead(getRefreshAhead(expiration));
         groupIdByName.setExpiration(expiration);
+        userIdsByGroupId.setExpiration(expiration);
+        userIdsByGroupId.setRefreshAhead(getRefreshAhead(expiration));
+    }
+
+    /**
+     * @param expiration of a cache
+     * @return how long before the {@code expiration} the cached values should be refreshed
+     */
+    private static Duration getRefreshAhead(Duration expiration)
+    {
+        if (expiration == null) {
+            return null;
+        }
+        return new Duration(expiration.getMillis() / REFRESH_AHEAD_DIVISOR);
+    }
+
+    /**
+     * @param maxSize sets the maximum number of entries in each cache ({@code 0} means unlimited)
+     */
+    public void setMaxSize(int maxSize)
+    {
+        for (ConcurrentExpirationMap cache : getCaches().values()) {
+            cache.setMaxSize(maxSize);
+        }
+    }
+
+    /**
+     * @return {@link ConcurrentExpirationMap.Statistics} by names of caches
+     */
+    public Map<String, ConcurrentExpirationMap.Statistics> getStatistics()
+    {
+        Map<String, ConcurrentExpirationMap.Statistics> statistics =
+                new LinkedHashMap<String, ConcurrentExpirationMap.Statistics>();
+        for (Map.Entry<String, ConcurrentExpirationMap> entry : getCaches().entrySet()) {
+            statistics.put(entry.getKey(), entry.getValue().getStatistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * @return estimated memory size in bytes of each cached {@link AclUserState} by user-id
+     */
+    public Map<String, Long> getAclUserStateMemorySizes()
+    {
+        Map<String, Long> memorySizes = new LinkedHashMap<String, Long>();
+        for (Map.Entry<String, AclUserState> entry : aclUserStateCache.getSnapshot().entrySet()) {
+            memorySizes.put(entry.getKey(), entry.getValue().getMemorySize());
+        }
+        return memorySizes;
+    }
+
+    /**
+     * @return all caches by names
+     */
+    private Map<String, ConcurrentExpirationMap> getCaches()
+    {
+        Map<String, ConcurrentExpirationMap> caches = new LinkedHashMap<String, ConcurrentExpirationMap>();
+        caches.put("userIdByAccessToken", userIdByAccessTokenCache);
+        caches.put("userIdByPrincipalName", userIdByPrincipalNameCache);
+        caches.put("userDataByUserId", userDataByUserIdCache);
+        caches.put("userAuthorizationDataByAccessToken", userAuthorizationDataByAccessTokenCache);
+        caches.put("aclEntry", aclEntryCache);
+        caches.put("aclUserState", aclUserStateCache);
+        caches.put("aclObjectState", aclObjectStateCache);
+        caches.put("groupByGroupId", groupByGroupId);
+        caches.put("groupIdByName", groupIdByName);
+        caches.put("userIdsByGroupId", userIdsByGroupId);
+        return caches;
     }
 
     /**
      * Clear the cache.
      */
-    public synchronized void clear()
+    public void clear()
     {
         userIdByAccessTokenCache.clear();
         userIdByPrincipalNameCache.clear();
@@ -120,13 +204,14 @@ public class AuthorizationCache
         aclObjectStateCache.clear();
         groupByGroupId.clear();
         groupIdByName.clear();
+        userIdsByGroupId.clear();
     }
 
     /**
      * @param accessToken
      * @return user-id by given {@code accessToken}
      */
-    public synchronized String getUserIdByAccessToken(String accessToken)
+    public String getUserIdByAccessToken(String accessToken)
     {
         return userIdByAccessTokenCache.get(accessToken);
     }
@@ -137,7 +222,7 @@ public class AuthorizationCache
      * @param accessToken
      * @param userId
      */
-    public synchronized void putUserIdByAccessToken(String accessToken, String userId)
+    public void putUserIdByAccessToken(String accessToken, String userId)
     {
         userIdByAccessTokenCache.put(accessToken, userId);
     }
@@ -146,7 +231,7 @@ public class AuthorizationCache
      * @param principalName
      * @return user-id by given {@code principalName}
      */
-    public synchronized String getUserIdByPrincipalName(String principalName)
+    public String getUserIdByPrincipalName(String principalName)
     {
         return userIdByPrincipalNameCache.get(principalName);
     }
@@ -155,7 +240,7 @@ public class AuthorizationCache
      * @param principalName
      * @return whether user with given {@code principalName} exists in cache
      */
-    public synchronized boolean hasUserIdByPrincipalName(String principalName)
+    public boolean hasUserIdByPrincipalName(String principalName)
     {
         return userIdByPrincipalNameCache.contains(principalName);
     }
@@ -166,7 +251,7 @@ public class AuthorizationCache
      * @param principalName
      * @param userId
      */
-    public synchronized void putUserIdByPrincipalName(String principalName, String userId)
+    public void putUserIdByPrincipalName(String principalName, String userId)
     {
         userIdByPrincipalNameCache.put(principalName, userId);
     }
@@ -175,16 +260,26 @@ public class AuthorizationCache
      * @param userId
      * @return {@link UserData} by given {@code userId}
      */
-    public synchronized UserData getUserDataByUserId(String userId)
+    public UserData getUserDataByUserId(String userId)
     {
         return userDataByUserIdCache.get(userId);
     }
 
+    /**
+     * @param userId
+     * @param loader to be used when the {@link UserData} isn't cached
+     * @return {@link UserData} by given {@code userId}
+     */
+    public UserData getUserDataByUserId(String userId, ConcurrentExpirationMap.Loader<String, UserData> loader)
+    {
+        return userDataByUserIdCache.get(userId, loader);
+    }
+
     /**
      * @param userId
      * @return true whether user with given {@code userId} has cached {@link UserData}
      */
-    public synchronized boolean hasUserDataByUserId(String userId)
+    public boolean hasUserDataByUserId(String userId)
     {
         return userDataByUserIdCache.contains(userId);
     }
@@ -195,16 +290,25 @@ public class AuthorizationCache
      * @param userId
      * @param userData
      */
-    public synchronized void putUserDataByUserId(String userId, UserData userData)
+    public void putUserDataByUserId(String userId, UserData userData)
     {
         userDataByUserIdCache.put(userId, userData);
     }
 
+    /**
+     * @param userId
+     * @return true whether the cached {@link UserData} for given {@code userId} should be refreshed by the caller
+     */
+    public boolean requestUserDataRefresh(String userId)
+    {
+        return userDataByUserIdCache.requestRefresh(userId);
+    }
+
     /**
      * @param accessToken
      * @return {@link UserAuthorizationData} by given {@code accessToken}
      */
-    public synchronized UserAuthorizationData getUserAuthorizationDataByAccessToken(String accessToken)
+    public UserAuthorizationData getUserAuthorizationDataByAccessToken(String accessToken)
     {
         return userAuthorizationDataByAccessTokenCache.get(accessToken);
     }
@@ -213,7 +317,7 @@ public class AuthorizationCache
      * @param accessToken
      * @return true whether user with given {@code accessToken} has cached {@link UserAuthorizationData}
      */
-    public synchronized boolean hasUserAuthorizationDataByAccessToken(String accessToken)
+    public boolean hasUserAuthorizationDataByAccessToken(String accessToken)
     {
         return userAuthorizationDataByAccessTokenCache.contains(accessToken);
     }
@@ -224,7 +328,7 @@ public class AuthorizationCache
      * @param accessToken
      * @param userAuthorizationData
      */
-    public synchronized void putUserAuthorizationDataByAccessToken(String accessToken,
+    public void putUserAuthorizationDataByAccessToken(String accessToken,
             UserAuthorizationData userAuthorizationData)
     {
         userAuthorizationDataByAccessTokenCache.put(accessToken, userAuthorizationData);
@@ -234,7 +338,7 @@ public class AuthorizationCache
      * @param aclEntryId
      * @return {@link AclEntry} by given {@code aclEntryId}
      */
-    public synchronized AclEntry getAclEntryById(Long aclEntryId)
+    public AclEntry getAclEntryById(Long aclEntryId)
     {
         return aclEntryCache.get(aclEntryId);
     }
@@ -242,7 +346,7 @@ public class AuthorizationCache
     /**
      * @return {@link AclEntry}s
      */
-    public synchronized Iterable<AclEntry> getAclEntries()
+    public Iterable<AclEntry> getAclEntries()
     {
         return aclEntryCache;
     }
@@ -252,7 +356,7 @@ public class AuthorizationCache
      *
      * @param aclEntry
      */
-    public synchronized void putAclEntryById(AclEntry aclEntry)
+    public void putAclEntryById(AclEntry aclEntry)
     {
         aclEntryCache.put(aclEntry.getId(), aclEntry);
     }
@@ -263,7 +367,7 @@ public class AuthorizationCache
      * @param aclEntry
      * @return removed {@link AclEntry}
      */
-    public synchronized AclEntry removeAclEntryById(AclEntry aclEntry)
+    public AclEntry removeAclEntryById(AclEntry aclEntry)
     {
         return aclEntryCache.remove(aclEntry.getId());
     }
@@ -272,7 +376,7 @@ public class AuthorizationCache
      * @param userId
      * @return {@link AclUserState} by given {@code userId}
      */
-    public synchronized AclUserState getAclUserStateByUserId(String userId)
+    public AclUserState getAclUserStateByUserId(String userId)
     {
         return aclUserStateCache.get(userId);
     }
@@ -283,7 +387,7 @@ public class AuthorizationCache
      * @param userId
      * @param aclUserState
      */
-    public synchronized void putAclUserStateByUserId(String userId, AclUserState aclUserState)
+    public void putAclUserStateByUserId(String userId, AclUserState aclUserState)
     {
         aclUserStateCache.put(userId, aclUserState);
     }
@@ -292,7 +396,7 @@ public class AuthorizationCache
      * @param aclObjectIdentity
      * @return {@link AclObjectState} by given {@code aclObjectIdentity}
      */
-    public synchronized AclObjectState getAclObjectStateByIdentity(AclObjectIdentity aclObjectIdentity)
+    public AclObjectState getAclObjectStateByIdentity(AclObjectIdentity aclObjectIdentity)
     {
         return aclObjectStateCache.get(aclObjectIdentity);
     }
@@ -303,7 +407,7 @@ public class AuthorizationCache
      * @param aclObjectIdentity
      * @param aclObjectState
      */
-    public synchronized void putAclObjectStateByIdentity(AclObjectIdentity aclObjectIdentity,
+    public void putAclObjectStateByIdentity(AclObjectIdentity aclObjectIdentity,
             AclObjectState aclObjectState)
     {
         aclObjectStateCache.put(aclObjectIdentity, aclObjectState);
@@ -313,16 +417,26 @@ public class AuthorizationCache
      * @param groupId
      * @return {@link Group} by given {@code groupId}
      */
-    public synchronized Group getGroupByGroupId(String groupId)
+    public Group getGroupByGroupId(String groupId)
     {
         return groupByGroupId.get(groupId);
     }
 
+    /**
+     * @param groupId
+     * @param loader  to be used when the {@link Group} isn't cached
+     * @return {@link Group} by given {@code groupId}
+     */
+    public Group getGroupByGroupId(String groupId, ConcurrentExpirationMap.Loader<String, Group> loader)
+    {
+        return groupByGroupId.get(groupId, loader);
+    }
+
     /**
      * @param groupId
      * @return true whether group with given {@code groupId} has cached {@link Group}
      */
-    public synchronized boolean hasGroupByGroupId(String groupId)
+    public boolean hasGroupByGroupId(String groupId)
     {
         return groupByGroupId.contains(groupId);
     }
@@ -333,16 +447,25 @@ public class AuthorizationCache
      * @param groupId
      * @param group
      */
-    public synchronized void putGroupByGroupId(String groupId, Group group)
+    public void putGroupByGroupId(String groupId, Group group)
     {
         groupByGroupId.put(groupId, group);
     }
 
+    /**
+     * @param groupId
+     * @return true whether the cached {@link Group} for given {@code groupId} should be refreshed by the caller
+     */
+    public boolean requestGroupRefresh(String groupId)
+    {
+        return groupByGroupId.requestRefresh(groupId);
+    }
+
     /**
      * @param groupName
      * @return group-id for given {@code groupName}
      */
-    public synchronized String getGroupIdByName(String groupName)
+    public String getGroupIdByName(String groupName)
     {
         return groupIdByName.get(groupName);
     }
@@ -353,7 +476,7 @@ public class AuthorizationCache
      * @param groupName
      * @param groupId
      */
-    public synchronized void putGroupIdByName(String groupName, String groupId)
+    public void putGroupIdByName(String groupName, String groupId)
     {
         groupIdByName.put(groupName, groupId);
     }
@@ -362,28 +485,47 @@ public class AuthorizationCache
      * @param groupId
      * @return set of user-ids for given {@code groupId}
      */
-    public synchronized Set<String> getUserIdsInGroup(String groupId)
+    public Set<String> getUserIdsInGroup(String groupId)
     {
         return userIdsByGroupId.get(groupId);
     }
 
+    /**
+     * @param groupId
+     * @param loader  to be used when the user-ids aren't cached
+     * @return set of user-ids for given {@code groupId}
+     */
+    public Set<String> getUserIdsInGroup(String groupId, ConcurrentExpirationMap.Loader<String, Set<String>> loader)
+    {
+        return userIdsByGroupId.get(groupId, loader);
+    }
+
     /**
      * Put given {@code userIds} to the cache by the given {@code groupId}.
      *
      * @param groupId
      * @param userIds
      */
-    public synchronized void putUserIdsInGroup(String groupId, Set<String> userIds)
+    public void putUserIdsInGroup(String groupId, Set<String> userIds)
     {
         userIdsByGroupId.put(groupId, userIds);
     }
 
+    /**
+     * @param groupId
+     * @return true whether the cached user-ids for given {@code groupId} should be refreshed by the caller
+     */
+    public boolean requestUserIdsInGroupRefresh(String groupId)
+    {
+        return userIdsByGroupId.requestRefresh(groupId);
+    }
+
     /**
      * Remove cached information about group with given {@code groupId}.
      *
      * @param groupId
      */
-    public synchronized void removeGroup(String groupId)
+    public void removeGroup(String groupId)
     {
         groupIdByName.removeByValue(groupId);
         userIdsByGroupId.remove(groupId);
@@ -1,7 +1,6 @@
 package cz.cesnet.shongo.controller.authorization;
 
 import cz.cesnet.shongo.AbstractManager;
-import cz.cesnet.shongo.CommonReportSet;
 import cz.cesnet.shongo.PersistentObject;
 import cz.cesnet.shongo.api.UserInformation;
 import cz.cesnet.shongo.controller.*;
@@ -27,11 +26,27 @@ import java.util.*;
  */
 public class AuthorizationManager extends AclEntryManager
 {
+    /**
+     * Default value for {@link #batchSize}.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
     /**
      * @see Transaction
      */
     private Transaction activeTransaction = null;
 
+    /**
+     * Maximum number of items which are fetched, flushed or deleted by a single statement
+     * when the {@link AclEntry}s are propagated.
+     */
+    private final int batchSize;
+
+    /**
+     * @see Statistics
+     */
+    private final Statistics statistics = new Statistics();
+
     /**
      * @see Authorization
      */
@@ -52,6 +67,7 @@ public class AuthorizationManager extends AclEntryManager
         super(entityManager, authorization != null ? authorization.getAclProvider() : null);
 
         this.authorization = authorization;
+        this.batchSize = (authorization != null ? authorization.getAclBatchSize() : DEFAULT_BATCH_SIZE);
     }
 
     /**
@@ -62,6 +78,14 @@ public class AuthorizationManager extends AclEntryManager
         return authorization;
     }
 
+    /**
+     * @return {@link #statistics}
+     */
+    public Statistics getStatistics()
+    {
+        return statistics;
+    }
+
     /**
      * @return {@link #userSettingsManager}
      */
@@ -210,21 +234,17 @@ public class AuthorizationManager extends AclEntryManager
             return aclEntry;
         }
 
+        long startTime = System.nanoTime();
         try {
-            aclEntry = super.createEntry(identity, objectIdentity, objectRole.toString());
-
-            activeTransaction.addAclEntry(aclEntry);
+            aclEntry = persistAclEntry(identity, objectIdentity, objectRole);
 
-            afterAclEntryCreated(aclEntry, object);
+            List<AclEntryPropagation> propagations = new LinkedList<AclEntryPropagation>();
+            afterAclEntryCreated(aclEntry, object, propagations);
+            propagateAclEntries(propagations);
         }
-        catch (Throwable throwable) {
-            throw new RuntimeException(String.format("ACL entry creation failed (identity: %s, object: %s, role: %s)",
-                    identity, objectIdentity, objectRole), throwable);
+        finally {
+            statistics.propagationDuration += System.nanoTime() - startTime;
         }
-
-        Controller.loggerAcl.info("ACL entry created (id: {}, identity: {}, object: {}, role: {})",
-                new Object[]{aclEntry.getId(), identity, objectIdentity, objectRole});
-
         return aclEntry;
     }
 
@@ -236,21 +256,47 @@ public class AuthorizationManager extends AclEntryManager
      * @param childObject  to which should be created new {@link AclEntry}s
      */
     public void createAclEntriesForChildEntity(PersistentObject parentObject, PersistentObject childObject)
+    {
+        createAclEntriesForChildEntities(parentObject, Collections.singletonList(childObject));
+    }
+
+    /**
+     * Creates all {@link AclEntry}s from given {@code parentObject} to given {@code childObjects} which the
+     * child objects allows (the {@link AclEntry}s of the {@code parentObject} are fetched only once).
+     *
+     * @param parentObject from which should be fetch all existing {@link AclEntry}s
+     * @param childObjects to which should be created new {@link AclEntry}s
+     */
+    public void createAclEntriesForChildEntities(PersistentObject parentObject,
+            Collection<? extends PersistentObject> childObjects)
     {
         if (activeTransaction == null) {
             throw new IllegalStateException("No transaction is active.");
         }
+        if (childObjects.isEmpty()) {
+            return;
+        }
 
-        AclObjectIdentity parentObjectIdentity = aclProvider.getObjectIdentity(parentObject);
-        AclObjectIdentity childObjectIdentity = aclProvider.getObjectIdentity(childObject);
-        ObjectType childObjectType = ObjectTypeResolver.getObjectType(childObjectIdentity);
-        for (AclEntry parentAclEntry : activeTransaction.getAclEntries(parentObjectIdentity)) {
-            AclIdentity identity = parentAclEntry.getIdentity();
-            ObjectRole objectRole = ObjectRole.valueOf(parentAclEntry.getRole());
-            if (childObjectType.allowsRole(objectRole)) {
-                createChildAclEntry(parentAclEntry, identity, childObject, objectRole,
-                        AclEntryDependency.Type.DELETE_DETACH);
+        long startTime = System.nanoTime();
+        try {
+            AclObjectIdentity parentObjectIdentity = aclProvider.getObjectIdentity(parentObject);
+            Collection<AclEntry> parentAclEntries = activeTransaction.getAclEntries(parentObjectIdentity);
+            List<AclEntryPropagation> propagations = new LinkedList<AclEntryPropagation>();
+            for (PersistentObject childObject : childObjects) {
+                AclObjectIdentity childObjectIdentity = aclProvider.getObjectIdentity(childObject);
+                ObjectType childObjectType = ObjectTypeResolver.getObjectType(childObjectIdentity);
+                for (AclEntry parentAclEntry : parentAclEntries) {
+                    ObjectRole objectRole = ObjectRole.valueOf(parentAclEntry.getRole());
+                    if (childObjectType.allowsRole(objectRole)) {
+                        propagations.add(new AclEntryPropagation(parentAclEntry, childObject, objectRole,
+                                AclEntryDependency.Type.DELETE_DETACH));
+                    }
+                }
             }
+            propagateAclEntries(propagations);
+        }
+        finally {
+            statistics.propagationDuration += System.nanoTime() - startTime;
         }
     }
 
@@ -266,43 +312,136 @@ public class AuthorizationManager extends AclEntryManager
             throw new IllegalStateException("No transaction is active.");
         }
 
-        AclObjectIdentity parentObjectIdentity = aclProvider.getObjectIdentity(parentObject);
-        Collection<AclEntry> parentAclEntries = activeTransaction.getAclEntries(parentObjectIdentity);
-        for (AclEntry parentAclEntry : parentAclEntries) {
-            afterAclEntryCreated(parentAclEntry, parentObject);
+        long startTime = System.nanoTime();
+        try {
+            AclObjectIdentity parentObjectIdentity = aclProvider.getObjectIdentity(parentObject);
+            List<AclEntryPropagation> propagations = new LinkedList<AclEntryPropagation>();
+            for (AclEntry parentAclEntry : activeTransaction.getAclEntries(parentObjectIdentity)) {
+                afterAclEntryCreated(parentAclEntry, parentObject, propagations);
+            }
+            propagateAclEntries(propagations);
+        }
+        finally {
+            statistics.propagationDuration += System.nanoTime() - startTime;
         }
     }
 
     /**
-     * Create a new child {@link AclEntry}.
+     * Create all child {@link AclEntry}s and {@link AclEntryDependency}s for given {@code propagations}
+     * and recursively for all newly created child {@link AclEntry}s.
+     * <p/>
+     * The propagations are processed by levels. For each level the existing {@link AclEntry}s of all child objects
+     * and the existing {@link AclEntryDependency}s of all parent {@link AclEntry}s are fetched by a few queries
+     * (by {@link #batchSize} items) and the missing ones are persisted and flushed by {@link #batchSize} items
+     * (identifiers are allocated from pooled sequences and thus each flush is performed by JDBC batch inserts
+     * when "hibernate.jdbc.batch_size" is set, see {@link AclEntry#ID_ALLOCATION_SIZE}).
      *
-     * @param parentAclEntry
-     * @param identity
-     * @param childEntity
-     * @param objectRole
+     * @param propagations to be processed
      */
-    private void createChildAclEntry(AclEntry parentAclEntry, AclIdentity identity, PersistentObject childEntity,
-            ObjectRole objectRole, AclEntryDependency.Type dependencyType)
+    private void propagateAclEntries(List<AclEntryPropagation> propagations)
     {
-        AclEntry childAclEntry = createAclEntry(identity, childEntity, objectRole);
+        while (!propagations.isEmpty()) {
+            // Fetch existing ACL entries and dependencies
+            Set<AclObjectIdentity> childObjectIdentities = new HashSet<AclObjectIdentity>();
+            Map<Long, AclEntry> parentAclEntries = new HashMap<Long, AclEntry>();
+            for (AclEntryPropagation propagation : propagations) {
+                propagation.childObjectIdentity = aclProvider.getObjectIdentity(propagation.childObject);
+                childObjectIdentities.add(propagation.childObjectIdentity);
+                parentAclEntries.put(propagation.parentAclEntry.getId(), propagation.parentAclEntry);
+            }
+            Map<String, AclEntry> aclEntries = activeTransaction.getAclEntries(childObjectIdentities);
+            Set<String> aclEntryDependencies = new HashSet<String>();
+            for (AclEntryDependency aclEntryDependency : listAclEntryDependencies(parentAclEntries.values(), false)) {
+                aclEntryDependencies.add(getAclEntryDependencyKey(
+                        aclEntryDependency.getParentAclEntry(), aclEntryDependency.getChildAclEntry()));
+            }
 
-        List<AclEntryDependency> aclEntryDependencies =
-                entityManager.createQuery("SELECT dependency FROM AclEntryDependency dependency"
-                        + " WHERE dependency.parentAclEntry = :parent AND dependency.childAclEntry = :child",
-                        AclEntryDependency.class)
-                        .setParameter("parent", parentAclEntry)
-                        .setParameter("child", childAclEntry)
-                        .getResultList();
-        if (aclEntryDependencies.size() == 0) {
-            AclEntryDependency aclEntryDependency = new AclEntryDependency();
-            aclEntryDependency.setParentAclEntry(parentAclEntry);
-            aclEntryDependency.setChildAclEntry(childAclEntry);
-            aclEntryDependency.setType(dependencyType);
-            entityManager.persist(aclEntryDependency);
+            // Create missing ACL entries (all entries are persisted before dependencies so that they are inserted
+            // by JDBC batches for each table and not one by one in alternating tables)
+            List<AclEntryPropagation> childPropagations = new LinkedList<AclEntryPropagation>();
+            List<AclEntryDependency> newAclEntryDependencies = new LinkedList<AclEntryDependency>();
+            int persistCount = 0;
+            for (AclEntryPropagation propagation : propagations) {
+                AclEntry parentAclEntry = propagation.parentAclEntry;
+                AclIdentity identity = parentAclEntry.getIdentity();
+                if (identity.getType().equals(AclIdentityType.USER) &&
+                        identity.getPrincipalId().equals(Authorization.ROOT_USER_ID)) {
+                    continue;
+                }
+                AclObjectIdentity childObjectIdentity = propagation.childObjectIdentity;
+                ObjectRole objectRole = propagation.objectRole;
+                if (!ObjectTypeResolver.getObjectType(childObjectIdentity).allowsRole(objectRole)) {
+                    throw new ControllerReportSet.AclInvalidObjectRoleException(
+                            ObjectIdentifier.formatId(propagation.childObject), objectRole.toString());
+                }
 
-            Controller.loggerAcl.info("Created ACL Dependency (parent: {}, child: {}, type: {})",
-                    new Object[]{parentAclEntry.getId(), childAclEntry.getId(), dependencyType});
+                String aclEntryKey = getAclEntryKey(identity, childObjectIdentity, objectRole.toString());
+                AclEntry childAclEntry = aclEntries.get(aclEntryKey);
+                if (childAclEntry == null) {
+                    childAclEntry = persistAclEntry(identity, childObjectIdentity, objectRole);
+                    aclEntries.put(aclEntryKey, childAclEntry);
+                    afterAclEntryCreated(childAclEntry, propagation.childObject, childPropagations);
+                    if (++persistCount >= batchSize) {
+                        entityManager.flush();
+                        persistCount = 0;
+                    }
+                }
+
+                if (aclEntryDependencies.add(getAclEntryDependencyKey(parentAclEntry, childAclEntry))) {
+                    AclEntryDependency aclEntryDependency = new AclEntryDependency();
+                    aclEntryDependency.setParentAclEntry(parentAclEntry);
+                    aclEntryDependency.setChildAclEntry(childAclEntry);
+                    aclEntryDependency.setType(propagation.dependencyType);
+                    newAclEntryDependencies.add(aclEntryDependency);
+                }
+            }
+
+            // Create missing ACL dependencies
+            for (AclEntryDependency aclEntryDependency : newAclEntryDependencies) {
+                entityManager.persist(aclEntryDependency);
+
+                Controller.loggerAcl.info("Created ACL Dependency (parent: {}, child: {}, type: {})",
+                        new Object[]{aclEntryDependency.getParentAclEntry().getId(),
+                                aclEntryDependency.getChildAclEntry().getId(), aclEntryDependency.getType()
+                        });
+
+                if (++persistCount >= batchSize) {
+                    entityManager.flush();
+                    persistCount = 0;
+                }
+            }
+            propagations = childPropagations;
+        }
+    }
+
+    /**
+     * Persist a new {@link AclEntry}.
+     *
+     * @param identity       for which the ACL is created.
+     * @param objectIdentity for which the ACL is created.
+     * @param objectRole     which is created for given user and given {@code objectIdentity}
+     * @return new {@link AclEntry}
+     */
+    private AclEntry persistAclEntry(AclIdentity identity, AclObjectIdentity objectIdentity, ObjectRole objectRole)
+    {
+        AclEntry aclEntry = new AclEntry();
+        aclEntry.setIdentity(identity);
+        aclEntry.setObjectIdentity(objectIdentity);
+        aclEntry.setRole(objectRole.toString());
+        try {
+            entityManager.persist(aclEntry);
         }
+        catch (Throwable throwable) {
+            throw new RuntimeException(String.format("ACL entry creation failed (identity: %s, object: %s, role: %s)",
+                    identity, objectIdentity, objectRole), throwable);
+        }
+        activeTransaction.addAclEntry(aclEntry);
+        statistics.createdAclEntries++;
+
+        Controller.loggerAcl.info("ACL entry created (id: {}, identity: {}, object: {}, role: {})",
+                new Object[]{aclEntry.getId(), identity, objectIdentity, objectRole});
+
+        return aclEntry;
     }
 
     /**
@@ -312,7 +451,7 @@ public class AuthorizationManager extends AclEntryManager
      */
     public void deleteAclEntry(AclEntry aclEntry)
     {
-        deleteAclEntry(aclEntry, false);
+        deleteAclEntries(Collections.singletonList(aclEntry), false);
     }
 
     /**
@@ -322,84 +461,283 @@ public class AuthorizationManager extends AclEntryManager
      */
     public void deleteAclEntriesForEntity(PersistentObject object)
     {
-        AclObjectIdentity objectIdentity = aclProvider.getObjectIdentity(object);
-        for (AclEntry aclEntry : activeTransaction.getAclEntries(objectIdentity)) {
-            deleteAclEntry(aclEntry, true);
+        if (activeTransaction == null) {
+            throw new IllegalStateException("No transaction is active.");
         }
+        AclObjectIdentity objectIdentity = aclProvider.getObjectIdentity(object);
+        deleteAclEntries(activeTransaction.getAclEntries(objectIdentity), true);
     }
 
     /**
-     * Delete given {@code aclEntry},
+     * Delete given {@code aclEntries} and all child {@link AclEntry}s which aren't referenced from other
+     * not deleted {@link AclEntry}s.
+     * <p/>
+     * The closure of deleted {@link AclEntry}s is computed in memory from {@link AclEntryDependency}s which are
+     * fetched by levels (by {@link #batchSize} items) and then all dependencies and entries are deleted
+     * by bulk statements (by {@link #batchSize} items).
      *
-     * @param aclEntry
-     * @param detachChildren
+     * @param aclEntries     to be deleted
+     * @param detachChildren specifies whether children with {@link AclEntryDependency.Type#DELETE_DETACH} of given
+     *                       {@code aclEntries} should be only detached (otherwise given {@code aclEntries} must not
+     *                       be referenced from other {@link AclEntry}s)
      */
-    private void deleteAclEntry(AclEntry aclEntry, boolean detachChildren)
+    private void deleteAclEntries(Collection<AclEntry> aclEntries, boolean detachChildren)
     {
         if (activeTransaction == null) {
             throw new IllegalStateException("No transaction is active.");
         }
+        if (aclEntries.isEmpty()) {
+            return;
+        }
 
-        AclObjectIdentity objectIdentity = aclEntry.getObjectIdentity();
-        Class<? extends PersistentObject> objectClass = ObjectTypeResolver.getObjectTypeClass(objectIdentity);
-        if (objectClass.equals(AbstractReservationRequest.class)) {
-            objectClass = Allocation.class;
+        long startTime = System.nanoTime();
+        try {
+            // Deleted ACL entries by identifiers (given entries are at the beginning)
+            Map<Long, AclEntry> deletedAclEntries = new LinkedHashMap<Long, AclEntry>();
+            for (AclEntry aclEntry : aclEntries) {
+                if (!entityManager.contains(aclEntry)) {
+                    aclEntry = entityManager.merge(aclEntry);
+                }
+                deletedAclEntries.put(aclEntry.getId(), aclEntry);
+            }
+            Set<Long> topAclEntryIds = new HashSet<Long>(deletedAclEntries.keySet());
+
+            // Compute closure of deleted ACL entries
+            Map<Long, AclEntryDependency> aclEntryDependencies = new LinkedHashMap<Long, AclEntryDependency>();
+            Map<Long, List<AclEntryDependency>> parentDependenciesByChild =
+                    new HashMap<Long, List<AclEntryDependency>>();
+            Map<Long, List<AclEntryDependency>> childDependenciesByParent =
+                    new HashMap<Long, List<AclEntryDependency>>();
+            Map<Long, AclEntry> candidateAclEntries = new LinkedHashMap<Long, AclEntry>();
+            Collection<AclEntry> levelAclEntries = new LinkedList<AclEntry>(deletedAclEntries.values());
+            addAclEntryDependencies(levelAclEntries, aclEntryDependencies,
+                    parentDependenciesByChild, childDependenciesByParent);
+            if (!detachChildren) {
+                for (Long aclEntryId : topAclEntryIds) {
+                    if (!parentDependenciesByChild.get(aclEntryId).isEmpty()) {
+                        ControllerReportSetHelper.throwObjectNotDeletableReferencedFault(AclEntry.class, aclEntryId);
+                    }
+                }
+            }
+            while (!levelAclEntries.isEmpty()) {
+                // Children of deleted entries are candidates for deletion
+                List<AclEntry> newCandidateAclEntries = new LinkedList<AclEntry>();
+                for (AclEntry aclEntry : levelAclEntries) {
+                    Long aclEntryId = aclEntry.getId();
+                    List<AclEntryDependency> childDependencies = childDependenciesByParent.get(aclEntryId);
+                    if (childDependencies == null) {
+                        continue;
+                    }
+                    for (AclEntryDependency aclEntryDependency : childDependencies) {
+                        if (aclEntryDependency.getType().equals(AclEntryDependency.Type.DELETE_DETACH)
+                                && detachChildren && topAclEntryIds.contains(aclEntryId)) {
+                            continue;
+                        }
+                        AclEntry childAclEntry = aclEntryDependency.getChildAclEntry();
+                        Long childAclEntryId = childAclEntry.getId();
+                        if (!deletedAclEntries.containsKey(childAclEntryId)
+                                && !candidateAclEntries.containsKey(childAclEntryId)) {
+                            candidateAclEntries.put(childAclEntryId, childAclEntry);
+                            newCandidateAclEntries.add(childAclEntry);
+                        }
+                    }
+                }
+                addAclEntryDependencies(newCandidateAclEntries, aclEntryDependencies,
+                        parentDependenciesByChild, childDependenciesByParent);
+
+                // Candidates which are referenced only from deleted entries are deleted
+                levelAclEntries = new LinkedList<AclEntry>();
+                boolean changed = true;
+                while (changed) {
+                    changed = false;
+                    Iterator<AclEntry> candidateIterator = candidateAclEntries.values().iterator();
+                    while (candidateIterator.hasNext()) {
+                        AclEntry candidateAclEntry = candidateIterator.next();
+                        boolean referenced = false;
+                        for (AclEntryDependency aclEntryDependency :
+                                parentDependenciesByChild.get(candidateAclEntry.getId())) {
+                            if (!deletedAclEntries.containsKey(aclEntryDependency.getParentAclEntry().getId())) {
+                                referenced = true;
+                                break;
+                            }
+                        }
+                        if (!referenced) {
+                            candidateIterator.remove();
+                            deletedAclEntries.put(candidateAclEntry.getId(), candidateAclEntry);
+                            levelAclEntries.add(candidateAclEntry);
+                            changed = true;
+                        }
+                    }
+                }
+            }
+            for (AclEntry aclEntry : candidateAclEntries.values()) {
+                Controller.loggerAcl.info("ACL entry (id: {}, identity: {}, object: {}, role: {}) cannot be deleted,"
+                        + " because it is referenced.", new Object[]{aclEntry.getId(),
+                        aclEntry.getIdentity(), aclEntry.getObjectIdentity(), aclEntry.getRole()
+                });
+            }
+
+            // Delete all dependencies of deleted entries
+            List<Long> aclEntryDependencyIds = new LinkedList<Long>();
+            for (AclEntryDependency aclEntryDependency : aclEntryDependencies.values()) {
+                if (deletedAclEntries.containsKey(aclEntryDependency.getParentAclEntry().getId())
+                        || deletedAclEntries.containsKey(aclEntryDependency.getChildAclEntry().getId())) {
+                    aclEntryDependencyIds.add(aclEntryDependency.getId());
+                    entityManager.detach(aclEntryDependency);
+                }
+            }
+            entityManager.flush();
+            executeBatchUpdate("DELETE FROM AclEntryDependency dependency WHERE dependency.id IN(:ids)",
+                    aclEntryDependencyIds);
+
+            // Delete entries
+            for (AclEntry aclEntry : deletedAclEntries.values()) {
+                beforeAclEntryDeleted(aclEntry);
+            }
+            entityManager.flush();
+            executeBatchUpdate("DELETE FROM AclEntry entry WHERE entry.id IN(:ids)", deletedAclEntries.keySet());
+            for (AclEntry aclEntry : deletedAclEntries.values()) {
+                entityManager.detach(aclEntry);
+                activeTransaction.removeAclEntry(aclEntry);
+                statistics.deletedAclEntries++;
+
+                Controller.loggerAcl.info("Deleted ACL entry (id: {}, identity: {}, object: {}, role: {})",
+                        new Object[]{aclEntry.getId(), aclEntry.getIdentity(), aclEntry.getObjectIdentity(),
+                                aclEntry.getRole()});
+            }
         }
-        PersistentObject entity = entityManager.find(objectClass, objectIdentity.getObjectId());
-        if (entity == null) {
-            throw new IllegalStateException("Entity " + objectIdentity + " referenced from ACL doesn't exist.");
+        finally {
+            statistics.propagationDuration += System.nanoTime() - startTime;
         }
+    }
 
-        // Delete ACL entry dependencies
-        Collection<AclEntryDependency> parentAclEntryDependencies = entityManager.createQuery(
-                "SELECT dependency FROM AclEntryDependency dependency"
-                        + " WHERE dependency.childAclEntry = :aclEntry", AclEntryDependency.class)
-                .setParameter("aclEntry", aclEntry)
-                .getResultList();
-        if (parentAclEntryDependencies.size() > 0) {
-            if (detachChildren) {
-                for (AclEntryDependency aclEntryDependency : parentAclEntryDependencies) {
-                    entityManager.remove(aclEntryDependency);
-                }
+    /**
+     * Fetch all {@link AclEntryDependency}s which reference given {@code aclEntries} and add them to given maps.
+     *
+     * @param aclEntries                for which the {@link AclEntryDependency}s should be fetched
+     * @param aclEntryDependencies      to which the {@link AclEntryDependency}s should be added by identifiers
+     * @param parentDependenciesByChild to which the {@link AclEntryDependency}s should be added by child identifiers
+     * @param childDependenciesByParent to which the {@link AclEntryDependency}s should be added by parent identifiers
+     */
+    private void addAclEntryDependencies(Collection<AclEntry> aclEntries,
+            Map<Long, AclEntryDependency> aclEntryDependencies,
+            Map<Long, List<AclEntryDependency>> parentDependenciesByChild,
+            Map<Long, List<AclEntryDependency>> childDependenciesByParent)
+    {
+        for (AclEntry aclEntry : aclEntries) {
+            Long aclEntryId = aclEntry.getId();
+            if (!parentDependenciesByChild.containsKey(aclEntryId)) {
+                parentDependenciesByChild.put(aclEntryId, new LinkedList<AclEntryDependency>());
             }
-            else {
-                ControllerReportSetHelper.throwObjectNotDeletableReferencedFault(AclEntry.class, aclEntry.getId());
+        }
+        for (AclEntryDependency aclEntryDependency : listAclEntryDependencies(aclEntries, true)) {
+            if (aclEntryDependencies.put(aclEntryDependency.getId(), aclEntryDependency) != null) {
+                continue;
+            }
+            Long parentAclEntryId = aclEntryDependency.getParentAclEntry().getId();
+            Long childAclEntryId = aclEntryDependency.getChildAclEntry().getId();
+            List<AclEntryDependency> parentDependencies = parentDependenciesByChild.get(childAclEntryId);
+            if (parentDependencies == null) {
+                parentDependencies = new LinkedList<AclEntryDependency>();
+                parentDependenciesByChild.put(childAclEntryId, parentDependencies);
+            }
+            parentDependencies.add(aclEntryDependency);
+            List<AclEntryDependency> childDependencies = childDependenciesByParent.get(parentAclEntryId);
+            if (childDependencies == null) {
+                childDependencies = new LinkedList<AclEntryDependency>();
+                childDependenciesByParent.put(parentAclEntryId, childDependencies);
             }
+            childDependencies.add(aclEntryDependency);
         }
+    }
 
-        // Refresh entry
-        aclEntry = entityManager.merge(aclEntry);
+    /**
+     * @param aclEntries  for which the {@link AclEntryDependency}s should be returned
+     * @param withParents specifies whether also {@link AclEntryDependency}s in which given {@code aclEntries} are
+     *                    children should be returned
+     * @return list of {@link AclEntryDependency}s in which given {@code aclEntries} are parents (or children)
+     */
+    private List<AclEntryDependency> listAclEntryDependencies(Collection<AclEntry> aclEntries, boolean withParents)
+    {
+        List<AclEntryDependency> aclEntryDependencies = new LinkedList<AclEntryDependency>();
+        String query = "SELECT dependency FROM AclEntryDependency dependency"
+                + " WHERE dependency.parentAclEntry.id IN(:ids)";
+        if (withParents) {
+            query += " OR dependency.childAclEntry.id IN(:ids)";
+        }
+        for (List<Long> ids : getBatches(getIds(aclEntries))) {
+            aclEntryDependencies.addAll(entityManager.createQuery(query, AclEntryDependency.class)
+                    .setParameter("ids", ids)
+                    .getResultList());
+        }
+        return aclEntryDependencies;
+    }
 
-        // Delete ACL entry dependencies
-        Collection<AclEntryDependency> childAclEntryDependencies = entityManager.createQuery(
-                "SELECT dependency FROM AclEntryDependency dependency"
-                        + " WHERE dependency.parentAclEntry = :aclEntry", AclEntryDependency.class)
-                .setParameter("aclEntry", aclEntry)
-                .getResultList();
-        for (AclEntryDependency aclEntryDependency : childAclEntryDependencies) {
-            entityManager.remove(aclEntryDependency);
-            if (!aclEntryDependency.getType().equals(AclEntryDependency.Type.DELETE_DETACH) || !detachChildren) {
-                AclEntry childAclEntry = aclEntryDependency.getChildAclEntry();
-                try {
-                    deleteAclEntry(childAclEntry);
-                }
-                catch (CommonReportSet.ObjectNotDeletableReferencedException exception) {
-                    Controller.loggerAcl.info(
-                            "ACL entry (id: {}, identity: {}, object: {}, role: {}) cannot be deleted,"
-                                    + " because it is referenced.", new Object[]{childAclEntry.getId(),
-                            childAclEntry.getIdentity(), childAclEntry.getObjectIdentity(), childAclEntry.getRole()
-                    });
-                }
+    /**
+     * Execute given bulk {@code query} with parameter "ids" for all given {@code ids} by {@link #batchSize} items.
+     *
+     * @param query to be executed
+     * @param ids   to be passed to the {@code query}
+     */
+    private void executeBatchUpdate(String query, Collection<Long> ids)
+    {
+        for (List<Long> batchIds : getBatches(ids)) {
+            entityManager.createQuery(query)
+                    .setParameter("ids", batchIds)
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * @param ids to be split
+     * @return given {@code ids} split to lists of {@link #batchSize} items
+     */
+    private List<List<Long>> getBatches(Collection<Long> ids)
+    {
+        List<List<Long>> batches = new LinkedList<List<Long>>();
+        List<Long> batch = null;
+        for (Long id : ids) {
+            if (batch == null || batch.size() >= batchSize) {
+                batch = new ArrayList<Long>(Math.min(batchSize, ids.size()));
+                batches.add(batch);
             }
+            batch.add(id);
         }
+        return batches;
+    }
 
-        // Delete ACL entry
-        beforeAclEntryDeleted(aclEntry, entity);
-        super.deleteEntry(aclEntry);
-        activeTransaction.removeAclEntry(aclEntry);
+    /**
+     * @param objects
+     * @return identifiers of given {@code objects}
+     */
+    private static Set<Long> getIds(Collection<? extends PersistentObject> objects)
+    {
+        Set<Long> ids = new LinkedHashSet<Long>();
+        for (PersistentObject object : objects) {
+            ids.add(object.getId());
+        }
+        return ids;
+    }
 
-        Controller.loggerAcl.info("Deleted ACL entry (id: {}, identity: {}, object: {}, role: {})",
-                new Object[]{aclEntry.getId(), aclEntry.getIdentity(), objectIdentity, aclEntry.getRole()});
+    /**
+     * @param identity
+     * @param objectIdentity
+     * @param role
+     * @return key of {@link AclEntry} for given parameters
+     */
+    private static String getAclEntryKey(AclIdentity identity, AclObjectIdentity objectIdentity, String role)
+    {
+        return identity.getId() + ":" + objectIdentity.getId() + ":" + role;
+    }
+
+    /**
+     * @param parentAclEntry
+     * @param childAclEntry
+     * @return key of {@link AclEntryDependency} for given parameters
+     */
+    private static String getAclEntryDependencyKey(AclEntry parentAclEntry, AclEntry childAclEntry)
+    {
+        return parentAclEntry.getId() + ":" + childAclEntry.getId();
     }
 
     /**
@@ -407,10 +745,11 @@ public class AuthorizationManager extends AclEntryManager
      *
      * @param aclEntry
      * @param object
+     * @param propagations to which the {@link AclEntryPropagation}s to child objects should be added
      */
-    private void afterAclEntryCreated(AclEntry aclEntry, PersistentObject object)
+    private void afterAclEntryCreated(AclEntry aclEntry, PersistentObject object,
+            List<AclEntryPropagation> propagations)
     {
-        AclIdentity identity = aclEntry.getIdentity();
         ObjectRole objectRole = ObjectRole.valueOf(aclEntry.getRole());
 
         // Create child ACL entries
@@ -421,8 +760,8 @@ public class AuthorizationManager extends AclEntryManager
             // Child reservation requests
             for (ReservationRequest childReservationRequest : allocation.getChildReservationRequests()) {
                 if (ObjectType.RESERVATION_REQUEST.allowsRole(objectRole)) {
-                    createChildAclEntry(aclEntry, identity, childReservationRequest, objectRole,
-                            AclEntryDependency.Type.DELETE_DETACH);
+                    propagations.add(new AclEntryPropagation(aclEntry, childReservationRequest, objectRole,
+                            AclEntryDependency.Type.DELETE_DETACH));
                 }
             }
 
@@ -433,8 +772,8 @@ public class AuthorizationManager extends AclEntryManager
                         reservationRequestManager.listReservationRequestActiveUsages(reservationRequest);
                 for (AbstractReservationRequest reservationRequestUsage : reservationRequestUsages) {
                     if (ObjectType.RESERVATION_REQUEST.allowsRole(objectRole)) {
-                        createChildAclEntry(aclEntry, identity, reservationRequestUsage, objectRole,
-                                AclEntryDependency.Type.DELETE_DETACH);
+                        propagations.add(new AclEntryPropagation(aclEntry, reservationRequestUsage, objectRole,
+                                AclEntryDependency.Type.DELETE_DETACH));
                     }
                 }
             }
@@ -442,14 +781,14 @@ public class AuthorizationManager extends AclEntryManager
             // Allocated reservations
             if (ObjectType.RESERVATION.allowsRole(objectRole)) {
                 for (Reservation reservation : allocation.getReservations()) {
-                    createChildAclEntry(aclEntry, identity, reservation, objectRole,
-                            AclEntryDependency.Type.DELETE_DETACH);
+                    propagations.add(new AclEntryPropagation(aclEntry, reservation, objectRole,
+                            AclEntryDependency.Type.DELETE_DETACH));
                 }
             }
             else if (objectRole.equals(ObjectRole.RESERVATION_REQUEST_USER)) {
                 for (Reservation reservation : allocation.getReservations()) {
-                    createChildAclEntry(aclEntry, identity, reservation, ObjectRole.READER,
-                            AclEntryDependency.Type.DELETE_DETACH);
+                    propagations.add(new AclEntryPropagation(aclEntry, reservation, ObjectRole.READER,
+                            AclEntryDependency.Type.DELETE_DETACH));
                 }
             }
         }
@@ -459,8 +798,8 @@ public class AuthorizationManager extends AclEntryManager
             // Child reservations
             for (Reservation childReservation : reservation.getChildReservations()) {
                 if (ObjectType.RESERVATION.allowsRole(objectRole)) {
-                    createChildAclEntry(aclEntry, identity, childReservation, objectRole,
-                            AclEntryDependency.Type.DELETE_DETACH);
+                    propagations.add(new AclEntryPropagation(aclEntry, childReservation, objectRole,
+                            AclEntryDependency.Type.DELETE_DETACH));
                 }
             }
 
@@ -468,8 +807,8 @@ public class AuthorizationManager extends AclEntryManager
             Executable executable = reservation.getExecutable();
             if (reservation.getExecutable() != null) {
                 if (ObjectType.EXECUTABLE.allowsRole(objectRole)) {
-                    createChildAclEntry(aclEntry, identity, executable, objectRole,
-                            AclEntryDependency.Type.DELETE_DETACH);
+                    propagations.add(new AclEntryPropagation(aclEntry, executable, objectRole,
+                            AclEntryDependency.Type.DELETE_DETACH));
                 }
             }
 
@@ -477,8 +816,8 @@ public class AuthorizationManager extends AclEntryManager
             if (reservation instanceof ExistingReservation) {
                 ExistingReservation existingReservation = (ExistingReservation) reservation;
                 Reservation reusedReservation = existingReservation.getReusedReservation();
-                createChildAclEntry(aclEntry, identity, reusedReservation, ObjectRole.READER,
-                        AclEntryDependency.Type.DELETE_CASCADE);
+                propagations.add(new AclEntryPropagation(aclEntry, reusedReservation, ObjectRole.READER,
+                        AclEntryDependency.Type.DELETE_CASCADE));
             }
         }
         else if (object instanceof Executable) {
@@ -491,16 +830,20 @@ public class AuthorizationManager extends AclEntryManager
     }
 
     /**
-     * Method which is called after existing {@link AclEntry} is deleted.
+     * Method which is called before existing {@link AclEntry} is deleted.
      *
      * @param aclEntry
-     * @param object
      */
-    private void beforeAclEntryDeleted(AclEntry aclEntry, PersistentObject object)
+    private void beforeAclEntryDeleted(AclEntry aclEntry)
     {
         ObjectRole objectRole = ObjectRole.valueOf(aclEntry.getRole());
-        if (object instanceof Executable && objectRole.equals(ObjectRole.OWNER)) {
-            Executable executable = (Executable) object;
+        AclObjectIdentity objectIdentity = aclEntry.getObjectIdentity();
+        Class<? extends PersistentObject> objectClass = ObjectTypeResolver.getObjectTypeClass(objectIdentity);
+        if (Executable.class.isAssignableFrom(objectClass) && objectRole.equals(ObjectRole.OWNER)) {
+            Executable executable = entityManager.find(Executable.class, objectIdentity.getObjectId());
+            if (executable == null) {
+                throw new IllegalStateException("Entity " + objectIdentity + " referenced from ACL doesn't exist.");
+            }
             if (executable.canBeModified()) {
                 executable.setModified(true);
             }
@@ -531,6 +874,11 @@ public class AuthorizationManager extends AclEntryManager
          */
         private Set<AclEntry> addedAclEntries = new HashSet<AclEntry>();
 
+        /**
+         * Map of {@link #addedAclEntries} by keys (see {@link #getAclEntryKey}).
+         */
+        private Map<String, AclEntry> addedAclEntryByKey = new HashMap<String, AclEntry>();
+
         /**
          * Set of {@link AclEntry} which should be removed from the {@link Authorization} cache.
          */
@@ -549,6 +897,7 @@ public class AuthorizationManager extends AclEntryManager
         public void destroy()
         {
             addedAclEntries.clear();
+            addedAclEntryByKey.clear();
             removedAclEntries.clear();
         }
 
@@ -577,6 +926,8 @@ public class AuthorizationManager extends AclEntryManager
         {
             if (!removedAclEntries.remove(aclEntry)) {
                 addedAclEntries.add(aclEntry);
+                addedAclEntryByKey.put(getAclEntryKey(aclEntry.getIdentity(), aclEntry.getObjectIdentity(),
+                        aclEntry.getRole()), aclEntry);
             }
         }
 
@@ -585,7 +936,11 @@ public class AuthorizationManager extends AclEntryManager
          */
         public void removeAclEntry(AclEntry aclEntry)
         {
-            if (!addedAclEntries.remove(aclEntry)) {
+            if (addedAclEntries.remove(aclEntry)) {
+                addedAclEntryByKey.remove(getAclEntryKey(aclEntry.getIdentity(), aclEntry.getObjectIdentity(),
+                        aclEntry.getRole()));
+            }
+            else {
                 removedAclEntries.add(aclEntry);
             }
         }
@@ -611,6 +966,35 @@ public class AuthorizationManager extends AclEntryManager
             return aclEntries;
         }
 
+        /**
+         * @param objectIdentities
+         * @return map of {@link AclEntry}s for given {@code objectIdentities} by keys (see {@link #getAclEntryKey})
+         */
+        public Map<String, AclEntry> getAclEntries(Set<AclObjectIdentity> objectIdentities)
+        {
+            Map<String, AclEntry> aclEntries = new HashMap<String, AclEntry>();
+            Set<Long> objectIdentityIds = getIds(objectIdentities);
+            for (List<Long> batchObjectIdentityIds : getBatches(objectIdentityIds)) {
+                List<AclEntry> batchAclEntries = entityManager.createQuery("SELECT entry FROM AclEntry entry"
+                        + " WHERE entry.objectIdentity.id IN(:objectIdentityIds)", AclEntry.class)
+                        .setParameter("objectIdentityIds", batchObjectIdentityIds)
+                        .getResultList();
+                for (AclEntry aclEntry : batchAclEntries) {
+                    if (!removedAclEntries.contains(aclEntry)) {
+                        aclEntries.put(getAclEntryKey(aclEntry.getIdentity(), aclEntry.getObjectIdentity(),
+                                aclEntry.getRole()), aclEntry);
+                    }
+                }
+            }
+            for (AclEntry aclEntry : addedAclEntries) {
+                if (objectIdentityIds.contains(aclEntry.getObjectIdentity().getId())) {
+                    aclEntries.put(getAclEntryKey(aclEntry.getIdentity(), aclEntry.getObjectIdentity(),
+                            aclEntry.getRole()), aclEntry);
+                }
+            }
+            return aclEntries;
+        }
+
         /**
          * @param identity
          * @param objectIdentity
@@ -622,18 +1006,7 @@ public class AuthorizationManager extends AclEntryManager
             AclEntry aclEntry = AuthorizationManager.this.getAclEntry(identity, objectIdentity, role);
             if (aclEntry == null) {
                 // If the ACL entry is added in the transaction, return it
-                for (AclEntry addedAclEntry : addedAclEntries) {
-                    if (!identity.equals(addedAclEntry.getIdentity())) {
-                        continue;
-                    }
-                    if (!objectIdentity.equals(addedAclEntry.getObjectIdentity())) {
-                        continue;
-                    }
-                    if (!role.equals(addedAclEntry.getRole())) {
-                        continue;
-                    }
-                    return addedAclEntry;
-                }
+                return addedAclEntryByKey.get(getAclEntryKey(identity, objectIdentity, role));
             }
             else {
                 // If the ACL entry is removed in the transaction, return null
@@ -644,4 +1017,97 @@ public class AuthorizationManager extends AclEntryManager
             return aclEntry;
         }
     }
+
+    /**
+     * Represents a propagation of a parent {@link AclEntry} to a child object.
+     */
+    private static class AclEntryPropagation
+    {
+        /**
+         * Parent {@link AclEntry}.
+         */
+        private final AclEntry parentAclEntry;
+
+        /**
+         * Child object to which the {@link #parentAclEntry} should be propagated.
+         */
+        private final PersistentObject childObject;
+
+        /**
+         * {@link AclObjectIdentity} of the {@link #childObject}.
+         */
+        private AclObjectIdentity childObjectIdentity;
+
+        /**
+         * {@link ObjectRole} for the {@link #childObject}.
+         */
+        private final ObjectRole objectRole;
+
+        /**
+         * Type of {@link AclEntryDependency} between {@link #parentAclEntry} and the child {@link AclEntry}.
+         */
+        private final AclEntryDependency.Type dependencyType;
+
+        /**
+         * Constructor.
+         *
+         * @param parentAclEntry sets the {@link #parentAclEntry}
+         * @param childObject    sets the {@link #childObject}
+         * @param objectRole     sets the {@link #objectRole}
+         * @param dependencyType sets the {@link #dependencyType}
+         */
+        public AclEntryPropagation(AclEntry parentAclEntry, PersistentObject childObject, ObjectRole objectRole,
+                AclEntryDependency.Type dependencyType)
+        {
+            this.parentAclEntry = parentAclEntry;
+            this.childObject = childObject;
+            this.objectRole = objectRole;
+            this.dependencyType = dependencyType;
+        }
+    }
+
+    /**
+     * Statistics of {@link AclEntry}s propagation in the {@link AuthorizationManager}.
+     */
+    public static class Statistics
+    {
+        /**
+         * Time in nanoseconds spent by creating and deleting of {@link AclEntry}s (including the propagation).
+         */
+        private long propagationDuration = 0;
+
+        /**
+         * Number of created {@link AclEntry}s.
+         */
+        private int createdAclEntries = 0;
+
+        /**
+         * Number of deleted {@link AclEntry}s.
+         */
+        private int deletedAclEntries = 0;
+
+        /**
+         * @return {@link #propagationDuration} in milliseconds
+         */
+        public long getPropagationDuration()
+        {
+            return propagationDuration / 1000000;
+        }
+
+        /**
+         * @return {@link #createdAclEntries}
+         */
+        public int getCreatedAclEntries()
+        {
+            return createdAclEntries;
+        }
+
+        /**
+         * @return {@link #deletedAclEntries}
+         */
+        public int getDeletedAclEntries()
+        {
+            return deletedAclEntries;
+        }
+    }
 }
@@ -18,6 +18,7 @@ import org.joda.time.Interval;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
+import javax.persistence.TypedQuery;
 import java.util.*;
 
 /**
@@ -341,17 +342,35 @@ public class ReservationRequestManager extends AbstractManager
      */
     public List<ReservationRequestSet> listNotPreprocessedReservationRequestSets(Interval interval)
     {
-        List<ReservationRequestSet> reservationRequestList = entityManager
+        return listNotPreprocessedReservationRequestSets(interval, null);
+    }
+
+    /**
+     * @param interval
+     * @param reservationRequestIds identifiers of {@link ReservationRequestSet}s to which the result should be
+     *                              restricted (or {@code null} for all)
+     * @return list of {@link ReservationRequestSet}s which are not preprocessed in given {@code interval}
+     */
+    public List<ReservationRequestSet> listNotPreprocessedReservationRequestSets(Interval interval,
+            Set<Long> reservationRequestIds)
+    {
+        if (reservationRequestIds != null && reservationRequestIds.isEmpty()) {
+            return new LinkedList<ReservationRequestSet>();
+        }
+        TypedQuery<ReservationRequestSet> query = entityManager
                 .createQuery("SELECT reservationRequest FROM ReservationRequestSet reservationRequest"
                         + " WHERE reservationRequest.state = :activeState AND reservationRequest NOT IN ("
                         + " SELECT state.reservationRequest FROM PreprocessedState state"
-                        + " WHERE state.start <= :from AND state.end >= :to)",
+                        + " WHERE state.start <= :from AND state.end >= :to)"
+                        + (reservationRequestIds != null ? " AND reservationRequest.id IN(:reservationRequestIds)" : ""),
                         ReservationRequestSet.class)
                 .setParameter("activeState", AbstractReservationRequest.State.ACTIVE)
                 .setParameter("from", interval.getStart())
-                .setParameter("to", interval.getEnd())
-                .getResultList();
-        return reservationRequestList;
+                .setParameter("to", interval.getEnd());
+        if (reservationRequestIds != null) {
+            query.setParameter("reservationRequestIds", reservationRequestIds);
+        }
+        return query.getResultList();
     }
 
     /**
@@ -361,19 +380,43 @@ public class ReservationRequestManager extends AbstractManager
      */
     public List<ReservationRequest> listCompletedReservationRequests(Interval interval)
     {
-        List<ReservationRequest> reservationRequests = entityManager.createQuery(
+        return listCompletedReservationRequests(interval, null);
+    }
+
+    /**
+     * @param interval
+     * @param reservationRequestIds identifiers of {@link AbstractReservationRequest}s to which the result should be
+     *                              restricted together with their child {@link ReservationRequest}s
+     *                              (or {@code null} for all)
+     * @return list of {@link ReservationRequest}s in {@link ReservationRequest.AllocationState#COMPLETE} state and
+     *         starting in given {@code interval}
+     */
+    public List<ReservationRequest> listCompletedReservationRequests(Interval interval,
+            Set<Long> reservationRequestIds)
+    {
+        if (reservationRequestIds != null && reservationRequestIds.isEmpty()) {
+            return new LinkedList<ReservationRequest>();
+        }
+        TypedQuery<ReservationRequest> query = entityManager.createQuery(
                 "SELECT reservationRequest FROM ReservationRequest reservationRequest"
                         + " WHERE reservationRequest.state = :activeState"
                         + " AND reservationRequest.allocationState = :allocationState"
                         + " AND reservationRequest.slotStart < :end"
-                        + " AND reservationRequest.slotEnd > :start",
+                        + " AND reservationRequest.slotEnd > :start"
+                        + (reservationRequestIds != null ? (" AND (reservationRequest.id IN(:reservationRequestIds)"
+                        + " OR reservationRequest.parentAllocation IN ("
+                        + "  SELECT parentReservationRequest.allocation"
+                        + "  FROM AbstractReservationRequest parentReservationRequest"
+                        + "  WHERE parentReservationRequest.id IN(:reservationRequestIds)))") : ""),
                 ReservationRequest.class)
                 .setParameter("activeState", AbstractReservationRequest.State.ACTIVE)
                 .setParameter("allocationState", ReservationRequest.AllocationState.COMPLETE)
                 .setParameter("start", interval.getStart())
-                .setParameter("end", interval.getEnd())
-                .getResultList();
-        return reservationRequests;
+                .setParameter("end", interval.getEnd());
+        if (reservationRequestIds != null) {
+            query.setParameter("reservationRequestIds", reservationRequestIds);
+        }
+        return query.getResultList();
     }
 
     /**
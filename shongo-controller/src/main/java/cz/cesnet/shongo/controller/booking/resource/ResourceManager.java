@@ -239,6 +239,48 @@ public class ResourceManager extends AbstractManager
         return resourceReservations;
     }
 
+    /**
+     * @param resourceId
+     * @return list of {@code [reservationId, slotStart, slotEnd]} for all {@link ResourceReservation}s
+     *         for {@link Resource} with given {@code resourceId}
+     */
+    public List<Object[]> listResourceReservationSlots(Long resourceId)
+    {
+        List<Object[]> resourceReservationSlots = entityManager.createQuery("SELECT"
+                + " reservation.id, reservation.slotStart, reservation.slotEnd"
+                + " FROM ResourceReservation reservation"
+                + " WHERE reservation.resource.id = :id", Object[].class)
+                .setParameter("id", resourceId)
+                .getResultList();
+        return resourceReservationSlots;
+    }
+
+    /**
+     * @return list of {@code [reservationId, resourceId, slotStart, slotEnd]} for all {@link ResourceReservation}s
+     */
+    public List<Object[]> listResourceReservationSlots()
+    {
+        List<Object[]> resourceReservationSlots = entityManager.createQuery("SELECT"
+                + " reservation.id, reservation.resource.id, reservation.slotStart, reservation.slotEnd"
+                + " FROM ResourceReservation reservation", Object[].class)
+                .getResultList();
+        return resourceReservationSlots;
+    }
+
+    /**
+     * @return list of {@code [reservationId, roomProviderCapabilityId, slotStart, slotEnd, licenseCount]}
+     *         for all {@link RoomReservation}s
+     */
+    public List<Object[]> listRoomReservationUsages()
+    {
+        List<Object[]> roomReservationUsages = entityManager.createQuery("SELECT"
+                + " reservation.id, reservation.roomProviderCapability.id,"
+                + " reservation.slotStart, reservation.slotEnd, reservation.licenseCount"
+                + " FROM RoomReservation reservation", Object[].class)
+                .getResultList();
+        return roomReservationUsages;
+    }
+
     /**
      * @param valueProviderId
      * @param interval
@@ -259,6 +301,24 @@ public class ResourceManager extends AbstractManager
         return valueReservations;
     }
 
+    /**
+     * @param valueProviderId
+     * @param interval
+     * @return list of distinct values of {@link ValueReservation}s for value provider with given
+     *         {@code valueProviderId} which intersects given {@code interval}
+     */
+    public List<String> listValueReservationValuesInInterval(Long valueProviderId, Interval interval)
+    {
+        return entityManager.createQuery("SELECT DISTINCT reservation.value"
+                + " FROM ValueReservation reservation"
+                + " WHERE reservation.valueProvider.id = :id"
+                + " AND NOT(reservation.slotStart >= :end OR reservation.slotEnd <= :start)", String.class)
+                .setParameter("id", valueProviderId)
+                .setParameter("start", interval.getStart())
+                .setParameter("end", interval.getEnd())
+                .getResultList();
+    }
+
     /**
      * @param roomProviderCapabilityId
      * @param interval
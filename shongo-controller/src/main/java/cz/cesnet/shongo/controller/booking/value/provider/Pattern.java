@@ -38,6 +38,11 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
      */
     private int generatedCount = 0;
 
+    /**
+     * {@link java.util.regex.Pattern} for matching values with a group for each {@link PatternComponent}.
+     */
+    private java.util.regex.Pattern valuePattern;
+
     /**
      * Parse pattern from string.
      *
@@ -125,6 +130,106 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
         return builder.toString();
     }
 
+    /**
+     * Values of the pattern are ordered as numbers in mixed radix where each {@link EnumerablePatternComponent}
+     * is a single digit (the last component is the least significant) and thus they can be mapped to ordinals.
+     *
+     * @return number of ordinals of values which can be generated from the pattern
+     *         or {@code -1} when the values cannot be enumerated (e.g., by {@link HashPatternComponent})
+     */
+    public long getValueCount()
+    {
+        if (isEmpty()) {
+            return 0;
+        }
+        long valueCount = 1;
+        for (PatternComponent patternComponent : this) {
+            if (patternComponent instanceof EnumerablePatternComponent) {
+                long componentValueCount = ((EnumerablePatternComponent) patternComponent).getValueCount();
+                if (valueCount > Long.MAX_VALUE / componentValueCount) {
+                    return -1;
+                }
+                valueCount *= componentValueCount;
+            }
+            else if (patternComponent instanceof GeneratedPatternComponent) {
+                return -1;
+            }
+        }
+        return valueCount;
+    }
+
+    /**
+     * @return ordinal of the first value which is generated by {@link #generate()}
+     *         (the {@link #generate()} never returns zero for trailing {@link DigitPatternComponent})
+     */
+    public long getFirstOrdinal()
+    {
+        for (int index = size() - 1; index >= 0; index--) {
+            PatternComponent patternComponent = get(index);
+            if (patternComponent instanceof GeneratedPatternComponent) {
+                return (patternComponent instanceof DigitPatternComponent) ? 1 : 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param ordinal of the value (see {@link #getValueCount()})
+     * @return value with given {@code ordinal}
+     */
+    public String getValue(long ordinal)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int index = size() - 1; index >= 0; index--) {
+            PatternComponent patternComponent = get(index);
+            if (patternComponent instanceof EnumerablePatternComponent) {
+                EnumerablePatternComponent enumerablePatternComponent = (EnumerablePatternComponent) patternComponent;
+                long componentValueCount = enumerablePatternComponent.getValueCount();
+                builder.insert(0, enumerablePatternComponent.getValue(ordinal % componentValueCount));
+                ordinal /= componentValueCount;
+            }
+            else {
+                builder.insert(0, patternComponent.getConstant());
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @param value to be mapped
+     * @return ordinal of given {@code value} (see {@link #getValueCount()})
+     *         or {@code -1} when the {@code value} cannot be generated from the pattern
+     */
+    public long getOrdinal(String value)
+    {
+        if (valuePattern == null) {
+            StringBuilder patternBuilder = new StringBuilder();
+            for (PatternComponent patternComponent : this) {
+                patternBuilder.append("(");
+                patternBuilder.append(patternComponent.getRegexPattern());
+                patternBuilder.append(")");
+            }
+            valuePattern = java.util.regex.Pattern.compile(patternBuilder.toString());
+        }
+        Matcher matcher = valuePattern.matcher(value);
+        if (!matcher.matches()) {
+            return -1;
+        }
+        long ordinal = 0;
+        for (int index = 0; index < size(); index++) {
+            PatternComponent patternComponent = get(index);
+            if (patternComponent instanceof EnumerablePatternComponent) {
+                EnumerablePatternComponent enumerablePatternComponent = (EnumerablePatternComponent) patternComponent;
+                long componentIndex = enumerablePatternComponent.getIndex(matcher.group(index + 1));
+                if (componentIndex < 0) {
+                    return -1;
+                }
+                ordinal = ordinal * enumerablePatternComponent.getValueCount() + componentIndex;
+            }
+        }
+        return ordinal;
+    }
+
     /**
      * {@link Pattern} component.
      */
@@ -207,10 +312,34 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
         public boolean available();
     }
 
+    /**
+     * {@link GeneratedPatternComponent} which generates finite number of values which can be indexed.
+     */
+    public static interface EnumerablePatternComponent extends GeneratedPatternComponent
+    {
+        /**
+         * @return number of values which can be generated
+         */
+        public long getValueCount();
+
+        /**
+         * @param index of the value
+         * @return value with given {@code index}
+         */
+        public String getValue(long index);
+
+        /**
+         * @param value which has already passed by the pattern from the {@link #getRegexPattern()}
+         * @return index of given {@code value} or {@code -1} when the {@code value} isn't valid
+         *         or when it isn't formatted as it would be generated
+         */
+        public long getIndex(String value);
+    }
+
     /**
      * {@link PatternComponent} which returns increasing numbers of given length.
      */
-    public static class DigitPatternComponent implements GeneratedPatternComponent
+    public static class DigitPatternComponent implements EnumerablePatternComponent
     {
         /**
          * Maximum length.
@@ -290,12 +419,30 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
         {
             return true;
         }
+
+        @Override
+        public long getValueCount()
+        {
+            return (long) maxValue + 1;
+        }
+
+        @Override
+        public String getValue(long index)
+        {
+            return String.format(format, index);
+        }
+
+        @Override
+        public long getIndex(String value)
+        {
+            return Long.parseLong(value);
+        }
     }
 
     /**
      * {@link PatternComponent} which returns increasing numbers of given length.
      */
-    public static class NumberRangePatternComponent implements GeneratedPatternComponent
+    public static class NumberRangePatternComponent implements EnumerablePatternComponent
     {
         /**
          * Min value.
@@ -312,6 +459,11 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
          */
         private String format;
 
+        /**
+         * Minimum length of numbers (numbers are padded by leading zeros to this length).
+         */
+        private int minLength;
+
         /**
          * Regex pattern.
          */
@@ -336,6 +488,7 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
                 throw new IllegalArgumentException("Min value cannot be greater than max value.");
             }
             this.format = "%0" + Integer.valueOf(minValue.length()).toString() + "d";
+            this.minLength = minValue.length();
 
             StringBuilder regexPatternBuilder = new StringBuilder();
             regexPatternBuilder.append("\\d{");
@@ -387,6 +540,32 @@ public class Pattern extends ArrayList<Pattern.PatternComponent>
             Integer parsedValue = Integer.valueOf(value);
             return parsedValue >= minValue && parsedValue <= maxValue;
         }
+
+        @Override
+        public long getValueCount()
+        {
+            return (long) maxValue - minValue + 1;
+        }
+
+        @Override
+        public String getValue(long index)
+        {
+            return String.format(format, minValue + index);
+        }
+
+        @Override
+        public long getIndex(String value)
+        {
+            long parsedValue = Long.parseLong(value);
+            if (parsedValue < minValue || parsedValue > maxValue) {
+                return -1;
+            }
+            // Only values padded by leading zeros to the length of min value are generated
+            if (value.length() < minLength || (value.length() > minLength && value.charAt(0) == '0')) {
+                return -1;
+            }
+            return parsedValue - minValue;
+        }
     }
 
     /**
@@ -6,10 +6,7 @@ import cz.cesnet.shongo.controller.booking.resource.Capability;
 import cz.cesnet.shongo.TodoImplementException;
 
 import javax.persistence.*;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.regex.Matcher;
 
 /**
@@ -209,10 +206,15 @@ public class PatternValueProvider extends ValueProvider
     {
         String value = null;
         for (Pattern pattern : getParsedPatterns()) {
-            pattern.reset();
-            do {
-                value = pattern.generate();
-            } while (value != null && usedValues.contains(value));
+            if (pattern.getValueCount() >= 0) {
+                value = generateValue(pattern, usedValues);
+            }
+            else {
+                pattern.reset();
+                do {
+                    value = pattern.generate();
+                } while (value != null && usedValues.contains(value));
+            }
             if (value != null) {
                 break;
             }
@@ -224,6 +226,76 @@ public class PatternValueProvider extends ValueProvider
         return value;
     }
 
+    /**
+     * Find first value from given enumerable {@code pattern} which isn't used. The ordinals of used values are
+     * marked in a bitmap and the first free ordinal is looked up in it, so the candidate values don't have
+     * to be generated one by one.
+     *
+     * @param pattern    from which the value should be generated
+     * @param usedValues which cannot be generated
+     * @return first not used value from given {@code pattern} or {@code null} when all values are used
+     */
+    private String generateValue(Pattern pattern, Set<String> usedValues)
+    {
+        long firstOrdinal = pattern.getFirstOrdinal();
+        long ordinalCount = pattern.getValueCount() - firstOrdinal;
+        // First free ordinal must be among the first (usedValues.size() + 1) ordinals
+        int bitmapSize = (int) Math.min(ordinalCount, (long) usedValues.size() + 1);
+        BitSet usedOrdinals = new BitSet(bitmapSize);
+        for (String usedValue : usedValues) {
+            long ordinal = pattern.getOrdinal(usedValue) - firstOrdinal;
+            if (ordinal >= 0 && ordinal < bitmapSize) {
+                usedOrdinals.set((int) ordinal);
+            }
+        }
+        int ordinal = usedOrdinals.nextClearBit(0);
+        while (ordinal < ordinalCount) {
+            String value = pattern.getValue(firstOrdinal + ordinal);
+            if (!usedValues.contains(value)) {
+                return value;
+            }
+            // Used value which hasn't been mapped to the ordinal (e.g., when it can be matched in multiple ways)
+            usedOrdinals.set(ordinal);
+            ordinal = usedOrdinals.nextClearBit(ordinal);
+        }
+        return null;
+    }
+
+    /**
+     * @return number of values which can be generated or {@code -1} when the number isn't limited
+     */
+    @Transient
+    public long getValueCount()
+    {
+        long valueCount = 0;
+        for (Pattern pattern : getParsedPatterns()) {
+            long patternValueCount = pattern.getValueCount();
+            if (patternValueCount < 0) {
+                return -1;
+            }
+            valueCount += patternValueCount - pattern.getFirstOrdinal();
+        }
+        return valueCount;
+    }
+
+    /**
+     * @param values to be checked
+     * @return number of given {@code values} which can be generated by this {@link PatternValueProvider}
+     */
+    public int getUsedValueCount(Collection<String> values)
+    {
+        int usedValueCount = 0;
+        for (String value : values) {
+            for (Pattern pattern : getParsedPatterns()) {
+                if (pattern.getValueCount() >= 0 && pattern.getOrdinal(value) >= pattern.getFirstOrdinal()) {
+                    usedValueCount++;
+                    break;
+                }
+            }
+        }
+        return usedValueCount;
+    }
+
     @Override
     @Transient
     public String generateValue(Set<String> usedValues, String requestedValue)
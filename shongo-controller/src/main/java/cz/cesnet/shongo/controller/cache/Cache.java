@@ -5,9 +5,12 @@ import cz.cesnet.shongo.controller.Component;
 import cz.cesnet.shongo.controller.ControllerConfiguration;
 import cz.cesnet.shongo.controller.booking.alias.AliasProviderCapability;
 import cz.cesnet.shongo.controller.booking.recording.RecordingCapability;
+import cz.cesnet.shongo.controller.booking.reservation.Reservation;
 import cz.cesnet.shongo.controller.booking.resource.Resource;
 import cz.cesnet.shongo.controller.booking.resource.ResourceManager;
+import cz.cesnet.shongo.controller.booking.resource.ResourceReservation;
 import cz.cesnet.shongo.controller.booking.room.RoomProviderCapability;
+import cz.cesnet.shongo.controller.booking.room.RoomReservation;
 import org.joda.time.Period;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -103,6 +106,12 @@ public class Cache extends Component implements Component.EntityManagerFactoryAw
                         throw new RuntimeException("Failed to add resource to the cache.", exception);
                     }
                 }
+
+                logger.debug("Loading resource occupancies...");
+                resourceCache.loadResourceOccupancies(entityManager);
+
+                logger.debug("Loading room provider usages...");
+                resourceCache.loadRoomProviderUsages(entityManager);
             }
             finally {
                 entityManager.close();
@@ -137,10 +146,11 @@ public class Cache extends Component implements Component.EntityManagerFactoryAw
         ResourceManager resourceManager = new ResourceManager(entityManager);
         resourceManager.create(resource);
         addResource(resource);
+        resourceCache.getResourceOccupancy(resource.getId(), entityManager);
     }
 
     /**
-     * Update resource in the cache.
+     * Update resource in the cache (the {@link ResourceOccupancy} of the resource is kept).
      *
      * @param resource
      */
@@ -165,4 +175,56 @@ public class Cache extends Component implements Component.EntityManagerFactoryAw
         // Remove resource from resource cache
         resourceCache.removeObject(resource);
     }
+
+    /**
+     * Add all {@link ResourceReservation}s from given newly created {@code reservation} (and its child reservations)
+     * to the {@link ResourceOccupancy}s. It should be called right after the {@code reservation} is created.
+     *
+     * @param reservation which has been created
+     */
+    public void addReservation(Reservation reservation)
+    {
+        for (Reservation reservationItem : reservation.getSetOfAllReservations()) {
+            if (reservationItem instanceof ResourceReservation) {
+                resourceCache.addResourceReservation((ResourceReservation) reservationItem);
+            }
+        }
+    }
+
+    /**
+     * Update the cache for given created or modified {@code reservations} (and theirs child reservations).
+     * It should be called after the creation or modification is committed (see {@link RoomProviderUsage}).
+     *
+     * @param reservations which have been created or modified
+     */
+    public void updateReservations(Collection<Reservation> reservations)
+    {
+        for (Reservation reservation : reservations) {
+            for (Reservation reservationItem : reservation.getSetOfAllReservations()) {
+                if (reservationItem instanceof ResourceReservation) {
+                    resourceCache.addResourceReservation((ResourceReservation) reservationItem);
+                }
+                else if (reservationItem instanceof RoomReservation) {
+                    resourceCache.updateRoomReservation((RoomReservation) reservationItem);
+                }
+            }
+        }
+    }
+
+    /**
+     * Update the cache for given deleted {@code reservations}. It should be called after the deletion is committed.
+     *
+     * @param reservations which have been deleted
+     */
+    public void removeReservations(Collection<Reservation> reservations)
+    {
+        for (Reservation reservation : reservations) {
+            if (reservation instanceof ResourceReservation) {
+                resourceCache.removeResourceReservation(reservation.getId());
+            }
+            else if (reservation instanceof RoomReservation) {
+                resourceCache.removeRoomReservation(reservation.getId());
+            }
+        }
+    }
 }
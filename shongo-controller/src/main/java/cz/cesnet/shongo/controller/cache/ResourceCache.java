@@ -8,12 +8,14 @@ import cz.cesnet.shongo.controller.booking.resource.DeviceResource;
 import cz.cesnet.shongo.controller.booking.resource.Resource;
 import cz.cesnet.shongo.controller.booking.resource.ResourceReservation;
 import cz.cesnet.shongo.controller.booking.room.RoomProviderCapability;
+import cz.cesnet.shongo.controller.booking.room.RoomReservation;
 import cz.cesnet.shongo.controller.scheduler.*;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.persistence.EntityManager;
 import java.util.*;
 
 /**
@@ -36,6 +38,27 @@ public class ResourceCache extends AbstractCache<Resource>
      */
     private DeviceTopology deviceTopology;
 
+    /**
+     * Map of {@link ResourceOccupancy}s by resource ids.
+     */
+    private Map<Long, ResourceOccupancy> resourceOccupancyByResourceId;
+
+    /**
+     * Map of resource ids by identifiers of {@link ResourceReservation}s which are in {@link ResourceOccupancy}s.
+     */
+    private Map<Long, Long> resourceIdByReservationId;
+
+    /**
+     * Map of {@link RoomProviderUsage}s by {@link RoomProviderCapability} ids.
+     */
+    private Map<Long, RoomProviderUsage> roomProviderUsageByCapabilityId;
+
+    /**
+     * Map of {@link RoomProviderCapability} ids by identifiers of {@link RoomReservation}s
+     * which are in {@link RoomProviderUsage}s.
+     */
+    private Map<Long, Long> roomProviderCapabilityIdByReservationId;
+
     /**
      * Constructor.
      */
@@ -66,6 +89,10 @@ public class ResourceCache extends AbstractCache<Resource>
         for (Capability capability : resource.getCapabilities()) {
             // Load lazy collections
             capability.loadLazyProperties();
+            // Prepare room provider usage (newly added capability cannot be used by any reservation)
+            if (capability instanceof RoomProviderCapability) {
+                getRoomProviderUsage(capability.getId());
+            }
             // Add it to capability state
             Class<? extends Capability> capabilityType = capability.getClass();
             CapabilityState capabilityState = capabilityStateByType.get(capabilityType);
@@ -104,9 +131,179 @@ public class ResourceCache extends AbstractCache<Resource>
     {
         capabilityStateByType = new HashMap<Class<? extends Capability>, CapabilityState>();
         deviceTopology = new DeviceTopology();
+        synchronized (this) {
+            resourceOccupancyByResourceId = new HashMap<Long, ResourceOccupancy>();
+            resourceIdByReservationId = new HashMap<Long, Long>();
+            roomProviderUsageByCapabilityId = new HashMap<Long, RoomProviderUsage>();
+            roomProviderCapabilityIdByReservationId = new HashMap<Long, Long>();
+        }
         super.clear();
     }
 
+    /**
+     * Load {@link ResourceOccupancy}s for all {@link Resource}s from the database.
+     *
+     * @param entityManager to be used for loading
+     */
+    public synchronized void loadResourceOccupancies(EntityManager entityManager)
+    {
+        ResourceManager resourceManager = new ResourceManager(entityManager);
+        for (Resource resource : getObjects()) {
+            ResourceOccupancy resourceOccupancy = getResourceOccupancy(resource.getId());
+            resourceOccupancy.setLoaded(true);
+        }
+        for (Object[] resourceReservationSlot : resourceManager.listResourceReservationSlots()) {
+            Long reservationId = (Long) resourceReservationSlot[0];
+            Long resourceId = (Long) resourceReservationSlot[1];
+            ResourceOccupancy resourceOccupancy = getResourceOccupancy(resourceId);
+            resourceOccupancy.addReservation(reservationId,
+                    (DateTime) resourceReservationSlot[2], (DateTime) resourceReservationSlot[3]);
+            resourceIdByReservationId.put(reservationId, resourceId);
+        }
+        logger.debug("Loaded {} resource reservations to resource occupancies.", resourceIdByReservationId.size());
+    }
+
+    /**
+     * Load {@link RoomProviderUsage}s for all {@link RoomProviderCapability}s from the database.
+     *
+     * @param entityManager to be used for loading
+     */
+    public synchronized void loadRoomProviderUsages(EntityManager entityManager)
+    {
+        ResourceManager resourceManager = new ResourceManager(entityManager);
+        for (Object[] roomReservationUsage : resourceManager.listRoomReservationUsages()) {
+            Long reservationId = (Long) roomReservationUsage[0];
+            Long roomProviderCapabilityId = (Long) roomReservationUsage[1];
+            RoomProviderUsage roomProviderUsage = getRoomProviderUsage(roomProviderCapabilityId);
+            roomProviderUsage.addReservation(reservationId, (DateTime) roomReservationUsage[2],
+                    (DateTime) roomReservationUsage[3], (Integer) roomReservationUsage[4]);
+            roomProviderCapabilityIdByReservationId.put(reservationId, roomProviderCapabilityId);
+        }
+        logger.debug("Loaded {} room reservations to room provider usages.",
+                roomProviderCapabilityIdByReservationId.size());
+    }
+
+    /**
+     * @param roomProviderCapabilityId
+     * @return {@link RoomProviderUsage} for {@link RoomProviderCapability} with given {@code roomProviderCapabilityId}
+     */
+    public synchronized RoomProviderUsage getRoomProviderUsage(Long roomProviderCapabilityId)
+    {
+        RoomProviderUsage roomProviderUsage = roomProviderUsageByCapabilityId.get(roomProviderCapabilityId);
+        if (roomProviderUsage == null) {
+            roomProviderUsage = new RoomProviderUsage(roomProviderCapabilityId);
+            roomProviderUsageByCapabilityId.put(roomProviderCapabilityId, roomProviderUsage);
+        }
+        return roomProviderUsage;
+    }
+
+    /**
+     * Add or update given {@code roomReservation} in the {@link RoomProviderUsage} of its
+     * {@link RoomProviderCapability}. It should be called only after the {@code roomReservation} is committed.
+     *
+     * @param roomReservation to be added or updated
+     */
+    public synchronized void updateRoomReservation(RoomReservation roomReservation)
+    {
+        roomReservation.checkPersisted();
+        Long reservationId = roomReservation.getId();
+        Long roomProviderCapabilityId = roomReservation.getTargetId();
+        Long oldRoomProviderCapabilityId = roomProviderCapabilityIdByReservationId.put(
+                reservationId, roomProviderCapabilityId);
+        if (oldRoomProviderCapabilityId != null && !oldRoomProviderCapabilityId.equals(roomProviderCapabilityId)) {
+            getRoomProviderUsage(oldRoomProviderCapabilityId).removeReservation(reservationId);
+        }
+        RoomProviderUsage roomProviderUsage = getRoomProviderUsage(roomProviderCapabilityId);
+        roomProviderUsage.addReservation(reservationId, roomReservation.getSlotStart(), roomReservation.getSlotEnd(),
+                roomReservation.getLicenseCount());
+    }
+
+    /**
+     * Remove {@link RoomReservation} with given {@code reservationId} from the {@link RoomProviderUsage}.
+     * It should be called only after the deletion of the {@link RoomReservation} is committed.
+     *
+     * @param reservationId identifier of {@link RoomReservation} to be removed
+     */
+    public synchronized void removeRoomReservation(Long reservationId)
+    {
+        Long roomProviderCapabilityId = roomProviderCapabilityIdByReservationId.remove(reservationId);
+        if (roomProviderCapabilityId != null) {
+            RoomProviderUsage roomProviderUsage = roomProviderUsageByCapabilityId.get(roomProviderCapabilityId);
+            if (roomProviderUsage != null) {
+                roomProviderUsage.removeReservation(reservationId);
+            }
+        }
+    }
+
+    /**
+     * @param resourceId
+     * @return {@link ResourceOccupancy} for {@link Resource} with given {@code resourceId} (which may not be loaded)
+     */
+    private synchronized ResourceOccupancy getResourceOccupancy(Long resourceId)
+    {
+        ResourceOccupancy resourceOccupancy = resourceOccupancyByResourceId.get(resourceId);
+        if (resourceOccupancy == null) {
+            resourceOccupancy = new ResourceOccupancy(resourceId);
+            resourceOccupancyByResourceId.put(resourceId, resourceOccupancy);
+        }
+        return resourceOccupancy;
+    }
+
+    /**
+     * @param resourceId
+     * @param entityManager to be used for loading when the {@link ResourceOccupancy} isn't loaded yet
+     * @return loaded {@link ResourceOccupancy} for {@link Resource} with given {@code resourceId}
+     */
+    public synchronized ResourceOccupancy getResourceOccupancy(Long resourceId, EntityManager entityManager)
+    {
+        ResourceOccupancy resourceOccupancy = getResourceOccupancy(resourceId);
+        if (!resourceOccupancy.isLoaded()) {
+            ResourceManager resourceManager = new ResourceManager(entityManager);
+            for (Object[] resourceReservationSlot : resourceManager.listResourceReservationSlots(resourceId)) {
+                Long reservationId = (Long) resourceReservationSlot[0];
+                resourceOccupancy.addReservation(reservationId,
+                        (DateTime) resourceReservationSlot[1], (DateTime) resourceReservationSlot[2]);
+                resourceIdByReservationId.put(reservationId, resourceId);
+            }
+            resourceOccupancy.setLoaded(true);
+        }
+        return resourceOccupancy;
+    }
+
+    /**
+     * Add given {@code resourceReservation} to the {@link ResourceOccupancy} of its {@link Resource}.
+     * It should be called as soon as the {@code resourceReservation} is created (even before it is committed).
+     *
+     * @param resourceReservation to be added
+     */
+    public synchronized void addResourceReservation(ResourceReservation resourceReservation)
+    {
+        resourceReservation.checkPersisted();
+        Long reservationId = resourceReservation.getId();
+        Long resourceId = resourceReservation.getResource().getId();
+        ResourceOccupancy resourceOccupancy = getResourceOccupancy(resourceId);
+        resourceOccupancy.addReservation(reservationId,
+                resourceReservation.getSlotStart(), resourceReservation.getSlotEnd());
+        resourceIdByReservationId.put(reservationId, resourceId);
+    }
+
+    /**
+     * Remove {@link ResourceReservation} with given {@code reservationId} from the {@link ResourceOccupancy}.
+     * It should be called only after the deletion of the {@link ResourceReservation} is committed.
+     *
+     * @param reservationId identifier of {@link ResourceReservation} to be removed
+     */
+    public synchronized void removeResourceReservation(Long reservationId)
+    {
+        Long resourceId = resourceIdByReservationId.remove(reservationId);
+        if (resourceId != null) {
+            ResourceOccupancy resourceOccupancy = resourceOccupancyByResourceId.get(resourceId);
+            if (resourceOccupancy != null) {
+                resourceOccupancy.removeReservation(reservationId);
+            }
+        }
+    }
+
     public <T extends Capability> Collection<T> getCapabilities(Class<T> capabilityType)
     {
         CapabilityState capabilityState = capabilityStateByType.get(capabilityType);
@@ -212,11 +409,19 @@ public class ResourceCache extends AbstractCache<Resource>
             }
         }
 
-        // Check if resource is not already allocated
+        // Check if resource is not already allocated (the database is queried only when the occupancy
+        // index contains a reservation in the slot)
         Long resourceId = resource.getId();
-        ResourceManager resourceManager = new ResourceManager(schedulerContext.getEntityManager());
-        List<ResourceReservation> resourceReservations =
-                resourceManager.listResourceReservationsInInterval(resourceId, slot);
+        EntityManager entityManager = schedulerContext.getEntityManager();
+        ResourceOccupancy resourceOccupancy = getResourceOccupancy(resourceId, entityManager);
+        List<ResourceReservation> resourceReservations;
+        if (resourceOccupancy.isOccupied(slot)) {
+            ResourceManager resourceManager = new ResourceManager(entityManager);
+            resourceReservations = resourceManager.listResourceReservationsInInterval(resourceId, slot);
+        }
+        else {
+            resourceReservations = new LinkedList<ResourceReservation>();
+        }
 
         // Apply transaction
         SchedulerContextState schedulerContextState = schedulerContext.getState();
@@ -0,0 +1,117 @@
+package cz.cesnet.shongo.controller.cache;
+
+import cz.cesnet.shongo.controller.booking.resource.Resource;
+import cz.cesnet.shongo.controller.booking.resource.ResourceReservation;
+import cz.cesnet.shongo.util.IntervalTree;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+
+import java.util.Set;
+
+/**
+ * In-memory index of time slots which are occupied by {@link ResourceReservation}s of a single {@link Resource}.
+ * <p/>
+ * The index is used only as a filter before loading {@link ResourceReservation}s from the database and thus it
+ * must contain at least all committed {@link ResourceReservation}s. It can contain also reservations which were
+ * not committed or which were already deleted (such reservations are only loaded from the database needlessly).
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class ResourceOccupancy
+{
+    /**
+     * Identifier of {@link Resource} for which the occupancy is managed.
+     */
+    private final Long resourceId;
+
+    /**
+     * Identifiers of {@link ResourceReservation}s by theirs slots.
+     */
+    private final IntervalTree<Long, DateTime> reservationIds = new IntervalTree<Long, DateTime>();
+
+    /**
+     * Specifies whether all {@link ResourceReservation}s from the database was loaded to the {@link #reservationIds}.
+     */
+    private boolean loaded = false;
+
+    /**
+     * Constructor.
+     *
+     * @param resourceId sets the {@link #resourceId}
+     */
+    public ResourceOccupancy(Long resourceId)
+    {
+        this.resourceId = resourceId;
+    }
+
+    /**
+     * @return {@link #resourceId}
+     */
+    public Long getResourceId()
+    {
+        return resourceId;
+    }
+
+    /**
+     * @return {@link #loaded}
+     */
+    public synchronized boolean isLoaded()
+    {
+        return loaded;
+    }
+
+    /**
+     * @param loaded sets the {@link #loaded}
+     */
+    public synchronized void setLoaded(boolean loaded)
+    {
+        this.loaded = loaded;
+    }
+
+    /**
+     * @param reservationId identifier of {@link ResourceReservation} to be added
+     * @param slotStart     start of the reservation slot
+     * @param slotEnd       end of the reservation slot
+     */
+    public synchronized void addReservation(Long reservationId, DateTime slotStart, DateTime slotEnd)
+    {
+        reservationIds.remove(reservationId);
+        reservationIds.add(reservationId, slotStart, slotEnd);
+    }
+
+    /**
+     * @param reservationId identifier of {@link ResourceReservation} to be removed
+     * @return true whether the reservation was removed, false otherwise
+     */
+    public synchronized boolean removeReservation(Long reservationId)
+    {
+        return reservationIds.remove(reservationId);
+    }
+
+    /**
+     * @param slot to be checked
+     * @return true whether a {@link ResourceReservation} may exist in given {@code slot},
+     *         false when it is sure that no {@link ResourceReservation} exists in given {@code slot}
+     */
+    public synchronized boolean isOccupied(Interval slot)
+    {
+        return reservationIds.intersects(slot.getStart(), slot.getEnd());
+    }
+
+    /**
+     * @param slot
+     * @return set of identifiers of {@link ResourceReservation}s which intersect given {@code slot}
+     */
+    public synchronized Set<Long> getReservationIds(Interval slot)
+    {
+        return reservationIds.getValues(slot.getStart(), slot.getEnd());
+    }
+
+    /**
+     * @return number of indexed {@link ResourceReservation}s
+     */
+    public synchronized int getReservationCount()
+    {
+        return reservationIds.size();
+    }
+}
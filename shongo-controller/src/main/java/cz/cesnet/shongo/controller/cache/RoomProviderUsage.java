@@ -0,0 +1,169 @@
+package cz.cesnet.shongo.controller.cache;
+
+import cz.cesnet.shongo.controller.booking.room.RoomProviderCapability;
+import cz.cesnet.shongo.controller.booking.room.RoomReservation;
+import cz.cesnet.shongo.util.MaximumSegmentTree;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+
+import java.util.*;
+
+/**
+ * Timeline of license counts which are used by committed {@link RoomReservation}s of a single
+ * {@link RoomProviderCapability}. It answers the peak of used licenses in a given slot in {@code O(log n)}.
+ * <p/>
+ * Unlike {@link ResourceOccupancy} the timeline must be exact and thus it must be updated only when the creation,
+ * modification or deletion of {@link RoomReservation} is committed (and not in the same transaction, because
+ * a rolled back {@link RoomReservation} would remain in the timeline). The timeline thus lags behind the database
+ * between the commit and the update, which is never observed by an allocation:
+ * <ul>
+ * <li>{@link RoomReservation}s are created, modified and deleted only by the scheduler which updates the timeline
+ * right after each commit and before it allocates the next reservation request,</li>
+ * <li>reservation requests which are allocated in parallel commit only when they claim disjoint resources
+ * (otherwise they are allocated again sequentially after all timelines are updated),</li>
+ * <li>{@link RoomReservation}s which are not committed yet are applied temporarily by the scheduler context
+ * which allocates them.</li>
+ * </ul>
+ * Other readers (e.g., availability checks from the API) may see the state before the last commit.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class RoomProviderUsage
+{
+    /**
+     * Identifier of {@link RoomProviderCapability} for which the usage is managed.
+     */
+    private final Long roomProviderCapabilityId;
+
+    /**
+     * Timeline of used license counts (keys are milliseconds).
+     */
+    private final MaximumSegmentTree licenseCountTimeline = new MaximumSegmentTree();
+
+    /**
+     * Added {@link RoomReservation}s by theirs identifiers (needed for removing or updating them).
+     */
+    private final Map<Long, Usage> usageByReservationId = new HashMap<Long, Usage>();
+
+    /**
+     * Constructor.
+     *
+     * @param roomProviderCapabilityId sets the {@link #roomProviderCapabilityId}
+     */
+    public RoomProviderUsage(Long roomProviderCapabilityId)
+    {
+        this.roomProviderCapabilityId = roomProviderCapabilityId;
+    }
+
+    /**
+     * @return {@link #roomProviderCapabilityId}
+     */
+    public Long getRoomProviderCapabilityId()
+    {
+        return roomProviderCapabilityId;
+    }
+
+    /**
+     * Add or update {@link RoomReservation} with given {@code reservationId}.
+     *
+     * @param reservationId identifier of {@link RoomReservation}
+     * @param slotStart     start of the reservation slot
+     * @param slotEnd       end of the reservation slot
+     * @param licenseCount  number of licenses which are used by the reservation
+     */
+    public synchronized void addReservation(Long reservationId, DateTime slotStart, DateTime slotEnd,
+            int licenseCount)
+    {
+        removeReservation(reservationId);
+        Usage usage = new Usage(slotStart.getMillis(), slotEnd.getMillis(), licenseCount);
+        licenseCountTimeline.add(usage.start, usage.end, usage.licenseCount);
+        usageByReservationId.put(reservationId, usage);
+    }
+
+    /**
+     * @param reservationId identifier of {@link RoomReservation} to be removed
+     * @return true whether the reservation was removed, false otherwise
+     */
+    public synchronized boolean removeReservation(Long reservationId)
+    {
+        Usage usage = usageByReservationId.remove(reservationId);
+        if (usage == null) {
+            return false;
+        }
+        licenseCountTimeline.add(usage.start, usage.end, -usage.licenseCount);
+        return true;
+    }
+
+    /**
+     * @param reservationId
+     * @return true whether {@link RoomReservation} with given {@code reservationId} is added, false otherwise
+     */
+    public synchronized boolean containsReservation(Long reservationId)
+    {
+        return usageByReservationId.containsKey(reservationId);
+    }
+
+    /**
+     * @param slot
+     * @return maximum number of used licenses in given {@code slot}
+     */
+    public synchronized int getUsedLicenseCount(Interval slot)
+    {
+        return (int) licenseCountTimeline.getMaximum(slot.getStartMillis(), slot.getEndMillis());
+    }
+
+    /**
+     * @param slot                   in which the peak should be determined
+     * @param additionalReservations {@link RoomReservation}s which should be considered as added
+     * @param removedReservationIds  identifiers of {@link RoomReservation}s which should be considered as removed
+     * @return maximum number of used licenses in given {@code slot} when the given reservations are added/removed
+     */
+    public synchronized int getUsedLicenseCount(Interval slot, Collection<RoomReservation> additionalReservations,
+            Collection<Long> removedReservationIds)
+    {
+        if (additionalReservations.isEmpty() && removedReservationIds.isEmpty()) {
+            return getUsedLicenseCount(slot);
+        }
+        List<Usage> temporaryUsages = new LinkedList<Usage>();
+        for (RoomReservation reservation : additionalReservations) {
+            temporaryUsages.add(new Usage(reservation.getSlotStart().getMillis(),
+                    reservation.getSlotEnd().getMillis(), reservation.getLicenseCount()));
+        }
+        for (Long reservationId : removedReservationIds) {
+            Usage usage = usageByReservationId.get(reservationId);
+            if (usage != null) {
+                temporaryUsages.add(new Usage(usage.start, usage.end, -usage.licenseCount));
+            }
+        }
+        for (Usage usage : temporaryUsages) {
+            licenseCountTimeline.add(usage.start, usage.end, usage.licenseCount);
+        }
+        try {
+            return getUsedLicenseCount(slot);
+        }
+        finally {
+            for (Usage usage : temporaryUsages) {
+                licenseCountTimeline.add(usage.start, usage.end, -usage.licenseCount);
+            }
+        }
+    }
+
+    /**
+     * Usage of licenses by a single {@link RoomReservation}.
+     */
+    private static class Usage
+    {
+        private final long start;
+
+        private final long end;
+
+        private final int licenseCount;
+
+        public Usage(long start, long end, int licenseCount)
+        {
+            this.start = start;
+            this.end = end;
+            this.licenseCount = licenseCount;
+        }
+    }
+}
@@ -2,6 +2,9 @@ package cz.cesnet.shongo.controller.executor;
 
 import cz.cesnet.shongo.controller.Reporter;
 import cz.cesnet.shongo.controller.booking.executable.*;
+import cz.cesnet.shongo.controller.booking.recording.RecordingService;
+import cz.cesnet.shongo.controller.booking.resource.DeviceResource;
+import cz.cesnet.shongo.controller.booking.resource.Resource;
 import cz.cesnet.shongo.controller.booking.room.RoomEndpoint;
 import org.joda.time.DateTime;
 
@@ -10,11 +13,11 @@ import java.util.HashSet;
 import java.util.Set;
 
 /**
- * Represents an {@link Executor} action.
+ * Represents an {@link Executor} action which is performed by {@link ExecutionPool}.
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
-public abstract class ExecutionAction<T> extends Thread
+public abstract class ExecutionAction<T> implements Runnable
 {
     /**
      * Target for which the {@link ExecutionAction} is being executed.
@@ -44,6 +47,11 @@ public abstract class ExecutionAction<T> extends Thread
      */
     private boolean skipPerform = false;
 
+    /**
+     * Identifier of {@link DeviceResource} which is used by the {@link #target} (or {@code null}).
+     */
+    private Long deviceResourceId;
+
     /**
      * Constructor.
      *
@@ -72,9 +80,21 @@ public abstract class ExecutionAction<T> extends Thread
         }
         this.executionPlan = executionPlan;
 
+        // Determine device before the action is performed in another thread
+        DeviceResource deviceResource = getDeviceResource(target);
+        deviceResourceId = (deviceResource != null ? deviceResource.getId() : null);
+
         afterInit();
     }
 
+    /**
+     * @return {@link #deviceResourceId}
+     */
+    public Long getDeviceResourceId()
+    {
+        return deviceResourceId;
+    }
+
     /**
      * @return {@link Executor}
      */
@@ -100,6 +120,15 @@ public abstract class ExecutionAction<T> extends Thread
         return !parents.isEmpty();
     }
 
+    /**
+     * Remove this {@link ExecutionAction} from the {@link #executionPlan} without performing it
+     * (e.g., when the {@link ExecutionPool} is destroyed before this action is started).
+     */
+    public void cancel()
+    {
+        executionPlan.removeExecutionAction(this);
+    }
+
     /**
      * @return {@link #skipPerform}
      */
@@ -162,6 +191,33 @@ public abstract class ExecutionAction<T> extends Thread
     @Override
     public abstract String toString();
 
+    /**
+     * @param target
+     * @return {@link DeviceResource} which is used by given {@code target} or {@code null}
+     */
+    private static DeviceResource getDeviceResource(Object target)
+    {
+        if (target instanceof Migration) {
+            return getDeviceResource(((Migration) target).getTargetExecutable());
+        }
+        else if (target instanceof RecordingService) {
+            return ((RecordingService) target).getRecordingCapability().getDeviceResource();
+        }
+        else if (target instanceof ExecutableService) {
+            return getDeviceResource(((ExecutableService) target).getExecutable());
+        }
+        else if (target instanceof ResourceEndpoint) {
+            return ((ResourceEndpoint) target).getDeviceResource();
+        }
+        else if (target instanceof Reporter.ResourceContext) {
+            Resource resource = ((Reporter.ResourceContext) target).getResource();
+            if (resource instanceof DeviceResource) {
+                return (DeviceResource) resource;
+            }
+        }
+        return null;
+    }
+
     @Override
     public void run()
     {
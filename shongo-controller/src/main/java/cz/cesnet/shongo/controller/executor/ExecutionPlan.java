@@ -194,6 +194,23 @@ public class ExecutionPlan
         return executionActions;
     }
 
+    /**
+     * Wait until some {@link ExecutionAction}s can be popped (by {@link #popExecutionActions()}) or until all popped
+     * {@link ExecutionAction}s are removed (by {@link #removeExecutionAction}).
+     *
+     * @return collection of popped {@link ExecutionAction}s (empty when nothing more can be popped)
+     * @throws InterruptedException
+     */
+    public synchronized Set<ExecutionAction> waitForExecutionActions() throws InterruptedException
+    {
+        Set<ExecutionAction> executionActions = popExecutionActions();
+        while (executionActions.isEmpty() && !poppedActions.isEmpty()) {
+            wait();
+            executionActions = popExecutionActions();
+        }
+        return executionActions;
+    }
+
     /**
      * @see #popExecutionActions()
      */
@@ -219,6 +236,9 @@ public class ExecutionPlan
                 throw new IllegalArgumentException("Execution action hasn't been popped (or has already been removed).");
             }
             completeExecutionAction(executionAction);
+
+            // Wake up waiting for next actions
+            notifyAll();
         }
         // Otherwise remove it totally from the plan
         else {
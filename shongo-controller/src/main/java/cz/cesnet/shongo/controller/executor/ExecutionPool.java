@@ -0,0 +1,377 @@
+package cz.cesnet.shongo.controller.executor;
+
+import cz.cesnet.shongo.controller.api.ExecutionStatistics;
+import cz.cesnet.shongo.controller.booking.resource.DeviceResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of threads which performs {@link ExecutionAction}s. The number of {@link ExecutionAction}s which are
+ * performed at the same time is limited in total and also for each {@link DeviceResource} (see
+ * {@link ExecutionAction#getDeviceResourceId()}). {@link ExecutionAction}s which exceed the limit for theirs
+ * {@link DeviceResource} wait in a queue of the {@link DeviceResource} and they are started as soon as other
+ * {@link ExecutionAction}s for the same {@link DeviceResource} are completed.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class ExecutionPool
+{
+    private static Logger logger = LoggerFactory.getLogger(ExecutionPool.class);
+
+    /**
+     * {@link ExecutorService} which runs the {@link ExecutionAction}s.
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * Maximum number of {@link ExecutionAction}s which can be performed at the same time for a single
+     * {@link DeviceResource}.
+     */
+    private final int deviceThreadCount;
+
+    /**
+     * {@link DeviceQueue}s by identifiers of {@link DeviceResource}s.
+     */
+    private final Map<Long, DeviceQueue> deviceQueues = new HashMap<Long, DeviceQueue>();
+
+    /**
+     * Specifies whether the {@link ExecutionPool} has been destroyed (new {@link ExecutionAction}s are cancelled).
+     */
+    private boolean destroyed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param threadCount       maximum number of {@link ExecutionAction}s which can be performed at the same time
+     * @param deviceThreadCount sets the {@link #deviceThreadCount}
+     */
+    public ExecutionPool(int threadCount, int deviceThreadCount)
+    {
+        if (threadCount < 1 || deviceThreadCount < 1) {
+            throw new IllegalArgumentException("Thread counts must be positive.");
+        }
+        this.executorService = Executors.newFixedThreadPool(threadCount, new ThreadFactory()
+        {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable);
+                thread.setName("execution-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.deviceThreadCount = deviceThreadCount;
+    }
+
+    /**
+     * Perform given {@code executionAction} as soon as the limits allow it. The {@link ExecutionAction} removes
+     * itself from its {@link ExecutionPlan} when it is completed. When the {@link ExecutionPool} has been destroyed
+     * the {@code executionAction} is cancelled.
+     *
+     * @param executionAction to be performed
+     */
+    public void execute(ExecutionAction<?> executionAction)
+    {
+        synchronized (this) {
+            if (!destroyed) {
+                DeviceQueue deviceQueue = deviceQueues.get(executionAction.getDeviceResourceId());
+                if (deviceQueue == null) {
+                    deviceQueue = new DeviceQueue(executionAction.getDeviceResourceId());
+                    deviceQueues.put(deviceQueue.deviceResourceId, deviceQueue);
+                }
+                QueuedAction queuedAction = new QueuedAction(executionAction, deviceQueue);
+                if (deviceQueue.deviceResourceId == null || deviceQueue.runningCount < deviceThreadCount) {
+                    start(queuedAction);
+                }
+                else {
+                    deviceQueue.waitingActions.add(queuedAction);
+                }
+                return;
+            }
+        }
+        cancel(executionAction);
+    }
+
+    /**
+     * @return list of {@link DeviceStatistics} for all {@link DeviceResource}s for which
+     *         any {@link ExecutionAction} has been performed
+     */
+    public synchronized List<DeviceStatistics> getDeviceStatistics()
+    {
+        List<DeviceStatistics> deviceStatistics = new LinkedList<DeviceStatistics>();
+        for (DeviceQueue deviceQueue : deviceQueues.values()) {
+            deviceStatistics.add(new DeviceStatistics(deviceQueue));
+        }
+        return deviceStatistics;
+    }
+
+    /**
+     * Stop all threads and cancel all {@link ExecutionAction}s which haven't been started yet (to release
+     * everyone who waits for theirs {@link ExecutionPlan}s).
+     */
+    public void destroy()
+    {
+        List<QueuedAction> cancelledActions = new LinkedList<QueuedAction>();
+        synchronized (this) {
+            destroyed = true;
+            for (DeviceQueue deviceQueue : deviceQueues.values()) {
+                cancelledActions.addAll(deviceQueue.waitingActions);
+                deviceQueue.waitingActions.clear();
+            }
+            for (Runnable runnable : executorService.shutdownNow()) {
+                cancelledActions.add((QueuedAction) runnable);
+            }
+        }
+        for (QueuedAction cancelledAction : cancelledActions) {
+            cancel(cancelledAction.executionAction);
+        }
+    }
+
+    /**
+     * @param queuedAction to be started in the {@link #executorService}
+     */
+    private void start(QueuedAction queuedAction)
+    {
+        DeviceQueue deviceQueue = queuedAction.deviceQueue;
+        deviceQueue.runningCount++;
+        long waitingDuration = System.currentTimeMillis() - queuedAction.queuedAt;
+        deviceQueue.totalWaitingDuration += waitingDuration;
+        deviceQueue.maxWaitingDuration = Math.max(deviceQueue.maxWaitingDuration, waitingDuration);
+        executorService.execute(queuedAction);
+    }
+
+    /**
+     * @param executionAction to be removed from its {@link ExecutionPlan} without being performed
+     */
+    private void cancel(ExecutionAction<?> executionAction)
+    {
+        logger.warn("{} cancelled because the execution pool has been destroyed.", executionAction);
+        try {
+            executionAction.cancel();
+        }
+        catch (Exception exception) {
+            logger.error("Cancelling of " + executionAction + " failed.", exception);
+        }
+    }
+
+    /**
+     * @param queuedAction      which has been completed
+     * @param executionDuration how long the action has been performed
+     */
+    private synchronized void onCompleted(QueuedAction queuedAction, long executionDuration)
+    {
+        DeviceQueue deviceQueue = queuedAction.deviceQueue;
+        deviceQueue.runningCount--;
+        deviceQueue.completedCount++;
+        deviceQueue.totalExecutionDuration += executionDuration;
+        deviceQueue.maxExecutionDuration = Math.max(deviceQueue.maxExecutionDuration, executionDuration);
+        // Waiting actions are already cancelled when the pool is destroyed
+        QueuedAction nextQueuedAction = (destroyed ? null : deviceQueue.waitingActions.poll());
+        if (nextQueuedAction != null) {
+            start(nextQueuedAction);
+        }
+        logger.trace("{} completed in {} ms.", queuedAction.executionAction, executionDuration);
+    }
+
+    /**
+     * {@link ExecutionAction} which is waiting in {@link DeviceQueue} or which is being performed.
+     */
+    private class QueuedAction implements Runnable
+    {
+        private final ExecutionAction<?> executionAction;
+
+        private final DeviceQueue deviceQueue;
+
+        /**
+         * Time in milliseconds when the {@link #executionAction} was passed to the {@link ExecutionPool}.
+         */
+        private final long queuedAt = System.currentTimeMillis();
+
+        public QueuedAction(ExecutionAction<?> executionAction, DeviceQueue deviceQueue)
+        {
+            this.executionAction = executionAction;
+            this.deviceQueue = deviceQueue;
+        }
+
+        @Override
+        public void run()
+        {
+            long startedAt = System.currentTimeMillis();
+            try {
+                executionAction.run();
+            }
+            finally {
+                onCompleted(this, System.currentTimeMillis() - startedAt);
+            }
+        }
+    }
+
+    /**
+     * Queue of {@link ExecutionAction}s for a single {@link DeviceResource} with its statistics.
+     */
+    private static class DeviceQueue
+    {
+        /**
+         * Identifier of {@link DeviceResource} or {@code null} for actions without {@link DeviceResource}.
+         */
+        private final Long deviceResourceId;
+
+        /**
+         * {@link ExecutionAction}s which wait for other {@link ExecutionAction}s to be completed.
+         */
+        private final Queue<QueuedAction> waitingActions = new LinkedList<QueuedAction>();
+
+        private int runningCount;
+
+        private long completedCount;
+
+        private long totalWaitingDuration;
+
+        private long maxWaitingDuration;
+
+        private long totalExecutionDuration;
+
+        private long maxExecutionDuration;
+
+        public DeviceQueue(Long deviceResourceId)
+        {
+            this.deviceResourceId = deviceResourceId;
+        }
+    }
+
+    /**
+     * Snapshot of queue and latency statistics of {@link ExecutionAction}s for a single {@link DeviceResource}.
+     */
+    public static class DeviceStatistics
+    {
+        private final Long deviceResourceId;
+
+        private final int waitingCount;
+
+        private final int runningCount;
+
+        private final long completedCount;
+
+        private final long totalWaitingDuration;
+
+        private final long maxWaitingDuration;
+
+        private final long totalExecutionDuration;
+
+        private final long maxExecutionDuration;
+
+        private DeviceStatistics(DeviceQueue deviceQueue)
+        {
+            this.deviceResourceId = deviceQueue.deviceResourceId;
+            this.waitingCount = deviceQueue.waitingActions.size();
+            this.runningCount = deviceQueue.runningCount;
+            this.completedCount = deviceQueue.completedCount;
+            this.totalWaitingDuration = deviceQueue.totalWaitingDuration;
+            this.maxWaitingDuration = deviceQueue.maxWaitingDuration;
+            this.totalExecutionDuration = deviceQueue.totalExecutionDuration;
+            this.maxExecutionDuration = deviceQueue.maxExecutionDuration;
+        }
+
+        /**
+         * @return identifier of {@link DeviceResource} or {@code null} for actions without {@link DeviceResource}
+         */
+        public Long getDeviceResourceId()
+        {
+            return deviceResourceId;
+        }
+
+        /**
+         * @return number of {@link ExecutionAction}s which are waiting in the queue
+         */
+        public int getWaitingCount()
+        {
+            return waitingCount;
+        }
+
+        /**
+         * @return number of {@link ExecutionAction}s which are being performed
+         */
+        public int getRunningCount()
+        {
+            return runningCount;
+        }
+
+        /**
+         * @return number of completed {@link ExecutionAction}s
+         */
+        public long getCompletedCount()
+        {
+            return completedCount;
+        }
+
+        /**
+         * @return average time in milliseconds which the {@link ExecutionAction}s have spent in the queue
+         */
+        public long getAverageWaitingDuration()
+        {
+            long startedCount = completedCount + runningCount;
+            return (startedCount > 0 ? totalWaitingDuration / startedCount : 0);
+        }
+
+        /**
+         * @return maximum time in milliseconds which an {@link ExecutionAction} has spent in the queue
+         */
+        public long getMaxWaitingDuration()
+        {
+            return maxWaitingDuration;
+        }
+
+        /**
+         * @return average time in milliseconds of performing {@link ExecutionAction}s
+         */
+        public long getAverageExecutionDuration()
+        {
+            return (completedCount > 0 ? totalExecutionDuration / completedCount : 0);
+        }
+
+        /**
+         * @return maximum time in milliseconds of performing an {@link ExecutionAction}
+         */
+        public long getMaxExecutionDuration()
+        {
+            return maxExecutionDuration;
+        }
+
+        /**
+         * @return {@link ExecutionStatistics} from this {@link DeviceStatistics}
+         */
+        public ExecutionStatistics toApi()
+        {
+            ExecutionStatistics executionStatistics = new ExecutionStatistics();
+            executionStatistics.setWaitingCount(waitingCount);
+            executionStatistics.setRunningCount(runningCount);
+            executionStatistics.setCompletedCount((int) Math.min(completedCount, Integer.MAX_VALUE));
+            executionStatistics.setAverageWaitingDuration(
+                    (int) Math.min(getAverageWaitingDuration(), Integer.MAX_VALUE));
+            executionStatistics.setMaxWaitingDuration((int) Math.min(maxWaitingDuration, Integer.MAX_VALUE));
+            executionStatistics.setAverageExecutionDuration(
+                    (int) Math.min(getAverageExecutionDuration(), Integer.MAX_VALUE));
+            executionStatistics.setMaxExecutionDuration((int) Math.min(maxExecutionDuration, Integer.MAX_VALUE));
+            return executionStatistics;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("Device [res:%s] (waiting: %d, running: %d, completed: %d,"
+                    + " waiting duration: avg %d ms max %d ms, execution duration: avg %d ms max %d ms)",
+                    deviceResourceId, waitingCount, runningCount, completedCount,
+                    getAverageWaitingDuration(), maxWaitingDuration,
+                    getAverageExecutionDuration(), maxExecutionDuration);
+        }
+    }
+}
@@ -91,6 +91,11 @@ public class Executor extends SwitchableComponent
      */
     private int maxAttemptCount;
 
+    /**
+     * @see ExecutionPool
+     */
+    private ExecutionPool executionPool;
+
     /**
      * Map of (maps of recording folders by recording capabilities) by recordable endpoint ids.
      */
@@ -220,6 +225,47 @@ public class Executor extends SwitchableComponent
         nextAttempt = configuration.getDuration(ControllerConfiguration.EXECUTOR_EXECUTABLE_NEXT_ATTEMPT);
         startingDurationRoom = configuration.getDuration(ControllerConfiguration.EXECUTOR_STARTING_DURATION_ROOM);
         maxAttemptCount = configuration.getInt(ControllerConfiguration.EXECUTOR_EXECUTABLE_MAX_ATTEMPT_COUNT);
+        executionPool = new ExecutionPool(configuration.getInt(ControllerConfiguration.EXECUTOR_THREAD_COUNT),
+                configuration.getInt(ControllerConfiguration.EXECUTOR_DEVICE_THREAD_COUNT));
+    }
+
+    @Override
+    public void destroy()
+    {
+        // The pool is kept to cancel actions which are passed to it by a running execution plan
+        if (executionPool != null) {
+            executionPool.destroy();
+        }
+        super.destroy();
+    }
+
+    /**
+     * @return {@link #executionPool}
+     */
+    public ExecutionPool getExecutionPool()
+    {
+        return executionPool;
+    }
+
+    /**
+     * Perform all {@link ExecutionAction}s from given {@code executionPlan} by the {@link #executionPool}
+     * and wait for theirs completion.
+     *
+     * @param executionPlan to be performed
+     * @throws InterruptedException
+     */
+    public void performExecutionPlan(ExecutionPlan executionPlan) throws InterruptedException
+    {
+        while (!executionPlan.isEmpty()) {
+            for (ExecutionAction executionAction : executionPlan.waitForExecutionActions()) {
+                executionPool.execute(executionAction);
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            for (ExecutionPool.DeviceStatistics deviceStatistics : executionPool.getDeviceStatistics()) {
+                logger.debug("{}", deviceStatistics);
+            }
+        }
     }
 
     @Override
@@ -306,18 +352,7 @@ public class Executor extends SwitchableComponent
                 executionPlan.build();
 
                 // Perform execution plan
-                while (!executionPlan.isEmpty()) {
-                    Collection<ExecutionAction> executionActions = executionPlan.popExecutionActions();
-                    for (ExecutionAction executionAction : executionActions) {
-                        executionAction.start();
-                    }
-                    try {
-                        Thread.sleep(100);
-                    }
-                    catch (InterruptedException exception) {
-                        logger.error("Execution interrupted.", exception);
-                    }
-                }
+                performExecutionPlan(executionPlan);
 
                 // Finish execution plan
                 entityManager.getTransaction().begin();
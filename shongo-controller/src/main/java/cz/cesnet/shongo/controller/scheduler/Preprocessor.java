@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
 import javax.persistence.EntityManager;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents a {@link cz.cesnet.shongo.controller.Component} that is responsible for enumerating {@link cz.cesnet.shongo.controller.booking.request.ReservationRequestSet}s
@@ -68,7 +69,19 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
      *
      * @param interval
      */
-    public synchronized Result run(Interval interval, EntityManager entityManager)
+    public Result run(Interval interval, EntityManager entityManager)
+    {
+        return run(interval, entityManager, null);
+    }
+
+    /**
+     * Run preprocessor for a given interval and only for given {@link ReservationRequestSet}s.
+     *
+     * @param interval
+     * @param reservationRequestIds identifiers of {@link ReservationRequestSet}s which should be pre-processed
+     *                              (or {@code null} for all not-preprocessed {@link ReservationRequestSet}s)
+     */
+    public synchronized Result run(Interval interval, EntityManager entityManager, Set<Long> reservationRequestIds)
     {
         Result result = new Result();
         if (!isEnabled()) {
@@ -95,16 +108,18 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
 
             // Process all not-preprocessed reservation request sets
             List<ReservationRequestSet> reservationRequestSets =
-                    reservationRequestManager.listNotPreprocessedReservationRequestSets(interval);
+                    reservationRequestManager.listNotPreprocessedReservationRequestSets(interval,
+                            reservationRequestIds);
             for (ReservationRequestSet reservationRequestSet : reservationRequestSets) {
                 processReservationRequestSet(reservationRequestSet, interval, entityManager, result);
             }
 
             if (!result.isEmpty()) {
-                logger.info("Pre-processing done in {} ms (created: {}, modified: {}, deleted: {}).", new Object[]{
-                        timer.stop(), result.createdReservationRequests, result.modifiedReservationRequests,
-                        result.deletedReservationRequests
-                });
+                logger.info("Pre-processing done in {} ms (created: {}, modified: {}, deleted: {}, acl: {} ms).",
+                        new Object[]{timer.stop(), result.createdReservationRequests,
+                                result.modifiedReservationRequests, result.deletedReservationRequests,
+                                result.aclPropagationDuration
+                        });
             }
 
         }
@@ -137,6 +152,7 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
             // List all child reservation requests for the set
             List<ReservationRequest> childReservationRequests =
                     reservationRequestManager.listChildReservationRequests(reservationRequestSet, interval);
+            List<ReservationRequest> createdReservationRequests = new LinkedList<ReservationRequest>();
 
             // For each requested slot we must create or modify reservation request.
             // If we find date/time slot in prepared map we modify the corresponding request
@@ -200,8 +216,8 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
                     // Add the new reservation request as child to allocation
                     allocation.addChildReservationRequest(childReservationRequest);
 
-                    // Create ACL entries for the new reservation request
-                    authorizationManager.createAclEntriesForChildEntity(reservationRequestSet, childReservationRequest);
+                    // ACL entries for the new reservation request are created at once for all new ones
+                    createdReservationRequests.add(childReservationRequest);
 
                     result.createdReservationRequests++;
                 }
@@ -210,6 +226,9 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
                 childReservationRequest.updateStateBySpecification();
             }
 
+            // Create ACL entries for the new reservation requests
+            authorizationManager.createAclEntriesForChildEntities(reservationRequestSet, createdReservationRequests);
+
             // All child reservation requests that remains in list must be deleted
             List<Reservation> detachedReservations = new LinkedList<Reservation>();
             for (ReservationRequest reservationRequest : childReservationRequests) {
@@ -250,6 +269,9 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
             }
             throw exception;
         }
+        finally {
+            result.aclPropagationDuration += authorizationManager.getStatistics().getPropagationDuration();
+        }
     }
 
     public static class Result
@@ -257,6 +279,7 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
         private int createdReservationRequests = 0;
         private int modifiedReservationRequests = 0;
         private int deletedReservationRequests = 0;
+        private long aclPropagationDuration = 0;
 
         public boolean isEmpty()
         {
@@ -279,5 +302,10 @@ public class Preprocessor extends SwitchableComponent implements Component.Autho
         {
             return deletedReservationRequests;
         }
+
+        public long getAclPropagationDuration()
+        {
+            return aclPropagationDuration;
+        }
     }
 }
@@ -17,6 +17,7 @@ import cz.cesnet.shongo.controller.booking.request.ReservationRequestManager;
 import cz.cesnet.shongo.controller.booking.reservation.ExistingReservation;
 import cz.cesnet.shongo.controller.booking.reservation.Reservation;
 import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
+import cz.cesnet.shongo.controller.booking.resource.Resource;
 import cz.cesnet.shongo.controller.booking.room.RoomEndpoint;
 import cz.cesnet.shongo.controller.booking.room.UsedRoomEndpoint;
 import cz.cesnet.shongo.controller.booking.specification.Specification;
@@ -29,7 +30,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Represents a component of a domain controller that is responsible for allocating {@link ReservationRequest}
@@ -37,7 +40,8 @@ import java.util.*;
  *
  * @author Martin Srom <martin.srom@cesnet.cz>
  */
-public class Scheduler extends SwitchableComponent implements Component.AuthorizationAware
+public class Scheduler extends SwitchableComponent
+        implements Component.AuthorizationAware, Component.EntityManagerFactoryAware
 {
     private static Logger logger = LoggerFactory.getLogger(Scheduler.class);
 
@@ -56,6 +60,25 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
      */
     private Authorization authorization;
 
+    /**
+     * @see EntityManagerFactory
+     */
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * {@link ExecutorService} for allocating independent {@link ReservationRequest}s in parallel
+     * (or {@code null} when they should be allocated only sequentially).
+     *
+     * @see ControllerConfiguration#WORKER_SCHEDULER_PARALLELISM
+     */
+    private ExecutorService executorService;
+
+    /**
+     * Identifiers of {@link AbstractReservationRequest}s which have been created, modified or deleted and
+     * which haven't been yet taken by {@link #waitForModifiedReservationRequests}.
+     */
+    private final Set<Long> modifiedReservationRequestIds = new LinkedHashSet<Long>();
+
     /**
      * Constructor.
      *
@@ -74,11 +97,74 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
         this.authorization = authorization;
     }
 
+    @Override
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory)
+    {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
     @Override
     public void init(ControllerConfiguration configuration)
     {
         this.checkDependency(cache, Cache.class);
         super.init(configuration);
+
+        int parallelism = configuration.getInt(ControllerConfiguration.WORKER_SCHEDULER_PARALLELISM, 1);
+        if (parallelism > 1) {
+            if (entityManagerFactory == null) {
+                throw new IllegalStateException("Parallel scheduler requires entity manager factory to be set.");
+            }
+            executorService = Executors.newFixedThreadPool(parallelism);
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
+        super.destroy();
+    }
+
+    /**
+     * Notify the {@link Scheduler} that {@link AbstractReservationRequest} with given {@code reservationRequestId}
+     * has been created, modified or deleted (and thus the {@link Scheduler} should be run as soon as possible).
+     * It should be called after the change is committed.
+     *
+     * @param reservationRequestId identifier of created, modified or deleted {@link AbstractReservationRequest}
+     */
+    public void addModifiedReservationRequest(Long reservationRequestId)
+    {
+        synchronized (modifiedReservationRequestIds) {
+            modifiedReservationRequestIds.add(reservationRequestId);
+            modifiedReservationRequestIds.notifyAll();
+        }
+    }
+
+    /**
+     * Wait until any {@link AbstractReservationRequest} is created, modified or deleted
+     * (see {@link #addModifiedReservationRequest}) or until given {@code timeout} elapses.
+     *
+     * @param timeout maximum time to wait in milliseconds
+     * @return set of identifiers of {@link AbstractReservationRequest}s which have been created, modified or deleted
+     *         since the last call (empty when the {@code timeout} has elapsed)
+     * @throws InterruptedException
+     */
+    public Set<Long> waitForModifiedReservationRequests(long timeout) throws InterruptedException
+    {
+        synchronized (modifiedReservationRequestIds) {
+            long end = System.currentTimeMillis() + timeout;
+            long remaining = timeout;
+            while (modifiedReservationRequestIds.isEmpty() && remaining > 0) {
+                modifiedReservationRequestIds.wait(remaining);
+                remaining = end - System.currentTimeMillis();
+            }
+            Set<Long> reservationRequestIds = new LinkedHashSet<Long>(modifiedReservationRequestIds);
+            modifiedReservationRequestIds.clear();
+            return reservationRequestIds;
+        }
     }
 
     /**
@@ -89,6 +175,21 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
      * @param entityManager to be used
      */
     public Result run(Interval interval, EntityManager entityManager)
+    {
+        return run(interval, entityManager, null);
+    }
+
+    /**
+     * Allocate reservation requests which intersects given {@code interval} and which are restricted by given
+     * {@code reservationRequestIds}. Reservations, allocations and reservation requests which are marked
+     * for deletion are always deleted (they are marked only by modifications of reservation requests).
+     *
+     * @param interval              only reservation requests which intersects this interval should be allocated
+     * @param entityManager         to be used
+     * @param reservationRequestIds identifiers of {@link AbstractReservationRequest}s which should be allocated
+     *                              together with their child {@link ReservationRequest}s (or {@code null} for all)
+     */
+    public Result run(Interval interval, EntityManager entityManager, Set<Long> reservationRequestIds)
     {
         Result result = new Result();
         if (!isEnabled()) {
@@ -97,7 +198,13 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
         }
 
         DateTimeFormatter dateTimeFormatter = DateTimeFormatter.getInstance(DateTimeFormatter.Type.LONG);
-        logger.debug("Running scheduler for interval '{}'...", dateTimeFormatter.formatInterval(interval));
+        if (reservationRequestIds != null) {
+            logger.debug("Running scheduler for interval '{}' and reservation requests {}...",
+                    dateTimeFormatter.formatInterval(interval), reservationRequestIds);
+        }
+        else {
+            logger.debug("Running scheduler for interval '{}'...", dateTimeFormatter.formatInterval(interval));
+        }
 
         cz.cesnet.shongo.util.Timer timer = new cz.cesnet.shongo.util.Timer();
         timer.start();
@@ -130,11 +237,13 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                     reservationsForDeletion.add(topReferencedReservation);
                 }
             }
+            List<Reservation> deletedReservations = new LinkedList<Reservation>();
             for (Reservation reservation : reservationsForDeletion) {
                 reservation.setAllocation(null);
                 if (reservation.getSlotEnd().isAfter(start)) {
                     reservationNotifications.addAll(finalizeActiveReservation(reservation, entityManager));
                 }
+                ReservationManager.getAllReservations(reservation, deletedReservations);
                 reservationManager.delete(reservation, start, authorizationManager);
                 result.deletedReservations++;
             }
@@ -152,6 +261,9 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
             entityManager.getTransaction().commit();
             authorizationManager.commitTransaction();
 
+            // Remove deleted reservations from the cache
+            cache.removeReservations(deletedReservations);
+
             // Add reservation notifications
             if (notificationManager != null) {
                 notificationManager.addNotifications(reservationNotifications, entityManager);
@@ -159,7 +271,13 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
 
             // Get all reservation requests which should be allocated
             ReservationRequestQueue reservationRequestQueue = new ReservationRequestQueue();
-            reservationRequestQueue.add(reservationRequestManager.listCompletedReservationRequests(interval));
+            reservationRequestQueue.add(
+                    reservationRequestManager.listCompletedReservationRequests(interval, reservationRequestIds));
+
+            // Allocate independent reservation requests in parallel (the rest remains in the queue)
+            if (executorService != null) {
+                allocateReservationRequestsInParallel(reservationRequestQueue, start, result);
+            }
 
             // Allocate all reservation requests
             while (!reservationRequestQueue.isEmpty()) {
@@ -208,6 +326,11 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                     entityManager.getTransaction().commit();
                     authorizationManager.commitTransaction();
 
+                    // Update created/modified and deleted reservations in the cache (it must be done after commit
+                    // and before the next reservation request is allocated, see RoomProviderUsage)
+                    cache.updateReservations(context.getModifiedReservations());
+                    cache.removeReservations(context.getDeletedReservations());
+
                     // Add context notifications
                     if (notificationManager != null) {
                         notificationManager.addNotifications(contextNotifications, entityManager);
@@ -291,15 +414,208 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
             Reporter.getInstance().reportInternalError(Reporter.SCHEDULER, exception);
         }
 
+        result.aclPropagationDuration += authorizationManager.getStatistics().getPropagationDuration();
+
         if (!result.isEmpty()) {
-            logger.info("Scheduling done in {} ms (failed: {}, allocated: {}, deleted: {}).", new Object[]{
-                    timer.stop(), result.failedReservationRequests, result.allocatedReservationRequests,
-                    result.deletedReservations
-            });
+            logger.info("Scheduling done in {} ms (failed: {}, allocated: {}, deleted: {}, acl: {} ms).",
+                    new Object[]{timer.stop(), result.failedReservationRequests, result.allocatedReservationRequests,
+                            result.deletedReservations, result.aclPropagationDuration
+                    });
         }
         return result;
     }
 
+    /**
+     * Allocate {@link ReservationRequest}s from given {@code reservationRequestQueue} in parallel by
+     * the {@link #executorService}.
+     * <p/>
+     * Each {@link ReservationRequest} is allocated in its own {@link EntityManager} and transaction, but the
+     * transactions are committed in the order of the {@code reservationRequestQueue} (see {@link ParallelAllocation}).
+     * Before the commit each {@link ReservationRequest} claims all resources which are allocated by created, modified
+     * or deleted reservations and it is committed only when:
+     * 1) all earlier {@link ReservationRequest}s from the queue have been finished,
+     * 2) no claimed resource has been committed by an earlier {@link ReservationRequest} after this
+     *    {@link ReservationRequest} has started its allocation (and thus it couldn't see the earlier allocation),
+     * 3) no claimed resource is allocated by an earlier {@link ReservationRequest} which will be allocated
+     *    sequentially (its resources are those from its rolled back allocation or from its reused allocation).
+     * Otherwise the transaction is rolled back and the {@link ReservationRequest} is returned to given
+     * {@code reservationRequestQueue} to be allocated sequentially. The later {@link ReservationRequest}s thus give
+     * way to the earlier ones which compete for the same resources. A {@link ReservationRequest} which simply fails
+     * to be allocated doesn't allocate any resource and thus it doesn't affect the later ones. Only when
+     * the resources of an earlier {@link ReservationRequest} aren't known (e.g., other {@link ReservationRequest}s
+     * must be reallocated) all later {@link ReservationRequest}s are allocated sequentially.
+     *
+     * @param reservationRequestQueue from which the {@link ReservationRequest}s should be allocated
+     * @param start                   minimum date/time for allocated reservations
+     * @param result                  to be filled
+     * @throws InterruptedException
+     */
+    private void allocateReservationRequestsInParallel(ReservationRequestQueue reservationRequestQueue,
+            final DateTime start, final Result result) throws InterruptedException
+    {
+        final ParallelAllocation parallelAllocation = new ParallelAllocation();
+        Map<ReservationRequest, Future<Boolean>> futures = new LinkedHashMap<ReservationRequest, Future<Boolean>>();
+        Iterator<ReservationRequest> iterator = reservationRequestQueue.iterator();
+        while (iterator.hasNext()) {
+            ReservationRequest reservationRequest = iterator.next();
+            final int index = parallelAllocation.nextIndex();
+            Allocation reusedAllocation = reservationRequest.getReusedAllocation();
+            if (reusedAllocation != null) {
+                // Reusing of allocations depends on the order of allocation and thus it must be done sequentially
+                // (later reservation requests mustn't take resources of the reused allocation before it)
+                Set<Long> resourceIds = new HashSet<Long>();
+                getAllocatedResourceIds(reusedAllocation.getReservations(), resourceIds);
+                parallelAllocation.finish(index, false, resourceIds);
+                continue;
+            }
+            iterator.remove();
+            final Long reservationRequestId = reservationRequest.getId();
+            futures.put(reservationRequest, executorService.submit(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call() throws Exception
+                {
+                    return allocateReservationRequestInParallel(reservationRequestId, index, start,
+                            parallelAllocation, result);
+                }
+            }));
+        }
+        List<ReservationRequest> remainingReservationRequests = new LinkedList<ReservationRequest>();
+        for (Map.Entry<ReservationRequest, Future<Boolean>> entry : futures.entrySet()) {
+            try {
+                if (!entry.getValue().get()) {
+                    remainingReservationRequests.add(entry.getKey());
+                }
+            }
+            catch (ExecutionException exception) {
+                remainingReservationRequests.add(entry.getKey());
+            }
+        }
+        reservationRequestQueue.add(remainingReservationRequests);
+        logger.debug("Allocated {} reservation requests in parallel, {} remains for sequential allocation.",
+                futures.size() - remainingReservationRequests.size(), remainingReservationRequests.size());
+    }
+
+    /**
+     * Allocate {@link ReservationRequest} with given {@code reservationRequestId} in a new {@link EntityManager}.
+     *
+     * @param reservationRequestId identifier of {@link ReservationRequest} to be allocated
+     * @param index                index of the {@link ReservationRequest} in the queue
+     * @param start                minimum date/time for allocated reservations
+     * @param parallelAllocation   in which the {@link ReservationRequest} is allocated
+     * @param result               to be filled
+     * @return true whether the {@link ReservationRequest} has been allocated and committed,
+     *         false whether the transaction has been rolled back and it should be allocated sequentially
+     */
+    private boolean allocateReservationRequestInParallel(Long reservationRequestId, int index, DateTime start,
+            ParallelAllocation parallelAllocation, Result result)
+    {
+        boolean committed = false;
+        Set<Long> resourceIds = null;
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        ReservationRequestManager reservationRequestManager = new ReservationRequestManager(entityManager);
+        AuthorizationManager authorizationManager = new AuthorizationManager(entityManager, authorization);
+        try {
+            // Earlier reservation requests which have been committed before this allocation are visible in the cache
+            int committedCount = parallelAllocation.getCommittedCount();
+
+            authorizationManager.beginTransaction();
+            entityManager.getTransaction().begin();
+
+            ReservationRequest reservationRequest =
+                    reservationRequestManager.getReservationRequest(reservationRequestId);
+
+            // Allocate reservation request
+            SchedulerContext context = new SchedulerContext(start, cache, entityManager, authorizationManager);
+            SchedulerContextState contextState = context.getState();
+            allocateReservationRequest(reservationRequest, context);
+
+            // Reallocation of other reservation requests must be done sequentially
+            if (contextState.getTryReallocationIterator().hasNext() || !contextState.getForceReallocation().isEmpty()) {
+                return false;
+            }
+
+            // Finalize (delete old reservations, etc)
+            Result contextResult = new Result();
+            List<AbstractNotification> contextNotifications = context.finish(contextResult);
+
+            // Claim all allocated resources (in the order of the queue)
+            resourceIds = new HashSet<Long>();
+            getAllocatedResourceIds(context.getModifiedReservations(), resourceIds);
+            getAllocatedResourceIds(context.getDeletedReservations(), resourceIds);
+            if (!parallelAllocation.claim(index, committedCount, resourceIds)) {
+                return false;
+            }
+
+            entityManager.getTransaction().commit();
+            authorizationManager.commitTransaction();
+
+            // Update created/modified and deleted reservations in the cache (it must be done before
+            // the later reservation requests are committed, see RoomProviderUsage)
+            cache.updateReservations(context.getModifiedReservations());
+            cache.removeReservations(context.getDeletedReservations());
+            committed = true;
+
+            // Add context notifications
+            if (notificationManager != null) {
+                notificationManager.addNotifications(contextNotifications, entityManager);
+            }
+
+            synchronized (result) {
+                result.allocatedReservationRequests++;
+                result.parallelAllocatedReservationRequests++;
+                result.deletedReservations += contextResult.deletedReservations;
+            }
+            return true;
+        }
+        catch (SchedulerException exception) {
+            // Failed allocation doesn't allocate any resource (it is reported by the sequential allocation)
+            logger.debug("Parallel allocation of reservation request '" + reservationRequestId + "' failed.",
+                    exception);
+            resourceIds = Collections.emptySet();
+            return false;
+        }
+        catch (Exception exception) {
+            logger.debug("Parallel allocation of reservation request '" + reservationRequestId + "' failed.",
+                    exception);
+            return false;
+        }
+        finally {
+            if (authorizationManager.isTransactionActive()) {
+                authorizationManager.rollbackTransaction();
+            }
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+
+            parallelAllocation.finish(index, committed, resourceIds);
+
+            synchronized (result) {
+                result.aclPropagationDuration += authorizationManager.getStatistics().getPropagationDuration();
+            }
+        }
+    }
+
+    /**
+     * Fill identifiers of {@link Reservation#getAllocatedResource()} from given {@code reservations} (including
+     * all child reservations) to given {@code resourceIds}.
+     *
+     * @param reservations
+     * @param resourceIds
+     */
+    private void getAllocatedResourceIds(Collection<Reservation> reservations, Set<Long> resourceIds)
+    {
+        for (Reservation reservation : reservations) {
+            for (Reservation reservationItem : reservation.getSetOfAllReservations()) {
+                Resource allocatedResource = reservationItem.getAllocatedResource();
+                if (allocatedResource != null) {
+                    resourceIds.add(allocatedResource.getId());
+                }
+            }
+        }
+    }
+
     /**
      * Fill {@link Reservation}s which are referenced (e.g., by {@link ExistingReservation})
      * from given {@code reservation} to given {@code referencedReservations}.
@@ -455,6 +771,11 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
         allocatedReservation.setUserId(reservationRequest.getCreatedBy());
         reservationManager.create(allocatedReservation);
 
+        // Add allocated reservation to the cache (it must be done before commit so that the cache is never missing
+        // a committed reservation, when the transaction is rolled back the cache contains only surplus reservations)
+        cache.addReservation(allocatedReservation);
+        context.addModifiedReservation(allocatedReservation);
+
         // Create ACL entries for new reservation
         authorizationManager.createAclEntriesForChildEntity(reservationRequest, allocatedReservation);
 
@@ -488,6 +809,7 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
                 if (oldReservation.getSlotEnd().isAfter(slotStart)) {
                     // Shorten the old reservation time slot to not intersect the new reservation time slot
                     oldReservation.setSlotEnd(Temporal.max(slotStart, oldReservation.getSlotStart()));
+                    context.addModifiedReservation(oldReservation);
                     // Finalize reservation
                     contextState.addNotifications(finalizeActiveReservation(oldReservation, entityManager));
                 }
@@ -577,11 +899,22 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
          */
         int allocatedReservationRequests = 0;
 
+        /**
+         * Number of reservation requests which have been successfully allocated in parallel
+         * (they are included in {@link #allocatedReservationRequests}).
+         */
+        int parallelAllocatedReservationRequests = 0;
+
         /**
          * Number of reservations which have been deleted.
          */
         int deletedReservations = 0;
 
+        /**
+         * Time in milliseconds spent by creating, propagating and deleting of ACL entries.
+         */
+        long aclPropagationDuration = 0;
+
         /**
          * @return true whether no reservation request has failed or has been allocated and not reservation has been deleted,
          *         false otherwise
@@ -609,6 +942,14 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
             return allocatedReservationRequests;
         }
 
+        /**
+         * @return {@link #parallelAllocatedReservationRequests}
+         */
+        public int getParallelAllocatedReservationRequests()
+        {
+            return parallelAllocatedReservationRequests;
+        }
+
         /**
          * @return {@link #deletedReservations}
          */
@@ -616,6 +957,152 @@ public class Scheduler extends SwitchableComponent implements Component.Authoriz
         {
             return deletedReservations;
         }
+
+        /**
+         * @return {@link #aclPropagationDuration}
+         */
+        public long getAclPropagationDuration()
+        {
+            return aclPropagationDuration;
+        }
+    }
+
+    /**
+     * State of {@link #allocateReservationRequestsInParallel} which ensures that the {@link ReservationRequest}s
+     * are committed in the order of {@link ReservationRequestQueue} and that the later {@link ReservationRequest}s
+     * give way to the earlier ones which compete for the same resources.
+     */
+    private static class ParallelAllocation
+    {
+        /**
+         * Maximum time in milliseconds for which a {@link ReservationRequest} waits for earlier
+         * {@link ReservationRequest}s to be finished (its uncommitted transaction can block them in the database).
+         */
+        private static final long CLAIM_TIMEOUT = 10000;
+
+        /**
+         * Number of {@link ReservationRequest}s which have been taken from the queue.
+         */
+        private int count = 0;
+
+        /**
+         * Number of {@link ReservationRequest}s from the beginning of the queue which have been finished.
+         */
+        private int finishedCount = 0;
+
+        /**
+         * Indexes of {@link ReservationRequest}s which have been finished out of order.
+         */
+        private final Set<Integer> finishedIndexes = new HashSet<Integer>();
+
+        /**
+         * Number of {@link ReservationRequest}s which have been committed.
+         */
+        private int committedCount = 0;
+
+        /**
+         * Map of identifiers of claimed resources to {@link #committedCount} at the time they have been claimed.
+         */
+        private final Map<Long, Integer> claimedResourceIds = new HashMap<Long, Integer>();
+
+        /**
+         * Map of identifiers of resources which are allocated by {@link ReservationRequest}s which will be
+         * allocated sequentially to the index of the first such {@link ReservationRequest}.
+         */
+        private final Map<Long, Integer> sequentialResourceIds = new HashMap<Long, Integer>();
+
+        /**
+         * Index of the first {@link ReservationRequest} which will be allocated sequentially and whose resources
+         * aren't known (and thus all later {@link ReservationRequest}s must be allocated sequentially too).
+         */
+        private int sequentialIndex = Integer.MAX_VALUE;
+
+        /**
+         * @return index for the next {@link ReservationRequest} from the queue
+         */
+        public synchronized int nextIndex()
+        {
+            return count++;
+        }
+
+        /**
+         * @return number of {@link ReservationRequest}s which have been already committed
+         */
+        public synchronized int getCommittedCount()
+        {
+            return committedCount;
+        }
+
+        /**
+         * Wait until all earlier {@link ReservationRequest}s are finished and claim given {@code resourceIds}.
+         *
+         * @param index          of {@link ReservationRequest} in the queue
+         * @param committedCount number of {@link ReservationRequest}s which have been committed before
+         *                       the allocation of the {@link ReservationRequest} has been started
+         * @param resourceIds    identifiers of resources allocated by the {@link ReservationRequest}
+         * @return true whether the {@link ReservationRequest} can be committed, false otherwise
+         * @throws InterruptedException
+         */
+        public synchronized boolean claim(int index, int committedCount, Set<Long> resourceIds)
+                throws InterruptedException
+        {
+            long end = System.currentTimeMillis() + CLAIM_TIMEOUT;
+            long remaining = CLAIM_TIMEOUT;
+            while (finishedCount < index && remaining > 0) {
+                wait(remaining);
+                remaining = end - System.currentTimeMillis();
+            }
+            if (finishedCount < index || sequentialIndex < index) {
+                return false;
+            }
+            for (Long resourceId : resourceIds) {
+                Integer resourceSequentialIndex = sequentialResourceIds.get(resourceId);
+                if (resourceSequentialIndex != null && resourceSequentialIndex < index) {
+                    // Earlier reservation request which will be allocated sequentially can allocate the resource
+                    return false;
+                }
+                Integer claimedCommittedCount = claimedResourceIds.get(resourceId);
+                if (claimedCommittedCount != null && claimedCommittedCount >= committedCount) {
+                    // Earlier reservation request has been committed after this allocation has been started
+                    return false;
+                }
+            }
+            for (Long resourceId : resourceIds) {
+                claimedResourceIds.put(resourceId, this.committedCount);
+            }
+            return true;
+        }
+
+        /**
+         * Finish {@link ReservationRequest} with given {@code index}.
+         *
+         * @param index       of {@link ReservationRequest} in the queue
+         * @param committed   specifies whether the {@link ReservationRequest} has been committed
+         * @param resourceIds identifiers of resources allocated by the {@link ReservationRequest} which hasn't been
+         *                    committed (or {@code null} when they aren't known)
+         */
+        public synchronized void finish(int index, boolean committed, Set<Long> resourceIds)
+        {
+            if (committed) {
+                committedCount++;
+            }
+            else if (resourceIds == null) {
+                sequentialIndex = Math.min(sequentialIndex, index);
+            }
+            else {
+                for (Long resourceId : resourceIds) {
+                    Integer resourceSequentialIndex = sequentialResourceIds.get(resourceId);
+                    if (resourceSequentialIndex == null || index < resourceSequentialIndex) {
+                        sequentialResourceIds.put(resourceId, index);
+                    }
+                }
+            }
+            finishedIndexes.add(index);
+            while (finishedIndexes.remove(finishedCount)) {
+                finishedCount++;
+            }
+            notifyAll();
+        }
     }
 
     /**
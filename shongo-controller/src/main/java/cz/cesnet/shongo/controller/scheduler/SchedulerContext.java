@@ -14,13 +14,12 @@ import cz.cesnet.shongo.controller.booking.reservation.Reservation;
 import cz.cesnet.shongo.controller.booking.reservation.ReservationManager;
 import cz.cesnet.shongo.controller.booking.resource.Resource;
 import cz.cesnet.shongo.controller.booking.room.AvailableRoom;
-import cz.cesnet.shongo.controller.booking.room.RoomBucket;
 import cz.cesnet.shongo.controller.booking.room.RoomProviderCapability;
 import cz.cesnet.shongo.controller.booking.room.RoomReservation;
 import cz.cesnet.shongo.controller.cache.Cache;
 import cz.cesnet.shongo.controller.cache.ResourceCache;
+import cz.cesnet.shongo.controller.cache.RoomProviderUsage;
 import cz.cesnet.shongo.controller.notification.AbstractNotification;
-import cz.cesnet.shongo.util.RangeSet;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 
@@ -85,6 +84,17 @@ public class SchedulerContext
     private Map<Reservation, ReservationRequest> reservationRequestByReservation =
             new HashMap<Reservation, ReservationRequest>();
 
+    /**
+     * List of all {@link Reservation}s (including child reservations) which have been deleted in {@link #finish}.
+     */
+    private List<Reservation> deletedReservations = new LinkedList<Reservation>();
+
+    /**
+     * List of {@link Reservation}s which have been created or modified in the context and which should be updated
+     * in the {@link Cache} after the context is committed.
+     */
+    private List<Reservation> modifiedReservations = new LinkedList<Reservation>();
+
     /**
      * Constructor.
      *
@@ -269,36 +279,35 @@ public class SchedulerContext
         int usedLicenseCount = 0;
         ResourceCache resourceCache = cache.getResourceCache();
         if (resourceCache.isResourceAvailable(roomProviderCapability.getResource(), slot, this, reservationTask)) {
-            ReservationManager reservationManager = new ReservationManager(entityManager);
-            List<RoomReservation> roomReservations =
-                    reservationManager.getRoomReservations(roomProviderCapability, slot);
-            state.applyReservations(roomProviderCapability.getId(), slot, roomReservations, RoomReservation.class);
-            RangeSet<RoomReservation, DateTime> rangeSet = new RangeSet<RoomReservation, DateTime>()
-            {
-                @Override
-                protected Bucket<DateTime, RoomReservation> createBucket(DateTime rangeValue)
-                {
-                    return new RoomBucket(rangeValue);
+            Long roomProviderCapabilityId = roomProviderCapability.getId();
+            RoomProviderUsage roomProviderUsage = resourceCache.getRoomProviderUsage(roomProviderCapabilityId);
+
+            // Room reservations which are allocated in the context should be considered as used
+            List<RoomReservation> allocatedRoomReservations = new LinkedList<RoomReservation>();
+            for (Reservation reservation : state.getAllocatedReservations()) {
+                if (reservation instanceof RoomReservation && reservation.getSlot().overlaps(slot)) {
+                    RoomReservation roomReservation = (RoomReservation) reservation;
+                    if (roomProviderCapabilityId.equals(roomReservation.getTargetId())) {
+                        allocatedRoomReservations.add(roomReservation);
+                    }
                 }
-            };
-            for (RoomReservation roomReservation : roomReservations) {
-                rangeSet.add(roomReservation, roomReservation.getSlotStart(), roomReservation.getSlotEnd());
             }
 
-            List<RoomBucket> roomBuckets = new LinkedList<RoomBucket>();
-            roomBuckets.addAll(rangeSet.getBuckets(slot.getStart(), slot.getEnd(), RoomBucket.class));
-            Collections.sort(roomBuckets, new Comparator<RoomBucket>()
-            {
-                @Override
-                public int compare(RoomBucket roomBucket1, RoomBucket roomBucket2)
-                {
-                    return -Double.compare(roomBucket1.getLicenseCount(), roomBucket2.getLicenseCount());
+            // Room reservations which are available in the context should be considered as not used
+            List<Long> availableRoomReservationIds = new LinkedList<Long>();
+            for (AvailableReservation<? extends Reservation> availableReservation : state.getAvailableReservations()) {
+                Reservation reservation = availableReservation.getTargetReservation();
+                if (reservation instanceof RoomReservation
+                        && availableReservation.getOriginalReservation().getSlot().overlaps(slot)) {
+                    RoomReservation roomReservation = (RoomReservation) reservation;
+                    if (roomProviderCapabilityId.equals(roomReservation.getTargetId())) {
+                        availableRoomReservationIds.add(roomReservation.getId());
+                    }
                 }
-            });
-            if (roomBuckets.size() > 0) {
-                RoomBucket roomBucket = roomBuckets.get(0);
-                usedLicenseCount = roomBucket.getLicenseCount();
             }
+
+            usedLicenseCount = roomProviderUsage.getUsedLicenseCount(
+                    slot, allocatedRoomReservations, availableRoomReservationIds);
         }
         else {
             usedLicenseCount = roomProviderCapability.getLicenseCount();
@@ -357,12 +366,37 @@ public class SchedulerContext
     {
         ReservationManager reservationManager = new ReservationManager(entityManager);
         for (Reservation reservation : state.getReservationsToDelete()) {
+            ReservationManager.getAllReservations(reservation, deletedReservations);
             reservationManager.delete(reservation, minimumDateTime, authorizationManager);
             result.deletedReservations++;
         }
         return state.getNotifications();
     }
 
+    /**
+     * @return {@link #modifiedReservations}
+     */
+    public List<Reservation> getModifiedReservations()
+    {
+        return Collections.unmodifiableList(modifiedReservations);
+    }
+
+    /**
+     * @param reservation which has been created or modified and which should be added to {@link #modifiedReservations}
+     */
+    public void addModifiedReservation(Reservation reservation)
+    {
+        modifiedReservations.add(reservation);
+    }
+
+    /**
+     * @return {@link #deletedReservations}
+     */
+    public List<Reservation> getDeletedReservations()
+    {
+        return Collections.unmodifiableList(deletedReservations);
+    }
+
     /**
      * @param reservation
      * @return {@link ReservationRequest} for which is allocated given {@code reservation}
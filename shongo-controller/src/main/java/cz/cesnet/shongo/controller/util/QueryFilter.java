@@ -3,13 +3,19 @@ package cz.cesnet.shongo.controller.util;
 import cz.cesnet.shongo.CommonReportSet;
 import cz.cesnet.shongo.PersistentObject;
 import cz.cesnet.shongo.Technology;
+import cz.cesnet.shongo.TodoImplementException;
 import cz.cesnet.shongo.api.Converter;
 import cz.cesnet.shongo.controller.ObjectPermission;
 import cz.cesnet.shongo.controller.acl.AclObjectClass;
 import cz.cesnet.shongo.controller.api.SecurityToken;
+import cz.cesnet.shongo.controller.api.request.ListRequest;
 import cz.cesnet.shongo.controller.authorization.Authorization;
 
 import javax.persistence.Query;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.sql.Timestamp;
 import java.util.*;
 
 /**
@@ -39,6 +45,33 @@ public class QueryFilter
      */
     private Map<String, Object> parameters = new HashMap<String, Object>();
 
+    /**
+     * List of {@link OrderKey}s by which the records are ordered (the last one must be unique) or {@code null}
+     * when the records aren't ordered by unique keys and thus only offset cursors can be used.
+     */
+    private OrderKey[] orderKeys;
+
+    /**
+     * Specifies whether the records are ordered by {@link #orderKeys} descending.
+     */
+    private boolean orderDescending = false;
+
+    /**
+     * Specifies whether {@link #applyCursor} has been called.
+     */
+    private boolean cursorApplied = false;
+
+    /**
+     * Number of records which precede the first record selected by applied cursor.
+     */
+    private Integer cursorStart;
+
+    /**
+     * Specifies whether the applied cursor has added filter which skips the preceding records
+     * (otherwise the {@link #cursorStart} records must be skipped by offset).
+     */
+    private boolean cursorFiltered = false;
+
     /**
      * Constructor.
      *
@@ -154,7 +187,59 @@ public class QueryFilter
     public void addFilterId(String column, Authorization authorization, SecurityToken securityToken,
             Class<? extends PersistentObject> objectClass, ObjectPermission objectPermission)
     {
-        addFilterIn(column, authorization.getEntitiesWithPermission(securityToken, objectClass, objectPermission));
+        if (nativeQuery) {
+            addFilterAcl(column, authorization, securityToken, objectClass, objectPermission);
+        }
+        else {
+            addFilterIn(column, authorization.getEntitiesWithPermission(securityToken, objectClass, objectPermission));
+        }
+    }
+
+    /**
+     * Add identifier filter which is evaluated against the ACL tables by the database (see
+     * {@link Authorization#getEntitiesWithPermissionQuery}) and thus it doesn't contain the bind list
+     * of all identifiers of the permitted entities (only for native queries).
+     *
+     * @param column
+     * @param authorization
+     * @param securityToken
+     * @param objectClass
+     * @param objectPermission
+     */
+    public void addFilterAcl(String column, Authorization authorization, SecurityToken securityToken,
+            Class<? extends PersistentObject> objectClass, ObjectPermission objectPermission)
+    {
+        String aclFilter = getFilterAcl(alias + "." + column, authorization, securityToken, objectClass,
+                objectPermission);
+        if (aclFilter != null) {
+            addFilter(aclFilter);
+        }
+    }
+
+    /**
+     * Get identifier filter which is evaluated against the ACL tables by the database (only for native queries)
+     * and add its parameters to this {@link QueryFilter}. It can be used for composing filters which
+     * {@link #addFilterAcl} can't express (e.g., alternatives joined by OR).
+     *
+     * @param column           fully qualified column with object identifiers
+     * @param authorization
+     * @param securityToken
+     * @param objectClass
+     * @param objectPermission
+     * @return filter or {@code null} when the user has given {@code objectPermission} for all objects
+     */
+    public String getFilterAcl(String column, Authorization authorization, SecurityToken securityToken,
+            Class<? extends PersistentObject> objectClass, ObjectPermission objectPermission)
+    {
+        if (!nativeQuery) {
+            throw new IllegalStateException("ACL filter can be used only in native query.");
+        }
+        String aclQuery = authorization.getEntitiesWithPermissionQuery(
+                securityToken, objectClass, objectPermission, parameters);
+        if (aclQuery != null) {
+            return column + " IN (" + aclQuery + ")";
+        }
+        return null;
     }
 
     /**
@@ -170,6 +255,162 @@ public class QueryFilter
         }
     }
 
+    /**
+     * Order records by given {@code orderKeys} which allows for using keyset cursors (see {@link #applyCursor}).
+     * {@code NULL} values are ordered as the lowest values (i.e., {@code NULLS FIRST} in ascending order and
+     * {@code NULLS LAST} in descending order) to get the same order in all databases.
+     *
+     * @param descending sets the {@link #orderDescending}
+     * @param orderKeys  sets the {@link #orderKeys} (the last one must be unique and not null)
+     * @return order formatted to query order by string
+     */
+    public String setOrderKeys(boolean descending, OrderKey... orderKeys)
+    {
+        if (orderKeys.length == 0) {
+            throw new IllegalArgumentException("At least one order key must be specified.");
+        }
+        this.orderKeys = orderKeys;
+        this.orderDescending = descending;
+        StringBuilder queryOrderBy = new StringBuilder();
+        for (int index = 0; index < orderKeys.length; index++) {
+            if (index > 0) {
+                queryOrderBy.append(", ");
+            }
+            queryOrderBy.append(orderKeys[index].column);
+            if (descending) {
+                queryOrderBy.append(" DESC");
+            }
+            if (index < (orderKeys.length - 1)) {
+                queryOrderBy.append(descending ? " NULLS LAST" : " NULLS FIRST");
+            }
+        }
+        return queryOrderBy.toString();
+    }
+
+    /**
+     * Apply given {@code cursor} (created by {@link #formatCursor}). When the cursor contains values of
+     * {@link #orderKeys} a filter which skips all preceding records is added, otherwise the preceding records
+     * must be skipped by offset (see {@link #isCursorFiltered()}).
+     * <p/>
+     * It must be called before {@link #toQueryWhere()}.
+     *
+     * @param cursor to be applied (can be {@code null})
+     * @throws CommonReportSet.TypeIllegalValueException when the {@code cursor} is invalid (e.g., it has been
+     *                                                   created for another order)
+     */
+    public void applyCursor(String cursor)
+    {
+        cursorApplied = true;
+        if (cursor == null) {
+            return;
+        }
+        String[] cursorParts = cursor.split(":", -1);
+        try {
+            cursorStart = Integer.parseInt(cursorParts[0]);
+        }
+        catch (NumberFormatException exception) {
+            throw new CommonReportSet.TypeIllegalValueException(exception, ListRequest.CURSOR_TYPE, cursor);
+        }
+        if (cursorStart < 0) {
+            throw new CommonReportSet.TypeIllegalValueException(ListRequest.CURSOR_TYPE, cursor);
+        }
+        if (cursorParts.length == 1 || orderKeys == null) {
+            return;
+        }
+        if (cursorParts.length != (orderKeys.length + 1)) {
+            throw new CommonReportSet.TypeIllegalValueException(ListRequest.CURSOR_TYPE, cursor);
+        }
+        // Filter "(c0, c1, ...) > (:cursor0, :cursor1, ...)" written as "c0 > :cursor0 OR (c0 = :cursor0 AND ...)"
+        // (row value comparison isn't supported with parameters by all databases and it doesn't handle NULL values)
+        StringBuilder filter = new StringBuilder();
+        StringBuilder equalFilter = new StringBuilder();
+        for (int index = 0; index < orderKeys.length; index++) {
+            OrderKey orderKey = orderKeys[index];
+            String parameterName = "cursor" + index;
+            Object value = orderKey.parseCursorValue(cursorParts[index + 1], cursor);
+            if (value == null && index == (orderKeys.length - 1)) {
+                throw new CommonReportSet.TypeIllegalValueException(ListRequest.CURSOR_TYPE, cursor);
+            }
+            if (value != null) {
+                parameters.put(parameterName, value);
+            }
+
+            // Records with greater value (NULL values are the lowest)
+            String greaterFilter;
+            if (value == null) {
+                greaterFilter = (orderDescending ? null : orderKey.column + " IS NOT NULL");
+            }
+            else if (orderDescending) {
+                greaterFilter = "(" + orderKey.column + " < :" + parameterName + " OR " + orderKey.column
+                        + " IS NULL)";
+            }
+            else {
+                greaterFilter = orderKey.column + " > :" + parameterName;
+            }
+            if (greaterFilter != null) {
+                if (filter.length() > 0) {
+                    filter.append(" OR ");
+                }
+                filter.append("(");
+                filter.append(equalFilter);
+                filter.append(greaterFilter);
+                filter.append(")");
+            }
+
+            // Records with equal value
+            equalFilter.append(orderKey.column);
+            equalFilter.append(value == null ? " IS NULL" : " = :" + parameterName);
+            equalFilter.append(" AND ");
+        }
+        filters.add(filter.toString());
+        cursorFiltered = true;
+    }
+
+    /**
+     * @return true whether {@link #applyCursor} has been called, false otherwise
+     */
+    public boolean isCursorApplied()
+    {
+        return cursorApplied;
+    }
+
+    /**
+     * @return {@link #cursorStart}
+     */
+    public Integer getCursorStart()
+    {
+        return cursorStart;
+    }
+
+    /**
+     * @return {@link #cursorFiltered}
+     */
+    public boolean isCursorFiltered()
+    {
+        return cursorFiltered;
+    }
+
+    /**
+     * @param nextStart  number of records which precede the next record
+     * @param lastRecord the last returned record
+     * @return cursor which points to the record following the {@code lastRecord}
+     */
+    public String formatCursor(int nextStart, Object lastRecord)
+    {
+        StringBuilder cursor = new StringBuilder();
+        cursor.append(nextStart);
+        if (orderKeys != null && lastRecord instanceof Object[]) {
+            Object[] record = (Object[]) lastRecord;
+            StringBuilder cursorValues = new StringBuilder();
+            for (OrderKey orderKey : orderKeys) {
+                cursorValues.append(":");
+                cursorValues.append(orderKey.formatCursorValue(record[orderKey.recordIndex]));
+            }
+            cursor.append(cursorValues);
+        }
+        return cursor.toString();
+    }
+
     /**
      * @param query to which all {@link #parameters} shoud be added
      */
@@ -236,4 +477,137 @@ public class QueryFilter
         }
         return null;
     }
+
+    /**
+     * Column by which the records are ordered.
+     */
+    public static class OrderKey
+    {
+        /**
+         * Value of {@code NULL} in cursor.
+         */
+        private static final String NULL_VALUE = "-";
+
+        /**
+         * Column in query.
+         */
+        private final String column;
+
+        /**
+         * Index of the {@link #column} value in the query records.
+         */
+        private final int recordIndex;
+
+        /**
+         * {@link Type} of the {@link #column} values.
+         */
+        private final Type type;
+
+        /**
+         * Constructor.
+         *
+         * @param column      sets the {@link #column}
+         * @param recordIndex sets the {@link #recordIndex}
+         * @param type        sets the {@link #type}
+         */
+        public OrderKey(String column, int recordIndex, Type type)
+        {
+            this.column = column;
+            this.recordIndex = recordIndex;
+            this.type = type;
+        }
+
+        /**
+         * @param value to be formatted
+         * @return given {@code value} formatted for cursor
+         */
+        private String formatCursorValue(Object value)
+        {
+            if (value == null) {
+                return NULL_VALUE;
+            }
+            switch (type) {
+                case NUMBER:
+                    return "n" + ((Number) value).longValue();
+                case TIMESTAMP:
+                    Timestamp timestamp = (Timestamp) value;
+                    return "t" + timestamp.getTime() + "." + timestamp.getNanos();
+                case STRING:
+                    try {
+                        return "s" + URLEncoder.encode(value.toString(), "UTF-8");
+                    }
+                    catch (UnsupportedEncodingException exception) {
+                        throw new RuntimeException(exception);
+                    }
+                default:
+                    throw new TodoImplementException(type);
+            }
+        }
+
+        /**
+         * @param value  formatted by {@link #formatCursorValue}
+         * @param cursor which contains the {@code value}
+         * @return parsed value or {@code null}
+         * @throws CommonReportSet.TypeIllegalValueException when the {@code value} is invalid or of other
+         *                                                   {@link #type}
+         */
+        private Object parseCursorValue(String value, String cursor)
+        {
+            if (value.equals(NULL_VALUE)) {
+                return null;
+            }
+            try {
+                switch (type) {
+                    case NUMBER:
+                        if (value.startsWith("n")) {
+                            return Long.parseLong(value.substring(1));
+                        }
+                        break;
+                    case TIMESTAMP:
+                        if (value.startsWith("t")) {
+                            int nanosPosition = value.indexOf('.');
+                            Timestamp timestamp = new Timestamp(Long.parseLong(value.substring(1, nanosPosition)));
+                            timestamp.setNanos(Integer.parseInt(value.substring(nanosPosition + 1)));
+                            return timestamp;
+                        }
+                        break;
+                    case STRING:
+                        if (value.startsWith("s")) {
+                            return URLDecoder.decode(value.substring(1), "UTF-8");
+                        }
+                        break;
+                    default:
+                        throw new TodoImplementException(type);
+                }
+            }
+            catch (UnsupportedEncodingException exception) {
+                throw new RuntimeException(exception);
+            }
+            catch (RuntimeException exception) {
+                throw new CommonReportSet.TypeIllegalValueException(exception, ListRequest.CURSOR_TYPE, cursor);
+            }
+            throw new CommonReportSet.TypeIllegalValueException(ListRequest.CURSOR_TYPE, cursor);
+        }
+
+        /**
+         * Type of {@link OrderKey} values.
+         */
+        public static enum Type
+        {
+            /**
+             * Integer number.
+             */
+            NUMBER,
+
+            /**
+             * Date/time.
+             */
+            TIMESTAMP,
+
+            /**
+             * String.
+             */
+            STRING
+        }
+    }
 }
@@ -3,6 +3,7 @@ DROP VIEW IF EXISTS resource_summary;
 DROP VIEW IF EXISTS specification_summary;
 DROP VIEW IF EXISTS alias_specification_summary;
 DROP VIEW IF EXISTS reservation_request_summary;
+DROP VIEW IF EXISTS reservation_request_summary_data;
 DROP VIEW IF EXISTS reservation_request_state;
 DROP VIEW IF EXISTS reservation_request_set_earliest_child;
 DROP VIEW IF EXISTS reservation_request_active_usage;
@@ -11,6 +12,17 @@ DROP VIEW IF EXISTS reservation_summary;
 DROP VIEW IF EXISTS executable_summary;
 DROP VIEW IF EXISTS room_endpoint_earliest_usage;
 
+/**
+ * Move sequences for ACL entries and their dependencies after existing identifiers (the identifiers were allocated
+ * from hibernate_sequence before, the sequences are allocated by 100 identifiers, see AclEntry.ID_ALLOCATION_SIZE).
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+SELECT setval('acl_entry_id_seq', GREATEST(
+    (SELECT last_value FROM acl_entry_id_seq), (SELECT COALESCE(MAX(id), 0) / 100 + 1 FROM acl_entry)));
+SELECT setval('acl_entry_dependency_id_seq', GREATEST(
+    (SELECT last_value FROM acl_entry_dependency_id_seq), (SELECT COALESCE(MAX(id), 0) / 100 + 1 FROM acl_entry_dependency)));
+
 /**
  * Create missing foreign keys' indexes.
  *
@@ -278,6 +290,183 @@ INNER JOIN reservation_request ON reservation_request.id = abstract_reservation_
 /* we want one usage which has the earliest slot ending */
 ORDER BY allocation.abstract_reservation_request_id, reservation_request.slot_end;
 
+/**
+ * View of data for each reservation request which don't depend on current date/time
+ * (it is materialized in reservation_request_summary_cache).
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+CREATE VIEW reservation_request_summary_data AS
+SELECT
+    abstract_reservation_request.id AS id,
+    parent_allocation.abstract_reservation_request_id AS parent_reservation_request_id,
+    abstract_reservation_request.created_at AS created_at,
+    abstract_reservation_request.created_by AS created_by,
+    abstract_reservation_request.updated_at AS updated_at,
+    abstract_reservation_request.updated_by AS updated_by,
+    abstract_reservation_request.description AS description,
+    abstract_reservation_request.purpose AS purpose,
+    abstract_reservation_request.state AS state,
+    abstract_reservation_request.specification_id AS specification_id,
+    reused_allocation.abstract_reservation_request_id AS reused_reservation_request_id,
+    abstract_reservation_request.modified_reservation_request_id AS modified_reservation_request_id,
+    abstract_reservation_request.allocation_id AS allocation_id,
+    reservation_request.slot_start AS slot_start,
+    reservation_request.slot_end AS slot_end,
+    reservation_request_state.allocation_state AS allocation_state,
+    reservation_request_state.executable_state AS executable_state,
+    reservation_request_state.last_reservation_id AS last_reservation_id,
+    reservation_request_state.last_executable_id AS last_executable_id
+FROM abstract_reservation_request
+LEFT JOIN allocation AS reused_allocation ON reused_allocation.id = abstract_reservation_request.reused_allocation_id
+LEFT JOIN reservation_request ON reservation_request.id = abstract_reservation_request.id
+LEFT JOIN allocation AS parent_allocation ON parent_allocation.id = reservation_request.parent_allocation_id
+LEFT JOIN reservation_request_state ON reservation_request_state.id = reservation_request.id;
+
+/**
+ * Materialized reservation_request_summary_data (it is rebuilt here and then kept up to date by triggers below).
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+DROP TABLE IF EXISTS reservation_request_summary_cache;
+CREATE TABLE reservation_request_summary_cache AS SELECT * FROM reservation_request_summary_data;
+ALTER TABLE reservation_request_summary_cache ADD PRIMARY KEY (id);
+CREATE INDEX reservation_request_summary_cache_allocation_id_idx ON reservation_request_summary_cache (allocation_id);
+CREATE INDEX reservation_request_summary_cache_state_idx ON reservation_request_summary_cache (state, parent_reservation_request_id);
+CREATE INDEX reservation_request_summary_cache_reused_idx ON reservation_request_summary_cache (reused_reservation_request_id);
+CREATE INDEX reservation_request_summary_cache_created_at_idx ON reservation_request_summary_cache (created_at);
+CREATE INDEX reservation_request_summary_cache_slot_end_idx ON reservation_request_summary_cache (slot_end);
+
+/**
+ * Identifiers of reservation requests whose rows in reservation_request_summary_cache should be refreshed
+ * at the end of current statement (row triggers only collect the identifiers and statement triggers refresh
+ * each of them once, e.g., multi-row updates don't refresh the same row many times).
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+DROP TABLE IF EXISTS reservation_request_summary_pending;
+CREATE UNLOGGED TABLE reservation_request_summary_pending (
+    transaction_id BIGINT NOT NULL,
+    id BIGINT NOT NULL
+);
+CREATE INDEX reservation_request_summary_pending_transaction_id_idx ON reservation_request_summary_pending (transaction_id);
+
+/**
+ * Refresh row in reservation_request_summary_cache for given reservation request.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+DROP FUNCTION IF EXISTS reservation_request_summary_refresh(BIGINT);
+CREATE FUNCTION reservation_request_summary_refresh(request_id BIGINT) RETURNS VOID AS $$
+BEGIN
+    /* Serialize concurrent refreshes of the same reservation request until the end of transaction
+       (otherwise two transactions may both delete the row and then both insert it) */
+    PERFORM pg_advisory_xact_lock(request_id);
+    DELETE FROM reservation_request_summary_cache WHERE id = request_id;
+    INSERT INTO reservation_request_summary_cache SELECT * FROM reservation_request_summary_data WHERE id = request_id;
+END;$$ LANGUAGE 'plpgsql';
+
+/**
+ * Refresh rows in reservation_request_summary_cache for all pending reservation requests of current transaction.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+DROP FUNCTION IF EXISTS reservation_request_summary_refresh_pending() CASCADE;
+CREATE FUNCTION reservation_request_summary_refresh_pending() RETURNS TRIGGER AS $$
+DECLARE
+    request_id BIGINT;
+BEGIN
+    /* Ordered to acquire the advisory locks always in the same order */
+    FOR request_id IN SELECT DISTINCT id FROM reservation_request_summary_pending
+            WHERE transaction_id = txid_current() ORDER BY id LOOP
+        PERFORM reservation_request_summary_refresh(request_id);
+    END LOOP;
+    DELETE FROM reservation_request_summary_pending WHERE transaction_id = txid_current();
+    RETURN NULL;
+END;$$ LANGUAGE 'plpgsql';
+
+/**
+ * Triggers which refresh reservation_request_summary_cache when a reservation request, an allocation,
+ * a reservation or an executable is modified.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+DROP FUNCTION IF EXISTS reservation_request_summary_request_trigger() CASCADE;
+CREATE FUNCTION reservation_request_summary_request_trigger() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO reservation_request_summary_pending VALUES (txid_current(), OLD.id);
+    ELSE
+        INSERT INTO reservation_request_summary_pending VALUES (txid_current(), NEW.id);
+    END IF;
+    RETURN NULL;
+END;$$ LANGUAGE 'plpgsql';
+CREATE TRIGGER reservation_request_summary_trigger AFTER INSERT OR UPDATE OR DELETE ON abstract_reservation_request
+    FOR EACH ROW EXECUTE PROCEDURE reservation_request_summary_request_trigger();
+CREATE TRIGGER reservation_request_summary_trigger AFTER INSERT OR UPDATE OR DELETE ON reservation_request
+    FOR EACH ROW EXECUTE PROCEDURE reservation_request_summary_request_trigger();
+
+DROP FUNCTION IF EXISTS reservation_request_summary_allocation_trigger() CASCADE;
+CREATE FUNCTION reservation_request_summary_allocation_trigger() RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.abstract_reservation_request_id IS DISTINCT FROM OLD.abstract_reservation_request_id THEN
+        /* Reservation requests which reference the allocation as parent or as reused */
+        INSERT INTO reservation_request_summary_pending
+            SELECT txid_current(), id FROM abstract_reservation_request WHERE reused_allocation_id = NEW.id
+            UNION
+            SELECT txid_current(), id FROM reservation_request WHERE parent_allocation_id = NEW.id;
+    END IF;
+    RETURN NULL;
+END;$$ LANGUAGE 'plpgsql';
+CREATE TRIGGER reservation_request_summary_trigger AFTER UPDATE ON allocation
+    FOR EACH ROW EXECUTE PROCEDURE reservation_request_summary_allocation_trigger();
+
+DROP FUNCTION IF EXISTS reservation_request_summary_reservation_trigger() CASCADE;
+CREATE FUNCTION reservation_request_summary_reservation_trigger() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        INSERT INTO reservation_request_summary_pending
+            SELECT txid_current(), id FROM reservation_request WHERE id IN (
+                SELECT id FROM abstract_reservation_request WHERE allocation_id = OLD.allocation_id);
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        INSERT INTO reservation_request_summary_pending
+            SELECT txid_current(), id FROM reservation_request WHERE id IN (
+                SELECT id FROM abstract_reservation_request WHERE allocation_id = NEW.allocation_id);
+    END IF;
+    RETURN NULL;
+END;$$ LANGUAGE 'plpgsql';
+CREATE TRIGGER reservation_request_summary_trigger AFTER INSERT OR UPDATE OR DELETE ON reservation
+    FOR EACH ROW EXECUTE PROCEDURE reservation_request_summary_reservation_trigger();
+
+DROP FUNCTION IF EXISTS reservation_request_summary_executable_trigger() CASCADE;
+CREATE FUNCTION reservation_request_summary_executable_trigger() RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.state IS DISTINCT FROM OLD.state THEN
+        INSERT INTO reservation_request_summary_pending
+            SELECT txid_current(), id FROM reservation_request WHERE id IN (
+                SELECT abstract_reservation_request.id
+                FROM reservation
+                INNER JOIN abstract_reservation_request ON abstract_reservation_request.allocation_id = reservation.allocation_id
+                WHERE reservation.executable_id = NEW.id);
+    END IF;
+    RETURN NULL;
+END;$$ LANGUAGE 'plpgsql';
+CREATE TRIGGER reservation_request_summary_trigger AFTER UPDATE ON executable
+    FOR EACH ROW EXECUTE PROCEDURE reservation_request_summary_executable_trigger();
+
+/* Statement triggers which refresh collected reservation requests (they are fired after the row triggers) */
+CREATE TRIGGER reservation_request_summary_pending_trigger AFTER INSERT OR UPDATE OR DELETE ON abstract_reservation_request
+    FOR EACH STATEMENT EXECUTE PROCEDURE reservation_request_summary_refresh_pending();
+CREATE TRIGGER reservation_request_summary_pending_trigger AFTER INSERT OR UPDATE OR DELETE ON reservation_request
+    FOR EACH STATEMENT EXECUTE PROCEDURE reservation_request_summary_refresh_pending();
+CREATE TRIGGER reservation_request_summary_pending_trigger AFTER UPDATE ON allocation
+    FOR EACH STATEMENT EXECUTE PROCEDURE reservation_request_summary_refresh_pending();
+CREATE TRIGGER reservation_request_summary_pending_trigger AFTER INSERT OR UPDATE OR DELETE ON reservation
+    FOR EACH STATEMENT EXECUTE PROCEDURE reservation_request_summary_refresh_pending();
+CREATE TRIGGER reservation_request_summary_pending_trigger AFTER UPDATE ON executable
+    FOR EACH STATEMENT EXECUTE PROCEDURE reservation_request_summary_refresh_pending();
+
 /**
  * View of time slot and state for each reservation request.
  *
@@ -312,23 +501,23 @@ FROM (
         COALESCE(reservation_request_summary.usage_slot_end, reservation_request_summary.slot_end) AS slot_nearness_end
     FROM (
         SELECT
-            abstract_reservation_request.id AS id,
-            parent_allocation.abstract_reservation_request_id AS parent_reservation_request_id,
-            abstract_reservation_request.created_at AS created_at,
-            abstract_reservation_request.created_by AS created_by,
-            abstract_reservation_request.updated_at AS updated_at,
-            abstract_reservation_request.updated_by AS updated_by,
-            abstract_reservation_request.description AS description,
-            abstract_reservation_request.purpose AS purpose,
-            abstract_reservation_request.state AS state,
-            abstract_reservation_request.specification_id AS specification_id,
-            reused_allocation.abstract_reservation_request_id AS reused_reservation_request_id,
-            abstract_reservation_request.modified_reservation_request_id AS modified_reservation_request_id,
-            abstract_reservation_request.allocation_id AS allocation_id,
+            reservation_request_summary.id AS id,
+            reservation_request_summary.parent_reservation_request_id AS parent_reservation_request_id,
+            reservation_request_summary.created_at AS created_at,
+            reservation_request_summary.created_by AS created_by,
+            reservation_request_summary.updated_at AS updated_at,
+            reservation_request_summary.updated_by AS updated_by,
+            reservation_request_summary.description AS description,
+            reservation_request_summary.purpose AS purpose,
+            reservation_request_summary.state AS state,
+            reservation_request_summary.specification_id AS specification_id,
+            reservation_request_summary.reused_reservation_request_id AS reused_reservation_request_id,
+            reservation_request_summary.modified_reservation_request_id AS modified_reservation_request_id,
+            reservation_request_summary.allocation_id AS allocation_id,
             reservation_request_set_earliest_child.child_id AS child_id,
             reservation_request_set_earliest_child.future_child_count AS future_child_count,
-            COALESCE(reservation_request.slot_start, reservation_request_set_earliest_child.slot_start) AS slot_start,
-            COALESCE(reservation_request.slot_end, reservation_request_set_earliest_child.slot_end) AS slot_end,
+            COALESCE(reservation_request_summary.slot_start, reservation_request_set_earliest_child.slot_start) AS slot_start,
+            COALESCE(reservation_request_summary.slot_end, reservation_request_set_earliest_child.slot_end) AS slot_end,
             reservation_request_state.allocation_state AS allocation_state,
             reservation_request_state.executable_state AS executable_state,
             reservation_request_state.last_reservation_id AS last_reservation_id,
@@ -336,13 +525,12 @@ FROM (
             reservation_request_active_usage.executable_state AS usage_executable_state,
             reservation_request_earliest_usage.slot_start AS usage_slot_start,
             reservation_request_earliest_usage.slot_end AS usage_slot_end
-        FROM abstract_reservation_request
-        LEFT JOIN allocation AS reused_allocation ON reused_allocation.id = abstract_reservation_request.reused_allocation_id
-        LEFT JOIN reservation_request ON reservation_request.id = abstract_reservation_request.id
-        LEFT JOIN allocation AS parent_allocation ON parent_allocation.id = reservation_request.parent_allocation_id
-        LEFT JOIN reservation_request_set_earliest_child ON reservation_request_set_earliest_child.id = abstract_reservation_request.id
+        FROM reservation_request_summary_cache AS reservation_request_summary
+        LEFT JOIN reservation_request ON reservation_request.id = reservation_request_summary.id
+        LEFT JOIN reservation_request_set_earliest_child ON reservation_request_set_earliest_child.id = reservation_request_summary.id
         LEFT JOIN reservation_request_earliest_usage ON reservation_request_earliest_usage.id = reservation_request.id
-        LEFT JOIN reservation_request_state ON reservation_request_state.id = reservation_request.id OR reservation_request_state.id = reservation_request_set_earliest_child.child_id
+        /* state of single reservation request or of the earliest child of set of reservation requests */
+        LEFT JOIN reservation_request_summary_cache AS reservation_request_state ON reservation_request_state.id = COALESCE(reservation_request.id, reservation_request_set_earliest_child.child_id)
         LEFT JOIN reservation_request_active_usage ON reservation_request_active_usage.id = reservation_request.id OR reservation_request_active_usage.id = reservation_request_set_earliest_child.child_id
     ) AS reservation_request_summary
 ) AS reservation_request_summary;
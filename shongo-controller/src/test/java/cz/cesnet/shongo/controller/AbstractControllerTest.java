@@ -238,11 +238,12 @@ public abstract class AbstractControllerTest extends AbstractDatabaseTest
 
         scheduler = new Scheduler(cache, controller.getNotificationManager());
         scheduler.setAuthorization(authorization);
+        scheduler.setEntityManagerFactory(getEntityManagerFactory());
         scheduler.init(controller.getConfiguration());
 
         controller.addRpcService(new AuthorizationServiceImpl());
         controller.addRpcService(new ResourceServiceImpl(cache));
-        controller.addRpcService(new ReservationServiceImpl(cache));
+        controller.addRpcService(new ReservationServiceImpl(cache, scheduler));
     }
 
     /**
@@ -393,6 +394,45 @@ public abstract class AbstractControllerTest extends AbstractDatabaseTest
         return schedulerResult;
     }
 
+    /**
+     * Run {@link Preprocessor} only for given reservation request sets.
+     *
+     * @param reservationRequestIds identifiers of reservation request sets which should be pre-processed
+     */
+    protected Preprocessor.Result runPreprocessor(Set<Long> reservationRequestIds)
+    {
+        EntityManager entityManager = createEntityManager();
+        Preprocessor.Result result = preprocessor.run(workingInterval, entityManager, reservationRequestIds);
+        entityManager.close();
+        return result;
+    }
+
+    /**
+     * Run {@link Scheduler} only for given reservation requests.
+     *
+     * @param reservationRequestIds identifiers of reservation requests which should be allocated
+     */
+    protected Scheduler.Result runScheduler(Set<Long> reservationRequestIds)
+    {
+        EntityManager entityManager = createEntityManager();
+        schedulerResult = scheduler.run(workingInterval, entityManager, reservationRequestIds);
+        if (notificationExecutionEnabled) {
+            executeNotifications(entityManager);
+        }
+        entityManager.close();
+        return schedulerResult;
+    }
+
+    /**
+     * @return set of identifiers of reservation requests which have been created, modified or deleted since
+     *         the last call (see {@link Scheduler#waitForModifiedReservationRequests})
+     * @throws InterruptedException
+     */
+    protected Set<Long> getModifiedReservationRequestIds() throws InterruptedException
+    {
+        return scheduler.waitForModifiedReservationRequests(0);
+    }
+
     /**
      * Invoke {@link NotificationManager#executeNotifications}
      *
@@ -42,6 +42,11 @@ public abstract class AbstractExecutorTest extends AbstractControllerTest
      */
     private Executor executor;
 
+    /**
+     * @see DeviceStateCache
+     */
+    private DeviceStateCache deviceStateCache = new DeviceStateCache();
+
     /**
      * Constructor.
      */
@@ -62,6 +67,22 @@ public abstract class AbstractExecutorTest extends AbstractControllerTest
         return executor;
     }
 
+    /**
+     * @return {@link #deviceStateCache}
+     */
+    public DeviceStateCache getDeviceStateCache()
+    {
+        return deviceStateCache;
+    }
+
+    /**
+     * @return {@link cz.cesnet.shongo.controller.api.rpc.CommonService} from the {@link #controllerClient}
+     */
+    public CommonService getCommonService()
+    {
+        return getControllerClient().getService(CommonService.class);
+    }
+
     /**
      * @return {@link cz.cesnet.shongo.controller.api.rpc.ResourceControlService} from the {@link #controllerClient}
      */
@@ -88,7 +109,8 @@ public abstract class AbstractExecutorTest extends AbstractControllerTest
         executor = new Executor(controller.getNotificationManager());
 
         RecordingsCache recordingsCache = new RecordingsCache();
-        getController().addRpcService(new ResourceControlServiceImpl(recordingsCache));
+        getController().addRpcService(new CommonServiceImpl(executor));
+        getController().addRpcService(new ResourceControlServiceImpl(recordingsCache, deviceStateCache));
         getController().addRpcService(new ExecutableServiceImpl(executor, recordingsCache));
 
         executor.setEntityManagerFactory(getEntityManagerFactory());
@@ -15,6 +15,7 @@ import org.junit.After;
 import org.junit.Before;
 
 import javax.persistence.EntityManager;
+import java.util.Collections;
 
 /**
  * Tests for {@link cz.cesnet.shongo.controller.booking.compartment.CompartmentReservationTask}.
@@ -94,5 +95,6 @@ public abstract class AbstractSchedulerTest extends AbstractDatabaseTest
         entityManager.getTransaction().begin();
         entityManager.persist(reservation);
         entityManager.getTransaction().commit();
+        cache.updateReservations(Collections.singletonList(reservation));
     }
 }
@@ -103,7 +103,7 @@ public class DatabasePerformanceTest
 
         controller.addRpcService(new AuthorizationServiceImpl());
         controller.addRpcService(new ResourceServiceImpl(cache));
-        controller.addRpcService(new ReservationServiceImpl(cache));
+        controller.addRpcService(new ReservationServiceImpl(cache, scheduler));
 
         controller.start();
         controller.startRpc();
@@ -191,6 +191,12 @@ public class DummyAuthorization extends Authorization
     {
         List<UserInformation> users = new LinkedList<UserInformation>();
         if (filterUserIds != null && filterUserIds.size() > 0) {
+            for (String userId : filterUserIds) {
+                // Authorization server fails for any not existing user
+                if (!userDataById.containsKey(userId)) {
+                    throw new ControllerReportSet.UserNotExistsException(userId);
+                }
+            }
             for (UserData userData : userDataById.values()) {
                 if (filterUserIds.contains(userData.getUserId())) {
                     users.add(userData.getUserInformation());
@@ -202,7 +208,9 @@ public class DummyAuthorization extends Authorization
                 users.add(userData.getUserInformation());
             }
         }
-        UserInformation.filter(users, search);
+        if (search != null) {
+            UserInformation.filter(users, search);
+        }
         List<UserData> userData = new LinkedList<UserData>();
         for (UserInformation user : users) {
             userData.add(userDataById.get(user.getUserId()));
@@ -2,13 +2,17 @@ package cz.cesnet.shongo.controller.api;
 
 import cz.cesnet.shongo.JadeReportSet;
 import cz.cesnet.shongo.Technology;
+import cz.cesnet.shongo.api.CommandStatistics;
 import cz.cesnet.shongo.api.jade.CommandException;
 import cz.cesnet.shongo.api.jade.CommandUnsupportedException;
 import cz.cesnet.shongo.api.Room;
+import cz.cesnet.shongo.api.RoomParticipant;
+import cz.cesnet.shongo.api.RoomSummary;
 import cz.cesnet.shongo.api.jade.Command;
 import cz.cesnet.shongo.connector.api.jade.ConnectorOntology;
 import cz.cesnet.shongo.connector.api.jade.multipoint.CreateRoom;
 import cz.cesnet.shongo.connector.api.jade.multipoint.ListRooms;
+import cz.cesnet.shongo.connector.api.jade.multipoint.ListRoomsParticipants;
 import cz.cesnet.shongo.connector.api.jade.multipoint.ModifyRoom;
 import cz.cesnet.shongo.controller.AbstractControllerTest;
 import cz.cesnet.shongo.controller.ControllerReportSet;
@@ -16,10 +20,16 @@ import cz.cesnet.shongo.controller.api.rpc.RecordingsCache;
 import cz.cesnet.shongo.controller.api.rpc.ResourceControlService;
 import cz.cesnet.shongo.controller.api.rpc.ResourceControlServiceImpl;
 import cz.cesnet.shongo.jade.Agent;
+import cz.cesnet.shongo.jade.CommandResponderBehaviour;
+import cz.cesnet.shongo.util.LatencyHistogram;
 import jade.core.AID;
+import org.joda.time.DateTimeUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
 /**
  * Tests for {@link cz.cesnet.shongo.JadeReport}s,
  *
@@ -94,6 +104,145 @@ public class CommandFailureTest extends AbstractControllerTest
         }
     }
 
+    @Test
+    public void testRefused() throws Exception
+    {
+        DeviceResource deviceResource = new DeviceResource();
+        deviceResource.setName("mcu");
+        deviceResource.addTechnology(Technology.H323);
+        final String mcuId = createResource(deviceResource);
+
+        final CountDownLatch listRoomsStarted = new CountDownLatch(1);
+        final CountDownLatch listRoomsFinish = new CountDownLatch(1);
+        Agent connectorAgent = new Agent()
+        {
+            @Override
+            protected void setup()
+            {
+                addOntology(ConnectorOntology.getInstance());
+                super.setup();
+            }
+
+            @Override
+            public Object handleCommand(Command command, AID sender)
+                    throws CommandException, CommandUnsupportedException
+            {
+                if (command instanceof ListRooms) {
+                    listRoomsStarted.countDown();
+                    try {
+                        listRoomsFinish.await();
+                    }
+                    catch (InterruptedException exception) {
+                        throw new CommandException("interrupted", exception);
+                    }
+                    return new ArrayList<RoomSummary>();
+                }
+                return super.handleCommand(command, sender);
+            }
+        };
+        connectorAgent.setCommandThreadCount(1);
+        connectorAgent.setCommandQueueSize(0);
+        getController().addJadeAgent("mcu", connectorAgent);
+        getController().waitForJadeAgentsToStart();
+
+        long startTime = DateTimeUtils.currentTimeMillis();
+        DateTimeUtils.setCurrentMillisFixed(startTime);
+        try {
+            final List<Exception> exceptions = Collections.synchronizedList(new LinkedList<Exception>());
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        getResourceControlService().listRooms(SECURITY_TOKEN_ROOT, mcuId);
+                    }
+                    catch (Exception exception) {
+                        exceptions.add(exception);
+                    }
+                }
+            };
+            thread.start();
+            listRoomsStarted.await();
+
+            // Second command should be refused, because the first one occupies the only thread
+            try {
+                getResourceControlService().listRooms(SECURITY_TOKEN_ROOT, mcuId);
+                Assert.fail("Command should be refused.");
+            }
+            catch (ControllerReportSet.DeviceCommandFailedException exception) {
+                Assert.assertEquals(JadeReportSet.CommandRefusedReport.class, exception.getJadeReport().getClass());
+            }
+
+            // First command should be performed in 1500 ms
+            DateTimeUtils.setCurrentMillisFixed(startTime + 1500);
+            listRoomsFinish.countDown();
+            thread.join();
+            Assert.assertEquals(0, exceptions.size());
+        }
+        finally {
+            listRoomsFinish.countDown();
+            DateTimeUtils.setCurrentMillisSystem();
+        }
+
+        CommandResponderBehaviour commandResponder = connectorAgent.getCommandResponderBehaviour();
+        Assert.assertEquals(1, commandResponder.getRefusedCount());
+        LatencyHistogram latencyHistogram = commandResponder.getLatencyHistograms().get("ListRooms");
+        Assert.assertEquals(1, latencyHistogram.getCount());
+        Assert.assertEquals(1500, latencyHistogram.getMaxLatency());
+        List<CommandStatistics> commandStatistics = commandResponder.getCommandStatistics();
+        Assert.assertEquals(1, commandStatistics.size());
+        Assert.assertEquals("ListRooms", commandStatistics.get(0).getCommand());
+        Assert.assertEquals(1, commandStatistics.get(0).getCount());
+        Assert.assertEquals(1500, commandStatistics.get(0).getAverageLatency());
+        Assert.assertEquals(5000, commandStatistics.get(0).getPercentileLatency());
+        Assert.assertEquals(1500, commandStatistics.get(0).getMaxLatency());
+    }
+
+    @Test
+    public void testListRoomsParticipants() throws Exception
+    {
+        DeviceResource deviceResource = new DeviceResource();
+        deviceResource.setName("mcu");
+        deviceResource.addTechnology(Technology.H323);
+        String mcuId = createResource(deviceResource);
+
+        getController().addJadeAgent("mcu", new Agent()
+        {
+            @Override
+            protected void setup()
+            {
+                addOntology(ConnectorOntology.getInstance());
+                super.setup();
+            }
+
+            @Override
+            public Object handleCommand(Command command, AID sender)
+                    throws CommandException, CommandUnsupportedException
+            {
+                if (command instanceof ListRoomsParticipants) {
+                    List<RoomParticipant> roomParticipants = new ArrayList<RoomParticipant>();
+                    for (String roomId : ((ListRoomsParticipants) command).getRoomIds()) {
+                        RoomParticipant roomParticipant = new RoomParticipant(roomId + "-participant");
+                        roomParticipant.setRoomId(roomId);
+                        roomParticipants.add(roomParticipant);
+                    }
+                    return roomParticipants;
+                }
+                return super.handleCommand(command, sender);
+            }
+        });
+        getController().waitForJadeAgentsToStart();
+
+        Set<String> roomIds = new HashSet<String>(Arrays.asList("room1", "room2"));
+        Set<String> participantRoomIds = new HashSet<String>();
+        for (RoomParticipant roomParticipant :
+                getResourceControlService().listRoomsParticipants(SECURITY_TOKEN_ROOT, mcuId, roomIds)) {
+            participantRoomIds.add(roomParticipant.getRoomId());
+        }
+        Assert.assertEquals(roomIds, participantRoomIds);
+    }
+
     /**
      * Testing connector agent.
      */
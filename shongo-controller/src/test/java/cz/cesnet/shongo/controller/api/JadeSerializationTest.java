@@ -16,7 +16,9 @@ import cz.cesnet.shongo.controller.api.rpc.ResourceControlService;
 import cz.cesnet.shongo.controller.api.rpc.ResourceControlServiceImpl;
 import cz.cesnet.shongo.TodoImplementException;
 import cz.cesnet.shongo.jade.Agent;
+import jade.content.lang.leap.LEAPCodec;
 import jade.core.AID;
+import jade.domain.FIPANames;
 import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -116,6 +118,46 @@ public class JadeSerializationTest extends AbstractControllerTest
         getResourceControlService().modifyRoom(SECURITY_TOKEN, mcuId, room);
     }
 
+    /**
+     * Test that {@link Command}s are sent in SL to an agent which doesn't understand binary content.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testTextContentFallback() throws Exception
+    {
+        ConnectorAgent mcuAgent = new ConnectorAgent();
+        mcuAgent.setBinaryContentEnabled(false);
+        getController().addJadeAgent("mcu", mcuAgent);
+        getController().waitForJadeAgentsToStart();
+
+        DeviceResource mcu = new DeviceResource();
+        mcu.setName("mcu");
+        mcu.addTechnology(Technology.H323);
+        mcu.addCapability(new RoomProviderCapability(10));
+        mcu.setAllocatable(true);
+        mcu.setMode(new ManagedMode(mcuAgent.getName()));
+        String mcuId = createResource(SECURITY_TOKEN, mcu);
+
+        Room room = new Room();
+        room.addAlias(new Alias(AliasType.ROOM_NAME, "test"));
+        getResourceControlService().createRoom(SECURITY_TOKEN, mcuId, room);
+        Assert.assertEquals(FIPANames.ContentLanguage.FIPA_SL,
+                getController().getAgent().getContentLanguage(mcuAgent.getAID()));
+
+        // Following commands are sent directly in SL
+        room = new Room();
+        room.addAlias(new Alias(AliasType.ROOM_NAME, "test"));
+        getResourceControlService().createRoom(SECURITY_TOKEN, mcuId, room);
+
+        // Binary content is negotiated again after the retry period
+        getController().getAgent().setTextContentRetryPeriod(0);
+        Assert.assertEquals(LEAPCodec.NAME, getController().getAgent().getContentLanguage(mcuAgent.getAID()));
+        room = new Room();
+        room.addAlias(new Alias(AliasType.ROOM_NAME, "test"));
+        getResourceControlService().createRoom(SECURITY_TOKEN, mcuId, room);
+    }
+
     /**
      * Testing connector agent.
      */
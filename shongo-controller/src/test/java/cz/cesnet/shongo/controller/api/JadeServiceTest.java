@@ -4,7 +4,10 @@ import cz.cesnet.shongo.AliasType;
 import cz.cesnet.shongo.PersonInformation;
 import cz.cesnet.shongo.api.jade.CommandException;
 import cz.cesnet.shongo.api.jade.CommandUnsupportedException;
+import cz.cesnet.shongo.api.DeviceLoadInfo;
 import cz.cesnet.shongo.api.Room;
+import cz.cesnet.shongo.api.RoomParticipant;
+import cz.cesnet.shongo.api.RoomSummary;
 import cz.cesnet.shongo.api.UserInformation;
 import cz.cesnet.shongo.api.jade.Command;
 import cz.cesnet.shongo.api.jade.PingCommand;
@@ -14,6 +17,7 @@ import cz.cesnet.shongo.connector.api.jade.endpoint.SetMicrophoneLevel;
 import cz.cesnet.shongo.connector.api.jade.endpoint.Unmute;
 import cz.cesnet.shongo.controller.AbstractExecutorTest;
 import cz.cesnet.shongo.controller.api.jade.*;
+import cz.cesnet.shongo.controller.api.rpc.DeviceStateCache;
 import cz.cesnet.shongo.controller.authorization.Authorization;
 import cz.cesnet.shongo.controller.notification.AbstractNotification;
 import cz.cesnet.shongo.controller.notification.NotificationMessage;
@@ -22,10 +26,14 @@ import cz.cesnet.shongo.controller.notification.NotificationManager;
 import cz.cesnet.shongo.jade.Agent;
 import cz.cesnet.shongo.jade.SendLocalCommand;
 import jade.core.AID;
+import org.joda.time.DateTime;
 import org.junit.Assert;
 import org.junit.Test;
 
 import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests for serializing API classes for JADE.
@@ -55,7 +63,7 @@ public class JadeServiceTest extends AbstractExecutorTest
 
         cz.cesnet.shongo.controller.Controller controller = getController();
         controller.addNotificationExecutor(notificationExecutor);
-        controller.setJadeService(new ServiceImpl(getEntityManagerFactory(), controller.getNotificationManager(),
+        ServiceImpl jadeService = new ServiceImpl(getEntityManagerFactory(), controller.getNotificationManager(),
                 getExecutor(), controller.getAuthorization())
         {
             @Override
@@ -64,7 +72,9 @@ public class JadeServiceTest extends AbstractExecutorTest
                 Assert.assertEquals(ROOM_API.getId(), roomId);
                 return ROOM_API;
             }
-        });
+        };
+        jadeService.setDeviceStateCache(getDeviceStateCache());
+        controller.setJadeService(jadeService);
         controller.startJade();
     }
 
@@ -107,6 +117,131 @@ public class JadeServiceTest extends AbstractExecutorTest
         Assert.assertEquals(2, notificationExecutor.getNotificationCount());
     }
 
+    /**
+     * Test sending a {@link Command} to multiple agents in parallel and asynchronously.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMultipleAgents() throws Exception
+    {
+        cz.cesnet.shongo.controller.Controller controller = getController();
+        controller.addJadeAgent("agent1", new TestAgent());
+        controller.addJadeAgent("agent2", new TestAgent());
+        controller.waitForJadeAgentsToStart();
+
+        cz.cesnet.shongo.controller.ControllerAgent controllerAgent = controller.getAgent();
+        Map<String, SendLocalCommand> sendLocalCommands =
+                controllerAgent.sendCommand(Arrays.asList("agent1", "agent2", "agent3"), new PingCommand());
+        Assert.assertEquals(Arrays.asList("agent1", "agent2", "agent3"),
+                new ArrayList<String>(sendLocalCommands.keySet()));
+        Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, sendLocalCommands.get("agent1").getState());
+        Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, sendLocalCommands.get("agent2").getState());
+        Assert.assertEquals(SendLocalCommand.State.FAILED, sendLocalCommands.get("agent3").getState());
+
+        final CountDownLatch processed = new CountDownLatch(1);
+        SendLocalCommand sendLocalCommand = controllerAgent.sendCommandAsync("agent1", new PingCommand());
+        sendLocalCommand.addListener(new SendLocalCommand.Listener()
+        {
+            @Override
+            public void onProcessed(SendLocalCommand sendLocalCommand)
+            {
+                processed.countDown();
+            }
+        });
+        Assert.assertTrue(processed.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, sendLocalCommand.getState());
+    }
+
+    /**
+     * Test pushing of device state by {@link UpdateDeviceState}s.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testUpdateDeviceState() throws Exception
+    {
+        cz.cesnet.shongo.controller.Controller controller = getController();
+        TestAgent testAgent = controller.addJadeAgent("agent", new TestAgent());
+        controller.waitForJadeAgentsToStart();
+        DeviceStateCache deviceStateCache = getDeviceStateCache();
+
+        // Changes cannot be applied to unknown state
+        UpdateDeviceState updateDeviceState = new UpdateDeviceState(false);
+        updateDeviceState.addDeletedRoomId("1");
+        SendLocalCommand sendLocalCommand = testAgent.sendCommand(getControllerAgentName(), updateDeviceState);
+        Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, sendLocalCommand.getState());
+        Assert.assertEquals(Boolean.TRUE, sendLocalCommand.getResult());
+        Assert.assertNull(deviceStateCache.getRooms("agent"));
+
+        // Push complete state
+        updateDeviceState = new UpdateDeviceState(true);
+        updateDeviceState.addRoom(createRoomSummary("1"));
+        updateDeviceState.addRoom(createRoomSummary("2"));
+        RoomParticipant roomParticipant = new RoomParticipant("1");
+        roomParticipant.setRoomId("1");
+        roomParticipant.setDisplayName("participant");
+        updateDeviceState.addRoomParticipants("1", Arrays.asList(roomParticipant));
+        DeviceLoadInfo deviceLoadInfo = new DeviceLoadInfo();
+        deviceLoadInfo.setCpuLoad(0.5);
+        updateDeviceState.setDeviceLoadInfo(deviceLoadInfo);
+        sendLocalCommand = testAgent.sendCommand(getControllerAgentName(), updateDeviceState);
+        Assert.assertEquals(SendLocalCommand.State.SUCCESSFUL, sendLocalCommand.getState());
+        Assert.assertEquals(Boolean.FALSE, sendLocalCommand.getResult());
+        Assert.assertEquals(2, deviceStateCache.getRooms("agent").size());
+        Assert.assertEquals(1, deviceStateCache.getRoomParticipants("agent", "1").size());
+        Assert.assertNull(deviceStateCache.getRoomParticipants("agent", "2"));
+        Assert.assertEquals(1, deviceStateCache.getRoomParticipants("agent",
+                Collections.singleton("1")).size());
+        Assert.assertNull(deviceStateCache.getRoomParticipants("agent", (Set<String>) null));
+        Assert.assertEquals(0.5, deviceStateCache.getDeviceLoadInfo("agent").getCpuLoad(), 0.0);
+
+        // Push changes
+        updateDeviceState = new UpdateDeviceState(false);
+        updateDeviceState.addDeletedRoomId("1");
+        sendLocalCommand = testAgent.sendCommand(getControllerAgentName(), updateDeviceState);
+        Assert.assertEquals(Boolean.FALSE, sendLocalCommand.getResult());
+        Assert.assertEquals(1, deviceStateCache.getRooms("agent").size());
+        Assert.assertNull(deviceStateCache.getRoomParticipants("agent", "1"));
+
+        // Invalidated state isn't used until the next push
+        deviceStateCache.invalidate("agent");
+        Assert.assertNull(deviceStateCache.getRooms("agent"));
+        sendLocalCommand = testAgent.sendCommand(getControllerAgentName(), new UpdateDeviceState(false));
+        Assert.assertEquals(Boolean.FALSE, sendLocalCommand.getResult());
+        Assert.assertEquals(1, deviceStateCache.getRooms("agent").size());
+
+        // State retrieved before the invalidation is rejected and the complete state is requested
+        DateTime dateTime = DateTime.now().minusMinutes(1);
+        deviceStateCache.invalidate("agent");
+        updateDeviceState = new UpdateDeviceState(false);
+        updateDeviceState.setDateTime(dateTime);
+        sendLocalCommand = testAgent.sendCommand(getControllerAgentName(), updateDeviceState);
+        Assert.assertEquals(Boolean.TRUE, sendLocalCommand.getResult());
+        Assert.assertNull(deviceStateCache.getRooms("agent"));
+        sendLocalCommand = testAgent.sendCommand(getControllerAgentName(), new UpdateDeviceState(false));
+        Assert.assertEquals(Boolean.TRUE, sendLocalCommand.getResult());
+        Assert.assertNull(deviceStateCache.getRooms("agent"));
+        updateDeviceState = new UpdateDeviceState(true);
+        updateDeviceState.setDateTime(DateTime.now());
+        updateDeviceState.addRoom(createRoomSummary("1"));
+        sendLocalCommand = testAgent.sendCommand(getControllerAgentName(), updateDeviceState);
+        Assert.assertEquals(Boolean.FALSE, sendLocalCommand.getResult());
+        Assert.assertEquals(1, deviceStateCache.getRooms("agent").size());
+    }
+
+    /**
+     * @param roomId
+     * @return new {@link RoomSummary}
+     */
+    private static RoomSummary createRoomSummary(String roomId)
+    {
+        RoomSummary roomSummary = new RoomSummary();
+        roomSummary.setId(roomId);
+        roomSummary.setName("room" + roomId);
+        return roomSummary;
+    }
+
     /**
      * Testing {@link Agent}.
      */
@@ -2,16 +2,27 @@ package cz.cesnet.shongo.controller.authorization;
 
 import cz.cesnet.shongo.AliasType;
 import cz.cesnet.shongo.Technology;
+import cz.cesnet.shongo.api.UserInformation;
 import cz.cesnet.shongo.controller.*;
 import cz.cesnet.shongo.controller.api.*;
 import cz.cesnet.shongo.controller.api.request.AclEntryListRequest;
 import cz.cesnet.shongo.controller.api.request.ListResponse;
+import cz.cesnet.shongo.controller.api.request.ResourceListRequest;
+import cz.cesnet.shongo.controller.api.request.UserListRequest;
 import cz.cesnet.shongo.controller.api.rpc.AuthorizationService;
+import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
+import cz.cesnet.shongo.controller.scheduler.Preprocessor;
+import cz.cesnet.shongo.controller.scheduler.Scheduler;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.joda.time.LocalDate;
+import org.joda.time.Period;
 import org.junit.Assert;
 import org.junit.Test;
 
-import java.util.HashSet;
-import java.util.Set;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.*;
 
 /**
  * Tests for creating, updating and deleting {@link cz.cesnet.shongo.controller.api.AclEntry}s.
@@ -33,6 +44,37 @@ public class AuthorizationTest extends AbstractControllerTest
                 service.hasSystemPermission(SECURITY_TOKEN_USER1, SystemPermission.ADMINISTRATION));
     }
 
+    @Test
+    public void testCacheStatistics() throws Exception
+    {
+        AuthorizationService service = getAuthorizationService();
+        service.hasSystemPermission(SECURITY_TOKEN_USER1, SystemPermission.ADMINISTRATION);
+
+        getResourceService().listResources(new ResourceListRequest(SECURITY_TOKEN_USER1));
+
+        int size = 0;
+        int lookupCount = 0;
+        long aclUserStateMemorySize = 0;
+        for (CacheStatistics cacheStatistics : service.listCacheStatistics(SECURITY_TOKEN_ROOT)) {
+            size += cacheStatistics.getSize();
+            lookupCount += cacheStatistics.getHitCount() + cacheStatistics.getMissCount();
+            if (cacheStatistics.getName().equals("aclUserState")) {
+                Assert.assertTrue(cacheStatistics.getMemorySizeByKey().containsKey(getUserId(SECURITY_TOKEN_USER1)));
+                aclUserStateMemorySize = cacheStatistics.getMemorySize();
+            }
+        }
+        Assert.assertTrue(size > 0);
+        Assert.assertTrue(lookupCount > 0);
+        Assert.assertTrue(aclUserStateMemorySize > 0);
+
+        try {
+            service.listCacheStatistics(SECURITY_TOKEN_USER1);
+            Assert.fail("Not authorized exception should be thrown.");
+        }
+        catch (ControllerReportSet.SecurityNotAuthorizedException exception) {
+        }
+    }
+
     @Test
     public void testGroups() throws Exception
     {
@@ -59,6 +101,64 @@ public class AuthorizationTest extends AbstractControllerTest
         getResourceService().getResource(SECURITY_TOKEN_USER1, resourceId);
     }
 
+    /**
+     * Test that the ACL sub-query selects the same entities as the identifiers from the cached ACL user state.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testEntitiesWithPermissionQuery() throws Exception
+    {
+        AuthorizationService authorizationService = getAuthorizationService();
+        String groupId = authorizationService.createGroup(SECURITY_TOKEN_ROOT, new Group("test", Group.Type.USER));
+
+        // Resource owned by user1 and readable by user2, resource owned by the group and resource without users
+        String resource1Id = createResource(SECURITY_TOKEN_USER1, createAllocatableResource("resource1"));
+        authorizationService.createAclEntry(SECURITY_TOKEN_USER1,
+                new AclEntry(getUserId(SECURITY_TOKEN_USER2), resource1Id, ObjectRole.READER));
+        String resource2Id = createResource(createAllocatableResource("resource2"));
+        authorizationService.createAclEntry(SECURITY_TOKEN_ROOT,
+                new AclEntry(AclIdentityType.GROUP, groupId, resource2Id, ObjectRole.OWNER));
+        createResource(createAllocatableResource("resource3"));
+
+        // Owner, reader and non-member of the group
+        checkEntitiesWithPermissionQuery(SECURITY_TOKEN_USER1, resource1Id);
+        checkEntitiesWithPermissionQuery(SECURITY_TOKEN_USER2, resource1Id);
+        checkEntitiesWithPermissionQuery(SECURITY_TOKEN_USER3);
+
+        // Member of the group
+        authorizationService.addGroupUser(SECURITY_TOKEN_ROOT, groupId, getUserId(SECURITY_TOKEN_USER3));
+        getAuthorization().clearCache();
+        checkEntitiesWithPermissionQuery(SECURITY_TOKEN_USER3, resource2Id);
+
+        // Requested resources
+        ResourceListRequest request = new ResourceListRequest(SECURITY_TOKEN_USER2);
+        request.addResourceId(resource1Id);
+        request.addResourceId(resource2Id);
+        ListResponse<ResourceSummary> response = getResourceService().listResources(request);
+        Assert.assertEquals(1, response.getItemCount());
+        Assert.assertEquals(resource1Id, response.getItem(0).getId());
+    }
+
+    @Test
+    public void testListUsers() throws Exception
+    {
+        AuthorizationService authorization = getAuthorizationService();
+
+        UserListRequest request = new UserListRequest(SECURITY_TOKEN_USER1);
+        request.addUserId("1");
+        request.addUserId("2");
+        request.addUserId("unknown");
+        ListResponse<UserInformation> response = authorization.listUsers(request);
+        Assert.assertEquals(2, response.getItemCount());
+
+        // Users should be also filtered by search
+        request.setSearch("test2");
+        response = authorization.listUsers(request);
+        Assert.assertEquals(1, response.getItemCount());
+        Assert.assertEquals("2", response.getItem(0).getUserId());
+    }
+
     @Test
     public void testResource() throws Exception
     {
@@ -145,6 +245,46 @@ public class AuthorizationTest extends AbstractControllerTest
         Assert.assertEquals(aclEntries, getAclEntries());
     }
 
+    @Test
+    public void testReservationRequestSet() throws Exception
+    {
+        String user2Id = getUserId(SECURITY_TOKEN_USER2);
+
+        Resource resource = new Resource();
+        resource.setName("resource");
+        resource.setAllocatable(true);
+        String resourceId = createResource(SECURITY_TOKEN, resource);
+
+        ReservationRequestSet reservationRequest = new ReservationRequestSet();
+        reservationRequest.addSlot(new PeriodicDateTimeSlot(
+                DateTime.parse("2012-01-02T14:30"), Period.parse("PT4H"),
+                Period.parse("P1W"), LocalDate.parse("2012-01-29")));
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(new ResourceSpecification(resourceId));
+        String reservationRequestId = getReservationService().createReservationRequest(
+                SECURITY_TOKEN, reservationRequest);
+        getAuthorizationService().createAclEntry(SECURITY_TOKEN,
+                new AclEntry(user2Id, reservationRequestId, ObjectRole.READER));
+
+        Interval interval = new Interval(DateTime.parse("2012-01-01T00:00"), DateTime.parse("2012-02-01T00:00"));
+        Preprocessor.Result preprocessorResult = runPreprocessor(interval);
+        Scheduler.Result schedulerResult = runScheduler(interval);
+        Assert.assertEquals(4, preprocessorResult.getCreatedReservationRequests());
+        Assert.assertEquals(4, schedulerResult.getAllocatedReservationRequests());
+        Assert.assertTrue(preprocessorResult.getAclPropagationDuration() >= 0);
+        Assert.assertTrue(schedulerResult.getAclPropagationDuration() >= 0);
+
+        // Set, child reservation requests and their reservations
+        ListResponse<AclEntry> aclEntries = getAuthorizationService().listAclEntries(
+                new AclEntryListRequest(SECURITY_TOKEN_ROOT, user2Id));
+        Assert.assertEquals(9, aclEntries.getItemCount());
+
+        deleteAclEntry(user2Id, reservationRequestId, ObjectRole.READER);
+
+        aclEntries = getAuthorizationService().listAclEntries(new AclEntryListRequest(SECURITY_TOKEN_ROOT, user2Id));
+        Assert.assertEquals(0, aclEntries.getItemCount());
+    }
+
     @Test
     public void testMultipleReservationRequest() throws Exception
     {
@@ -249,4 +389,68 @@ public class AuthorizationTest extends AbstractControllerTest
                 new AclEntryListRequest(SECURITY_TOKEN, getUserId(SECURITY_TOKEN)));
         return new HashSet<AclEntry>(aclEntries.getItems());
     }
+
+    /**
+     * Check that {@link Authorization#getEntitiesWithPermissionQuery}, {@link Authorization#getEntitiesWithPermission}
+     * and listing of resources select given {@code resourceIds} as readable for given {@code securityToken}.
+     *
+     * @param securityToken
+     * @param resourceIds
+     */
+    private void checkEntitiesWithPermissionQuery(SecurityToken securityToken, String... resourceIds)
+    {
+        Set<Long> expectedResourceIds = new HashSet<Long>();
+        for (String resourceId : resourceIds) {
+            expectedResourceIds.add(ObjectIdentifier.parseId(resourceId, ObjectType.RESOURCE));
+        }
+        Authorization authorization = getAuthorization();
+        authorization.validate(securityToken);
+        Class<cz.cesnet.shongo.controller.booking.resource.Resource> resourceClass =
+                cz.cesnet.shongo.controller.booking.resource.Resource.class;
+
+        // Identifier list
+        Assert.assertEquals(expectedResourceIds, new HashSet<Long>(
+                authorization.getEntitiesWithPermission(securityToken, resourceClass, ObjectPermission.READ)));
+
+        // Sub-query
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        String query = authorization.getEntitiesWithPermissionQuery(securityToken, resourceClass,
+                ObjectPermission.READ, parameters);
+        EntityManager entityManager = createEntityManager();
+        try {
+            Query nativeQuery = entityManager.createNativeQuery(
+                    "SELECT resource.id FROM resource WHERE resource.id IN (" + query + ")");
+            for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+                nativeQuery.setParameter(parameter.getKey(), parameter.getValue());
+            }
+            Set<Long> queryResourceIds = new HashSet<Long>();
+            for (Object resourceId : nativeQuery.getResultList()) {
+                queryResourceIds.add(((Number) resourceId).longValue());
+            }
+            Assert.assertEquals(expectedResourceIds, queryResourceIds);
+        }
+        finally {
+            entityManager.close();
+        }
+
+        // Listed resources
+        Set<String> listedResourceIds = new HashSet<String>();
+        for (ResourceSummary resourceSummary : getResourceService().listResources(
+                new ResourceListRequest(securityToken))) {
+            listedResourceIds.add(resourceSummary.getId());
+        }
+        Assert.assertEquals(new HashSet<String>(Arrays.asList(resourceIds)), listedResourceIds);
+    }
+
+    /**
+     * @param name
+     * @return new allocatable {@link Resource} with given {@code name}
+     */
+    private static Resource createAllocatableResource(String name)
+    {
+        Resource resource = new Resource();
+        resource.setName(name);
+        resource.setAllocatable(true);
+        return resource;
+    }
 }
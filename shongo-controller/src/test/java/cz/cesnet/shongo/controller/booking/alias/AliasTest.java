@@ -11,6 +11,7 @@ import cz.cesnet.shongo.controller.api.AliasProviderCapability;
 import cz.cesnet.shongo.controller.api.AliasReservation;
 import cz.cesnet.shongo.controller.api.AliasSetSpecification;
 import cz.cesnet.shongo.controller.api.AliasSpecification;
+import org.joda.time.Interval;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -396,4 +397,40 @@ public class AliasTest extends AbstractControllerTest
         cz.cesnet.shongo.controller.api.AliasReservation aliasReservation = (AliasReservation) allocateAndCheck(reservationRequest);
         Assert.assertEquals("Room name alias for H.323 or SIP should be allocated.", "test", aliasReservation.getValue());
     }
+
+    /**
+     * Test fill level of value providers in {@link ResourceAllocation}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testValueProviderAllocation() throws Exception
+    {
+        Resource aliasProvider = new Resource();
+        aliasProvider.setName("aliasProvider");
+        aliasProvider.setAllocatable(true);
+        aliasProvider.addCapability(new AliasProviderCapability("95{digit:1}", AliasType.H323_E164));
+        String aliasProviderId = createResource(aliasProvider);
+
+        for (int index = 0; index < 2; index++) {
+            ReservationRequest reservationRequest = new ReservationRequest();
+            reservationRequest.setSlot("2012-01-01T00:00", "P1Y");
+            reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+            reservationRequest.setSpecification(new AliasSpecification(AliasType.H323_E164));
+            allocateAndCheck(reservationRequest);
+        }
+
+        ResourceAllocation resourceAllocation = getResourceService().getResourceAllocation(
+                SECURITY_TOKEN_ROOT, aliasProviderId, Interval.parse("2012-01-01T00:00/P1Y"));
+        List<ValueProviderAllocation> valueProviderAllocations = resourceAllocation.getValueProviderAllocations();
+        Assert.assertEquals(1, valueProviderAllocations.size());
+        ValueProviderAllocation valueProviderAllocation = valueProviderAllocations.get(0);
+        Assert.assertEquals(9, valueProviderAllocation.getMaximumValueCount());
+        Assert.assertEquals(2, valueProviderAllocation.getUsedValueCount());
+        Assert.assertEquals(2.0 / 9.0, valueProviderAllocation.getFillLevel(), 0.0);
+
+        // Fill level is limited to 1.0
+        valueProviderAllocation.setUsedValueCount(10);
+        Assert.assertEquals(1.0, valueProviderAllocation.getFillLevel(), 0.0);
+    }
 }
@@ -88,6 +88,51 @@ public class ExecutableTest extends AbstractExecutorTest
             }}, mcuAgent.getPerformedCommandClasses());
     }
 
+    /**
+     * Test that {@link ExecutionStatistics} of performed actions are listed for the managed device.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testExecutionStatistics() throws Exception
+    {
+        McuTestAgent mcuAgent = getController().addJadeAgent("mcu", new McuTestAgent());
+
+        DateTime dateTime = DateTime.parse("2012-01-01T12:00");
+        Period duration = Period.parse("PT2M");
+
+        DeviceResource mcu = new DeviceResource();
+        mcu.setName("mcu");
+        mcu.addTechnology(Technology.H323);
+        mcu.addCapability(new RoomProviderCapability(10));
+        mcu.setAllocatable(true);
+        mcu.setMode(new ManagedMode(mcuAgent.getName()));
+        String mcuId = createResource(mcu);
+
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot(dateTime, duration);
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(new RoomSpecification(5, Technology.H323));
+        allocateAndCheck(reservationRequest);
+
+        // Start and stop virtual room
+        runExecutor(dateTime);
+        runExecutor(dateTime.plus(duration));
+
+        ExecutionStatistics executionStatistics = null;
+        for (Connector connector : getCommonService().listConnectors(SECURITY_TOKEN)) {
+            if (mcuId.equals(connector.getResourceId())) {
+                executionStatistics = connector.getExecutionStatistics();
+            }
+        }
+        Assert.assertNotNull(executionStatistics);
+        Assert.assertEquals(2, executionStatistics.getCompletedCount());
+        Assert.assertEquals(0, executionStatistics.getWaitingCount());
+        Assert.assertEquals(0, executionStatistics.getRunningCount());
+        Assert.assertTrue(executionStatistics.getMaxExecutionDuration()
+                >= executionStatistics.getAverageExecutionDuration());
+    }
+
     /**
      * Allocate {@link cz.cesnet.shongo.controller.api.CompartmentExecutable} and execute it.
      *
@@ -1,6 +1,7 @@
 package cz.cesnet.shongo.controller.booking.request;
 
 import cz.cesnet.shongo.AliasType;
+import cz.cesnet.shongo.CommonReportSet;
 import cz.cesnet.shongo.Technology;
 import cz.cesnet.shongo.Temporal;
 import cz.cesnet.shongo.api.H323RoomSetting;
@@ -442,6 +443,84 @@ public class ReservationRequestManagementTest extends AbstractControllerTest
                 response.getItem(2).getSpecificationType());
     }
 
+    /**
+     * Test listing reservation requests by cursors.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testListReservationRequestsByCursor() throws Exception
+    {
+        for (int index = 0; index < 5; index++) {
+            ReservationRequest request = new ReservationRequest();
+            request.setDescription("request " + (index + 1));
+            request.setSlot("2012-01-01T12:00", "PT2H");
+            request.setPurpose(ReservationRequestPurpose.SCIENCE);
+            request.setSpecification(new RoomSpecification(5, Technology.H323));
+            getReservationService().createReservationRequest(SECURITY_TOKEN, request);
+        }
+
+        ReservationRequestListRequest request = new ReservationRequestListRequest();
+        request.setSecurityToken(SECURITY_TOKEN);
+        request.setCount(2);
+
+        ListResponse<ReservationRequestSummary> response;
+
+        response = getReservationService().listReservationRequests(request);
+        Assert.assertEquals(5, response.getCount());
+        Assert.assertEquals(2, response.getItemCount());
+        Assert.assertEquals("request 1", response.getItem(0).getDescription());
+        Assert.assertNotNull(response.getNextCursor());
+
+        request.setCursor(response.getNextCursor());
+        response = getReservationService().listReservationRequests(request);
+        Assert.assertEquals(5, response.getCount());
+        Assert.assertEquals(2, response.getStart());
+        Assert.assertEquals(2, response.getItemCount());
+        Assert.assertEquals("request 3", response.getItem(0).getDescription());
+        Assert.assertEquals("request 4", response.getItem(1).getDescription());
+
+        request.setCursor(response.getNextCursor());
+        response = getReservationService().listReservationRequests(request);
+        Assert.assertEquals(1, response.getItemCount());
+        Assert.assertEquals("request 5", response.getItem(0).getDescription());
+        Assert.assertNull(response.getNextCursor());
+
+        // Descending by date/time without counting
+        request.setCursor(null);
+        request.setCountEnabled(false);
+        request.setSort(ReservationRequestListRequest.Sort.DATETIME);
+        request.setSortDescending(true);
+        response = getReservationService().listReservationRequests(request);
+        Assert.assertEquals(3, response.getCount());
+        Assert.assertEquals("request 5", response.getItem(0).getDescription());
+        Assert.assertEquals("request 4", response.getItem(1).getDescription());
+
+        request.setCursor(response.getNextCursor());
+        response = getReservationService().listReservationRequests(request);
+        Assert.assertEquals("request 3", response.getItem(0).getDescription());
+        Assert.assertEquals("request 2", response.getItem(1).getDescription());
+
+        request.setCursor(response.getNextCursor());
+        response = getReservationService().listReservationRequests(request);
+        Assert.assertEquals(5, response.getCount());
+        Assert.assertEquals(1, response.getItemCount());
+        Assert.assertEquals("request 1", response.getItem(0).getDescription());
+        Assert.assertNull(response.getNextCursor());
+
+        // Invalid cursors
+        for (String invalidCursor : new String[]{"invalid", "-1", "2:invalid"}) {
+            request.setCursor(invalidCursor);
+            try {
+                getReservationService().listReservationRequests(request);
+                Assert.fail("Invalid cursor should be reported.");
+            }
+            catch (CommonReportSet.TypeIllegalValueException exception) {
+                Assert.assertEquals(invalidCursor, exception.getValue());
+            }
+        }
+    }
+
     /**
      * Test listing reservation requests based on {@link Technology} of
      * {@link cz.cesnet.shongo.controller.api.AliasSpecification},
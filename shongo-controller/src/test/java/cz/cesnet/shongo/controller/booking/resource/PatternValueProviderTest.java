@@ -188,4 +188,38 @@ public class PatternValueProviderTest
         catch (ValueProvider.InvalidValueException exception) {
         }
     }
+
+    @Test
+    public void testValueCount() throws Exception
+    {
+        PatternValueProvider generator = new PatternValueProvider();
+        generator.addPattern("950{digit:1}00{digit:1}");
+        generator.addPattern("{number:050:120}");
+        generator.addPattern("9501");
+        Assert.assertEquals(99 + 71 + 1, generator.getValueCount());
+        Set<String> usedValues = new HashSet<String>();
+        usedValues.add("9500001");
+        usedValues.add("050");
+        usedValues.add("50");
+        usedValues.add("9501");
+        usedValues.add("other");
+        Assert.assertEquals(3, generator.getUsedValueCount(usedValues));
+
+        generator = new PatternValueProvider(null, "{hash}");
+        Assert.assertEquals(-1, generator.getValueCount());
+    }
+
+    @Test
+    public void testNearlyFullRange() throws Exception
+    {
+        PatternValueProvider generator = new PatternValueProvider(null, "420{number:1000:9999}");
+        Set<String> usedValues = new HashSet<String>();
+        for (int index = 1000; index < 9900; index++) {
+            if (index != 5432) {
+                usedValues.add("420" + index);
+            }
+        }
+        Assert.assertEquals("4205432", generator.generateAddedValue(usedValues));
+        Assert.assertEquals("4209900", generator.generateAddedValue(usedValues));
+    }
 }
@@ -0,0 +1,84 @@
+package cz.cesnet.shongo.controller.executor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link ExecutionPool}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class ExecutionPoolTest
+{
+    /**
+     * Destroying of the {@link ExecutionPool} must release the {@link ExecutionPlan} which waits for
+     * {@link ExecutionAction}s queued for a busy device.
+     */
+    @Test
+    public void testDestroy() throws Exception
+    {
+        final CountDownLatch startedLatch = new CountDownLatch(1);
+        final AtomicInteger performedCount = new AtomicInteger();
+        final ExecutionPlan executionPlan = new ExecutionPlan(null);
+        for (int index = 0; index < 3; index++) {
+            executionPlan.addExecutionAction(new ExecutionAction.StartExecutableAction(
+                    new ExecutionPlanTest.SimpleExecutable())
+            {
+                @Override
+                public Long getDeviceResourceId()
+                {
+                    return 1l;
+                }
+
+                @Override
+                public void run()
+                {
+                    try {
+                        performedCount.incrementAndGet();
+                        startedLatch.countDown();
+                        Thread.sleep(Long.MAX_VALUE);
+                    }
+                    catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally {
+                        executionPlan.removeExecutionAction(this);
+                    }
+                }
+            });
+        }
+        executionPlan.build();
+
+        // Perform the plan (only one action can be performed for the device at the same time)
+        final ExecutionPool executionPool = new ExecutionPool(2, 1);
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    while (!executionPlan.isEmpty()) {
+                        for (ExecutionAction executionAction : executionPlan.waitForExecutionActions()) {
+                            executionPool.execute(executionAction);
+                        }
+                    }
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        thread.start();
+        Assert.assertTrue(startedLatch.await(10, TimeUnit.SECONDS));
+
+        executionPool.destroy();
+        thread.join(10000);
+        Assert.assertFalse(thread.isAlive());
+        Assert.assertTrue(executionPlan.isEmpty());
+        Assert.assertEquals(1, performedCount.get());
+    }
+}
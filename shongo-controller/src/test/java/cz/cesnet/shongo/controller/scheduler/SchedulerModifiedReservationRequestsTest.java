@@ -0,0 +1,132 @@
+package cz.cesnet.shongo.controller.scheduler;
+
+import cz.cesnet.shongo.Technology;
+import cz.cesnet.shongo.controller.AbstractControllerTest;
+import cz.cesnet.shongo.controller.ObjectType;
+import cz.cesnet.shongo.controller.ReservationRequestPurpose;
+import cz.cesnet.shongo.controller.api.*;
+import cz.cesnet.shongo.controller.booking.ObjectIdentifier;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Tests for allocation of only modified reservation requests by {@link Scheduler}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class SchedulerModifiedReservationRequestsTest extends AbstractControllerTest
+{
+    /**
+     * Test that a modification of reservation request causes allocation only of the modified reservation request.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void test() throws Exception
+    {
+        DeviceResource mcu = new DeviceResource();
+        mcu.setName("mcu");
+        mcu.addTechnology(Technology.H323);
+        mcu.addCapability(new RoomProviderCapability(10));
+        mcu.setAllocatable(true);
+        createResource(mcu);
+
+        String request1Id = getReservationService().createReservationRequest(SECURITY_TOKEN,
+                createRoomReservationRequest());
+        String request2Id = getReservationService().createReservationRequest(SECURITY_TOKEN,
+                createRoomReservationRequest());
+        Long request1PersistenceId = ObjectIdentifier.parseId(request1Id, ObjectType.RESERVATION_REQUEST);
+        Long request2PersistenceId = ObjectIdentifier.parseId(request2Id, ObjectType.RESERVATION_REQUEST);
+        Set<Long> modifiedReservationRequestIds = getModifiedReservationRequestIds();
+        Assert.assertTrue(modifiedReservationRequestIds.contains(request1PersistenceId));
+        Assert.assertTrue(modifiedReservationRequestIds.contains(request2PersistenceId));
+        Assert.assertTrue(getModifiedReservationRequestIds().isEmpty());
+
+        // Only the first reservation request should be allocated
+        Scheduler.Result result = runScheduler(Collections.singleton(request1PersistenceId));
+        Assert.assertEquals(1, result.getAllocatedReservationRequests());
+        Assert.assertEquals(AllocationState.ALLOCATED,
+                getReservationRequest(request1Id, ReservationRequest.class).getAllocationState());
+        Assert.assertEquals(AllocationState.NOT_ALLOCATED,
+                getReservationRequest(request2Id, ReservationRequest.class).getAllocationState());
+
+        // Modification of the first reservation request should allocate only the new version of it
+        ReservationRequest request1 = getReservationRequest(request1Id, ReservationRequest.class);
+        request1.setDescription("modified");
+        request1Id = getReservationService().modifyReservationRequest(SECURITY_TOKEN, request1);
+        modifiedReservationRequestIds = getModifiedReservationRequestIds();
+        Assert.assertEquals(Collections.singleton(ObjectIdentifier.parseId(request1Id, ObjectType.RESERVATION_REQUEST)),
+                modifiedReservationRequestIds);
+        result = runScheduler(modifiedReservationRequestIds);
+        Assert.assertEquals(1, result.getAllocatedReservationRequests());
+        Assert.assertEquals(AllocationState.ALLOCATED,
+                getReservationRequest(request1Id, ReservationRequest.class).getAllocationState());
+        Assert.assertEquals(AllocationState.NOT_ALLOCATED,
+                getReservationRequest(request2Id, ReservationRequest.class).getAllocationState());
+
+        // The periodic run should allocate the rest
+        result = runScheduler();
+        Assert.assertEquals(1, result.getAllocatedReservationRequests());
+        Assert.assertEquals(AllocationState.ALLOCATED,
+                getReservationRequest(request2Id, ReservationRequest.class).getAllocationState());
+    }
+
+    /**
+     * Test that a reservation request set is pre-processed and allocated only when it is modified.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSet() throws Exception
+    {
+        DeviceResource mcu = new DeviceResource();
+        mcu.setName("mcu");
+        mcu.addTechnology(Technology.H323);
+        mcu.addCapability(new RoomProviderCapability(10));
+        mcu.setAllocatable(true);
+        createResource(mcu);
+
+        ReservationRequestSet reservationRequestSet = new ReservationRequestSet();
+        reservationRequestSet.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequestSet.addSlot("2012-06-22T14:00", "PT2H");
+        reservationRequestSet.addSlot("2012-06-23T14:00", "PT2H");
+        reservationRequestSet.setSpecification(createRoomSpecification());
+        String setId = getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequestSet);
+        String requestId = getReservationService().createReservationRequest(SECURITY_TOKEN,
+                createRoomReservationRequest());
+        Long setPersistenceId = ObjectIdentifier.parseId(setId, ObjectType.RESERVATION_REQUEST);
+        getModifiedReservationRequestIds();
+
+        // Child reservation requests of the set should be allocated, but not the other reservation request
+        Set<Long> reservationRequestIds = Collections.singleton(setPersistenceId);
+        Assert.assertEquals(2, runPreprocessor(reservationRequestIds).getCreatedReservationRequests());
+        Assert.assertEquals(2, runScheduler(reservationRequestIds).getAllocatedReservationRequests());
+        Assert.assertEquals(AllocationState.NOT_ALLOCATED,
+                getReservationRequest(requestId, ReservationRequest.class).getAllocationState());
+    }
+
+    /**
+     * @return new {@link ReservationRequest} for a room
+     */
+    private ReservationRequest createRoomReservationRequest()
+    {
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot("2012-06-22T14:00", "PT2H");
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setSpecification(createRoomSpecification());
+        return reservationRequest;
+    }
+
+    /**
+     * @return new {@link RoomSpecification}
+     */
+    private RoomSpecification createRoomSpecification()
+    {
+        RoomSpecification roomSpecification = new RoomSpecification(2);
+        roomSpecification.createEstablishment().addTechnology(Technology.H323);
+        return roomSpecification;
+    }
+}
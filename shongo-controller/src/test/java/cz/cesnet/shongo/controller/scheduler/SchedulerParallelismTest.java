@@ -0,0 +1,217 @@
+package cz.cesnet.shongo.controller.scheduler;
+
+import cz.cesnet.shongo.Technology;
+import cz.cesnet.shongo.controller.AbstractControllerTest;
+import cz.cesnet.shongo.controller.ControllerConfiguration;
+import cz.cesnet.shongo.controller.ReservationRequestPurpose;
+import cz.cesnet.shongo.controller.api.*;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for allocation of reservation requests by {@link Scheduler} in parallel.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class SchedulerParallelismTest extends AbstractControllerTest
+{
+    @Override
+    public void configureSystemProperties()
+    {
+        super.configureSystemProperties();
+
+        System.setProperty(ControllerConfiguration.WORKER_SCHEDULER_PARALLELISM, "4");
+    }
+
+    @Override
+    public void before() throws Exception
+    {
+        super.before();
+
+        // Parallel allocation requires concurrent transactions
+        setTransactionControl("MVCC");
+    }
+
+    @Override
+    public void after() throws Exception
+    {
+        super.after();
+
+        setTransactionControl("LOCKS");
+        System.clearProperty(ControllerConfiguration.WORKER_SCHEDULER_PARALLELISM);
+    }
+
+    /**
+     * @param transactionControl to be set to the test database
+     */
+    private void setTransactionControl(String transactionControl)
+    {
+        EntityManager entityManager = createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            entityManager.createNativeQuery("SET DATABASE TRANSACTION CONTROL " + transactionControl).executeUpdate();
+            entityManager.getTransaction().commit();
+        }
+        finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Test that conflicting reservation requests are allocated as they would be allocated sequentially.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void test() throws Exception
+    {
+        List<String> mcuIds = new LinkedList<String>();
+        for (int index = 1; index <= 3; index++) {
+            DeviceResource mcu = new DeviceResource();
+            mcu.setName("mcu" + index);
+            mcu.addTechnology(Technology.H323);
+            mcu.addCapability(new RoomProviderCapability(10));
+            mcu.setAllocatable(true);
+            mcuIds.add(createResource(mcu));
+        }
+
+        List<String> reservationRequestIds = new LinkedList<String>();
+        for (int index = 0; index < 8; index++) {
+            ReservationRequest reservationRequest = new ReservationRequest();
+            reservationRequest.setSlot("2012-06-22T14:00", "PT2H");
+            reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+            RoomSpecification roomSpecification = new RoomSpecification(4);
+            RoomEstablishment roomEstablishment = roomSpecification.createEstablishment();
+            roomEstablishment.addTechnology(Technology.H323);
+            roomEstablishment.setResourceId(mcuIds.get(index % mcuIds.size()));
+            reservationRequest.setSpecification(roomSpecification);
+            reservationRequestIds.add(getReservationService().createReservationRequest(SECURITY_TOKEN,
+                    reservationRequest));
+        }
+
+        Scheduler.Result result = runScheduler();
+        Assert.assertEquals(6, result.getAllocatedReservationRequests());
+        Assert.assertEquals(2, result.getFailedReservationRequests());
+
+        Map<String, Integer> licenseCountByMcuId = new HashMap<String, Integer>();
+        for (String reservationRequestId : reservationRequestIds) {
+            ReservationRequest reservationRequest = getReservationRequest(reservationRequestId, ReservationRequest.class);
+            if (!AllocationState.ALLOCATED.equals(reservationRequest.getAllocationState())) {
+                continue;
+            }
+            RoomReservation reservation = (RoomReservation) checkAllocated(reservationRequestId);
+            Integer licenseCount = licenseCountByMcuId.get(reservation.getResourceId());
+            licenseCountByMcuId.put(reservation.getResourceId(),
+                    (licenseCount != null ? licenseCount : 0) + reservation.getLicenseCount());
+        }
+        for (Integer licenseCount : licenseCountByMcuId.values()) {
+            Assert.assertTrue("Room provider should not be overbooked.", licenseCount <= 10);
+        }
+    }
+
+    /**
+     * Test that earlier reservation requests from the queue (by priority) win the competition for the same capacity
+     * as they would win it in sequential allocation.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPriority() throws Exception
+    {
+        DeviceResource mcu1 = new DeviceResource();
+        mcu1.setName("mcu1");
+        mcu1.addTechnology(Technology.H323);
+        mcu1.addCapability(new RoomProviderCapability(10));
+        mcu1.setAllocatable(true);
+        String mcu1Id = createResource(mcu1);
+
+        DeviceResource mcu2 = new DeviceResource();
+        mcu2.setName("mcu2");
+        mcu2.addTechnology(Technology.H323);
+        mcu2.addCapability(new RoomProviderCapability(10));
+        mcu2.setAllocatable(true);
+        String mcu2Id = createResource(mcu2);
+
+        // Lower priority requests are created before the higher priority request
+        List<String> lowPriorityRequestIds = new LinkedList<String>();
+        for (int index = 0; index < 4; index++) {
+            lowPriorityRequestIds.add(createRoomReservationRequest(mcu1Id, 6, 0));
+        }
+        String independentRequestId = createRoomReservationRequest(mcu2Id, 6, 0);
+        String highPriorityRequestId = createRoomReservationRequest(mcu1Id, 6, 1);
+
+        Scheduler.Result result = runScheduler();
+        Assert.assertEquals(2, result.getAllocatedReservationRequests());
+        Assert.assertEquals(4, result.getFailedReservationRequests());
+
+        checkAllocated(highPriorityRequestId);
+        checkAllocated(independentRequestId);
+        for (String lowPriorityRequestId : lowPriorityRequestIds) {
+            checkAllocationFailed(lowPriorityRequestId);
+        }
+    }
+
+    /**
+     * Test that a later reservation request which doesn't compete for the same resources is allocated in parallel
+     * even when an earlier reservation request fails.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testIndependentAfterFailure() throws Exception
+    {
+        DeviceResource mcu1 = new DeviceResource();
+        mcu1.setName("mcu1");
+        mcu1.addTechnology(Technology.H323);
+        mcu1.addCapability(new RoomProviderCapability(10));
+        mcu1.setAllocatable(true);
+        String mcu1Id = createResource(mcu1);
+
+        DeviceResource mcu2 = new DeviceResource();
+        mcu2.setName("mcu2");
+        mcu2.addTechnology(Technology.H323);
+        mcu2.addCapability(new RoomProviderCapability(10));
+        mcu2.setAllocatable(true);
+        String mcu2Id = createResource(mcu2);
+
+        // The earlier reservation request requires more licenses than available
+        String failingRequestId = createRoomReservationRequest(mcu1Id, 20, 1);
+        String independentRequestId = createRoomReservationRequest(mcu2Id, 6, 0);
+
+        Scheduler.Result result = runScheduler();
+        Assert.assertEquals(1, result.getAllocatedReservationRequests());
+        Assert.assertEquals(1, result.getParallelAllocatedReservationRequests());
+        Assert.assertEquals(1, result.getFailedReservationRequests());
+
+        checkAllocationFailed(failingRequestId);
+        checkAllocated(independentRequestId);
+    }
+
+    /**
+     * @param mcuId        for the room
+     * @param licenseCount for the room
+     * @param priority     of the reservation request
+     * @return identifier of new {@link ReservationRequest} for a room
+     * @throws Exception
+     */
+    private String createRoomReservationRequest(String mcuId, int licenseCount, int priority) throws Exception
+    {
+        ReservationRequest reservationRequest = new ReservationRequest();
+        reservationRequest.setSlot("2012-06-22T14:00", "PT2H");
+        reservationRequest.setPurpose(ReservationRequestPurpose.SCIENCE);
+        reservationRequest.setPriority(priority);
+        RoomSpecification roomSpecification = new RoomSpecification(licenseCount);
+        RoomEstablishment roomEstablishment = roomSpecification.createEstablishment();
+        roomEstablishment.addTechnology(Technology.H323);
+        roomEstablishment.setResourceId(mcuId);
+        reservationRequest.setSpecification(roomSpecification);
+        return getReservationService().createReservationRequest(SECURITY_TOKEN, reservationRequest);
+    }
+}
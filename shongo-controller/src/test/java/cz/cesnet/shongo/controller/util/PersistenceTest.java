@@ -91,6 +91,8 @@ public class PersistenceTest
             aclEntry2.setObjectIdentity(aclObjectIdentity);
             aclEntry2.setRole(ObjectRole.OWNER.toString());
             entityManager.persist(aclEntry2);
+            // Identifiers are allocated from sequence and thus the entries are inserted only by flush
+            entityManager.flush();
 
             AclEntryDependency aclEntryDependency1 = new AclEntryDependency();
             aclEntryDependency1.setParentAclEntry(aclEntry1);
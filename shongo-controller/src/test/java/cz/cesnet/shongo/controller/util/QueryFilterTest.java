@@ -0,0 +1,116 @@
+package cz.cesnet.shongo.controller.util;
+
+import cz.cesnet.shongo.CommonReportSet;
+import cz.cesnet.shongo.controller.AbstractDatabaseTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for cursors in {@link QueryFilter}.
+ *
+ * @author Martin Srom <martin.srom@cesnet.cz>
+ */
+public class QueryFilterTest extends AbstractDatabaseTest
+{
+    private static final QueryFilter.OrderKey ORDER_KEY_NAME =
+            new QueryFilter.OrderKey("record.name", 1, QueryFilter.OrderKey.Type.STRING);
+
+    private static final QueryFilter.OrderKey ORDER_KEY_ID =
+            new QueryFilter.OrderKey("record.id", 0, QueryFilter.OrderKey.Type.NUMBER);
+
+    /**
+     * Test that keyset cursors list all records in the same order as a single query when the first order key
+     * contains {@code NULL} values.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCursorWithNullValues() throws Exception
+    {
+        EntityManager entityManager = createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            entityManager.createNativeQuery("CREATE TABLE query_filter_test (id BIGINT PRIMARY KEY, name VARCHAR(255))")
+                    .executeUpdate();
+            entityManager.createNativeQuery("INSERT INTO query_filter_test (id, name) VALUES"
+                    + " (1, 'b'), (2, NULL), (3, 'a'), (4, NULL), (5, 'b'), (6, 'c')").executeUpdate();
+            entityManager.getTransaction().commit();
+
+            for (int count = 1; count <= 3; count++) {
+                Assert.assertEquals(Arrays.asList(2L, 4L, 3L, 1L, 5L, 6L), listIds(entityManager, false, count));
+                Assert.assertEquals(Arrays.asList(6L, 5L, 1L, 3L, 4L, 2L), listIds(entityManager, true, count));
+            }
+        }
+        finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.getTransaction().begin();
+            entityManager.createNativeQuery("DROP TABLE query_filter_test IF EXISTS").executeUpdate();
+            entityManager.getTransaction().commit();
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Test that a cursor can't be applied to records ordered by keys of other types.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCursorWithOtherOrder() throws Exception
+    {
+        QueryFilter queryFilter = new QueryFilter("record", true);
+        queryFilter.setOrderKeys(false, ORDER_KEY_NAME, ORDER_KEY_ID);
+        String cursor = queryFilter.formatCursor(2, new Object[]{5L, "name"});
+        queryFilter = new QueryFilter("record", true);
+        queryFilter.setOrderKeys(false, ORDER_KEY_NAME, ORDER_KEY_ID);
+        queryFilter.applyCursor(cursor);
+        Assert.assertTrue(queryFilter.isCursorFiltered());
+
+        queryFilter = new QueryFilter("record", true);
+        queryFilter.setOrderKeys(false, ORDER_KEY_ID, ORDER_KEY_ID);
+        try {
+            queryFilter.applyCursor(cursor);
+            Assert.fail("Cursor for other order shouldn't be applied.");
+        }
+        catch (CommonReportSet.TypeIllegalValueException exception) {
+            Assert.assertEquals(cursor, exception.getValue());
+        }
+    }
+
+    /**
+     * @param entityManager to be used
+     * @param descending    specifies whether records should be ordered descending
+     * @param count         number of records in each page
+     * @return identifiers of all records listed page by page by cursors
+     */
+    private List<Long> listIds(EntityManager entityManager, boolean descending, int count)
+    {
+        List<Long> ids = new ArrayList<Long>();
+        String cursor = null;
+        while (true) {
+            QueryFilter queryFilter = new QueryFilter("record", true);
+            String queryOrderBy = queryFilter.setOrderKeys(descending, ORDER_KEY_NAME, ORDER_KEY_ID);
+            queryFilter.applyCursor(cursor);
+            Query query = entityManager.createNativeQuery("SELECT record.id, record.name FROM query_filter_test record"
+                    + " WHERE " + queryFilter.toQueryWhere() + " ORDER BY " + queryOrderBy);
+            queryFilter.fillQueryParameters(query);
+            query.setMaxResults(count);
+            List resultList = query.getResultList();
+            if (resultList.isEmpty()) {
+                return ids;
+            }
+            for (Object result : resultList) {
+                ids.add(((Number) ((Object[]) result)[0]).longValue());
+            }
+            cursor = queryFilter.formatCursor(ids.size(), resultList.get(resultList.size() - 1));
+        }
+    }
+}